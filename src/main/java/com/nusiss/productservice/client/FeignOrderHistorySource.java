@@ -0,0 +1,24 @@
+package com.nusiss.productservice.client;
+
+import com.nusiss.commonservice.feign.OrderFeignClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ 通过订单服务的 Feign 接口查询用户历史订单（连接 / 读取超时见 spring.cloud.openfeign.client.config）
+ */
+@Component
+@ConditionalOnProperty(name = "product.order-history.stub.enabled", havingValue = "false", matchIfMissing = true)
+public class FeignOrderHistorySource implements OrderHistorySource {
+
+    @Autowired
+    private OrderFeignClient orderFeignClient;
+
+    @Override
+    public List<Long> getPurchasedProductIds(Long userId) {
+        return orderFeignClient.getProductIdsByUserId(userId);
+    }
+}
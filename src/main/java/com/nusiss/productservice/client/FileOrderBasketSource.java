@@ -0,0 +1,82 @@
+package com.nusiss.productservice.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ 本地订单文件，作为订单服务的替代数据源（离线导出的订单、本地运行和测试）
+ 文件每行一个订单：商品 ID 以逗号或空白分隔；空行和 # 开头的行忽略，含非法 ID 的行跳过
+ 每次重建模型时重新读取，未配置 product.copurchase.file 或文件不存在时没有数据
+ */
+@Component
+public class FileOrderBasketSource implements OrderBasketSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileOrderBasketSource.class);
+
+    @Value("${product.copurchase.file:}")
+    private String file = "";
+
+    @Override
+    public void forEachBasket(Consumer<long[]> consumer) {
+        if (!StringUtils.hasText(file)) {
+            return;
+        }
+        Path path = Paths.get(file);
+        if (!Files.isRegularFile(path)) {
+            logger.warn("订单文件 {} 不存在，跳过", path);
+            return;
+        }
+        int invalid = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                long[] basket = parse(line);
+                if (basket == null) {
+                    invalid++;
+                } else {
+                    consumer.accept(basket);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取订单文件失败: " + path, e);
+        }
+        if (invalid > 0) {
+            logger.warn("订单文件 {} 中有 {} 行格式错误，已跳过", path, invalid);
+        }
+    }
+
+    // 解析一行订单，格式错误时返回 null
+    static long[] parse(String line) {
+        String[] tokens = line.split("[,\\s]+");
+        long[] ids = new long[tokens.length];
+        int n = 0;
+        for (String token : tokens) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            try {
+                ids[n++] = Long.parseLong(token);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+}
@@ -0,0 +1,53 @@
+package com.nusiss.productservice.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nusiss.productservice.event.OrderHistoryFetchedEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+ 从订单服务取到的用户历史订单（OrderHistoryClient 经 OrderFeignClient 查询后发布 OrderHistoryFetchedEvent），
+ 每个用户的全部购买记录作为一个购物篮，按用户保存最新的一份
+ 订单服务没有批量导出接口，模型只能覆盖请求过推荐的用户；最多保存 observed-max-users 个用户，超出时淘汰最久未更新的
+ */
+@Component
+public class ObservedOrderBasketSource implements OrderBasketSource {
+
+    @Value("${product.copurchase.observed-max-users:200000}")
+    private long maxUsers = 200_000;
+
+    private Cache<Long, long[]> baskets;
+
+    @PostConstruct
+    public void init() {
+        baskets = Caffeine.newBuilder().maximumSize(maxUsers).build();
+    }
+
+    @EventListener
+    public void onOrderHistoryFetched(OrderHistoryFetchedEvent event) {
+        List<Long> productIds = event.getProductIds();
+        if (event.getUserId() == null || productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        baskets.put(event.getUserId(), productIds.stream()
+                .filter(id -> id != null)
+                .mapToLong(Long::longValue)
+                .toArray());
+    }
+
+    @Override
+    public void forEachBasket(Consumer<long[]> consumer) {
+        baskets.asMap().values().forEach(consumer);
+    }
+
+    // 当前保存的用户数
+    public long size() {
+        return baskets.estimatedSize();
+    }
+}
@@ -0,0 +1,17 @@
+package com.nusiss.productservice.client;
+
+import java.util.function.Consumer;
+
+/*
+ 共同购买推荐模型的购物篮来源，每个购物篮是一组一起购买的商品 ID（一个订单或一个用户的全部购买记录）
+ 模型重建时遍历所有来源：ObservedOrderBasketSource（从订单服务取到的用户历史订单）和
+ FileOrderBasketSource（本地订单文件，配置了 product.copurchase.file 时才有数据）
+ */
+public interface OrderBasketSource {
+
+    /*
+     遍历当前所有购物篮
+     @param consumer 接收每个购物篮的商品 ID，数组不会被复用
+     */
+    void forEachBasket(Consumer<long[]> consumer);
+}
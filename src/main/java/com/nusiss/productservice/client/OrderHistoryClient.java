@@ -0,0 +1,249 @@
+package com.nusiss.productservice.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nusiss.productservice.event.OrderHistoryFetchedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ 用户历史订单的异步查询，订单服务变慢或不可用时不占用 Tomcat 线程
+ - 缓存：按用户缓存购买过的商品 ID，cache-ttl-seconds 内直接返回；之后仍保留到 stale-ttl-seconds，订单服务失败时作为兜底
+ - 合并：同一用户的并发请求共用一次调用
+ - 隔离舱：调用在独立的有界线程池中执行（最多 max-concurrent 个并发，max-queued 个排队），满了直接降级
+ - 超时：timeout-ms 后不再等待结果直接降级（线程池中的调用由 Feign 的读取超时结束）
+ - 熔断：最近 circuit.window-size 次调用的失败率达到 circuit.failure-rate 后 circuit.open-ms 内不再调用订单服务
+ 降级时返回过期缓存，没有缓存时返回 null，由调用方改用分类排行榜
+ 从订单服务取到新结果时发布 OrderHistoryFetchedEvent，供共同购买推荐模型收集购物篮
+ 结果记录在 product.order-history.requests 计时器中（tag result=fresh / cached / stale / unavailable），
+ 熔断器状态记录在 product.order-history.circuit.state（0 关闭、1 打开、2 半开）
+ */
+@Component
+public class OrderHistoryClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderHistoryClient.class);
+
+    @Autowired
+    private OrderHistorySource source;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${product.order-history.timeout-ms:1000}")
+    private long timeoutMillis = 1000;
+
+    @Value("${product.order-history.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds = 300;
+
+    @Value("${product.order-history.stale-ttl-seconds:3600}")
+    private long staleTtlSeconds = 3600;
+
+    @Value("${product.order-history.cache-max-users:100000}")
+    private long cacheMaxUsers = 100_000;
+
+    @Value("${product.order-history.max-concurrent:16}")
+    private int maxConcurrent = 16;
+
+    @Value("${product.order-history.max-queued:32}")
+    private int maxQueued = 32;
+
+    @Value("${product.order-history.circuit.window-size:20}")
+    private int circuitWindowSize = 20;
+
+    @Value("${product.order-history.circuit.minimum-calls:10}")
+    private int circuitMinimumCalls = 10;
+
+    @Value("${product.order-history.circuit.failure-rate:0.5}")
+    private double circuitFailureRate = 0.5;
+
+    @Value("${product.order-history.circuit.open-ms:10000}")
+    private long circuitOpenMillis = 10_000;
+
+    private Cache<Long, CachedHistory> cache;
+    private ThreadPoolExecutor bulkhead;         // 调用订单服务的线程池
+    private ThreadPoolExecutor callbackExecutor; // 处理结果 / 超时的线程池，避免在超时调度线程上执行后续逻辑
+    private CircuitBreaker circuitBreaker;
+
+    private final Map<Long, CompletableFuture<List<Long>>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxUsers)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(cacheTtlSeconds, staleTtlSeconds)))
+                .build();
+        bulkhead = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueued)), namedThreadFactory("order-history-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        bulkhead.allowCoreThreadTimeOut(true);
+        callbackExecutor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000),
+                namedThreadFactory("order-history-callback-"), new ThreadPoolExecutor.AbortPolicy());
+        callbackExecutor.allowCoreThreadTimeOut(true);
+        circuitBreaker = new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, circuitFailureRate, circuitOpenMillis);
+        Gauge.builder("product.order-history.circuit.state", this, c -> c.circuitBreaker.getState().ordinal())
+                .description("Order-history circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
+
+    /*
+     异步查询用户购买过的商品 ID
+     @param userId 用户 ID
+     @return 商品 ID 列表；订单服务不可用且没有缓存时结果为 null（不会异常完成）
+     */
+    public CompletableFuture<List<Long>> getPurchasedProductIds(Long userId) {
+        long start = System.nanoTime();
+        CachedHistory cached = cache.getIfPresent(userId);
+        if (cached != null && cached.ageMillis() < TimeUnit.SECONDS.toMillis(cacheTtlSeconds)) {
+            record("cached", start);
+            return CompletableFuture.completedFuture(cached.productIds);
+        }
+        CompletableFuture<List<Long>> result = new CompletableFuture<>();
+        CompletableFuture<List<Long>> existing = inFlight.putIfAbsent(userId, result);
+        if (existing != null) {
+            return existing;
+        }
+        fetch(userId, cached, result, start);
+        return result;
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private void fetch(Long userId, CachedHistory stale, CompletableFuture<List<Long>> result, long start) {
+        if (!circuitBreaker.tryAcquire()) {
+            complete(userId, result, fallback(stale, start));
+            return;
+        }
+        CompletableFuture<List<Long>> call;
+        try {
+            call = CompletableFuture.supplyAsync(() -> source.getPurchasedProductIds(userId), bulkhead);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.release(); // 隔离舱已满，不算订单服务的失败
+            logger.debug("订单服务调用排队已满，用户 {} 降级处理", userId);
+            complete(userId, result, fallback(stale, start));
+            return;
+        }
+        call.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((productIds, error) -> {
+            try {
+                callbackExecutor.execute(() -> onResult(userId, stale, result, start, productIds, error, true));
+            } catch (RejectedExecutionException e) {
+                // 回调线程池积压：在当前线程（可能是超时调度线程）只做常数时间的收尾，不发布事件
+                logger.debug("订单服务回调排队已满，用户 {} 的结果直接完成", userId);
+                onResult(userId, stale, result, start, productIds, error, false);
+            }
+        });
+    }
+
+    /*
+     处理一次订单服务调用的结果：更新熔断器和缓存后完成 result
+     result 的后续处理由调用方放到自己的线程池中执行（见 ProductServiceImpl.getTopRecommendedProductsByUser）
+     @param publish 是否发布 OrderHistoryFetchedEvent（监听方会更新共同购买模型的购物篮）
+     */
+    private void onResult(Long userId, CachedHistory stale, CompletableFuture<List<Long>> result, long start,
+                          List<Long> productIds, Throwable error, boolean publish) {
+        if (error == null) {
+            circuitBreaker.onSuccess();
+            List<Long> ids = productIds == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(productIds));
+            cache.put(userId, new CachedHistory(ids));
+            record("fresh", start);
+            if (publish) {
+                publishFetched(userId, ids);
+            }
+            complete(userId, result, ids);
+        } else {
+            circuitBreaker.onFailure();
+            if (error.getCause() instanceof TimeoutException || error instanceof TimeoutException) {
+                logger.warn("查询用户 {} 的历史订单超过 {} ms，降级处理", userId, timeoutMillis);
+            } else {
+                logger.warn("查询用户 {} 的历史订单失败，降级处理", userId, error);
+            }
+            complete(userId, result, fallback(stale, start));
+        }
+    }
+
+    private void publishFetched(Long userId, List<Long> productIds) {
+        try {
+            eventPublisher.publishEvent(new OrderHistoryFetchedEvent(userId, productIds));
+        } catch (RuntimeException e) {
+            logger.warn("发布用户 {} 的历史订单事件失败", userId, e);
+        }
+    }
+
+    private List<Long> fallback(CachedHistory stale, long start) {
+        if (stale != null) {
+            record("stale", start);
+            return stale.productIds;
+        }
+        record("unavailable", start);
+        return null;
+    }
+
+    private void complete(Long userId, CompletableFuture<List<Long>> result, List<Long> productIds) {
+        inFlight.remove(userId, result);
+        result.complete(productIds);
+    }
+
+    private void record(String result, long start) {
+        Timer.builder("product.order-history.requests")
+                .description("Order-history lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkhead.shutdownNow();
+        callbackExecutor.shutdown();
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class CachedHistory {
+        private final List<Long> productIds;
+        private final long fetchedAt = System.currentTimeMillis();
+
+        private CachedHistory(List<Long> productIds) {
+            this.productIds = productIds;
+        }
+
+        long ageMillis() {
+            return System.currentTimeMillis() - fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nusiss.productservice.client;
+
+import java.util.List;
+
+/*
+ 用户历史订单的数据来源（阻塞调用），由 OrderHistoryClient 包装超时、缓存、隔离与熔断
+ 默认实现为 FeignOrderHistorySource；product.order-history.stub.enabled=true 时使用本地桩 StubOrderHistorySource
+ */
+public interface OrderHistorySource {
+
+    /*
+     查询用户购买过的商品 ID
+     @param userId 用户 ID
+     @return 商品 ID 列表（可能为空）
+     */
+    List<Long> getPurchasedProductIds(Long userId);
+}
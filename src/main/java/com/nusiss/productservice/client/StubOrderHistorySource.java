@@ -0,0 +1,66 @@
+package com.nusiss.productservice.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ 订单服务的本地桩，用于在没有订单服务时本地运行，以及延迟 / 故障注入测试
+ - 每次调用先等待 latencyMillis，再按 failureRate 的概率抛出异常
+ - 用户的历史订单通过 setPurchases 设置，未设置的用户返回空列表
+ product.order-history.stub.enabled=true 时替代 FeignOrderHistorySource
+ */
+@Component
+@ConditionalOnProperty(name = "product.order-history.stub.enabled", havingValue = "true")
+public class StubOrderHistorySource implements OrderHistorySource {
+
+    @Value("${product.order-history.stub.latency-ms:0}")
+    private volatile long latencyMillis;
+
+    @Value("${product.order-history.stub.failure-rate:0}")
+    private volatile double failureRate;
+
+    private final Map<Long, List<Long>> purchases = new ConcurrentHashMap<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public List<Long> getPurchasedProductIds(Long userId) {
+        calls.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("injected order-service failure");
+        }
+        return purchases.getOrDefault(userId, List.of());
+    }
+
+    public void setPurchases(Long userId, List<Long> productIds) {
+        purchases.put(userId, List.copyOf(productIds));
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    // 累计调用次数（含失败）
+    public int getCalls() {
+        return calls.get();
+    }
+}
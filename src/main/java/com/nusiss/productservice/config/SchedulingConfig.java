@@ -0,0 +1,12 @@
+package com.nusiss.productservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/*
+ 开启 @Scheduled 定时任务（库存预留过期清理、库存批量写回等）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,18 @@
+package com.nusiss.productservice.config;
+
+/*
+ 服务暂时无法接受更多请求（例如写缓冲已满），GlobalExceptionHandler 返回 429 并带 Retry-After
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds; // 建议客户端等待的秒数
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
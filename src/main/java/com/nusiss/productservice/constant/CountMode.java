@@ -0,0 +1,30 @@
+package com.nusiss.productservice.constant;
+
+import com.nusiss.productservice.config.CustomException;
+
+/*
+ 分页查询的总数统计方式
+ */
+public enum CountMode {
+
+    EXACT,     // 精确 COUNT(*)，与分页查询顺序执行（默认行为）
+    PARALLEL,  // 精确 COUNT(*)，与分页查询并行执行
+    CACHED,    // 按规范化后的筛选条件缓存 COUNT(*) 结果，短时间内复用
+    ESTIMATED, // 使用 EXPLAIN 的行数估算，不执行 COUNT(*)
+    NONE;      // 不统计总数，只返回是否有下一页
+
+    /*
+     解析请求参数（大小写不敏感），为空时返回 EXACT
+     @throws CustomException 不支持的取值
+     */
+    public static CountMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        try {
+            return CountMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new CustomException("Unsupported countMode: " + value);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.nusiss.productservice.constant;
+
+/*
+ 新增商品时的近重复检测方式（product.duplicates.on-create）
+ */
+public enum DuplicateCheckMode {
+
+    OFF,    // 不检测
+    FLAG,   // 检测，在返回的商品中标出疑似重复的已有商品（possibleDuplicateIds），仍然创建
+    REJECT  // 检测，发现疑似重复时拒绝创建（400）
+}
@@ -0,0 +1,27 @@
+package com.nusiss.productservice.constant;
+
+import com.nusiss.productservice.config.CustomException;
+
+/*
+ 分类排行榜的排序方式
+ */
+public enum LeaderboardRanking {
+
+    RATING, // 评分从高到低（NULL 排最后），评分相同按 id 升序
+    NEWEST; // 创建时间从新到旧（NULL 排最后），时间相同按 id 降序
+
+    /*
+     解析请求参数（大小写不敏感），为空时返回 RATING
+     @throws CustomException 不支持的取值
+     */
+    public static LeaderboardRanking from(String value) {
+        if (value == null || value.isBlank()) {
+            return RATING;
+        }
+        try {
+            return LeaderboardRanking.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new CustomException("Unsupported ranking: " + value);
+        }
+    }
+}
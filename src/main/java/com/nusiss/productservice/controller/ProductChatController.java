@@ -1,7 +1,8 @@
 package com.nusiss.productservice.controller;
 
-import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.constant.LeaderboardRanking;
 import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.service.ProductLeaderboardService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,7 +16,7 @@ import java.util.*;
 public class ProductChatController {
 
     @Autowired
-    private ProductMapper productMapper;
+    private ProductLeaderboardService leaderboardService; // 分类排行榜
 
     /*
      推荐评分最高的5个手机
@@ -69,10 +70,10 @@ public class ProductChatController {
     }
 
     /*
-     内部通用推荐逻辑：查找分类下评分最高的前5个商品
+     内部通用推荐逻辑：从分类排行榜读取评分最高的前5个商品
      */
     private Map<String, Object> recommendTopProducts(String category, String title) {
-        List<Product> productList = productMapper.findTop5ByCategoryOrderByRatingDesc(category);
+        List<Product> productList = leaderboardService.getTopProducts(category, LeaderboardRanking.RATING, 5, null);
         if (productList.isEmpty()) {
             return responseText("当前暂无该类商品（分类：" + category + "）");
         }
@@ -3,14 +3,36 @@ package com.nusiss.productservice.controller;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.nusiss.productservice.config.ApiResponse;
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.dto.BulkResult;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.DuplicateCandidate;
+import com.nusiss.productservice.dto.DuplicateGroup;
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.dto.SuggestStats;
 import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.Suggestion;
+import com.nusiss.productservice.service.ProductBulkService;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import com.nusiss.productservice.service.ProductExportService;
+import com.nusiss.productservice.service.ProductLeaderboardService;
 import com.nusiss.productservice.service.ProductService;
+import com.nusiss.productservice.service.ProductSuggestService;
+import com.nusiss.productservice.util.ConditionalRequests;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 /*
 产品controller，负责处理与 Product 实体相关的 REST API 请求
@@ -22,20 +44,66 @@ public class ProductController {
     @Autowired
     private ProductService productService; // 注入 ProductService 接口（由 Spring 自动注入实现类）
 
+    @Autowired
+    private ProductSuggestService productSuggestService; // 搜索框输入联想
+
+    @Autowired
+    private ProductExportService productExportService; // 商品目录流式导出
+
+    @Autowired
+    private ProductBulkService productBulkService; // 批量新增 / 更新 / 删除
+
+    @Autowired
+    private ProductLeaderboardService leaderboardService; // 分类排行榜
+
+    @Autowired
+    private ProductDuplicateService duplicateService; // 商品近重复检测
+
     /*
      获取所有产品列表
+     列表类接口（全部 / 分页 / 筛选 / 排序）都带 ETag / Last-Modified，任何商品变更后失效；
+     请求带 If-None-Match / If-Modified-Since 且未变化时返回 304，不查询数据库
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Product>>> getAllProducts() {
+    public ResponseEntity<ApiResponse<List<Product>>> getAllProducts(WebRequest request) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
         List<Product> products = productService.getAllProducts();
         return ResponseEntity.ok(new ApiResponse<>(true, "The product list retrieved successfully", products));
     }
 
+    /*
+     流式导出全部产品（GET /products?format=ndjson）
+     以 NDJSON 格式（每行一个产品 JSON，Content-Type: application/x-ndjson）边读数据库边写响应，
+     不会把整张表加载到内存中，适合全量同步 / 导出
+     @param gzip 为 true 时以 gzip 压缩输出（Content-Encoding: gzip）
+     */
+    @GetMapping(params = "format=ndjson")
+    public void exportProducts(@RequestParam(defaultValue = "false") boolean gzip,
+                               HttpServletResponse response) throws IOException {
+        // 取得导出名额后才设置响应头、打开输出流；名额已满时由 GlobalExceptionHandler 返回 429
+        productExportService.exportNdjson(() -> {
+            response.setContentType("application/x-ndjson");
+            response.setCharacterEncoding("UTF-8");
+            if (!gzip) {
+                return response.getOutputStream();
+            }
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            // syncFlush：导出过程中的 flush 会把已压缩的数据立即发给客户端
+            return new GZIPOutputStream(response.getOutputStream(), 8192, true);
+        });
+    }
+
     /*
      根据 ID 获取单个产品信息
+     ETag 按商品内容计算并与商品一起缓存，请求带 If-None-Match 且未变化时返回 304
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Product>> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<Product>> getProductById(@PathVariable Long id, WebRequest request) {
+        if (ConditionalRequests.notModified(request, productService.getProductStamp(id))) {
+            return null; // 304 Not Modified
+        }
         Product product = productService.getProductById(id);
         if (product != null) {
             return ResponseEntity.ok(new ApiResponse<>(true, "The product retrieved successfully", product));
@@ -79,22 +147,90 @@ public class ProductController {
         }
     }
 
+    /*
+     批量新增产品（卖家导入），返回每一条的结果；部分失败时 success 为 false
+     每一条都做近重复检测：被拒绝的记为失败，疑似重复的在该条结果中带回 possibleDuplicateIds
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkResult>> createProducts(@RequestBody List<Product> products) {
+        BulkResult result = productBulkService.createProducts(products);
+        return ResponseEntity.ok(new ApiResponse<>(result.getFailed() == 0, "Bulk create finished", result));
+    }
+
+    /*
+     批量更新产品，每个产品必须带 id
+     */
+    @PutMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkResult>> updateProducts(@RequestBody List<Product> products) {
+        BulkResult result = productBulkService.updateProducts(products);
+        return ResponseEntity.ok(new ApiResponse<>(result.getFailed() == 0, "Bulk update finished", result));
+    }
+
+    /*
+     批量删除产品，请求体为 ID 列表
+     */
+    @DeleteMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkResult>> deleteProducts(@RequestBody List<Long> ids) {
+        BulkResult result = productBulkService.deleteProducts(ids);
+        return ResponseEntity.ok(new ApiResponse<>(result.getFailed() == 0, "Bulk delete finished", result));
+    }
+
     /*
      扩展功能1 接口：分页查询产品列表接口
      */
     @GetMapping("/page")
     public ResponseEntity<ApiResponse<Page<Product>>> getProductsByPage(
             @RequestParam(defaultValue = "1") int page,       // 当前页码，默认第1页
-            @RequestParam(defaultValue = "10") int size       // 每页显示条数，默认10条
+            @RequestParam(defaultValue = "10") int size,      // 每页显示条数，默认10条
+            WebRequest request
     ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
         Page<Product> resultPage = productService.getProductPage(page, size);
         return ResponseEntity.ok(new ApiResponse<>(true, "Paged products retrieved successfully", resultPage));
     }
 
+    /*
+     分页接口（可选总数统计方式）：/products/page?page=1&size=10&countMode=PARALLEL
+     countMode：EXACT（默认）、PARALLEL（COUNT 与分页并行）、CACHED（短时缓存 COUNT）、
+     ESTIMATED（EXPLAIN 估算）、NONE（不统计，仅返回 hasNext）
+     */
+    @GetMapping(value = "/page", params = {"countMode", "!cursor"})
+    public ResponseEntity<ApiResponse<CountedPage<Product>>> getProductsByPageWithCountMode(
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam String countMode,
+            WebRequest request
+    ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
+        CountedPage<Product> resultPage = productService.getProductPage(page, size, CountMode.from(countMode));
+        return ResponseEntity.ok(new ApiResponse<>(true, "Paged products retrieved successfully", resultPage));
+    }
+
+    /*
+     游标分页接口：/products/page?cursor=&size=10
+     携带 cursor 参数时使用游标分页（第一页传空），返回 nextCursor 用于请求下一页
+     */
+    @GetMapping(value = "/page", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Product>>> getProductsByCursor(
+            @RequestParam String cursor,                      // 上一页返回的游标，第一页为空
+            @RequestParam(defaultValue = "10") int size,      // 每页显示条数，默认10条
+            WebRequest request
+    ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
+        CursorPage<Product> resultPage = productService.getProductPageByCursor(cursor, size);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Paged products retrieved successfully", resultPage));
+    }
+
     /*
      扩展功能2 接口：关键词搜索产品接口
-     仅支持根据产品名称（name）字段进行模糊搜索
-     @param keyword 关键词（用于模糊匹配产品名称）
+     在名称、标题、描述上分词检索并按相关度排序，支持 AND / OR 与前缀（词尾 *）查询
+     @param keyword 关键词
      @return 匹配的产品列表
      */
     @GetMapping("/search")
@@ -103,6 +239,30 @@ public class ProductController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Products matched successfully", result));
     }
 
+    /*
+     搜索框输入联想接口（边输入边提示）
+     根据已输入的前缀联想商品名称和分类，按评分从高到低返回
+     @param q 已输入的内容
+     @param limit 最多返回条数（默认 10，最多 10）
+     @return 联想结果列表
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<Suggestion>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        List<Suggestion> result = productSuggestService.suggest(q, limit);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Suggestions retrieved successfully", result));
+    }
+
+    /*
+     输入联想索引的规模与估算内存占用
+     */
+    @GetMapping("/suggest/stats")
+    public ResponseEntity<ApiResponse<SuggestStats>> getSuggestStats() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Suggest index stats retrieved successfully", productSuggestService.getStats()));
+    }
+
 
     /*
     扩展功能3 接口：多条件筛选产品接口(筛选支持单条件筛选，或者组合条件筛选)
@@ -123,12 +283,34 @@ public class ProductController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
-            @RequestParam(required = false) Double rating
+            @RequestParam(required = false) Double rating,
+            WebRequest request
     ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
         List<Product> products = productService.filterProducts(name, category, status, minPrice, maxPrice, rating);
         return ResponseEntity.ok(new ApiResponse<>(true, "Products filtered successfully", products));
     }
 
+    /*
+    分面统计接口：供筛选侧边栏显示各分类 / 状态的商品数量，以及价格、评分区间直方图
+    参数与 /products/filter 相同，统计的是满足这些条件的商品
+    @return 分面统计结果
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<ProductFacets>> getProductFacets(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Double rating
+    ) {
+        ProductFacets facets = productService.getProductFacets(name, category, status, minPrice, maxPrice, rating);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Product facets retrieved successfully", facets));
+    }
+
     /*
     扩展功能4 接口：排序功能（可组合分页和多条件筛选）
      * @param name 商品名称（模糊搜索）
@@ -154,8 +336,12 @@ public class ProductController {
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String order,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request
     ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
         IPage<Product> products = productService.filterProductsWithSorting(
                 name, category, status, minPrice, maxPrice, rating,
                 sortBy, order, page, size
@@ -165,7 +351,133 @@ public class ProductController {
     }
 
     /*
-     推荐接口：猜你喜欢（同分类热门商品）
+     排序接口（可选总数统计方式）：参数与 /products/sort 相同，另加 countMode
+     */
+    @GetMapping(value = "/sort", params = {"countMode", "!cursor"})
+    public ResponseEntity<ApiResponse<CountedPage<Product>>> filterProductsWithSortingAndCountMode(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Double rating,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String order,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam String countMode,
+            WebRequest request
+    ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
+        CountedPage<Product> products = productService.filterProductsWithSorting(
+                name, category, status, minPrice, maxPrice, rating,
+                sortBy, order, page, size, CountMode.from(countMode)
+        );
+
+        return ResponseEntity.ok(new ApiResponse<>(true, "Products filtered successfully", products));
+    }
+
+    /*
+     游标分页版本的排序接口：/products/sort?cursor=&sortBy=price&order=asc&size=10
+     筛选和排序参数与 /products/sort 相同，sortBy 仅支持 id、price、rating、create_datetime；
+     翻页时必须保持 sortBy 和 order 不变
+     */
+    @GetMapping(value = "/sort", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<Product>>> filterProductsWithCursor(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Double rating,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String order,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request
+    ) {
+        if (ConditionalRequests.notModified(request, productService.getCatalogStamp())) {
+            return null; // 304 Not Modified
+        }
+        CursorPage<Product> products = productService.filterProductsWithCursor(
+                name, category, status, minPrice, maxPrice, rating,
+                sortBy, order, cursor, size
+        );
+
+        return ResponseEntity.ok(new ApiResponse<>(true, "Products filtered successfully", products));
+    }
+
+    /*
+     分类排行榜：/products/top?category=Phones&ranking=rating&limit=10
+     @param category 商品分类
+     @param ranking 排序方式：rating（评分最高，默认）、newest（最新上架）
+     @param limit 返回数量（默认 10）
+     @return 排名靠前的商品列表
+     */
+    @GetMapping("/top")
+    public ResponseEntity<ApiResponse<List<Product>>> getTopProducts(
+            @RequestParam String category,
+            @RequestParam(required = false) String ranking,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        List<Product> products = leaderboardService.getTopProducts(category, LeaderboardRanking.from(ranking), limit, null);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Top products retrieved successfully", products));
+    }
+
+    /*
+     更多类似商品：/products/{id}/similar?limit=10，按名称、标题、描述的文本内容相似度排序
+     @param id 商品 ID
+     @param limit 返回数量（默认 10，最多 product.similar.max-results 个）
+     @return 相似商品列表；商品不存在时返回 404
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<ApiResponse<List<Product>>> getSimilarProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        List<Product> similar = productService.getSimilarProducts(id, limit);
+        if (similar == null) {
+            return ResponseEntity.status(404).body(new ApiResponse<>(false, "Product not found", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Similar products retrieved successfully", similar));
+    }
+
+    /*
+     与某个商品疑似重复的商品：/products/{id}/duplicates?limit=10，按名称、标题、描述的文本相似度（MinHash 估算）排序
+     @param id 商品 ID
+     @param limit 返回数量（默认 10，最多 product.duplicates.max-results 个）
+     @return 疑似重复的商品 ID 及相似度；商品不存在时返回 404，索引尚未就绪时返回 429
+     */
+    @GetMapping("/{id}/duplicates")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidate>>> getDuplicateProducts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        if (productService.getProductById(id) == null) {
+            return ResponseEntity.status(404).body(new ApiResponse<>(false, "Product not found", null));
+        }
+        List<DuplicateCandidate> duplicates = duplicateService.getDuplicatesOf(id, limit);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Duplicate products retrieved successfully", duplicates));
+    }
+
+    /*
+     全量近重复扫描：/products/duplicates?minSimilarity=0.8
+     扫描全部商品，返回疑似重复的商品组（只比较 LSH 同桶的商品对）；索引尚未就绪时返回 429
+     @param minSimilarity 相似度下限（可选，默认 product.duplicates.min-similarity）
+     @return 疑似重复的商品组，按组大小降序
+     */
+    @GetMapping("/duplicates")
+    public ResponseEntity<ApiResponse<List<DuplicateGroup>>> scanDuplicateProducts(
+            @RequestParam(required = false) Double minSimilarity
+    ) {
+        List<DuplicateGroup> groups = duplicateService.scanDuplicates(minSimilarity);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Duplicate product groups retrieved successfully", groups));
+    }
+
+    /*
+     推荐接口：猜你喜欢（经常一起购买的商品，不足时用内容相似、同分类热门商品补齐）
      */
     @GetMapping("/recommend/related/{productId}")
     public ResponseEntity<ApiResponse<List<Product>>> recommendRelatedProducts(@PathVariable Long productId) {
@@ -175,11 +487,12 @@ public class ProductController {
 
     /*
     推荐接口：热门商品推荐(基于用户购买过的商品)
+    异步返回：等待订单服务期间不占用 Tomcat 线程
     */
     @GetMapping("/recommend/user/{userId}/top")
-    public ResponseEntity<ApiResponse<List<Product>>> recommendByUserOrder(@PathVariable Long userId) {
-        List<Product> recommended = productService.getTopRecommendedProductsByUser(userId, 5);
-        return ResponseEntity.ok(ApiResponse.success(recommended));
+    public CompletableFuture<ResponseEntity<ApiResponse<List<Product>>>> recommendByUserOrder(@PathVariable Long userId) {
+        return productService.getTopRecommendedProductsByUser(userId, 5)
+                .thenApply(recommended -> ResponseEntity.ok(ApiResponse.success(recommended)));
     }
 
 
@@ -2,11 +2,16 @@ package com.nusiss.productservice.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.nusiss.productservice.config.ApiResponse;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.FeedbackAnalytics;
+import com.nusiss.productservice.dto.RatingSummary;
 import com.nusiss.productservice.entity.ProductFeedback;
 import com.nusiss.productservice.service.ProductFeedbackService;
+import com.nusiss.productservice.util.ConditionalRequests;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -122,6 +127,35 @@ public class ProductFeedbackController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Comment count retrieved successfully", commentCount));
     }
 
+    /*
+     批量获取商品的评分摘要：/feedback/summary?productIds=1,2,3
+     列表页一次请求取回整页商品的平均评分、评论数和星级分布，代替逐个调用 average-rating / comment-count
+     @param productIds 商品 ID 列表（逗号分隔或重复参数），超过上限时返回 400
+     @return 评分摘要列表，按请求顺序
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<ApiResponse<List<RatingSummary>>> getRatingSummaries(@RequestParam List<Long> productIds) {
+        List<RatingSummary> summaries = feedbackService.getRatingSummaries(productIds);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Rating summaries retrieved successfully", summaries));
+    }
+
+    /*
+     商品反馈分析：/feedback/analytics?productId=1&days=30&months=12
+     返回全部反馈的星级分布、最近 7 / 30 天的反馈数与平均评分、最近 days 天每天的反馈数、最近 months 个月每月的合计
+     @param productId 产品 ID
+     @param days 按天序列的天数（默认 30）
+     @param months 按月序列的月数（默认 12）
+     @return 反馈分析结果
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<ApiResponse<FeedbackAnalytics>> getFeedbackAnalytics(
+            @RequestParam Long productId,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "12") int months) {
+        FeedbackAnalytics analytics = feedbackService.getFeedbackAnalytics(productId, days, months);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Feedback analytics retrieved successfully", analytics));
+    }
+
     /*
      扩展功能 3：根据产品 ID 获取反馈（分页 + 排序）
      支持分页参数 page 和 size，排序参数 sortBy（如 rating、create_datetime），order（asc 或 desc）
@@ -132,17 +166,22 @@ public class ProductFeedbackController {
      @param sortBy 排序字段（可选："rating"、"create_datetime"）
      @param order 排序方式（可选："asc"、"desc"）
      @return 分页后的反馈列表
+     响应带 ETag / Last-Modified，该产品的反馈变化后失效；请求带 If-None-Match / If-Modified-Since 且未变化时返回 304，不查询数据库
     */
-    @GetMapping("/by-product") // /feedback/by-product?productId=1&page=1&size=10&sortBy=rating&order=desc
+    @GetMapping(value = "/by-product", params = "!cursor") // /feedback/by-product?productId=1&page=1&size=10&sortBy=rating&order=desc
     public ResponseEntity<ApiResponse<IPage<ProductFeedback>>> getFeedbackByProductIdWithPageAndSort //
     (
             @RequestParam Long productId,                        // 必填：产品 ID
             @RequestParam(defaultValue = "1") int page,          // 可选：页码，默认从第 1 页开始
             @RequestParam(defaultValue = "10") int size,         // 可选：每页记录数，默认显示 10 条
             @RequestParam(required = false) String sortBy,       // 可选：排序字段，如 rating、create_datetime
-            @RequestParam(required = false) String order         // 可选：排序方式，asc（升序）或 desc（降序）
+            @RequestParam(required = false) String order,        // 可选：排序方式，asc（升序）或 desc（降序）
+            WebRequest request
     )
     {
+        if (ConditionalRequests.notModified(request, feedbackService.getFeedbackStamp(productId))) {
+            return null; // 304 Not Modified
+        }
         // 调用 Service 方法，根据产品 ID 分页查询评论，同时应用排序逻辑
         IPage<ProductFeedback> feedbackPage = feedbackService.getFeedbackByProductIdWithPageAndSort(
                 productId, page, size, sortBy, order
@@ -151,4 +190,27 @@ public class ProductFeedbackController {
         return ResponseEntity.ok(new ApiResponse<>(true, "Feedbacks retrieved successfully", feedbackPage));
     }
 
+    /*
+     游标分页版本：/feedback/by-product?productId=1&cursor=&sortBy=rating&order=desc&size=10
+     携带 cursor 参数时使用游标分页（第一页传空），返回 nextCursor 用于请求下一页；不统计总数，翻到多深都一样快
+     游标必须与 sortBy/order 一致，条件请求的处理与分页版本相同
+     */
+    @GetMapping(value = "/by-product", params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPage<ProductFeedback>>> getFeedbackByProductIdWithCursor(
+            @RequestParam Long productId,                        // 必填：产品 ID
+            @RequestParam String cursor,                         // 上一页返回的游标，第一页为空
+            @RequestParam(defaultValue = "10") int size,         // 可选：每页记录数，默认 10 条
+            @RequestParam(required = false) String sortBy,       // 可选：排序字段，rating、create_datetime
+            @RequestParam(required = false) String order,        // 可选：排序方式，asc（升序）或 desc（降序）
+            WebRequest request
+    ) {
+        if (ConditionalRequests.notModified(request, feedbackService.getFeedbackStamp(productId))) {
+            return null; // 304 Not Modified
+        }
+        CursorPage<ProductFeedback> feedbackPage = feedbackService.getFeedbackByProductIdWithCursor(
+                productId, sortBy, order, cursor, size
+        );
+        return ResponseEntity.ok(new ApiResponse<>(true, "Feedbacks retrieved successfully", feedbackPage));
+    }
+
 }
@@ -2,7 +2,9 @@ package com.nusiss.productservice.controller;
 
 import com.nusiss.productservice.config.ApiResponse;
 import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.CoverDriftReport;
 import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.service.ProductCoverService;
 import com.nusiss.productservice.service.ProductMediaService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -39,6 +41,9 @@ public class ProductMediaController {
     @Autowired
     private ProductMediaService productMediaService;
 
+    @Autowired
+    private ProductCoverService productCoverService;
+
     @Value("${file.access.host}") // 从配置文件中读取文件访问主机地址
     private String fileAccessHost;
 
@@ -209,6 +214,26 @@ public class ProductMediaController {
     }
 
 
+    /*
+     一次性回填任务：根据 ProductMedia 重新计算所有商品的封面图并写回 Products.cover_image_url
+     @return 实际被更新的商品数量
+     */
+    @PostMapping("/covers/backfill")
+    public ResponseEntity<ApiResponse<Integer>> backfillCovers() {
+        int updated = productCoverService.backfillCovers();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Cover images backfilled", updated));
+    }
+
+    /*
+     封面图一致性检查：报告 Products 中保存的封面图与 ProductMedia 不一致的商品（只读）
+     @return 漂移报告
+     */
+    @GetMapping("/covers/drift")
+    public ResponseEntity<ApiResponse<CoverDriftReport>> checkCoverDrift() {
+        CoverDriftReport report = productCoverService.checkConsistency();
+        return ResponseEntity.ok(new ApiResponse<>(true, "Cover image consistency checked", report));
+    }
+
     /*
      删除媒体记录
      @param id 媒体 ID
@@ -0,0 +1,68 @@
+package com.nusiss.productservice.controller;
+
+import com.nusiss.productservice.config.ApiResponse;
+import com.nusiss.productservice.dto.StockReservation;
+import com.nusiss.productservice.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/*
+ 秒杀库存预留接口：下单时预留，支付成功后确认，取消订单时释放；超时未确认自动释放
+ */
+@RestController
+@RequestMapping("/reservations")
+public class StockReservationController {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    /*
+     预留库存
+     URL: POST /reservations?productId=1&quantity=1
+     库存不足时返回 409；本实例额度正在重新同步（长时间连不上数据库后）时返回 429
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<StockReservation>> reserve(@RequestParam Long productId,
+                                                                 @RequestParam(defaultValue = "1") int quantity) {
+        StockReservation reservation = stockReservationService.reserve(productId, quantity);
+        if (reservation == null) {
+            return ResponseEntity.status(409).body(new ApiResponse<>(false, "Insufficient stock", null));
+        }
+        return ResponseEntity.status(201).body(new ApiResponse<>(true, "Stock reserved", reservation));
+    }
+
+    /*
+     确认预留（支付成功）
+     */
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<ApiResponse<String>> confirm(@PathVariable String id) {
+        if (stockReservationService.confirm(id)) {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Reservation confirmed", null));
+        }
+        return ResponseEntity.status(404).body(new ApiResponse<>(false, "Reservation not found or expired", null));
+    }
+
+    /*
+     释放预留（取消订单）
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<String>> release(@PathVariable String id) {
+        if (stockReservationService.release(id)) {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Reservation released", null));
+        }
+        return ResponseEntity.status(404).body(new ApiResponse<>(false, "Reservation not found or expired", null));
+    }
+
+    /*
+     查询商品当前可售库存（Products.stock 减去未确认的预留）
+     */
+    @GetMapping("/stock/{productId}")
+    public ResponseEntity<ApiResponse<Long>> getAvailableStock(@PathVariable Long productId) {
+        Long available = stockReservationService.getAvailableStock(productId);
+        if (available == null) {
+            return ResponseEntity.status(404).body(new ApiResponse<>(false, "Product not found", null));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Available stock retrieved", available));
+    }
+}
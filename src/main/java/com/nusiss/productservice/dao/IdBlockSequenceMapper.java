@@ -0,0 +1,23 @@
+package com.nusiss.productservice.dao;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/*
+ id_block_sequence 的 Mapper 接口，按段分配 ID（db/migration/007_id_block_sequence.sql）
+ */
+@Mapper
+public interface IdBlockSequenceMapper {
+
+    /*
+     读取序列的下一个 ID 并加行锁（须在事务中调用），多个实例同时取段时串行化
+     @return 序列不存在时返回 null
+     */
+    @Select("SELECT next_id FROM id_block_sequence WHERE name = #{name} FOR UPDATE")
+    Long selectNextIdForUpdate(@Param("name") String name);
+
+    @Update("UPDATE id_block_sequence SET next_id = #{nextId} WHERE name = #{name}")
+    int updateNextId(@Param("name") String name, @Param("nextId") long nextId);
+}
@@ -0,0 +1,40 @@
+package com.nusiss.productservice.dao;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.nusiss.productservice.entity.ProductChangeLog;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ ProductChangeLog 的 Mapper 接口
+ */
+@Mapper
+public interface ProductChangeLogMapper extends BaseMapper<ProductChangeLog> {
+
+    /*
+     读取游标之后的变更（主键范围扫描）
+     @param afterId 游标，上次读到的最大 id
+     @param limit 最多读取条数
+     */
+    @Select("SELECT * FROM product_change_log WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<ProductChangeLog> selectAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /*
+     当前最大 id，实例启动时从这里开始轮询（启动时本地缓存为空，不需要历史记录）
+     */
+    @Select("SELECT MAX(id) FROM product_change_log")
+    Long selectMaxId();
+
+    /*
+     删除早于指定时间的记录
+     @param before 时间点
+     @param limit 单次最多删除条数，避免大事务
+     */
+    @Delete("DELETE FROM product_change_log WHERE create_datetime < #{before} LIMIT #{limit}")
+    int deleteOlderThan(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
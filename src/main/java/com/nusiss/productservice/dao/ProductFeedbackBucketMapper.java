@@ -0,0 +1,83 @@
+package com.nusiss.productservice.dao;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.nusiss.productservice.entity.ProductFeedbackBucket;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+ 商品反馈按天 / 按月统计桶的 Mapper 接口
+ */
+@Mapper
+public interface ProductFeedbackBucketMapper extends BaseMapper<ProductFeedbackBucket> {
+
+    /*
+     把增量累加到商品某一天的统计桶（不存在时插入），单条语句原子执行
+     @param delta 各计数字段的变化量
+     */
+    @Insert("INSERT INTO product_feedback_daily " +
+            "(product_id, bucket_date, feedback_count, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5) " +
+            "VALUES (#{productId}, #{bucketDate}, #{feedbackCount}, #{ratingCount}, #{ratingSum}, #{star1}, #{star2}, #{star3}, #{star4}, #{star5}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "feedback_count = feedback_count + VALUES(feedback_count), " +
+            "rating_count = rating_count + VALUES(rating_count), " +
+            "rating_sum = rating_sum + VALUES(rating_sum), " +
+            "star_1 = star_1 + VALUES(star_1), " +
+            "star_2 = star_2 + VALUES(star_2), " +
+            "star_3 = star_3 + VALUES(star_3), " +
+            "star_4 = star_4 + VALUES(star_4), " +
+            "star_5 = star_5 + VALUES(star_5)")
+    int applyDailyDelta(ProductFeedbackBucket delta);
+
+    /*
+     商品的全部按天统计桶（主键前缀范围扫描，最多约保留天数行）
+     */
+    @Select("SELECT * FROM product_feedback_daily WHERE product_id = #{productId} ORDER BY bucket_date")
+    List<ProductFeedbackBucket> selectDaily(@Param("productId") Long productId);
+
+    /*
+     商品从某月起的按月统计桶
+     @param fromMonth 起始月份的 1 日
+     */
+    @Select("SELECT product_id, bucket_month AS bucket_date, feedback_count, rating_count, rating_sum, " +
+            "star_1, star_2, star_3, star_4, star_5 " +
+            "FROM product_feedback_monthly WHERE product_id = #{productId} AND bucket_month >= #{fromMonth} " +
+            "ORDER BY bucket_month")
+    List<ProductFeedbackBucket> selectMonthly(@Param("productId") Long productId, @Param("fromMonth") LocalDate fromMonth);
+
+    /*
+     锁定早于 before 的按天统计桶（合并前的第一条语句），多个实例同时合并时由行锁串行化：
+     后执行的实例等前一个提交后读到的是删除后的结果，不会把同一批行再累加一次（与隔离级别无关）
+     @return 待合并的行数
+     */
+    @Select("SELECT COUNT(*) FROM product_feedback_daily WHERE bucket_date < #{before} FOR UPDATE")
+    int lockDailyBefore(@Param("before") LocalDate before);
+
+    /*
+     把早于 before 的按天统计桶累加到按月统计桶（须在 lockDailyBefore 之后、与 deleteDailyBefore 在同一事务中执行）
+     */
+    @Insert("INSERT INTO product_feedback_monthly " +
+            "(product_id, bucket_month, feedback_count, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5) " +
+            "SELECT product_id, DATE_FORMAT(bucket_date, '%Y-%m-01') AS month, SUM(feedback_count), SUM(rating_count), " +
+            "SUM(rating_sum), SUM(star_1), SUM(star_2), SUM(star_3), SUM(star_4), SUM(star_5) " +
+            "FROM product_feedback_daily WHERE bucket_date < #{before} GROUP BY product_id, month " +
+            "ON DUPLICATE KEY UPDATE " +
+            "feedback_count = feedback_count + VALUES(feedback_count), " +
+            "rating_count = rating_count + VALUES(rating_count), " +
+            "rating_sum = rating_sum + VALUES(rating_sum), " +
+            "star_1 = star_1 + VALUES(star_1), " +
+            "star_2 = star_2 + VALUES(star_2), " +
+            "star_3 = star_3 + VALUES(star_3), " +
+            "star_4 = star_4 + VALUES(star_4), " +
+            "star_5 = star_5 + VALUES(star_5)")
+    int mergeDailyIntoMonthly(@Param("before") LocalDate before);
+
+    @Delete("DELETE FROM product_feedback_daily WHERE bucket_date < #{before}")
+    int deleteDailyBefore(@Param("before") LocalDate before);
+}
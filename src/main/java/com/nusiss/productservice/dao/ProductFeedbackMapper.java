@@ -3,6 +3,8 @@ package com.nusiss.productservice.dao;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.nusiss.productservice.entity.ProductFeedback;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 /*
  ProductFeedbackMapper 接口
@@ -10,4 +12,16 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ProductFeedbackMapper extends BaseMapper<ProductFeedback> {
+
+    /*
+     读取反馈并加行锁（须在事务中调用），修改 / 删除时按锁定的旧值计算评分汇总的变化量
+     */
+    @Select("SELECT * FROM ProductFeedback WHERE id = #{id} FOR UPDATE")
+    ProductFeedback selectByIdForUpdate(@Param("id") Long id);
+
+    /*
+     当前最大 id + 1（主键索引的最右端，不扫描表），分配 ID 段时保证不与已有的反馈重复
+     */
+    @Select("SELECT COALESCE(MAX(id), 0) + 1 FROM ProductFeedback")
+    long selectNextId();
 }
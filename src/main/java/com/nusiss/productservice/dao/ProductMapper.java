@@ -1,12 +1,18 @@
 package com.nusiss.productservice.dao;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.nusiss.productservice.entity.Product;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /*
 Product 数据访问层
@@ -16,8 +22,48 @@ ProductMapper 接口，继承 MyBatis-Plus 的 BaseMapper
 @Mapper
 public interface ProductMapper extends BaseMapper<Product> {
     /*
-     查询指定分类下评分最高的前 5 个商品
+     对筛选条件执行 EXPLAIN，用于估算匹配行数（读取结果中的 rows 和 filtered 列），不会真正扫描数据
      */
-    @Select("SELECT * FROM Products WHERE category = #{category} ORDER BY rating DESC LIMIT 5")
-    List<Product> findTop5ByCategoryOrderByRatingDesc(@Param("category") String category);
+    @Select("EXPLAIN SELECT id FROM Products ${ew.customSqlSegment}")
+    List<Map<String, Object>> explainFilter(@Param(Constants.WRAPPER) Wrapper<Product> wrapper);
+
+    /*
+     读取商品库存并加行锁（须在事务中调用），多个实例同时续租 / 确认同一个商品时串行化
+     @return 商品不存在时返回 null
+     */
+    @Select("SELECT stock FROM Products WHERE id = #{id} FOR UPDATE")
+    Long lockStock(@Param("id") Long id);
+
+    /*
+     确认预留时扣减已售出的库存；后台把库存改到低于已预留数量时扣到 0 为止，stock 不会变成负数
+     */
+    @Update("UPDATE Products SET stock = GREATEST(stock - #{quantity}, 0) WHERE id = #{id}")
+    int sellStock(@Param("id") Long id, @Param("quantity") long quantity);
+
+    /*
+     按 id 升序分批扫描全部商品（WHERE id > 上一批最大 id LIMIT batchSize），用于重建内存索引，
+     避免一次性 selectList(null) 把整张表读入内存
+     @param batchSize 每批条数
+     @param consumer 每批商品的处理逻辑
+     @return 扫描的商品总数
+     */
+    default long scanInBatches(int batchSize, Consumer<List<Product>> consumer) {
+        long lastId = 0;
+        long scanned = 0;
+        while (true) {
+            List<Product> batch = selectList(Wrappers.<Product>lambdaQuery()
+                    .gt(Product::getId, lastId)
+                    .orderByAsc(Product::getId)
+                    .last("LIMIT " + batchSize));
+            if (batch.isEmpty()) {
+                return scanned;
+            }
+            consumer.accept(batch);
+            scanned += batch.size();
+            if (batch.size() < batchSize) {
+                return scanned;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
 }
@@ -3,6 +3,11 @@ package com.nusiss.productservice.dao;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.nusiss.productservice.entity.ProductMedia;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
 
 /*
  ProductMedia 的 Mapper 接口， 用于访问 ProductMedia 表的数据
@@ -10,4 +15,19 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ProductMediaMapper extends BaseMapper<ProductMedia> {
+
+    /*
+     批量查询多个商品的封面图（每个商品 id 最小的 image 类型媒体）
+     一次集合查询代替逐个商品的 LIMIT 1 查询
+     @param productIds 商品 ID 集合（不能为空）
+     @return 每个商品最多一条封面媒体记录
+     */
+    @Select("<script>" +
+            "SELECT m.* FROM ProductMedia m " +
+            "JOIN (SELECT MIN(id) AS id FROM ProductMedia " +
+            "WHERE media_type = 'image' AND product_id IN " +
+            "<foreach collection='productIds' item='pid' open='(' separator=',' close=')'>#{pid}</foreach> " +
+            "GROUP BY product_id) cover ON m.id = cover.id" +
+            "</script>")
+    List<ProductMedia> selectCoverImages(@Param("productIds") Collection<Long> productIds);
 }
@@ -0,0 +1,42 @@
+package com.nusiss.productservice.dao;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.nusiss.productservice.entity.ProductRatingSummary;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+/*
+ ProductRatingSummary 的 Mapper 接口
+ */
+@Mapper
+public interface ProductRatingSummaryMapper extends BaseMapper<ProductRatingSummary> {
+
+    /*
+     把增量累加到商品的汇总行（不存在时以增量作为初始值插入），单条语句原子执行，并发写入不会丢失更新
+     @param delta 各计数字段的变化量
+     */
+    @Insert("INSERT INTO product_rating_summary " +
+            "(product_id, feedback_count, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5, update_datetime) " +
+            "VALUES (#{productId}, #{feedbackCount}, #{ratingCount}, #{ratingSum}, #{star1}, #{star2}, #{star3}, #{star4}, #{star5}, NOW(3)) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "feedback_count = feedback_count + VALUES(feedback_count), " +
+            "rating_count = rating_count + VALUES(rating_count), " +
+            "rating_sum = rating_sum + VALUES(rating_sum), " +
+            "star_1 = star_1 + VALUES(star_1), " +
+            "star_2 = star_2 + VALUES(star_2), " +
+            "star_3 = star_3 + VALUES(star_3), " +
+            "star_4 = star_4 + VALUES(star_4), " +
+            "star_5 = star_5 + VALUES(star_5), " +
+            "update_datetime = VALUES(update_datetime)")
+    int applyDelta(ProductRatingSummary delta);
+
+    /*
+     把商品的 rating 同步为汇总中的平均评分；评分全部被删除时置为 NULL
+     */
+    @Update("UPDATE Products p JOIN product_rating_summary s ON s.product_id = p.id " +
+            "SET p.rating = CASE WHEN s.rating_count > 0 THEN s.rating_sum / s.rating_count END " +
+            "WHERE p.id = #{productId}")
+    int syncProductRating(@Param("productId") Long productId);
+}
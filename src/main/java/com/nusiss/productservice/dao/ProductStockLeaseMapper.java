@@ -0,0 +1,98 @@
+package com.nusiss.productservice.dao;
+
+import com.nusiss.productservice.entity.ProductStockLease;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/*
+ product_stock_lease 的 Mapper 接口（db/migration/006_product_stock_reservation.sql）
+ 额度只在锁定商品行（ProductMapper.lockStock）后增加；减少额度的操作先用 lock 锁定额度行，
+ 同一额度行上的确认 / 释放 / 收回因此串行执行
+ */
+@Mapper
+public interface ProductStockLeaseMapper {
+
+    /*
+     锁定一个实例在一个商品上的额度行（须在事务中调用）
+     @return 额度，行不存在时返回 null
+     */
+    @Select("SELECT quantity FROM product_stock_lease WHERE product_id = #{productId} AND owner = #{owner} FOR UPDATE")
+    Long lock(@Param("productId") Long productId, @Param("owner") String owner);
+
+    /*
+     所有实例在一个商品上租用的额度之和
+     */
+    @Select("SELECT COALESCE(SUM(quantity), 0) FROM product_stock_lease WHERE product_id = #{productId}")
+    long sumLeased(@Param("productId") Long productId);
+
+    /*
+     增加额度，行不存在时插入
+     */
+    @Insert("INSERT INTO product_stock_lease (product_id, owner, quantity, update_datetime) "
+            + "VALUES (#{productId}, #{owner}, #{quantity}, #{now}) "
+            + "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), update_datetime = VALUES(update_datetime)")
+    int add(@Param("productId") Long productId, @Param("owner") String owner,
+            @Param("quantity") long quantity, @Param("now") LocalDateTime now);
+
+    /*
+     减少额度（预留被确认，或释放 / 过期的库存不再回到该实例的额度）
+     */
+    @Update("UPDATE product_stock_lease SET quantity = quantity - #{quantity} WHERE product_id = #{productId} AND owner = #{owner}")
+    int reduce(@Param("productId") Long productId, @Param("owner") String owner, @Param("quantity") long quantity);
+
+    /*
+     批量退回一个实例的额度：一条 UPDATE ... SET quantity = quantity - CASE product_id WHEN ... END
+     @param deltas 商品 ID -> 退回数量
+     */
+    @Update({"<script>",
+            "UPDATE product_stock_lease SET quantity = quantity - CASE product_id",
+            "<foreach collection='deltas' index='id' item='quantity'> WHEN #{id} THEN #{quantity}</foreach>",
+            " END WHERE owner = #{owner} AND product_id IN",
+            "<foreach collection='deltas' index='id' item='quantity' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int returnBatch(@Param("owner") String owner, @Param("deltas") Map<Long, Long> deltas);
+
+    /*
+     实例心跳：刷新该实例全部额度行的 update_datetime
+     */
+    @Update("UPDATE product_stock_lease SET update_datetime = #{now} WHERE owner = #{owner}")
+    int touch(@Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Select("SELECT * FROM product_stock_lease WHERE owner = #{owner}")
+    List<ProductStockLease> selectByOwner(@Param("owner") String owner);
+
+    /*
+     心跳早于 before 的额度行（实例已退出或长时间连不上数据库）
+     */
+    @Select("SELECT * FROM product_stock_lease WHERE update_datetime < #{before} AND quantity > 0 LIMIT #{limit}")
+    List<ProductStockLease> selectStale(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /*
+     把额度收回到该实例 HELD 预留之和（丢弃尚未预留的部分），须先 lock 额度行
+     */
+    @Update("UPDATE product_stock_lease SET quantity = ("
+            + "SELECT COALESCE(SUM(r.quantity), 0) FROM product_stock_reservation r "
+            + "WHERE r.product_id = #{productId} AND r.owner = #{owner} AND r.status = 'HELD') "
+            + "WHERE product_id = #{productId} AND owner = #{owner}")
+    int resetToHeld(@Param("productId") Long productId, @Param("owner") String owner);
+
+    /*
+     删除已收回且心跳早于 before 的额度行
+     */
+    @Delete("DELETE FROM product_stock_lease WHERE quantity <= 0 AND update_datetime < #{before}")
+    int deleteEmptyBefore(@Param("before") LocalDateTime before);
+
+    /*
+     删除商品已被删除的额度行
+     */
+    @Delete("DELETE l FROM product_stock_lease l LEFT JOIN Products p ON p.id = l.product_id WHERE p.id IS NULL")
+    int deleteOrphaned();
+}
@@ -0,0 +1,64 @@
+package com.nusiss.productservice.dao;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.nusiss.productservice.entity.ProductStockReservation;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+ ProductStockReservation 的 Mapper 接口
+ 状态变化都是带 status = 'HELD' 条件的 UPDATE，多个实例同时确认 / 释放 / 过期同一条预留时只有一方影响 1 行
+ */
+@Mapper
+public interface ProductStockReservationMapper extends BaseMapper<ProductStockReservation> {
+
+    /*
+     确认未过期的预留
+     @return 影响行数，0 表示预留不存在、已结束或已过期
+     */
+    @Update("UPDATE product_stock_reservation SET status = 'CONFIRMED', update_datetime = #{now} "
+            + "WHERE id = #{id} AND status = 'HELD' AND expires_at > #{now}")
+    int confirm(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /*
+     释放预留
+     @return 影响行数，0 表示预留不存在或已结束
+     */
+    @Update("UPDATE product_stock_reservation SET status = 'RELEASED', update_datetime = #{now} "
+            + "WHERE id = #{id} AND status = 'HELD'")
+    int release(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /*
+     把已过期的预留标记为 EXPIRED
+     @return 影响行数，0 表示预留未过期或已被其他实例处理
+     */
+    @Update("UPDATE product_stock_reservation SET status = 'EXPIRED', update_datetime = #{now} "
+            + "WHERE id = #{id} AND status = 'HELD' AND expires_at <= #{now}")
+    int expire(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /*
+     已过期但仍为 HELD 的预留（按过期时间升序）
+     */
+    @Select("SELECT * FROM product_stock_reservation WHERE status = 'HELD' AND expires_at <= #{now} "
+            + "ORDER BY expires_at LIMIT #{limit}")
+    List<ProductStockReservation> selectExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /*
+     一个商品所有 HELD 预留的数量之和（走 product_id, status 索引），任意实例查询结果一致
+     */
+    @Select("SELECT COALESCE(SUM(quantity), 0) FROM product_stock_reservation WHERE product_id = #{productId} AND status = 'HELD'")
+    long sumHeld(@Param("productId") Long productId);
+
+    /*
+     删除早于指定时间结束的预留
+     @param limit 单次最多删除条数，避免大事务
+     */
+    @Delete("DELETE FROM product_stock_reservation WHERE status <> 'HELD' AND update_datetime < #{before} LIMIT #{limit}")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
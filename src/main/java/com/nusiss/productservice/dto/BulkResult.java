@@ -0,0 +1,53 @@
+package com.nusiss.productservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 批量新增 / 更新 / 删除的结果：按请求中的顺序逐条给出成功与否
+ */
+@Data
+@NoArgsConstructor
+public class BulkResult {
+
+    private int succeeded; // 成功条数
+
+    private int failed; // 失败条数
+
+    private List<Item> items = new ArrayList<>(); // 每一条的结果，顺序与请求一致
+
+    public void add(Item item) {
+        items.add(item);
+        if (item.isSuccess()) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+
+    /*
+     单条记录的处理结果
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Item {
+        private int index;      // 在请求列表中的下标
+        private Long id;        // 商品 ID（新增成功时为生成的 ID）
+        private boolean success;
+        private String error;   // 失败原因，成功时为 null
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private List<Long> possibleDuplicateIds; // 新增成功但疑似重复的已有商品（on-create 为 FLAG）
+
+        public Item(int index, Long id, boolean success, String error) {
+            this.index = index;
+            this.id = id;
+            this.success = success;
+            this.error = error;
+        }
+    }
+}
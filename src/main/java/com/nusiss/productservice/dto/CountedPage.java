@@ -0,0 +1,32 @@
+package com.nusiss.productservice.dto;
+
+import com.nusiss.productservice.constant.CountMode;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+ 可选统计方式的分页结果
+ total 在 NONE 模式下为 null；ESTIMATED 模式下为估算值（totalEstimated = true）
+ */
+@Data
+@NoArgsConstructor
+public class CountedPage<T> {
+
+    private List<T> records;        // 当前页数据
+
+    private long current;           // 当前页码（从 1 开始）
+
+    private long size;              // 每页条数
+
+    private Long total;             // 总条数，未统计时为 null
+
+    private boolean totalEstimated; // total 是否为估算值
+
+    private boolean hasNext;        // 是否还有下一页
+
+    private CountMode countMode;    // 本次使用的统计方式
+
+    private long countMillis;       // 统计总数花费的时间（毫秒），未执行 COUNT 时为 0
+}
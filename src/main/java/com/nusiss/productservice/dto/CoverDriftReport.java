@@ -0,0 +1,32 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 封面图一致性检查结果
+ */
+@Data
+@NoArgsConstructor
+public class CoverDriftReport {
+
+    private long checkedCount; // 已检查的商品数量
+
+    private List<Drift> drifts = new ArrayList<>(); // 不一致的商品列表
+
+    /*
+     单个商品的封面图漂移记录
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Drift {
+        private Long productId;   // 商品 ID
+        private String storedUrl;   // Products 表中保存的封面图
+        private String expectedUrl; // 根据 ProductMedia 计算出的封面图
+    }
+}
@@ -0,0 +1,25 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+ 游标分页结果
+ nextCursor 为下一页的游标令牌，没有更多数据时为 null
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> records;   // 当前页数据
+
+    private int size;          // 每页条数
+
+    private boolean hasNext;   // 是否还有下一页
+
+    private String nextCursor; // 下一页游标
+}
@@ -0,0 +1,19 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ 疑似重复的商品
+ similarity 为 MinHash 估算的名称 / 标题 / 描述文本 Jaccard 相似度（0 - 1）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateCandidate {
+
+    private Long productId;     // 商品 ID
+
+    private double similarity;  // 估算的文本相似度
+}
@@ -0,0 +1,21 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/*
+ 一组疑似重复的商品（相似的商品对按传递关系合并成组）
+ minSimilarity 为组内相似商品对中最低的相似度；组内任意两个商品不一定都直接相似
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateGroup {
+
+    private List<Long> productIds;  // 组内商品 ID（升序）
+
+    private double minSimilarity;   // 组内相似商品对的最低相似度
+}
@@ -0,0 +1,48 @@
+package com.nusiss.productservice.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 商品反馈分析：全部反馈的评分分布、最近 N 天窗口的趋势、按天与按月的反馈数序列
+ */
+@Data
+@NoArgsConstructor
+public class FeedbackAnalytics {
+
+    private Long productId;
+
+    private RatingSummary allTime;                   // 全部反馈的平均评分、评论数与星级分布
+
+    private List<Window> windows = new ArrayList<>(); // 最近 7 / 30 天等窗口（product.feedback.analytics.windows）
+
+    private LocalDate dailyFrom;                     // dailyCounts 第一天的日期
+
+    private long[] dailyCounts;                      // 每天的反馈数，最早的一天在前，最后一天为当天
+
+    private List<Window> months = new ArrayList<>(); // 每月的合计，最早的月份在前，最后一个为当月
+
+    /*
+     一段时间 [from, to] 内的反馈合计
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Window {
+
+        private LocalDate from;
+
+        private LocalDate to;
+
+        private long commentCount;   // 反馈数
+
+        private long ratingCount;    // 有评分的反馈数
+
+        private Double averageRating; // 平均评分，没有评分时为 null
+
+        private long[] starCounts;   // 1-5 星的反馈数，下标 0 为 1 星
+    }
+}
@@ -0,0 +1,50 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 商品筛选侧边栏的分面统计：满足当前筛选条件的商品中，各分类 / 状态的数量以及价格、评分区间直方图
+ */
+@Data
+@NoArgsConstructor
+public class ProductFacets {
+
+    private long total; // 满足筛选条件的商品总数
+
+    private List<ValueCount> categories = new ArrayList<>(); // 各分类数量（按数量降序）
+
+    private List<ValueCount> statuses = new ArrayList<>();   // 各状态数量（按数量降序）
+
+    private List<RangeCount> priceBuckets = new ArrayList<>();  // 价格区间直方图
+
+    private List<RangeCount> ratingBuckets = new ArrayList<>(); // 评分区间直方图
+
+    /*
+     某个取值的商品数量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ValueCount {
+        private String value;
+        private long count;
+    }
+
+    /*
+     区间 [from, to) 内的商品数量；to 为 null 表示没有上限
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RangeCount {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+    }
+}
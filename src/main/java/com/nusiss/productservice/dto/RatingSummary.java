@@ -0,0 +1,44 @@
+package com.nusiss.productservice.dto;
+
+import com.nusiss.productservice.entity.ProductRatingSummary;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ 商品评分摘要：平均评分、评论数与星级分布，供商品列表页批量展示
+ */
+@Data
+@NoArgsConstructor
+public class RatingSummary {
+
+    private Long productId;
+
+    private Double averageRating;            // 平均评分，没有评分时为 null
+
+    private long commentCount;               // 评论数（反馈总数，含没有评分的反馈）
+
+    private long ratingCount;                // 有评分的反馈数
+
+    private long[] starCounts = new long[5]; // 1-5 星的反馈数，下标 0 为 1 星
+
+    /*
+     @param summary 评分汇总行，商品还没有反馈时为 null（各项为 0）
+     */
+    public static RatingSummary of(Long productId, ProductRatingSummary summary) {
+        RatingSummary result = new RatingSummary();
+        result.setProductId(productId);
+        if (summary == null) {
+            return result;
+        }
+        result.setAverageRating(summary.getAverageRating());
+        result.setCommentCount(valueOf(summary.getFeedbackCount()));
+        result.setRatingCount(valueOf(summary.getRatingCount()));
+        result.setStarCounts(new long[]{valueOf(summary.getStar1()), valueOf(summary.getStar2()),
+                valueOf(summary.getStar3()), valueOf(summary.getStar4()), valueOf(summary.getStar5())});
+        return result;
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+ 一次库存预留（秒杀下单时先锁定库存，支付后确认，超时未确认自动释放）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    private String id; // 预留 ID，确认 / 释放时使用
+
+    private Long productId;
+
+    private int quantity;
+
+    private LocalDateTime expiresAt; // 超过该时间未确认则自动释放
+}
@@ -0,0 +1,24 @@
+package com.nusiss.productservice.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ 输入联想索引的规模与内存占用
+ */
+@Data
+@NoArgsConstructor
+public class SuggestStats {
+
+    private boolean ready;              // 索引是否已完成首次构建
+
+    private int productCount;           // 已索引的商品数量
+
+    private int categoryCount;          // 已索引的分类数量
+
+    private int keyCount;               // 前缀树中的 key 数量
+
+    private int nodeCount;              // 前缀树节点数量
+
+    private long estimatedMemoryBytes;  // 估算的堆内存占用（字节）
+}
@@ -0,0 +1,16 @@
+package com.nusiss.productservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/*
+ 资源的版本戳，用于 HTTP 条件请求：ETag 与 Last-Modified
+ */
+@Data
+@AllArgsConstructor
+public class VersionStamp {
+
+    private String etag; // 强 ETag（不含引号）
+
+    private long lastModified; // 最后修改时间（毫秒时间戳）
+}
@@ -1,9 +1,11 @@
 package com.nusiss.productservice.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -12,6 +14,7 @@ import lombok.Data;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /*
 按照MyBatis Plus风格创建
@@ -40,11 +43,20 @@ public class Product {
     private String updateUser;
 
     /*
-     封面图 URL（从 ProductMedia 中动态查询）
+     封面图 URL（持久化列 cover_image_url，由 ProductMedia 的增删改通过 ProductCoverService 维护，
+     普通的商品新增/修改不会写入该列）
      */
-    @TableField(exist = false)
+    @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
     private String coverImageUrl;
 
+    /*
+     疑似重复的已有商品 ID：新增商品时由 ProductDuplicateService 检测（product.duplicates.on-create=FLAG），
+     只出现在新增接口的返回结果中，不对应数据库列
+     */
+    @TableField(exist = false)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> possibleDuplicateIds;
+
     public String getCoverImageUrl() {
         return coverImageUrl;
     }
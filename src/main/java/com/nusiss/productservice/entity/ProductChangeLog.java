@@ -0,0 +1,28 @@
+package com.nusiss.productservice.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/*
+ ProductChangeLog 实体类
+ 对应数据库中的 product_change_log 表，记录商品变更，用于多个实例之间同步失效本地缓存
+ */
+@Data
+@TableName("product_change_log")
+public class ProductChangeLog {
+
+    @TableId(value = "id", type = IdType.AUTO) // 主键自增，也是各实例轮询的游标
+    private Long id;
+
+    private Long productId; // 变更的商品 ID
+
+    private String changeType; // CREATED / UPDATED / DELETED
+
+    private String origin; // 写入该记录的实例标识，实例跳过自己写入的记录
+
+    private LocalDateTime createDatetime; // 变更发生的时间，用于计算同步延迟
+}
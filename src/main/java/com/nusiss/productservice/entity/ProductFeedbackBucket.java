@@ -0,0 +1,43 @@
+package com.nusiss.productservice.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/*
+ ProductFeedbackBucket 实体类
+ 对应数据库中的 product_feedback_daily 表（按天统计桶）；按月统计桶 product_feedback_monthly 的查询结果也映射为本类，
+ bucketDate 为当月 1 日
+ 作为增量（ProductFeedbackBucketMapper.applyDailyDelta）使用时各计数字段为变化量，可以为负
+ */
+@Data
+@TableName("product_feedback_daily")
+public class ProductFeedbackBucket {
+
+    private Long productId; // 商品 ID
+
+    private LocalDate bucketDate; // 统计日期（反馈的创建日期）
+
+    private Long feedbackCount; // 反馈条数
+
+    private Long ratingCount; // 有评分的反馈条数
+
+    private Long ratingSum; // 评分总和
+
+    @TableField("star_1")
+    private Long star1; // 1 星反馈数
+
+    @TableField("star_2")
+    private Long star2;
+
+    @TableField("star_3")
+    private Long star3;
+
+    @TableField("star_4")
+    private Long star4;
+
+    @TableField("star_5")
+    private Long star5;
+}
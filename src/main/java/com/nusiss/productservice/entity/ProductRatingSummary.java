@@ -0,0 +1,53 @@
+package com.nusiss.productservice.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/*
+ ProductRatingSummary 实体类
+ 对应数据库中的 product_rating_summary 表，每个商品一行评分汇总，由反馈的增删改增量维护
+ 作为增量（ProductRatingSummaryMapper.applyDelta）使用时各计数字段为变化量，可以为负
+ */
+@Data
+@TableName("product_rating_summary")
+public class ProductRatingSummary {
+
+    @TableId(value = "product_id", type = IdType.INPUT)
+    private Long productId; // 商品 ID
+
+    private Long feedbackCount; // 反馈条数（含没有评分的反馈，即评论数）
+
+    private Long ratingCount; // 有评分的反馈条数
+
+    private Long ratingSum; // 评分总和
+
+    @TableField("star_1")
+    private Long star1; // 1 星反馈数
+
+    @TableField("star_2")
+    private Long star2;
+
+    @TableField("star_3")
+    private Long star3;
+
+    @TableField("star_4")
+    private Long star4;
+
+    @TableField("star_5")
+    private Long star5;
+
+    private LocalDateTime updateDatetime; // 最后更新时间
+
+    // 平均评分，没有评分时为 null
+    public Double getAverageRating() {
+        if (ratingCount == null || ratingCount <= 0 || ratingSum == null) {
+            return null;
+        }
+        return (double) ratingSum / ratingCount;
+    }
+}
@@ -0,0 +1,23 @@
+package com.nusiss.productservice.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/*
+ ProductStockLease 实体类
+ 对应数据库中的 product_stock_lease 表，一个实例在一个商品上租用的库存额度
+ */
+@Data
+@TableName("product_stock_lease")
+public class ProductStockLease {
+
+    private Long productId;
+
+    private String owner; // 租用额度的实例
+
+    private Long quantity; // 尚未预留的额度 + 该实例创建的 HELD 预留
+
+    private LocalDateTime updateDatetime; // 实例最后一次心跳的时间
+}
@@ -0,0 +1,39 @@
+package com.nusiss.productservice.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/*
+ ProductStockReservation 实体类
+ 对应数据库中的 product_stock_reservation 表，一条秒杀库存预留，所有实例共享
+ */
+@Data
+@TableName("product_stock_reservation")
+public class ProductStockReservation {
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+    public static final String EXPIRED = "EXPIRED";
+
+    @TableId(value = "id", type = IdType.INPUT) // UUID，由创建预留的实例生成
+    private String id;
+
+    private Long productId;
+
+    private String owner; // 创建预留的实例，预留的库存来自该实例在 product_stock_lease 中的额度
+
+    private Integer quantity;
+
+    private String status; // HELD / CONFIRMED / RELEASED / EXPIRED
+
+    private LocalDateTime expiresAt; // 超过该时间仍为 HELD 的预留由任意实例释放
+
+    private LocalDateTime createDatetime;
+
+    private LocalDateTime updateDatetime; // 最后一次状态变化的时间，用于清理已结束的预留
+}
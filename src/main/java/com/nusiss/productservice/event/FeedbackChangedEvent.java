@@ -0,0 +1,28 @@
+package com.nusiss.productservice.event;
+
+/*
+ 商品反馈变更事件，由 ProductFeedbackServiceImpl 在反馈新增 / 修改 / 删除成功后发布，
+ 用于更新反馈列表的 ETag / Last-Modified；其他实例上的变更由 ProductChangeLogRelay 重新发布，remote 为 true
+ */
+public class FeedbackChangedEvent {
+
+    private final Long productId; // 反馈所属商品，无法确定时为 null
+    private final boolean remote;  // 是否为其他实例上发生的变更
+
+    public FeedbackChangedEvent(Long productId) {
+        this(productId, false);
+    }
+
+    public FeedbackChangedEvent(Long productId, boolean remote) {
+        this.productId = productId;
+        this.remote = remote;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public boolean isRemote() {
+        return remote;
+    }
+}
@@ -0,0 +1,26 @@
+package com.nusiss.productservice.event;
+
+import java.util.List;
+
+/*
+ 用户历史订单查询成功事件，由 OrderHistoryClient 在从订单服务取到新结果后发布（缓存命中和降级时不发布），
+ 供共同购买推荐模型收集购物篮
+ */
+public class OrderHistoryFetchedEvent {
+
+    private final Long userId;
+    private final List<Long> productIds; // 用户购买过的商品 ID（不可修改）
+
+    public OrderHistoryFetchedEvent(Long userId, List<Long> productIds) {
+        this.userId = userId;
+        this.productIds = productIds;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
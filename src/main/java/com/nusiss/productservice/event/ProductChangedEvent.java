@@ -0,0 +1,57 @@
+package com.nusiss.productservice.event;
+
+import com.nusiss.productservice.entity.Product;
+
+/*
+ 商品变更事件，由 ProductServiceImpl 在商品新增 / 修改 / 删除成功后通过 ApplicationEventPublisher 发布，
+ 供搜索索引等内存数据结构做增量更新
+ 其他实例上发生的变更由 ProductChangeLogRelay 从 product_change_log 读到后重新发布，remote 为 true
+ */
+public class ProductChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long productId;
+    private final Product product; // 变更后的完整商品，DELETED 时为 null
+    private final boolean remote;  // 是否为其他实例上发生的变更
+
+    public ProductChangedEvent(Type type, Long productId, Product product) {
+        this(type, productId, product, false);
+    }
+
+    public ProductChangedEvent(Type type, Long productId, Product product, boolean remote) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.remote = remote;
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(Type.CREATED, product.getId(), product);
+    }
+
+    public static ProductChangedEvent updated(Product product) {
+        return new ProductChangedEvent(Type.UPDATED, product.getId(), product);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public boolean isRemote() {
+        return remote;
+    }
+}
@@ -0,0 +1,51 @@
+package com.nusiss.productservice.index;
+
+import java.math.BigDecimal;
+
+/*
+ 内存商品目录的筛选条件，与 ProductServiceImpl.buildFilterWrapper 的 SQL 条件一一对应：
+ name 模糊匹配、category / status 精确匹配、price 区间、rating 下限；为空的条件不参与筛选
+ */
+public class CatalogQuery {
+
+    private final String name;
+    private final String category;
+    private final String status;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final Double rating;
+
+    public CatalogQuery(String name, String category, String status,
+                        BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
+        this.name = name;
+        this.category = category;
+        this.status = status;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.rating = rating;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+}
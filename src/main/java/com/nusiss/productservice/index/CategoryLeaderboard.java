@@ -0,0 +1,349 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.entity.Product;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ 按分类维护的商品排行榜（线程安全）
+ - 每个分类、每种排序方式只保留前 capacity 个商品（有序集合），内存与商品总数无关
+ - 分类按小写比较（与 MySQL 默认排序规则下的 category = ? 一致）
+ - 被挤出榜单的商品不再保留，只记下"边界"：挤出的商品中排名最靠前的一个；
+   榜单中排在边界之前的部分一定是该分类真实的前几名，之后的部分（删除 / 降分后补进来的）不可信
+ - 查询只使用可信部分，不够时返回 null，由调用方从数据库按同样的排序读取前 capacity + 1 个后调用 load 补齐
+ */
+public class CategoryLeaderboard {
+
+    static final Comparator<Product> BY_RATING = Comparator
+            .comparing(Product::getRating, Comparator.nullsLast(Comparator.<Double>reverseOrder()))
+            .thenComparing(Product::getId);
+
+    static final Comparator<Product> BY_NEWEST = Comparator
+            .comparing(Product::getCreateDatetime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Product::getId, Comparator.reverseOrder());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int capacity;
+    private final Set<String> excludedStatuses; // 不参与排行的商品状态（小写）
+
+    private final Map<String, Board> boards = new HashMap<>();   // 小写分类 -> 榜单
+    private final Map<Long, Product> held = new HashMap<>();      // 在任一榜单中的商品 ID -> 商品副本
+    private long modCount; // 每次增删都会加一，用于判断 load 的数据库结果是否已过期
+
+    private static final class Ranked {
+        final Comparator<Product> order;
+        final TreeSet<Product> top;
+        Product boundary; // 被挤出的商品中排名最靠前的一个，null 表示榜单包含该分类全部商品
+
+        Ranked(Comparator<Product> order) {
+            this.order = order;
+            this.top = new TreeSet<>(order);
+        }
+
+        boolean trusted(Product product) {
+            return boundary == null || order.compare(product, boundary) < 0;
+        }
+
+        void dropped(Product product) {
+            if (boundary == null || order.compare(product, boundary) < 0) {
+                boundary = product;
+            }
+        }
+    }
+
+    private static final class Board {
+        final Map<LeaderboardRanking, Ranked> rankings = new EnumMap<>(LeaderboardRanking.class);
+
+        Board() {
+            rankings.put(LeaderboardRanking.RATING, new Ranked(BY_RATING));
+            rankings.put(LeaderboardRanking.NEWEST, new Ranked(BY_NEWEST));
+        }
+
+        boolean holds(Product product) {
+            for (Ranked ranked : rankings.values()) {
+                if (ranked.top.contains(product)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+     @param capacity 每个分类每种排序保留的商品数
+     @param excludedStatuses 不参与排行的商品状态（大小写不敏感）
+     */
+    public CategoryLeaderboard(int capacity, Collection<String> excludedStatuses) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.excludedStatuses = new HashSet<>();
+        for (String status : excludedStatuses) {
+            this.excludedStatuses.add(status.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /*
+     新增或替换一个商品（分类、评分、状态变化都走这里）
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            modCount++;
+            detach(product.getId());
+            String key = key(product.getCategory());
+            if (key == null || !eligible(product)) {
+                return;
+            }
+            Product copy = copy(product);
+            Board board = boards.computeIfAbsent(key, k -> new Board());
+            for (Ranked ranked : board.rankings.values()) {
+                offer(board, ranked, copy);
+            }
+            if (board.holds(copy)) {
+                held.put(copy.getId(), copy);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     删除一个商品
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            modCount++;
+            detach(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     查询分类下排名最靠前的商品
+     @param excludeIds 需要跳过的商品 ID（如当前商品、已购商品），可为空
+     @return 商品副本列表；榜单中可信的部分不足 limit 个且分类中还有其他商品时返回 null（需要调用 load 补齐）
+     */
+    public List<Product> top(String category, LeaderboardRanking ranking, int limit, Collection<Long> excludeIds) {
+        String key = key(category);
+        if (key == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Board board = boards.get(key);
+            if (board == null) {
+                return new ArrayList<>(); // 该分类没有商品
+            }
+            Ranked ranked = board.rankings.get(ranking);
+            List<Product> result = new ArrayList<>(Math.min(limit, ranked.top.size()));
+            for (Product product : ranked.top) {
+                if (result.size() == limit) {
+                    return result;
+                }
+                if (!ranked.trusted(product)) {
+                    return null;
+                }
+                if (excludeIds == null || !excludeIds.contains(product.getId())) {
+                    result.add(copy(product));
+                }
+            }
+            return result.size() == limit || ranked.boundary == null ? result : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     跨所有分类查询排名最靠前的商品（合并各分类榜单的可信部分）
+     @return 商品副本列表；无法确定时（某个分类被挤出的商品可能排得更靠前）返回 null，由调用方查询数据库
+     */
+    public List<Product> topAcrossCategories(LeaderboardRanking ranking, int limit, Collection<Long> excludeIds) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Comparator<Product> order = null;
+            Product boundary = null; // 各分类边界中最靠前的一个，排在它之后的商品不可信
+            List<Product> candidates = new ArrayList<>();
+            for (Board board : boards.values()) {
+                Ranked ranked = board.rankings.get(ranking);
+                order = ranked.order;
+                int taken = 0;
+                for (Product product : ranked.top) {
+                    if (taken == limit || !ranked.trusted(product)) {
+                        break;
+                    }
+                    if (excludeIds == null || !excludeIds.contains(product.getId())) {
+                        candidates.add(product);
+                        taken++;
+                    }
+                }
+                if (ranked.boundary != null && (boundary == null || order.compare(ranked.boundary, boundary) < 0)) {
+                    boundary = ranked.boundary;
+                }
+            }
+            if (order == null) {
+                return new ArrayList<>();
+            }
+            candidates.sort(order);
+            List<Product> result = new ArrayList<>(limit);
+            for (Product product : candidates) {
+                if (result.size() == limit || (boundary != null && order.compare(product, boundary) >= 0)) {
+                    break;
+                }
+                result.add(copy(product));
+            }
+            return result.size() == limit || boundary == null ? result : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 当前的修改次数，从数据库读取补齐数据之前记下，传给 load
+    public long modCount() {
+        lock.readLock().lock();
+        try {
+            return modCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     用数据库的查询结果重置某个分类的一种排行
+     @param rows 按该排序方式从数据库读取的前 capacity + 1 个商品（已排除不参与排行的状态）
+     @param expectedModCount 读取数据库之前的 modCount()；期间有过任何变更时放弃本次结果，避免用旧数据覆盖新变更
+     @return 是否已应用
+     */
+    public boolean load(String category, LeaderboardRanking ranking, List<Product> rows, long expectedModCount) {
+        String key = key(category);
+        if (key == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (modCount != expectedModCount) {
+                return false;
+            }
+            Board board = boards.computeIfAbsent(key, k -> new Board());
+            Ranked ranked = board.rankings.get(ranking);
+            List<Product> previous = new ArrayList<>(ranked.top);
+            ranked.top.clear();
+            ranked.boundary = null;
+            for (Product product : previous) {
+                if (!board.holds(product)) {
+                    held.remove(product.getId());
+                }
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                Product copy = copy(rows.get(i));
+                if (i >= capacity) {
+                    ranked.dropped(copy);
+                    continue;
+                }
+                Product existing = held.get(copy.getId());
+                if (existing != null) { // 另一种排行中已有该商品，共用同一个副本
+                    copy = existing;
+                }
+                ranked.top.add(copy);
+                held.put(copy.getId(), copy);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int categoryCount() {
+        lock.readLock().lock();
+        try {
+            return boards.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int heldCount() {
+        lock.readLock().lock();
+        try {
+            return held.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 满员时与最后一名比较：更靠前则挤掉最后一名，否则本身被挤出；未满员时只接受排在边界之前的商品
+    private void offer(Board board, Ranked ranked, Product product) {
+        if (!ranked.trusted(product)) {
+            return;
+        }
+        if (ranked.top.size() < capacity) {
+            ranked.top.add(product);
+            return;
+        }
+        Product last = ranked.top.last();
+        if (ranked.order.compare(product, last) < 0) {
+            ranked.top.pollLast();
+            ranked.dropped(last);
+            if (!board.holds(last)) {
+                held.remove(last.getId());
+            }
+            ranked.top.add(product);
+        } else {
+            ranked.dropped(product);
+        }
+    }
+
+    // 从所在榜单中移除（只有在榜单中的商品需要处理，其余商品不占用内存）
+    private void detach(Long productId) {
+        Product existing = held.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        Board board = boards.get(key(existing.getCategory()));
+        if (board == null) {
+            return;
+        }
+        for (Ranked ranked : board.rankings.values()) {
+            ranked.top.remove(existing);
+        }
+    }
+
+    private boolean eligible(Product product) {
+        return product.getStatus() == null || !excludedStatuses.contains(product.getStatus().toLowerCase(Locale.ROOT));
+    }
+
+    private static String key(String category) {
+        return category == null ? null : category.toLowerCase(Locale.ROOT);
+    }
+
+    private static Product copy(Product product) {
+        Product copy = new Product();
+        BeanUtils.copyProperties(product, copy);
+        return copy;
+    }
+}
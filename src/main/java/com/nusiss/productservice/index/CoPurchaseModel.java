@@ -0,0 +1,341 @@
+package com.nusiss.productservice.index;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/*
+ 商品共同购买模型（物品-物品协同过滤），构建完成后不可变，可被多个线程同时读取
+ - 每个购物篮（一个订单或一个用户的全部购买记录）中的商品两两计一次共现，得到稀疏的共现矩阵
+ - 相似度为余弦相似度 co(i, j) / sqrt(n(i) * n(j))，n 为商品出现过的购物篮数
+ - 每个商品只保留相似度最高的 maxNeighbours 个邻居；共现次数低于 minSupport 的商品对视为噪声丢弃
+ 邻居按行压缩存储在基本类型数组中：商品 ID -> 行号（LongIntHashMap），
+ 第 r 行的邻居为 neighbourIds[offsets[r], offsets[r + 1])，按相似度降序排列（相同时 ID 小的在前）
+ */
+public final class CoPurchaseModel {
+
+    private static final long[] NONE = new long[0];
+
+    private final LongIntHashMap rows;
+    private final int[] offsets;
+    private final long[] neighbourIds;
+    private final float[] neighbourScores;
+    private final int basketCount;
+
+    private CoPurchaseModel(LongIntHashMap rows, int[] offsets, long[] neighbourIds, float[] neighbourScores,
+                            int basketCount) {
+        this.rows = rows;
+        this.offsets = offsets;
+        this.neighbourIds = neighbourIds;
+        this.neighbourScores = neighbourScores;
+        this.basketCount = basketCount;
+    }
+
+    // 不包含任何商品的模型
+    public static CoPurchaseModel empty() {
+        return new CoPurchaseModel(new LongIntHashMap(), new int[]{0}, NONE, new float[0], 0);
+    }
+
+    /*
+     @param maxNeighbours 每个商品保留的邻居数
+     @param minSupport 商品对至少共同出现的购物篮数
+     @param maxBasketSize 购物篮的最大商品数，超过的购物篮（批发等异常订单）不计入
+     */
+    public static Builder builder(int maxNeighbours, int minSupport, int maxBasketSize) {
+        return new Builder(maxNeighbours, minSupport, maxBasketSize);
+    }
+
+    // 至少有一个邻居的商品数
+    public int productCount() {
+        return rows.size();
+    }
+
+    // 保存的邻居总数
+    public int neighbourCount() {
+        return neighbourIds.length;
+    }
+
+    // 参与统计的购物篮数
+    public int basketCount() {
+        return basketCount;
+    }
+
+    /*
+     查询与商品最相似的商品
+     @param productId 商品 ID
+     @param limit 返回数量
+     @param exclude 需要排除的商品，可为 null
+     @return 商品 ID（相似度降序），没有邻居时为空数组
+     */
+    public long[] neighbours(long productId, int limit, LongPredicate exclude) {
+        int row = rows.get(productId, -1);
+        if (row < 0 || limit <= 0) {
+            return NONE;
+        }
+        long[] result = new long[Math.min(limit, offsets[row + 1] - offsets[row])];
+        int n = 0;
+        for (int i = offsets[row]; i < offsets[row + 1] && n < result.length; i++) {
+            if (exclude == null || !exclude.test(neighbourIds[i])) {
+                result[n++] = neighbourIds[i];
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /*
+     根据购买记录推荐：累加每个已购商品的邻居相似度，取得分最高的商品（已购商品不会出现在结果中）
+     @param history 已购商品 ID（可重复）
+     @param limit 返回数量
+     @param exclude 需要额外排除的商品，可为 null
+     @return 商品 ID（得分降序），没有可推荐的商品时为空数组
+     */
+    public long[] recommend(long[] history, int limit, LongPredicate exclude) {
+        if (limit <= 0 || history.length == 0) {
+            return NONE;
+        }
+        LongIntHashMap purchased = new LongIntHashMap(history.length);
+        for (long id : history) {
+            purchased.put(id, 0);
+        }
+        LongIntHashMap candidates = new LongIntHashMap();
+        long[] ids = new long[16];
+        float[] scores = new float[16];
+        int count = 0;
+        for (int slot = 0; slot < purchased.capacity(); slot++) {
+            if (!purchased.isFilled(slot)) {
+                continue;
+            }
+            int row = rows.get(purchased.keyAt(slot), -1);
+            if (row < 0) {
+                continue;
+            }
+            for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                long id = neighbourIds[i];
+                if (purchased.get(id, -1) >= 0 || (exclude != null && exclude.test(id))) {
+                    continue;
+                }
+                int c = candidates.get(id, -1);
+                if (c < 0) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                        scores = Arrays.copyOf(scores, count * 2);
+                    }
+                    c = count++;
+                    candidates.put(id, c);
+                    ids[c] = id;
+                }
+                scores[c] += neighbourScores[i];
+            }
+        }
+        int[] top = top(ids, scores, count, limit);
+        long[] result = new long[top.length];
+        for (int i = 0; i < top.length; i++) {
+            result[i] = ids[top[i]];
+        }
+        return result;
+    }
+
+    /*
+     用大小为 limit 的小顶堆选出得分最高的候选
+     @return 候选下标，按得分降序（相同时 ID 小的在前）
+     */
+    static int[] top(long[] ids, float[] scores, int count, int limit) {
+        int k = Math.min(limit, count);
+        int[] heap = new int[k]; // heap[0] 为当前保留的最差候选
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size++, ids, scores);
+            } else if (k > 0 && better(i, heap[0], ids, scores)) {
+                heap[0] = i;
+                siftDown(heap, size, ids, scores);
+            }
+        }
+        int[] result = new int[size];
+        for (int n = size - 1; n >= 0; n--) {
+            result[n] = heap[0];
+            heap[0] = heap[n];
+            siftDown(heap, n, ids, scores);
+        }
+        return result;
+    }
+
+    private static boolean better(int a, int b, long[] ids, float[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && ids[a] < ids[b]);
+    }
+
+    private static void siftUp(int[] heap, int index, long[] ids, float[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(heap[parent], heap[index], ids, scores)) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, long[] ids, float[] scores) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && better(heap[worst], heap[left], ids, scores)) {
+                worst = left;
+            }
+            if (right < size && better(heap[worst], heap[right], ids, scores)) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+    }
+
+    /*
+     模型构建器（非线程安全）：逐个添加购物篮后调用 build
+     */
+    public static final class Builder {
+
+        private final int maxNeighbours;
+        private final int minSupport;
+        private final int maxBasketSize;
+
+        private final LongIntHashMap itemRows = new LongIntHashMap(); // 商品 ID -> 行号
+        private long[] itemIds = new long[64];
+        private int[] itemCounts = new int[64];                       // 商品出现过的购物篮数
+        private LongIntHashMap[] coCounts = new LongIntHashMap[64];   // 行号 -> (另一商品 ID -> 共现次数)
+        private int items;
+        private int baskets;
+        private int skipped;
+
+        private Builder(int maxNeighbours, int minSupport, int maxBasketSize) {
+            this.maxNeighbours = maxNeighbours;
+            this.minSupport = Math.max(1, minSupport);
+            this.maxBasketSize = maxBasketSize;
+        }
+
+        /*
+         添加一个购物篮，重复的商品 ID 只计一次
+         @return 是否计入统计（空购物篮和超过 maxBasketSize 的购物篮不计入）
+         */
+        public boolean addBasket(long[] productIds) {
+            long[] distinct = productIds.clone();
+            Arrays.sort(distinct);
+            int n = 0;
+            for (int i = 0; i < distinct.length; i++) {
+                if (i == 0 || distinct[i] != distinct[i - 1]) {
+                    distinct[n++] = distinct[i];
+                }
+            }
+            if (n == 0) {
+                return false;
+            }
+            if (n > maxBasketSize) {
+                skipped++;
+                return false;
+            }
+            int[] basketRows = new int[n];
+            for (int i = 0; i < n; i++) {
+                basketRows[i] = row(distinct[i]);
+                itemCounts[basketRows[i]]++;
+            }
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    coCounts(basketRows[a]).addTo(distinct[b], 1);
+                    coCounts(basketRows[b]).addTo(distinct[a], 1);
+                }
+            }
+            baskets++;
+            return true;
+        }
+
+        // 因超过 maxBasketSize 被跳过的购物篮数
+        public int skippedBaskets() {
+            return skipped;
+        }
+
+        public CoPurchaseModel build() {
+            LongIntHashMap rows = new LongIntHashMap(items);
+            int[] offsets = new int[items + 1];
+            long[] neighbourIds = new long[Math.min(items, 1024) * Math.max(1, maxNeighbours)];
+            float[] neighbourScores = new float[neighbourIds.length];
+            int rowCount = 0;
+            int total = 0;
+
+            long[] candidateIds = new long[16];
+            float[] candidateScores = new float[16];
+            for (int r = 0; r < items; r++) {
+                LongIntHashMap co = coCounts[r];
+                if (co == null) {
+                    continue;
+                }
+                if (candidateIds.length < co.size()) {
+                    candidateIds = new long[co.size()];
+                    candidateScores = new float[co.size()];
+                }
+                int count = 0;
+                for (int slot = 0; slot < co.capacity(); slot++) {
+                    if (co.isFilled(slot) && co.valueAt(slot) >= minSupport) {
+                        long other = co.keyAt(slot);
+                        int otherCount = itemCounts[itemRows.get(other, -1)];
+                        candidateIds[count] = other;
+                        candidateScores[count] = (float) (co.valueAt(slot) / Math.sqrt((double) itemCounts[r] * otherCount));
+                        count++;
+                    }
+                }
+                int[] top = top(candidateIds, candidateScores, count, maxNeighbours);
+                if (top.length == 0) {
+                    continue;
+                }
+                if (total + top.length > neighbourIds.length) {
+                    int capacity = Math.max(total + top.length, neighbourIds.length * 2);
+                    neighbourIds = Arrays.copyOf(neighbourIds, capacity);
+                    neighbourScores = Arrays.copyOf(neighbourScores, capacity);
+                }
+                for (int index : top) {
+                    neighbourIds[total] = candidateIds[index];
+                    neighbourScores[total] = candidateScores[index];
+                    total++;
+                }
+                rows.put(itemIds[r], rowCount);
+                offsets[++rowCount] = total;
+            }
+            return new CoPurchaseModel(rows, Arrays.copyOf(offsets, rowCount + 1),
+                    Arrays.copyOf(neighbourIds, total), Arrays.copyOf(neighbourScores, total), baskets);
+        }
+
+        private int row(long productId) {
+            int row = itemRows.get(productId, -1);
+            if (row >= 0) {
+                return row;
+            }
+            if (items == itemIds.length) {
+                itemIds = Arrays.copyOf(itemIds, items * 2);
+                itemCounts = Arrays.copyOf(itemCounts, items * 2);
+                coCounts = Arrays.copyOf(coCounts, items * 2);
+            }
+            itemRows.put(productId, items);
+            itemIds[items] = productId;
+            return items++;
+        }
+
+        private LongIntHashMap coCounts(int row) {
+            LongIntHashMap co = coCounts[row];
+            if (co == null) {
+                co = new LongIntHashMap();
+                coCounts[row] = co;
+            }
+            return co;
+        }
+    }
+}
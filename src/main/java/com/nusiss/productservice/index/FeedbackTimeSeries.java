@@ -0,0 +1,236 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.ProductFeedbackBucket;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ 单个商品的反馈时间序列（构建完成后不可变，可被多个线程同时读取）
+ - 最近 days 天：只保存有反馈的日子（稀疏），dayIndex 为这些日子距第一天的天数（升序），
+   prefix[i] 为前 i 个有反馈的日子的累计值；任意最近 N 天的窗口是一次二分查找加两次数组读取
+ - 最近 months 个月：同样只保存有反馈的月份，每月一组计数，由按月统计桶和尚未合并的按天统计桶相加得到
+ 每组计数包含 METRICS 项：反馈数、评分数、评分总和、1-5 星反馈数
+ 占用的内存与有反馈的天数 / 月数成正比，只有一条反馈的商品只占几百字节（见 estimatedBytes）
+ */
+public final class FeedbackTimeSeries {
+
+    private static final int FEEDBACK = 0;
+    private static final int RATINGS = 1;
+    private static final int RATING_SUM = 2;
+    private static final int STARS = 3;
+    private static final int METRICS = 8;
+
+    private final LocalDate lastDay;
+    private final int days;
+    private final int[] dayIndex;   // 有反馈的日子，距第一天的天数，升序
+    private final long[] prefix;    // (dayIndex.length + 1) * METRICS
+    private final YearMonth lastMonth;
+    private final int months;
+    private final int[] monthIndex; // 有反馈的月份，0 为最早的月份，升序
+    private final long[] monthly;   // monthIndex.length * METRICS
+
+    private FeedbackTimeSeries(LocalDate lastDay, int days, int[] dayIndex, long[] prefix,
+                               int months, int[] monthIndex, long[] monthly) {
+        this.lastDay = lastDay;
+        this.days = days;
+        this.dayIndex = dayIndex;
+        this.prefix = prefix;
+        this.lastMonth = YearMonth.from(lastDay);
+        this.months = months;
+        this.monthIndex = monthIndex;
+        this.monthly = monthly;
+    }
+
+    /*
+     @param lastDay 序列的最后一天（当天）
+     @param days 保留的天数
+     @param months 保留的月数（含当月）
+     @param daily 按天统计桶，可以包含早于保留天数的桶（只计入月度计数）
+     @param monthlyBuckets 按月统计桶，bucketDate 为当月 1 日
+     */
+    public static FeedbackTimeSeries build(LocalDate lastDay, int days, int months,
+                                           List<ProductFeedbackBucket> daily, List<ProductFeedbackBucket> monthlyBuckets) {
+        days = Math.max(1, days);
+        months = Math.max(1, months);
+        LocalDate firstDay = lastDay.minusDays(days - 1);
+        YearMonth lastMonth = YearMonth.from(lastDay);
+        TreeMap<Integer, long[]> dayValues = new TreeMap<>();
+        TreeMap<Integer, long[]> monthValues = new TreeMap<>();
+        for (ProductFeedbackBucket bucket : daily) {
+            long day = ChronoUnit.DAYS.between(firstDay, bucket.getBucketDate());
+            if (day >= 0 && day < days) {
+                add(dayValues.computeIfAbsent((int) day, k -> new long[METRICS]), bucket);
+            }
+            addMonth(monthValues, months, lastMonth, bucket);
+        }
+        for (ProductFeedbackBucket bucket : monthlyBuckets) {
+            addMonth(monthValues, months, lastMonth, bucket);
+        }
+
+        int[] dayIndex = new int[dayValues.size()];
+        long[] prefix = new long[(dayIndex.length + 1) * METRICS];
+        int i = 0;
+        for (Map.Entry<Integer, long[]> entry : dayValues.entrySet()) {
+            dayIndex[i] = entry.getKey();
+            for (int m = 0; m < METRICS; m++) {
+                prefix[(i + 1) * METRICS + m] = prefix[i * METRICS + m] + entry.getValue()[m];
+            }
+            i++;
+        }
+        int[] monthIndex = new int[monthValues.size()];
+        long[] monthly = new long[monthIndex.length * METRICS];
+        i = 0;
+        for (Map.Entry<Integer, long[]> entry : monthValues.entrySet()) {
+            monthIndex[i] = entry.getKey();
+            System.arraycopy(entry.getValue(), 0, monthly, i * METRICS, METRICS);
+            i++;
+        }
+        return new FeedbackTimeSeries(lastDay, days, dayIndex, prefix, months, monthIndex, monthly);
+    }
+
+    private static void addMonth(TreeMap<Integer, long[]> monthValues, int months, YearMonth lastMonth,
+                                 ProductFeedbackBucket bucket) {
+        long ago = ChronoUnit.MONTHS.between(YearMonth.from(bucket.getBucketDate()), lastMonth);
+        if (ago >= 0 && ago < months) {
+            add(monthValues.computeIfAbsent((int) (months - 1 - ago), k -> new long[METRICS]), bucket);
+        }
+    }
+
+    private static void add(long[] target, ProductFeedbackBucket bucket) {
+        target[FEEDBACK] += valueOf(bucket.getFeedbackCount());
+        target[RATINGS] += valueOf(bucket.getRatingCount());
+        target[RATING_SUM] += valueOf(bucket.getRatingSum());
+        target[STARS] += valueOf(bucket.getStar1());
+        target[STARS + 1] += valueOf(bucket.getStar2());
+        target[STARS + 2] += valueOf(bucket.getStar3());
+        target[STARS + 3] += valueOf(bucket.getStar4());
+        target[STARS + 4] += valueOf(bucket.getStar5());
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    // 第一个不小于 key 的位置
+    private static int lowerBound(int[] sorted, int key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public LocalDate lastDay() {
+        return lastDay;
+    }
+
+    public int days() {
+        return days;
+    }
+
+    public int months() {
+        return months;
+    }
+
+    /*
+     最近 n 天（含当天）的合计
+     @param n 天数，超出保留天数时按保留天数计算
+     */
+    public Totals lastDays(int n) {
+        n = Math.max(1, Math.min(n, days));
+        long[] totals = new long[METRICS];
+        int from = lowerBound(dayIndex, days - n) * METRICS;
+        int to = dayIndex.length * METRICS;
+        for (int m = 0; m < METRICS; m++) {
+            totals[m] = prefix[to + m] - prefix[from + m];
+        }
+        return new Totals(totals);
+    }
+
+    /*
+     最近 n 天（含当天）每天的反馈数，最早的一天在前
+     */
+    public long[] dailyCounts(int n) {
+        n = Math.max(1, Math.min(n, days));
+        long[] counts = new long[n];
+        int first = days - n;
+        for (int i = lowerBound(dayIndex, first); i < dayIndex.length; i++) {
+            counts[dayIndex[i] - first] = prefix[(i + 1) * METRICS + FEEDBACK] - prefix[i * METRICS + FEEDBACK];
+        }
+        return counts;
+    }
+
+    /*
+     某个月的合计
+     @param monthsAgo 0 为当月，超出保留月数时返回全 0
+     */
+    public Totals month(int monthsAgo) {
+        long[] totals = new long[METRICS];
+        if (monthsAgo >= 0 && monthsAgo < months) {
+            int i = Arrays.binarySearch(monthIndex, months - 1 - monthsAgo);
+            if (i >= 0) {
+                System.arraycopy(monthly, i * METRICS, totals, 0, METRICS);
+            }
+        }
+        return new Totals(totals);
+    }
+
+    /*
+     估算占用的内存字节数（对象头与字段按固定值计，数组按长度计），用于限制缓存的总大小
+     */
+    public int estimatedBytes() {
+        return 128 + 4 * dayIndex.length + 8 * prefix.length + 4 * monthIndex.length + 8 * monthly.length;
+    }
+
+    public YearMonth lastMonth() {
+        return lastMonth;
+    }
+
+    /*
+     一段时间内的反馈合计
+     */
+    public static final class Totals {
+
+        private final long[] values;
+
+        private Totals(long[] values) {
+            this.values = values;
+        }
+
+        public long feedbackCount() {
+            return values[FEEDBACK];
+        }
+
+        public long ratingCount() {
+            return values[RATINGS];
+        }
+
+        public long ratingSum() {
+            return values[RATING_SUM];
+        }
+
+        // 平均评分，没有评分时为 null
+        public Double averageRating() {
+            return values[RATINGS] > 0 ? (double) values[RATING_SUM] / values[RATINGS] : null;
+        }
+
+        // 1-5 星的反馈数，下标 0 为 1 星
+        public long[] starCounts() {
+            long[] stars = new long[5];
+            System.arraycopy(values, STARS, stars, 0, 5);
+            return stars;
+        }
+    }
+}
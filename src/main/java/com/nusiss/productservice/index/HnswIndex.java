@@ -0,0 +1,533 @@
+package com.nusiss.productservice.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ HNSW（Hierarchical Navigable Small World）近似最近邻索引，距离为 1 - 余弦相似度（向量需预先 L2 归一化）
+ - 每个节点随机分配层数（第 l 层的概率约为 M^-l），在每一层与最近的 M 个节点相连（第 0 层 2M 个），
+   邻居按启发式规则选择，优先保留不同方向上的邻居；查询从最高层贪心下降，在第 0 层做宽度为 ef 的最佳优先搜索
+ - 向量存放在堆外的 direct buffer 中（不占用 Java 堆、不参与 GC 扫描），图结构和 ID 映射用基本类型数组
+ - 删除只打标记：被删除的节点仍参与图上的导航，但不会出现在结果中，也不会成为新节点的邻居；
+   删除比例过高时应重建索引（见 deletedCount）
+ - 更新为删除旧节点再插入新节点；向量未变化时不做任何修改
+ 读写锁保护：查询共享读锁，插入 / 删除持有写锁
+ */
+public final class HnswIndex {
+
+    private final int dimensions;
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private static final ThreadLocal<float[][]> SCRATCH = ThreadLocal.withInitial(() -> new float[2][]);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FloatBuffer vectors;                                // 节点 n 的向量位于 [n * dimensions, (n + 1) * dimensions)
+    private long[] nodeIds = new long[0];
+    private boolean[] deleted = new boolean[0];
+    private int[][][] links = new int[0][][];                  // links[n][l]：第 l 层邻居，[0] 为数量
+    private final LongIntHashMap slots = new LongIntHashMap(); // 商品 ID -> 节点，已删除为 -1
+    private int nodeCount;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /*
+     @param dimensions 向量维度
+     @param m 每层的邻居数（第 0 层为 2m）
+     @param efConstruction 插入时的搜索宽度
+     @param efSearch 查询时的搜索宽度（不小于返回数量）
+     @param seed 层数随机数种子
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction, int efSearch, long seed) {
+        if (dimensions <= 0 || m < 2) {
+            throw new IllegalArgumentException("invalid HNSW parameters: dimensions=" + dimensions + ", m=" + m);
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxConnections0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+        this.vectors = allocate(16);
+    }
+
+    // 未删除的节点数
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 已删除但仍留在图中的节点数
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 向量占用的堆外内存
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) vectors.capacity() * Float.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return slots.get(id, -1) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     新增或替换一个向量
+     @param id 商品 ID
+     @param vector L2 归一化后的向量
+     @return 索引是否发生变化（向量与现有的相同时返回 false）
+     */
+    public boolean put(long id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            int existing = slots.get(id, -1);
+            if (existing >= 0) {
+                if (sameVector(existing, vector)) {
+                    return false;
+                }
+                markDeleted(existing);
+            }
+            insert(id, vector);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     删除一个向量
+     @return 是否存在
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int node = slots.get(id, -1);
+            if (node < 0) {
+                return false;
+            }
+            markDeleted(node);
+            slots.put(id, -1);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     查询与已索引商品最相似的商品（不含自身）
+     @return 商品 ID（相似度降序）；商品不在索引中时返回 null
+     */
+    public long[] searchSimilar(long id, int k) {
+        lock.readLock().lock();
+        try {
+            int node = slots.get(id, -1);
+            if (node < 0) {
+                return null;
+            }
+            return search(readVector(node), k, node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     查询与向量最相似的商品
+     @param query L2 归一化后的向量
+     @return 商品 ID（相似度降序）
+     */
+    public long[] search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            return search(query, k, -1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] search(float[] query, int k, int excludeNode) {
+        if (k <= 0 || entryPoint < 0) {
+            return new long[0];
+        }
+        int entry = greedyDescend(query, entryPoint, maxLevel, 1);
+        // 多取一个，给被排除的自身留位置
+        NodeHeap found = searchLayer(query, entry, Math.max(efSearch, k + 1), 0);
+        int[] nodes = found.drainAscending();
+        long[] result = new long[Math.min(k, nodes.length)];
+        int n = 0;
+        for (int i = 0; i < nodes.length && n < result.length; i++) {
+            if (nodes[i] != excludeNode) {
+                result[n++] = nodeIds[nodes[i]];
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    private void insert(long id, float[] vector) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int node = allocateNode(id, vector, level);
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int entry = greedyDescend(vector, entryPoint, maxLevel, level + 1);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap found = searchLayer(vector, entry, efConstruction, l);
+            int[] candidates = found.drainAscending();
+            if (candidates.length == 0) {
+                continue;
+            }
+            int[] selected = selectNeighbours(vector, candidates, m);
+            for (int neighbour : selected) {
+                addLink(node, neighbour, l);
+                addLink(neighbour, node, l);
+            }
+            entry = candidates[0];
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    // 从 fromLevel 贪心下降到 toLevel（含），每层只保留最近的一个节点
+    private int greedyDescend(float[] query, int entry, int fromLevel, int toLevel) {
+        int current = entry;
+        float currentDistance = distance(query, current);
+        for (int l = fromLevel; l >= toLevel; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] neighbours = links[current][l];
+                for (int i = 1; i <= neighbours[0]; i++) {
+                    float d = distance(query, neighbours[i]);
+                    if (d < currentDistance) {
+                        current = neighbours[i];
+                        currentDistance = d;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /*
+     在一层中做宽度为 ef 的最佳优先搜索
+     @return 最近的 ef 个未删除节点
+     */
+    private NodeHeap searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodeCount);
+        NodeHeap candidates = new NodeHeap(ef * 2, false); // 待扩展，距离最小的在堆顶
+        NodeHeap results = new NodeHeap(ef, true);         // 当前结果，距离最大的在堆顶
+        float entryDistance = distance(query, entry);
+        visited.set(entry);
+        candidates.push(entry, entryDistance);
+        if (!deleted[entry]) {
+            results.push(entry, entryDistance);
+        }
+        while (candidates.size() > 0) {
+            float candidateDistance = candidates.topDistance();
+            if (results.size() >= ef && candidateDistance > results.topDistance()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] neighbours = links[candidate][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float d = distance(query, neighbour);
+                if (results.size() < ef || d < results.topDistance()) {
+                    candidates.push(neighbour, d);
+                    if (!deleted[neighbour]) {
+                        results.push(neighbour, d);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /*
+     启发式邻居选择：按距离从近到远，只保留比已选邻居更接近 base 的候选，使邻居分布在不同方向；
+     不足 limit 个时用被跳过的候选补齐
+     @param candidates 按到 base 的距离升序排列
+     */
+    private int[] selectNeighbours(float[] base, int[] candidates, int limit) {
+        if (candidates.length <= limit) {
+            return candidates;
+        }
+        int[] selected = new int[limit];
+        int count = 0;
+        boolean[] taken = new boolean[candidates.length];
+        for (int i = 0; i < candidates.length && count < limit; i++) {
+            float toBase = distance(base, candidates[i]);
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidates[i], selected[j]) < toBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidates[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && count < limit; i++) {
+            if (!taken[i]) {
+                selected[count++] = candidates[i];
+            }
+        }
+        return selected;
+    }
+
+    // 添加 from -> to 的边；from 的邻居已满时重新选择
+    private void addLink(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int limit = level == 0 ? maxConnections0 : m;
+        if (neighbours[0] < limit) {
+            neighbours[++neighbours[0]] = to;
+            return;
+        }
+        float[] base = readVector(from);
+        NodeHeap all = new NodeHeap(limit + 1, false);
+        for (int i = 1; i <= neighbours[0]; i++) {
+            all.push(neighbours[i], distance(base, neighbours[i]));
+        }
+        all.push(to, distance(base, to));
+        int[] selected = selectNeighbours(base, all.drainAscending(), limit);
+        neighbours[0] = selected.length;
+        System.arraycopy(selected, 0, neighbours, 1, selected.length);
+    }
+
+    private int allocateNode(long id, float[] vector, int level) {
+        if (nodeCount == nodeIds.length) {
+            int capacity = Math.max(16, nodeCount * 2);
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        if ((long) (nodeCount + 1) * dimensions > vectors.capacity()) {
+            FloatBuffer grown = allocate(nodeIds.length);
+            vectors.position(0);
+            vectors.limit(nodeCount * dimensions);
+            grown.put(vectors);
+            grown.clear();
+            vectors = grown;
+        }
+        int node = nodeCount++;
+        for (int d = 0; d < dimensions; d++) {
+            vectors.put(node * dimensions + d, vector[d]);
+        }
+        nodeIds[node] = id;
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[(l == 0 ? maxConnections0 : m) + 1];
+        }
+        links[node] = nodeLinks;
+        slots.put(id, node);
+        return node;
+    }
+
+    private void markDeleted(int node) {
+        if (!deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    private FloatBuffer allocate(int nodes) {
+        // direct buffer 最大 2 GB，超出时直接失败而不是溢出
+        return ByteBuffer.allocateDirect(Math.multiplyExact(Math.multiplyExact(nodes, dimensions), Float.BYTES))
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    private boolean sameVector(int node, float[] vector) {
+        int offset = node * dimensions;
+        for (int d = 0; d < dimensions; d++) {
+            if (vectors.get(offset + d) != vector[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private float[] readVector(int node) {
+        float[] vector = new float[dimensions];
+        vectors.get(node * dimensions, vector);
+        return vector;
+    }
+
+    private float distance(float[] query, int node) {
+        float[] vector = scratch(0);
+        vectors.get(node * dimensions, vector, 0, dimensions);
+        return 1 - dot(query, vector, dimensions);
+    }
+
+    private float distance(int a, int b) {
+        float[] first = scratch(0);
+        float[] second = scratch(1);
+        vectors.get(a * dimensions, first, 0, dimensions);
+        vectors.get(b * dimensions, second, 0, dimensions);
+        return 1 - dot(first, second, dimensions);
+    }
+
+    // 每个线程两块复用的缓冲区，先把堆外向量整块复制出来再计算，比逐个 FloatBuffer.get 快得多
+    private float[] scratch(int which) {
+        float[][] buffers = SCRATCH.get();
+        if (buffers[which] == null || buffers[which].length < dimensions) {
+            buffers[which] = new float[dimensions];
+        }
+        return buffers[which];
+    }
+
+    // 四路累加打破浮点加法的依赖链，便于 CPU 流水并行
+    static float dot(float[] a, float[] b, int length) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int d = 0;
+        for (; d + 3 < length; d += 4) {
+            s0 += a[d] * b[d];
+            s1 += a[d + 1] * b[d + 1];
+            s2 += a[d + 2] * b[d + 2];
+            s3 += a[d + 3] * b[d + 3];
+        }
+        for (; d < length; d++) {
+            s0 += a[d] * b[d];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /*
+     节点二叉堆，max 为 true 时堆顶是距离最大的节点
+     */
+    private static final class NodeHeap {
+
+        private final boolean max;
+        private int[] nodes;
+        private float[] distances;
+        private int size;
+
+        NodeHeap(int capacity, boolean max) {
+            this.max = max;
+            this.nodes = new int[Math.max(4, capacity + 1)];
+            this.distances = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topDistance() {
+            return distances[0];
+        }
+
+        void push(int node, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!above(distance, distances[parent])) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                distances[index] = distances[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            distances[index] = distance;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastDistance = distances[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && above(distances[child + 1], distances[child])) {
+                    child++;
+                }
+                if (!above(distances[child], lastDistance)) {
+                    break;
+                }
+                nodes[index] = nodes[child];
+                distances[index] = distances[child];
+                index = child;
+            }
+            nodes[index] = lastNode;
+            distances[index] = lastDistance;
+            return top;
+        }
+
+        // 取出所有节点，按距离升序
+        int[] drainAscending() {
+            int[] result = new int[size];
+            if (max) {
+                for (int i = result.length - 1; i >= 0; i--) {
+                    result[i] = pop();
+                }
+            } else {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = pop();
+                }
+            }
+            return result;
+        }
+
+        private boolean above(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
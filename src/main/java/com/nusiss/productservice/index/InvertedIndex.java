@@ -0,0 +1,229 @@
+package com.nusiss.productservice.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ 内存倒排索引，使用 BM25 打分
+ 词典为有序的 TreeMap，支持前缀展开；每个词的倒排表为 文档 id -> 词频（可带字段权重）。
+ 前缀展开出的所有词都参与匹配，一个文档取其中得分最高的词，命中多个展开词的文档不会因此排得更靠前；
+ 只在结果层按 limit 截断。
+ 支持按文档增量新增 / 替换 / 删除，读写通过读写锁保护。
+ */
+public class InvertedIndex {
+
+    // BM25 参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>(); // 词 -> (文档 -> 词频)
+    private final Map<Long, Map<String, Float>> documents = new HashMap<>();    // 文档 -> (词 -> 词频)，用于删除
+    private final Map<Long, Float> docLengths = new HashMap<>();                // 文档长度（词频之和）
+    private double totalLength;
+
+    /*
+     新增或替换一个文档
+     @param docId 文档 id
+     @param termFreqs 词 -> 词频（已乘字段权重）
+     */
+    public void put(long docId, Map<String, Float> termFreqs) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            if (termFreqs.isEmpty()) {
+                return;
+            }
+            float length = 0;
+            for (Map.Entry<String, Float> entry : termFreqs.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(docId, entry.getValue());
+                length += entry.getValue();
+            }
+            documents.put(docId, new HashMap<>(termFreqs));
+            docLengths.put(docId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            docLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     执行查询，按 BM25 得分从高到低返回文档 id
+     @param query 查询
+     @param limit 最多返回条数
+     */
+    public List<Long> search(SearchQuery query, int limit) {
+        if (query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return Collections.emptyList();
+            }
+            double avgLength = totalLength / documents.size();
+
+            Map<Long, Double> combined = null;
+            for (SearchQuery.Clause clause : query.getClauses()) {
+                Map<Long, Double> clauseScores = null;
+                List<String> terms = clause.getTerms();
+                for (int i = 0; i < terms.size(); i++) {
+                    boolean prefix = clause.isPrefix() && i == terms.size() - 1;
+                    Map<Long, Double> termScores = scoreTerm(terms.get(i), prefix, avgLength);
+                    clauseScores = clauseScores == null ? termScores : intersect(clauseScores, termScores);
+                    if (clauseScores.isEmpty()) {
+                        break;
+                    }
+                }
+                if (query.getOperator() == SearchQuery.Operator.AND) {
+                    combined = combined == null ? clauseScores : intersect(combined, clauseScores);
+                    if (combined.isEmpty()) {
+                        return Collections.emptyList();
+                    }
+                } else {
+                    combined = combined == null ? clauseScores : union(combined, clauseScores);
+                }
+            }
+            return topK(combined, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 计算单个词（或前缀展开后的多个词）对每个文档的 BM25 得分；前缀展开时每个文档取各展开词得分的最大值
+    private Map<Long, Double> scoreTerm(String term, boolean prefix, double avgLength) {
+        Map<Long, Double> scores = new HashMap<>();
+        if (prefix) {
+            NavigableMap<String, Map<Long, Float>> range = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+            for (Map<Long, Float> docs : range.values()) {
+                accumulate(docs, avgLength, scores);
+            }
+        } else {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                accumulate(docs, avgLength, scores);
+            }
+        }
+        return scores;
+    }
+
+    // 一个词的 BM25 得分并入 scores，同一文档已有得分（其他展开词）时取较大者
+    private void accumulate(Map<Long, Float> docs, double avgLength, Map<Long, Double> scores) {
+        int n = documents.size();
+        int df = docs.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        for (Map.Entry<Long, Float> entry : docs.entrySet()) {
+            double tf = entry.getValue();
+            double dl = docLengths.getOrDefault(entry.getKey(), 0f);
+            double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * dl / avgLength));
+            scores.merge(entry.getKey(), score, Math::max);
+        }
+    }
+
+    private static Map<Long, Double> intersect(Map<Long, Double> a, Map<Long, Double> b) {
+        Map<Long, Double> small = a.size() <= b.size() ? a : b;
+        Map<Long, Double> large = small == a ? b : a;
+        Map<Long, Double> result = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : small.entrySet()) {
+            Double other = large.get(entry.getKey());
+            if (other != null) {
+                result.put(entry.getKey(), entry.getValue() + other);
+            }
+        }
+        return result;
+    }
+
+    private static Map<Long, Double> union(Map<Long, Double> a, Map<Long, Double> b) {
+        Map<Long, Double> result = new HashMap<>(a);
+        b.forEach((doc, score) -> result.merge(doc, score, Double::sum));
+        return result;
+    }
+
+    // 得分相同时 id 小的在前，保证结果稳定
+    private static List<Long> topK(Map<Long, Double> scores, int limit) {
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(
+                (x, y) -> x.getValue().equals(y.getValue())
+                        ? Long.compare(y.getKey(), x.getKey())
+                        : Double.compare(x.getValue(), y.getValue()));
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Long> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void removeInternal(long docId) {
+        Map<String, Float> terms = documents.remove(docId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(docId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Float length = docLengths.remove(docId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.nusiss.productservice.index;
+
+/*
+ long -> int 的开放寻址哈希表（线性探测），避免 Map<Long, Integer> 的装箱与节点开销
+ 只支持新增和累加，不支持删除；非线程安全，构建完成后只读使用可安全发布
+ */
+final class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] filled;
+    private int size;
+    private int mask;
+
+    LongIntHashMap() {
+        this(8);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /*
+     查询 key 对应的值
+     @param missing key 不存在时返回的值
+     */
+    int get(long key, int missing) {
+        int slot = find(key);
+        return filled[slot] ? values[slot] : missing;
+    }
+
+    void put(long key, int value) {
+        int slot = find(key);
+        if (!filled[slot]) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /*
+     累加 key 对应的值（不存在时视为 0）
+     @return 累加后的值
+     */
+    int addTo(long key, int delta) {
+        int slot = find(key);
+        if (!filled[slot]) {
+            insert(slot, key, delta);
+            return delta;
+        }
+        return values[slot] += delta;
+    }
+
+    // 槽位遍历：for (i = 0; i < capacity(); i++) if (isFilled(i)) keyAt(i) / valueAt(i)
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isFilled(int slot) {
+        return filled[slot];
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (filled[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        filled[slot] = true;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldFilled = filled;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldFilled[i]) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                filled[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        filled = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,294 @@
+package com.nusiss.productservice.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ MinHash 签名 + LSH 分段（banding）的近重复检测索引
+ - 签名：对 shingle 哈希集合用 bands * rows 个不同种子的哈希函数分别取最小值，两个签名中相等位置的比例是 Jaccard 相似度的无偏估计
+ - 分段：签名切成 bands 段、每段 rows 个值，任意一段完全相同的两个文档成为候选；
+   Jaccard 为 s 时成为候选的概率为 1 - (1 - s^rows)^bands，阈值附近陡峭上升（20 x 5 时约 0.55）
+ - 查询只读取与签名同桶的文档并用完整签名核实相似度，代价与桶大小有关而与文档总数无关
+ 桶内文档 ID 存放在 long[] 中（首元素为个数），避免大量装箱；支持增量新增 / 替换 / 删除，读写通过读写锁保护
+ */
+public class MinHashLsh {
+
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, int[]> signatures = new HashMap<>(); // 文档 -> 签名
+    private final Map<Long, long[]> buckets = new HashMap<>();   // 分段桶键 -> [个数, 文档 ID...]
+
+    public MinHashLsh(int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("bands and rows must be positive: " + bands + " x " + rows);
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new long[bands * rows];
+        long state = seed;
+        for (int i = 0; i < seeds.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(state);
+        }
+    }
+
+    /*
+     一个候选文档及其估算的 Jaccard 相似度
+     */
+    public static final class Candidate {
+        private final long id;
+        private final double similarity;
+
+        private Candidate(long id, double similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public double similarity() {
+            return similarity;
+        }
+    }
+
+    /*
+     相似文档对的回调（a < b）
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(long a, long b, double similarity);
+    }
+
+    /*
+     计算 shingle 哈希集合的 MinHash 签名（允许重复元素）
+     @return 签名；集合为空时返回 null
+     */
+    public int[] signature(long[] shingles) {
+        if (shingles == null || shingles.length == 0) {
+            return null;
+        }
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < seeds.length; i++) {
+                int h = (int) mix(shingle ^ seeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /*
+     新增或替换一个文档
+     @param signature 签名，为 null 时删除该文档
+     */
+    public void put(long id, int[] signature) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            if (signature == null) {
+                return;
+            }
+            checkLength(signature);
+            signatures.put(id, signature);
+            for (int band = 0; band < bands; band++) {
+                long key = bandKey(signature, band);
+                long[] bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new long[3];
+                } else if (bucket[0] + 1 == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, bucket.length * 2 - 1);
+                }
+                bucket[(int) ++bucket[0]] = id;
+                buckets.put(key, bucket);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 文档的签名，不在索引中时返回 null
+    public int[] signatureOf(long id) {
+        lock.readLock().lock();
+        try {
+            return signatures.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return signatures.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     查询与签名相似的文档
+     @param minSimilarity 估算相似度的下限
+     @param excludeId 排除的文档（通常是查询文档自身）
+     @return 候选文档，相似度降序（相同时 ID 升序）
+     */
+    public List<Candidate> query(int[] signature, double minSimilarity, long excludeId) {
+        checkLength(signature);
+        List<Candidate> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> seen = new HashSet<>();
+            for (int band = 0; band < bands; band++) {
+                long[] bucket = buckets.get(bandKey(signature, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 1; i <= bucket[0]; i++) {
+                    long id = bucket[i];
+                    if (id == excludeId || !seen.add(id)) {
+                        continue;
+                    }
+                    double similarity = similarity(signature, signatures.get(id));
+                    if (similarity >= minSimilarity) {
+                        result.add(new Candidate(id, similarity));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort((a, b) -> a.similarity != b.similarity
+                ? Double.compare(b.similarity, a.similarity) : Long.compare(a.id, b.id));
+        return result;
+    }
+
+    /*
+     遍历所有相似度不低于 minSimilarity 的文档对（每对只回调一次），只比较同桶的文档
+     全量扫描耗时较长，不在整个过程中持有读锁（否则等待中的写入会挡住后续的查询）：
+     先在读锁内复制文档 ID，再对每个文档短暂加读锁找出同桶的相似文档，回调在锁外执行（因此也可以修改索引）
+     扫描期间被修改的文档按各自被扫描时的状态处理，可能漏报或多报涉及这些文档的对
+     */
+    public void forEachPair(double minSimilarity, PairConsumer consumer) {
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            ids = new long[signatures.size()];
+            int n = 0;
+            for (Long id : signatures.keySet()) {
+                ids[n++] = id;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Candidate> similar = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (long id : ids) {
+            similar.clear();
+            seen.clear();
+            lock.readLock().lock();
+            try {
+                int[] signature = signatures.get(id);
+                if (signature == null) {
+                    continue; // 复制 ID 之后被删除
+                }
+                for (int band = 0; band < bands; band++) {
+                    long[] bucket = buckets.get(bandKey(signature, band));
+                    for (int i = 1; i <= bucket[0]; i++) {
+                        long other = bucket[i];
+                        if (other <= id || !seen.add(other)) {
+                            continue;
+                        }
+                        double similarity = similarity(signature, signatures.get(other));
+                        if (similarity >= minSimilarity) {
+                            similar.add(new Candidate(other, similarity));
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (Candidate candidate : similar) {
+                consumer.accept(id, candidate.id, candidate.similarity);
+            }
+        }
+    }
+
+    // 两个签名的估算 Jaccard 相似度：相等位置的比例
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    private void removeInternal(long id) {
+        int[] signature = signatures.remove(id);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            long key = bandKey(signature, band);
+            long[] bucket = buckets.get(key);
+            int count = (int) bucket[0];
+            for (int i = 1; i <= count; i++) {
+                if (bucket[i] == id) {
+                    bucket[i] = bucket[count]; // 与最后一个交换后删除
+                    bucket[0]--;
+                    break;
+                }
+            }
+            if (bucket[0] == 0) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    // 一段签名的桶键：段号与该段的 rows 个值一起哈希，不同段的相同取值落在不同的桶
+    private long bandKey(int[] signature, int band) {
+        long h = band * 0x9E3779B97F4A7C15L;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            h = mix(h ^ (signature[i] & 0xFFFFFFFFL));
+        }
+        return h;
+    }
+
+    private void checkLength(int[] signature) {
+        if (signature.length != seeds.length) {
+            throw new IllegalArgumentException("signature length " + signature.length + " != " + seeds.length);
+        }
+    }
+
+    // 64 位混合函数（SplitMix64 的终结步骤）
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
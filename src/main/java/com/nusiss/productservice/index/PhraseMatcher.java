@@ -0,0 +1,222 @@
+package com.nusiss.productservice.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ 多模式短语匹配（Aho-Corasick 自动机），用于反馈评论的违禁词 / 垃圾短语筛查
+ - 所有短语编译成一棵带失败指针的字典树，扫描文本一遍即可找出全部命中，耗时与短语数量无关
+ - 转移表存放在 LongIntHashMap 中（键为 状态 << 16 | 字符），中文短语的字符集很大也不需要为每个状态分配数组
+ - 匹配前统一折叠大小写和全角 ASCII（"ＦＲＥＥ" 与 "free" 视为相同），折叠是逐字符的，命中位置就是原文中的位置
+ 构建后不可变，可以在多个线程间共享；短语列表变化时整体重建后替换
+ */
+public final class PhraseMatcher {
+
+    private static final int ROOT = 0;
+
+    private final String[] phrases;      // 折叠后的短语
+    private final LongIntHashMap next;   // 转移：(状态, 字符) -> 子状态
+    private final int[] fail;            // 失败指针：当前状态对应字符串的最长真后缀所在的状态
+    private final int[] output;          // 在该状态结束的短语下标，没有时为 -1
+    private final int[] outputLink;      // 失败链上下一个有短语结束的状态，没有时为 -1
+
+    private PhraseMatcher(String[] phrases, LongIntHashMap next, int[] fail, int[] output, int[] outputLink) {
+        this.phrases = phrases;
+        this.next = next;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+    }
+
+    /*
+     一次命中：原文中 [start, end) 的字符与短语 phrase 匹配
+     */
+    public static final class Match {
+        private final int start;
+        private final int end;
+        private final String phrase;
+
+        private Match(int start, int end, String phrase) {
+            this.start = start;
+            this.end = end;
+            this.phrase = phrase;
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        // 折叠后的短语
+        public String phrase() {
+            return phrase;
+        }
+
+        @Override
+        public String toString() {
+            return phrase + "@" + start;
+        }
+    }
+
+    /*
+     编译短语列表：空白短语忽略，折叠后相同的短语只保留一个
+     */
+    public static PhraseMatcher compile(Collection<String> phrases) {
+        Set<String> unique = new LinkedHashSet<>();
+        int totalChars = 0;
+        for (String phrase : phrases) {
+            if (phrase == null || phrase.isBlank()) {
+                continue;
+            }
+            String folded = fold(phrase.trim());
+            if (unique.add(folded)) {
+                totalChars += folded.length();
+            }
+        }
+        String[] list = unique.toArray(new String[0]);
+
+        // 1. 字典树：状态数最多为字符总数 + 1
+        int capacity = totalChars + 1;
+        LongIntHashMap next = new LongIntHashMap(totalChars);
+        int[] parent = new int[capacity];
+        char[] via = new char[capacity];   // 从父状态进入该状态的字符
+        int[] depth = new int[capacity];
+        int[] output = new int[capacity];
+        Arrays.fill(output, -1);
+        int states = 1;
+        for (int p = 0; p < list.length; p++) {
+            String phrase = list[p];
+            int state = ROOT;
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = phrase.charAt(i);
+                int child = next.get(key(state, c), -1);
+                if (child < 0) {
+                    child = states++;
+                    next.put(key(state, c), child);
+                    parent[child] = state;
+                    via[child] = c;
+                    depth[child] = depth[state] + 1;
+                }
+                state = child;
+            }
+            output[state] = p;
+        }
+
+        // 2. 按深度从浅到深计算失败指针（父状态的失败指针总是先算好）
+        int[] order = new int[states];
+        int[] countByDepth = new int[maxOf(depth, states) + 2];
+        for (int s = 0; s < states; s++) {
+            countByDepth[depth[s] + 1]++;
+        }
+        for (int d = 1; d < countByDepth.length; d++) {
+            countByDepth[d] += countByDepth[d - 1];
+        }
+        for (int s = 0; s < states; s++) {
+            order[countByDepth[depth[s]]++] = s;
+        }
+        int[] fail = new int[states];
+        int[] outputLink = new int[states];
+        outputLink[ROOT] = -1;
+        for (int i = 1; i < states; i++) {
+            int s = order[i];
+            int p = parent[s];
+            fail[s] = p == ROOT ? ROOT : step(next, fail, fail[p], via[s]);
+            int f = fail[s];
+            outputLink[s] = output[f] >= 0 ? f : outputLink[f];
+        }
+        return new PhraseMatcher(list, next, fail, Arrays.copyOf(output, states), outputLink);
+    }
+
+    // 短语数
+    public int size() {
+        return phrases.length;
+    }
+
+    /*
+     找出结束位置最靠前的一次命中（同一位置结束的多个短语中取最长的），没有命中时返回 null
+     筛查只需要知道有没有命中，找到第一个就停止扫描
+     */
+    public Match findFirst(CharSequence text) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(next, fail, state, fold(text.charAt(i)));
+            int hit = output[state] >= 0 ? state : outputLink[state];
+            if (hit >= 0) {
+                return match(output[hit], i + 1);
+            }
+        }
+        return null;
+    }
+
+    /*
+     找出全部命中（含相互重叠的），按结束位置排序
+     */
+    public List<Match> findAll(CharSequence text) {
+        List<Match> matches = new ArrayList<>();
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(next, fail, state, fold(text.charAt(i)));
+            for (int hit = output[state] >= 0 ? state : outputLink[state]; hit >= 0; hit = outputLink[hit]) {
+                matches.add(match(output[hit], i + 1));
+            }
+        }
+        return matches;
+    }
+
+    private Match match(int phrase, int end) {
+        return new Match(end - phrases[phrase].length(), end, phrases[phrase]);
+    }
+
+    // 从 state 读入字符 c 后的状态：没有对应转移时沿失败指针回退，回到根仍没有时停在根
+    private static int step(LongIntHashMap next, int[] fail, int state, char c) {
+        while (true) {
+            int child = next.get(key(state, c), -1);
+            if (child >= 0) {
+                return child;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int maxOf(int[] values, int length) {
+        int max = 0;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    /*
+     逐字符折叠：全角 ASCII（U+FF01 - U+FF5E）转为半角，全角空格转为空格，再转小写
+     */
+    static char fold(char c) {
+        if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0);
+        } else if (c == '　') {
+            c = ' ';
+        }
+        return Character.toLowerCase(c);
+    }
+
+    static String fold(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(text.charAt(i));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,528 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.entity.Product;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ Products 表的内存列式快照（线程安全）
+ - 每个商品占用一个槽位（slot），各列按槽位存放在基本类型数组中：
+   price 以「分」存为 long[]，rating 存为 double[]，创建 / 更新时间存为 epoch 秒 long[]
+ - category / status 做字典编码，每个取值维护一个 BitSet（该取值的商品槽位），等值条件直接做位图求交
+ - 每个可排序列按需构建排好序的槽位排列（升序 / 降序各一份），有写入时失效，下次排序查询时重建
+ - 写入时预先算好每个商品所在的价格区间、评分区间，分面统计只需对命中的槽位遍历一次累加计数
+ 比较规则尽量与 MySQL 保持一致：
+ - category / status / name 不区分大小写（对应默认的 *_ci 排序规则）
+ - 列值为 NULL 时不满足任何范围条件；升序时 NULL 排在最前，降序时排在最后；排序值相同时按 id 升序
+ */
+public class ProductCatalogSnapshot {
+
+    // 支持在内存中排序的列（与数据库列名一致），其余列退回 SQL
+    public static final Set<String> SORTABLE_COLUMNS = Set.of("id", "price", "rating", "stock", "create_datetime", "update_datetime");
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_CODE = -1;
+
+    // 默认的价格区间下界（元），最后一个区间没有上限
+    private static final BigDecimal[] DEFAULT_PRICE_BUCKETS = {
+            new BigDecimal("0"), new BigDecimal("50"), new BigDecimal("100"),
+            new BigDecimal("500"), new BigDecimal("1000"), new BigDecimal("5000")};
+
+    // 评分区间：[0,1) [1,2) [2,3) [3,4) [4,5]
+    private static final int RATING_BUCKETS = 5;
+
+    // 分面取值的排列顺序：数量降序、取值升序
+    public static final Comparator<ProductFacets.ValueCount> FACET_ORDER =
+            Comparator.comparingLong(ProductFacets.ValueCount::getCount).reversed()
+                    .thenComparing(ProductFacets.ValueCount::getValue);
+
+    // 命中数少于总数的 1/16 时，直接对命中的槽位排序而不是扫描整条排列
+    private static final int SMALL_RESULT_RATIO = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int capacity = 1024;
+    private long[] ids = new long[capacity];
+    private long[] priceCents = new long[capacity];
+    private double[] ratings = new double[capacity];       // NULL 为 NaN
+    private long[] stocks = new long[capacity];
+    private long[] createdAt = new long[capacity];
+    private long[] updatedAt = new long[capacity];
+    private int[] categoryCodes = new int[capacity];
+    private int[] statusCodes = new int[capacity];
+    private String[] lowerNames = new String[capacity];
+    private Product[] rows = new Product[capacity];        // 完整商品，用于返回结果
+    private byte[] priceBuckets = new byte[capacity];      // 价格区间下标，NULL 或低于最小下界为 -1
+    private byte[] ratingBuckets = new byte[capacity];     // 评分区间下标，NULL 为 -1
+
+    private final BigDecimal[] priceBucketBounds;
+    private final long[] priceBucketCents;
+
+    private final BitSet live = new BitSet();               // 有商品的槽位
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private int nextSlot;
+
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary statuses = new Dictionary();
+
+    // 列名 + 方向 -> 排好序的槽位；任何写入都会清空
+    private final Map<String, int[]> sortedSlots = new ConcurrentHashMap<>();
+
+    public ProductCatalogSnapshot() {
+        this(DEFAULT_PRICE_BUCKETS);
+    }
+
+    /*
+     @param priceBucketBounds 价格区间下界（元，升序），最多 127 个
+     */
+    public ProductCatalogSnapshot(BigDecimal[] priceBucketBounds) {
+        if (priceBucketBounds.length == 0 || priceBucketBounds.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("价格区间数量必须在 1 到 127 之间");
+        }
+        this.priceBucketBounds = priceBucketBounds.clone();
+        Arrays.sort(this.priceBucketBounds);
+        this.priceBucketCents = new long[this.priceBucketBounds.length];
+        for (int i = 0; i < this.priceBucketBounds.length; i++) {
+            priceBucketCents[i] = this.priceBucketBounds[i].movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        }
+    }
+
+    /*
+     字典编码：小写取值 -> 编码，以及每个编码对应的槽位位图
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<BitSet> slots = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            return codes.computeIfAbsent(value.toLowerCase(Locale.ROOT), key -> {
+                values.add(value);
+                slots.add(new BitSet());
+                return values.size() - 1;
+            });
+        }
+
+        Integer lookup(String value) {
+            return codes.get(value.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /*
+     新增或替换一个商品
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotById.get(product.getId());
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                clearSlot(slot);
+            } else {
+                slot = allocateSlot();
+                slotById.put(product.getId(), slot);
+            }
+            ids[slot] = product.getId();
+            priceCents[slot] = product.getPrice() == null ? NULL_LONG
+                    : product.getPrice().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            ratings[slot] = product.getRating() == null ? Double.NaN : product.getRating();
+            stocks[slot] = product.getStock() == null ? NULL_LONG : product.getStock();
+            createdAt[slot] = epochSeconds(product.getCreateDatetime());
+            updatedAt[slot] = epochSeconds(product.getUpdateDatetime());
+            categoryCodes[slot] = categories.encode(product.getCategory());
+            statusCodes[slot] = statuses.encode(product.getStatus());
+            if (categoryCodes[slot] != NULL_CODE) {
+                categories.slots.get(categoryCodes[slot]).set(slot);
+            }
+            if (statusCodes[slot] != NULL_CODE) {
+                statuses.slots.get(statusCodes[slot]).set(slot);
+            }
+            lowerNames[slot] = product.getName() == null ? null : product.getName().toLowerCase(Locale.ROOT);
+            priceBuckets[slot] = priceBucketOf(priceCents[slot]);
+            ratingBuckets[slot] = ratingBucketOf(ratings[slot]);
+            rows[slot] = copy(product);
+            live.set(slot);
+            sortedSlots.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(productId);
+            if (slot == null) {
+                return;
+            }
+            clearSlot(slot);
+            live.clear(slot);
+            rows[slot] = null;
+            lowerNames[slot] = null;
+            freeSlots.add(slot);
+            sortedSlots.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     返回满足条件的全部商品（按 id 升序）
+     */
+    public List<Product> filter(CatalogQuery query) {
+        lock.readLock().lock();
+        try {
+            return collect("id", true, match(query), 0, Integer.MAX_VALUE).records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     筛选 + 排序 + 分页
+     @param sortBy 排序列（必须在 SORTABLE_COLUMNS 中；为空时按 id 升序）
+     @param asc 是否升序
+     @param offset 跳过的条数
+     @param limit 返回的条数
+     @return 当前页数据与满足条件的总数
+     */
+    public Slice select(CatalogQuery query, String sortBy, boolean asc, long offset, int limit) {
+        String column = sortBy == null || sortBy.isEmpty() ? "id" : sortBy;
+        if (!SORTABLE_COLUMNS.contains(column)) {
+            throw new IllegalArgumentException("不支持在内存中按该列排序: " + sortBy);
+        }
+        lock.readLock().lock();
+        try {
+            return collect(column, column.equals(sortBy) ? asc : true, match(query), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     分面统计：对满足条件的槽位遍历一次，同时累加分类、状态、价格区间、评分区间的计数
+     */
+    public ProductFacets facets(CatalogQuery query) {
+        lock.readLock().lock();
+        try {
+            BitSet matched = match(query);
+            long[] categoryCounts = new long[categories.values.size()];
+            long[] statusCounts = new long[statuses.values.size()];
+            long[] priceCounts = new long[priceBucketBounds.length];
+            long[] ratingCounts = new long[RATING_BUCKETS];
+            for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+                if (categoryCodes[slot] != NULL_CODE) {
+                    categoryCounts[categoryCodes[slot]]++;
+                }
+                if (statusCodes[slot] != NULL_CODE) {
+                    statusCounts[statusCodes[slot]]++;
+                }
+                if (priceBuckets[slot] >= 0) {
+                    priceCounts[priceBuckets[slot]]++;
+                }
+                if (ratingBuckets[slot] >= 0) {
+                    ratingCounts[ratingBuckets[slot]]++;
+                }
+            }
+
+            ProductFacets facets = new ProductFacets();
+            facets.setTotal(matched.cardinality());
+            facets.setCategories(valueCounts(categories, categoryCounts));
+            facets.setStatuses(valueCounts(statuses, statusCounts));
+            facets.setPriceBuckets(rangeCounts(priceBucketBounds, priceCounts));
+            facets.setRatingBuckets(rangeCounts(ratingBucketBounds(), ratingCounts));
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 价格区间下界，与 SQL 统计共用
+    public BigDecimal[] getPriceBucketBounds() {
+        return priceBucketBounds.clone();
+    }
+
+    // 评分区间下界 0,1,2,3,4
+    public static BigDecimal[] ratingBucketBounds() {
+        BigDecimal[] bounds = new BigDecimal[RATING_BUCKETS];
+        for (int i = 0; i < RATING_BUCKETS; i++) {
+            bounds[i] = BigDecimal.valueOf(i);
+        }
+        return bounds;
+    }
+
+    /*
+     把各区间计数转为结果；最后一个区间没有上限
+     */
+    public static List<ProductFacets.RangeCount> rangeCounts(BigDecimal[] bounds, long[] counts) {
+        List<ProductFacets.RangeCount> result = new ArrayList<>(bounds.length);
+        for (int i = 0; i < bounds.length; i++) {
+            result.add(new ProductFacets.RangeCount(bounds[i], i + 1 < bounds.length ? bounds[i + 1] : null, counts[i]));
+        }
+        return result;
+    }
+
+    // 只保留数量大于 0 的取值
+    private static List<ProductFacets.ValueCount> valueCounts(Dictionary dictionary, long[] counts) {
+        List<ProductFacets.ValueCount> result = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.add(new ProductFacets.ValueCount(dictionary.values.get(code), counts[code]));
+            }
+        }
+        result.sort(FACET_ORDER);
+        return result;
+    }
+
+    private byte priceBucketOf(long cents) {
+        if (cents == NULL_LONG) {
+            return -1;
+        }
+        int bucket = -1;
+        for (int i = 0; i < priceBucketCents.length && cents >= priceBucketCents[i]; i++) {
+            bucket = i;
+        }
+        return (byte) bucket;
+    }
+
+    private static byte ratingBucketOf(double rating) {
+        if (Double.isNaN(rating) || rating < 0) {
+            return -1;
+        }
+        return (byte) Math.min(RATING_BUCKETS - 1, (int) Math.floor(rating));
+    }
+
+    /*
+     分页结果：当前页商品（副本）与总数
+     */
+    public static final class Slice {
+        private final List<Product> records;
+        private final long total;
+
+        public Slice(List<Product> records, long total) {
+            this.records = records;
+            this.total = total;
+        }
+
+        public List<Product> getRecords() {
+            return records;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    // 先用位图求出 category / status 的交集，再对剩余槽位逐个检查 price / rating / name
+    BitSet match(CatalogQuery query) {
+        BitSet candidates = (BitSet) live.clone();
+        if (hasText(query.getCategory()) && !intersect(candidates, categories, query.getCategory())) {
+            return candidates;
+        }
+        if (hasText(query.getStatus()) && !intersect(candidates, statuses, query.getStatus())) {
+            return candidates;
+        }
+
+        long minCents = query.getMinPrice() == null ? NULL_LONG
+                : query.getMinPrice().movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        long maxCents = query.getMaxPrice() == null ? Long.MAX_VALUE
+                : query.getMaxPrice().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+        boolean priceFilter = query.getMinPrice() != null || query.getMaxPrice() != null;
+        Double minRating = query.getRating();
+        String name = hasText(query.getName()) ? query.getName().toLowerCase(Locale.ROOT) : null;
+
+        if (!priceFilter && minRating == null && name == null) {
+            return candidates;
+        }
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            boolean ok = true;
+            if (priceFilter) {
+                long cents = priceCents[slot];
+                ok = cents != NULL_LONG && cents >= minCents && cents <= maxCents;
+            }
+            if (ok && minRating != null) {
+                ok = ratings[slot] >= minRating; // NaN 比较结果为 false，与 SQL 中 NULL 不满足条件一致
+            }
+            if (ok && name != null) {
+                ok = lowerNames[slot] != null && lowerNames[slot].contains(name);
+            }
+            if (!ok) {
+                candidates.clear(slot);
+            }
+        }
+        return candidates;
+    }
+
+    // 与取值对应的位图求交；取值不存在时清空候选并返回 false
+    private static boolean intersect(BitSet candidates, Dictionary dictionary, String value) {
+        Integer code = dictionary.lookup(value);
+        if (code == null) {
+            candidates.clear();
+            return false;
+        }
+        candidates.and(dictionary.slots.get(code));
+        return true;
+    }
+
+    // 按排序顺序遍历命中的槽位，截取 [offset, offset + limit) 部分
+    // 命中较少时直接对命中槽位排序，否则沿预先排好的排列扫描
+    private Slice collect(String column, boolean asc, BitSet matched, long offset, int limit) {
+        int total = matched.cardinality();
+        if (offset >= total || limit <= 0) {
+            return new Slice(Collections.emptyList(), total);
+        }
+        int[] order;
+        if ((long) total * SMALL_RESULT_RATIO < slotById.size()) {
+            order = sort(matched.stream().boxed().toArray(Integer[]::new), column, asc);
+        } else {
+            order = sortedSlots(column, asc);
+        }
+        List<Product> records = new ArrayList<>((int) Math.min(limit, total - offset));
+        long seen = 0;
+        for (int slot : order) {
+            if (!matched.get(slot)) {
+                continue;
+            }
+            if (seen++ < offset) {
+                continue;
+            }
+            records.add(copy(rows[slot]));
+            if (records.size() >= limit) {
+                break;
+            }
+        }
+        return new Slice(records, total);
+    }
+
+    // 读锁内调用；并发构建同一排列时结果相同，重复构建无害
+    private int[] sortedSlots(String column, boolean asc) {
+        return sortedSlots.computeIfAbsent(column + (asc ? ":asc" : ":desc"), key -> buildSortedSlots(column, asc));
+    }
+
+    private int[] buildSortedSlots(String column, boolean asc) {
+        return sort(live.stream().boxed().toArray(Integer[]::new), column, asc);
+    }
+
+    private int[] sort(Integer[] order, String column, boolean asc) {
+        Arrays.sort(order, (a, b) -> {
+            int cmp = compareColumn(column, a, b);
+            if (!asc) {
+                cmp = -cmp;
+            }
+            return cmp != 0 ? cmp : Long.compare(ids[a], ids[b]);
+        });
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    // NULL 视为最小值
+    private int compareColumn(String column, int a, int b) {
+        switch (column) {
+            case "price":
+                return compareNullable(priceCents[a], priceCents[b]);
+            case "rating":
+                boolean nullA = Double.isNaN(ratings[a]);
+                boolean nullB = Double.isNaN(ratings[b]);
+                if (nullA || nullB) {
+                    return Boolean.compare(!nullA, !nullB);
+                }
+                return Double.compare(ratings[a], ratings[b]);
+            case "stock":
+                return compareNullable(stocks[a], stocks[b]);
+            case "create_datetime":
+                return compareNullable(createdAt[a], createdAt[b]);
+            case "update_datetime":
+                return compareNullable(updatedAt[a], updatedAt[b]);
+            default:
+                return Long.compare(ids[a], ids[b]);
+        }
+    }
+
+    // NULL_LONG 为 Long.MIN_VALUE，直接比较即满足 NULL 最小
+    private static int compareNullable(long a, long b) {
+        return Long.compare(a, b);
+    }
+
+    private void clearSlot(int slot) {
+        if (categoryCodes[slot] != NULL_CODE) {
+            categories.slots.get(categoryCodes[slot]).clear(slot);
+        }
+        if (statusCodes[slot] != NULL_CODE) {
+            statuses.slots.get(statusCodes[slot]).clear(slot);
+        }
+        categoryCodes[slot] = NULL_CODE;
+        statusCodes[slot] = NULL_CODE;
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.remove(freeSlots.size() - 1);
+        }
+        if (nextSlot == capacity) {
+            grow();
+        }
+        return nextSlot++;
+    }
+
+    private void grow() {
+        capacity *= 2;
+        ids = Arrays.copyOf(ids, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        stocks = Arrays.copyOf(stocks, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        updatedAt = Arrays.copyOf(updatedAt, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        statusCodes = Arrays.copyOf(statusCodes, capacity);
+        lowerNames = Arrays.copyOf(lowerNames, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+        priceBuckets = Arrays.copyOf(priceBuckets, capacity);
+        ratingBuckets = Arrays.copyOf(ratingBuckets, capacity);
+    }
+
+    private static long epochSeconds(LocalDateTime time) {
+        return time == null ? NULL_LONG : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    // 返回副本，避免调用方修改快照中的对象
+    private static Product copy(Product product) {
+        Product copy = new Product();
+        BeanUtils.copyProperties(product, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,126 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 商品内存索引的公共维护逻辑
+ - 应用启动完成后在后台线程从数据库全量重建（ProductMapper.scanInBatches 分批读取）
+ - 监听 ProductChangedEvent 做增量更新
+ - 重建时构建一份新索引，期间收到的变更先暂存，重建完成后补放到新索引再替换，保证不丢更新
+ 首次重建完成前 current() 返回 null，调用方应退回数据库查询
+ @param <T> 索引类型
+ */
+public abstract class ProductIndexMaintainer<T> {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    protected ProductMapper productMapper;
+
+    @Value("${product.index.rebuild-batch-size:1000}")
+    private int rebuildBatchSize = 1000;
+
+    private volatile T index;
+
+    private final Object rebuildLock = new Object();
+    private List<ProductChangedEvent> pendingEvents; // 重建期间暂存的变更，非 null 表示正在重建
+
+    // 创建一个空索引
+    protected abstract T newIndex();
+
+    // 新增或替换一个商品
+    protected abstract void put(T index, Product product);
+
+    // 删除一个商品
+    protected abstract void remove(T index, Long productId);
+
+    // 当前索引，首次重建完成前为 null
+    protected T current() {
+        return index;
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    // 应用启动完成后在后台重建，不阻塞启动
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.error("内存索引重建失败，将继续使用数据库查询", e);
+            }
+        }, getClass().getSimpleName() + "-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /*
+     从数据库全量重建索引
+     @return 索引的商品数量
+     */
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            if (pendingEvents != null) {
+                throw new IllegalStateException("索引正在重建");
+            }
+            pendingEvents = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        T fresh = newIndex();
+        try {
+            long count = productMapper.scanInBatches(rebuildBatchSize, batch -> {
+                for (Product product : batch) {
+                    put(fresh, product);
+                }
+            });
+            synchronized (rebuildLock) {
+                for (ProductChangedEvent event : pendingEvents) {
+                    apply(fresh, event);
+                }
+                index = fresh;
+            }
+            logger.info("内存索引重建完成：{} 个商品，耗时 {} ms", count, System.currentTimeMillis() - start);
+            return count;
+        } finally {
+            synchronized (rebuildLock) {
+                pendingEvents = null;
+            }
+        }
+    }
+
+    // 商品增删改后增量更新索引
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (rebuildLock) {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            T target = index;
+            if (target != null) {
+                apply(target, event);
+            }
+        }
+    }
+
+    private void apply(T target, ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED || event.getProduct() == null) {
+            remove(target, event.getProductId());
+        } else {
+            put(target, event.getProduct());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.Product;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ 把商品文本（name、title、description）切分为字符 shingle（连续 size 个字符），用于 MinHash 近重复检测
+ - 先做 NFKC 归一化（全角转半角）并转小写，只保留字母和数字：换个标点、空格或大小写不影响结果
+ - 按 Unicode 码点切分，中英文统一处理；字段各自切分后合并，不产生跨字段的 shingle
+ - 不足 size 个字符的字段整体作为一个 shingle
+ 每个 shingle 映射为 64 位哈希（FNV-1a），结果去重
+ */
+public final class ProductShingler {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int size;
+
+    public ProductShingler(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("shingle size must be positive: " + size);
+        }
+        this.size = size;
+    }
+
+    /*
+     商品的 shingle 哈希集合
+     @return 去重后的哈希；商品没有任何文本时返回空数组
+     */
+    public long[] shingles(Product product) {
+        int[] name = normalize(product.getName());
+        int[] title = normalize(product.getTitle());
+        int[] description = normalize(product.getDescription());
+        long[] hashes = new long[count(name) + count(title) + count(description)];
+        int n = add(name, hashes, 0);
+        n = add(title, hashes, n);
+        add(description, hashes, n);
+        Arrays.sort(hashes);
+        int unique = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[unique++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, unique);
+    }
+
+    private int count(int[] codePoints) {
+        if (codePoints.length == 0) {
+            return 0;
+        }
+        return Math.max(1, codePoints.length - size + 1);
+    }
+
+    private int add(int[] codePoints, long[] hashes, int n) {
+        int shingles = count(codePoints);
+        for (int start = 0; start < shingles; start++) {
+            long h = FNV_OFFSET;
+            for (int i = start; i < Math.min(start + size, codePoints.length); i++) {
+                h = (h ^ codePoints[i]) * FNV_PRIME;
+            }
+            hashes[n++] = h;
+        }
+        return n;
+    }
+
+    // 归一化后的字母 / 数字码点
+    static int[] normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new int[0];
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT)
+                .codePoints().filter(Character::isLetterOrDigit).toArray();
+    }
+}
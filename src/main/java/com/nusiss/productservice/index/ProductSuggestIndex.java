@@ -0,0 +1,238 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ 商品输入联想索引（线程安全）
+ - 商品名称：整个名称作为 key，另外名称中第 2、3、4 个空格分隔的词开头的后缀也作为 key
+   （输入 "iph" 可以联想到 "Apple iPhone 15"），按商品评分排序
+ - 商品分类：每个分类一条结果，得分为该分类下商品的最高评分
+ key 统一转小写并合并连续空白
+ */
+public class ProductSuggestIndex {
+
+    // 名称中除开头外，最多再从几个词开头建立后缀 key
+    static final int MAX_WORD_SUFFIXES = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SuggestTrie trie = new SuggestTrie();
+
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final Map<String, IndexedCategory> categories = new HashMap<>();
+
+    private static final class IndexedProduct {
+        String category;
+        double rating;
+        Suggestion suggestion; // 名称为空时为 null
+        List<String> keys;
+    }
+
+    private static final class IndexedCategory {
+        final TreeMap<Double, Integer> ratings = new TreeMap<>(); // 评分 -> 商品数
+        Suggestion suggestion;
+        String key;
+    }
+
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            IndexedProduct indexed = new IndexedProduct();
+            indexed.rating = product.getRating() == null ? 0 : product.getRating();
+            indexed.keys = nameKeys(product.getName());
+            if (!indexed.keys.isEmpty()) {
+                indexed.suggestion = new Suggestion(Suggestion.Kind.PRODUCT, product.getName().trim(), product.getId(), indexed.rating);
+                for (String key : indexed.keys) {
+                    trie.add(key, indexed.suggestion);
+                }
+            }
+            String categoryKey = normalize(product.getCategory());
+            if (!categoryKey.isEmpty()) {
+                indexed.category = product.getCategory().trim();
+                addCategoryRating(indexed.category, categoryKey, indexed.rating);
+            }
+            products.put(product.getId(), indexed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     查询联想结果
+     @param query 用户已输入的内容
+     @param limit 最多返回条数（不超过 SuggestTrie.TOP_K）
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        lock.readLock().lock();
+        try {
+            return trie.suggest(prefix, Math.min(limit, SuggestTrie.TOP_K));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int productCount() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int categoryCount() {
+        lock.readLock().lock();
+        try {
+            return categories.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int keyCount() {
+        lock.readLock().lock();
+        try {
+            return trie.keyCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return trie.nodeCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     估算索引占用的堆内存：前缀树 + 每条结果对象（含展示文本）+ 商品 / 分类映射表
+     */
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = trie.estimateMemoryBytes();
+            for (IndexedProduct p : products.values()) {
+                bytes += 48 + 16 + 32;                          // HashMap 节点 + Long 键 + IndexedProduct
+                bytes += 24 + 16L * p.keys.size();              // key 列表（key 字符串本身计入下面）
+                for (String key : p.keys) {
+                    bytes += stringBytes(key);
+                }
+                if (p.suggestion != null) {
+                    bytes += 40 + 16 + stringBytes(p.suggestion.getText());
+                }
+            }
+            for (IndexedCategory c : categories.values()) {
+                bytes += 48 + 24 + stringBytes(c.key) + 40 + stringBytes(c.suggestion.getText());
+                bytes += 48 + 40L * c.ratings.size();           // TreeMap 及其节点
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long stringBytes(String s) {
+        // String 对象 24 字节 + byte[]（Latin-1 每字符 1 字节，含中文时每字符 2 字节）
+        boolean latin1 = s.chars().allMatch(c -> c < 256);
+        return 24 + (16 + (long) s.length() * (latin1 ? 1 : 2) + 7) / 8 * 8;
+    }
+
+    private void removeInternal(Long productId) {
+        IndexedProduct old = products.remove(productId);
+        if (old == null) {
+            return;
+        }
+        if (old.suggestion != null) {
+            for (String key : old.keys) {
+                trie.remove(key, old.suggestion);
+            }
+        }
+        if (old.category != null) {
+            removeCategoryRating(normalize(old.category), old.rating);
+        }
+    }
+
+    private void addCategoryRating(String category, String key, double rating) {
+        IndexedCategory indexed = categories.computeIfAbsent(key, k -> new IndexedCategory());
+        indexed.ratings.merge(rating, 1, Integer::sum);
+        if (indexed.suggestion == null || indexed.ratings.lastKey() != indexed.suggestion.getScore()) {
+            replaceCategorySuggestion(indexed, key, indexed.suggestion == null ? category : indexed.suggestion.getText());
+        }
+    }
+
+    private void removeCategoryRating(String key, double rating) {
+        IndexedCategory indexed = categories.get(key);
+        if (indexed == null) {
+            return;
+        }
+        indexed.ratings.computeIfPresent(rating, (r, count) -> count == 1 ? null : count - 1);
+        if (indexed.ratings.isEmpty()) {
+            trie.remove(indexed.key, indexed.suggestion);
+            categories.remove(key);
+        } else if (indexed.ratings.lastKey() != indexed.suggestion.getScore()) {
+            replaceCategorySuggestion(indexed, key, indexed.suggestion.getText());
+        }
+    }
+
+    // 分类最高评分变化时替换分类结果
+    private void replaceCategorySuggestion(IndexedCategory indexed, String key, String text) {
+        if (indexed.suggestion != null) {
+            trie.remove(indexed.key, indexed.suggestion);
+        }
+        indexed.key = key;
+        indexed.suggestion = new Suggestion(Suggestion.Kind.CATEGORY, text, null, indexed.ratings.lastKey());
+        trie.add(key, indexed.suggestion);
+    }
+
+    // 名称本身 + 后续若干个词开头的后缀
+    static List<String> nameKeys(String name) {
+        String normalized = normalize(name);
+        List<String> keys = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        int from = 0;
+        for (int i = 0; i < MAX_WORD_SUFFIXES; i++) {
+            int space = normalized.indexOf(' ', from);
+            if (space < 0) {
+                break;
+            }
+            String suffix = normalized.substring(space + 1);
+            if (!keys.contains(suffix)) {
+                keys.add(suffix);
+            }
+            from = space + 1;
+        }
+        return keys;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,96 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.Product;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ 把商品文本（name、title、description）转换为定长的稠密向量，用于内容相似度检索
+ - 特征：ProductTokenizer 的分词结果，加上英文单词的字符三元组（"#ph"、"pho"...，使 phone / phones 等词形变化也相似）
+ - 特征哈希（hashing trick）映射到 dimensions 维，按哈希符号位取正负以抵消冲突，不需要维护词表，新商品可以直接增量计算
+ - 词频取 1 + ln(tf)；name、title 的权重为 description 的两倍；不使用 IDF（全局统计会随写入变化），常见英文停用词直接丢弃
+ - 结果做 L2 归一化，两个向量的点积即余弦相似度
+ */
+public final class ProductTextVectorizer {
+
+    private static final float TITLE_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or",
+            "that", "the", "this", "to", "with");
+
+    private final int dimensions;
+
+    public ProductTextVectorizer(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive: " + dimensions);
+        }
+        this.dimensions = dimensions;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /*
+     计算商品的文本向量
+     @return L2 归一化后的向量；商品没有任何文本特征时返回 null
+     */
+    public float[] vectorize(Product product) {
+        float[] vector = new float[dimensions];
+        add(vector, product.getName(), TITLE_WEIGHT);
+        add(vector, product.getTitle(), TITLE_WEIGHT);
+        add(vector, product.getDescription(), DESCRIPTION_WEIGHT);
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, String text, float weight) {
+        List<String> tokens = ProductTokenizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            if (STOP_WORDS.contains(token)) {
+                continue;
+            }
+            termFrequencies.merge(token, 1, Integer::sum);
+            if (token.length() >= 4 && !ProductTokenizer.isCjk(token.codePointAt(0))) {
+                String padded = "#" + token + "#";
+                for (int i = 0; i + 3 <= padded.length(); i++) {
+                    termFrequencies.merge("~" + padded.substring(i, i + 3), 1, Integer::sum);
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            int hash = mix(entry.getKey().hashCode());
+            float value = weight * (float) (1 + Math.log(entry.getValue()));
+            vector[Math.floorMod(hash, dimensions)] += (hash & 0x80000000) == 0 ? value : -value;
+        }
+    }
+
+    // murmur3 的 fmix32，打散 String.hashCode 的低位
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,105 @@
+package com.nusiss.productservice.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ 商品文本分词器，同时支持中文和英文商品名
+ - 英文 / 数字：按非字母数字字符切分并转小写；字母与数字混写的词（如 iphone15）
+   额外拆出字母段和数字段（iphone、15），使 "iPhone 15" 与 "iphone15" 能互相匹配
+ - 中日韩文字：没有空格分词，按字输出单字 + 相邻两字（bigram），
+   例如 "华为手机" -> 华、为、手、机、华为、为手、手机
+ */
+public final class ProductTokenizer {
+
+    private ProductTokenizer() {
+    }
+
+    /*
+     索引分词：输出文档中所有可检索的词（可能重复，重复次数即词频）
+     */
+    public static List<String> tokenize(String text) {
+        return split(text, false);
+    }
+
+    /*
+     查询分词：中文只输出 bigram（单字词除外），混写词只输出拆分后的字母段和数字段，
+     这样查询词全部命中即表示原文包含该查询串
+     */
+    public static List<String> tokenizeQuery(String text) {
+        return split(text, true);
+    }
+
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static List<String> split(String text, boolean query) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        int length = lower.length();
+        while (i < length) {
+            int cp = lower.codePointAt(i);
+            if (isCjk(cp)) {
+                int start = i;
+                while (i < length && isCjk(lower.codePointAt(i))) {
+                    i += Character.charCount(lower.codePointAt(i));
+                }
+                emitCjk(lower.substring(start, i), tokens, query);
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < length) {
+                    int c = lower.codePointAt(i);
+                    if (!Character.isLetterOrDigit(c) || isCjk(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                emitWord(lower.substring(start, i), tokens, query);
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
+
+    private static void emitCjk(String run, List<String> tokens, boolean query) {
+        int[] cps = run.codePoints().toArray();
+        if (!query || cps.length == 1) {
+            for (int cp : cps) {
+                tokens.add(new String(Character.toChars(cp)));
+            }
+        }
+        for (int j = 0; j + 1 < cps.length; j++) {
+            tokens.add(new String(cps, j, 2));
+        }
+    }
+
+    private static void emitWord(String word, List<String> tokens, boolean query) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int j = 1; j <= word.length(); j++) {
+            if (j == word.length() || Character.isDigit(word.charAt(j)) != Character.isDigit(word.charAt(j - 1))) {
+                parts.add(word.substring(start, j));
+                start = j;
+            }
+        }
+        if (parts.size() == 1) {
+            tokens.add(word);
+            return;
+        }
+        if (!query) {
+            tokens.add(word);
+        }
+        tokens.addAll(parts);
+    }
+}
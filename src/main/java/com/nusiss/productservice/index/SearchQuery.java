@@ -0,0 +1,82 @@
+package com.nusiss.productservice.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ 关键词搜索查询
+ 语法：
+ - 空格分隔的多个词默认为 AND（全部命中），例如：华为 手机
+ - 出现 OR 或 | 时所有词改为 OR（任一命中），例如：iphone OR 华为
+ - 词尾加 * 表示前缀匹配，例如：ipho*
+ 每个词会先经过 ProductTokenizer.tokenizeQuery 分词（如中文拆成 bigram），同一个词拆出的子词必须全部命中
+ */
+public final class SearchQuery {
+
+    public enum Operator { AND, OR }
+
+    /*
+     一个查询词：terms 需要全部命中，prefix 为 true 时最后一个 term 按前缀匹配
+     */
+    public static final class Clause {
+        private final List<String> terms;
+        private final boolean prefix;
+
+        Clause(List<String> terms, boolean prefix) {
+            this.terms = Collections.unmodifiableList(terms);
+            this.prefix = prefix;
+        }
+
+        public List<String> getTerms() {
+            return terms;
+        }
+
+        public boolean isPrefix() {
+            return prefix;
+        }
+    }
+
+    private final Operator operator;
+    private final List<Clause> clauses;
+
+    private SearchQuery(Operator operator, List<Clause> clauses) {
+        this.operator = operator;
+        this.clauses = Collections.unmodifiableList(clauses);
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public List<Clause> getClauses() {
+        return clauses;
+    }
+
+    public boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    public static SearchQuery parse(String raw) {
+        List<Clause> clauses = new ArrayList<>();
+        Operator operator = Operator.AND;
+        if (raw == null) {
+            return new SearchQuery(operator, clauses);
+        }
+        for (String word : raw.trim().split("\\s+")) {
+            if (word.isEmpty() || "AND".equals(word) || "&".equals(word)) {
+                continue;
+            }
+            if ("OR".equals(word) || "|".equals(word)) {
+                operator = Operator.OR;
+                continue;
+            }
+            boolean prefix = word.endsWith("*");
+            List<String> terms = ProductTokenizer.tokenizeQuery(prefix ? word.substring(0, word.length() - 1) : word);
+            if (!terms.isEmpty()) {
+                clauses.add(new Clause(terms, prefix));
+            }
+        }
+        return new SearchQuery(operator, clauses);
+    }
+}
@@ -0,0 +1,250 @@
+package com.nusiss.productservice.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ 输入联想用的前缀树（非线程安全，由 ProductSuggestIndex 加锁使用）
+ - 子节点用有序的 char[] + Node[] 数组保存（二分查找），比每个节点一个 HashMap 省内存
+ - 每个节点缓存子树中得分最高的 TOP_K 条结果，查询时只需走完前缀路径后直接读取，与候选总数无关
+ - 新增时沿路径把结果插入各节点的 top 列表；删除时沿路径自底向上用子节点的 top 列表重新合并
+ */
+public class SuggestTrie {
+
+    public static final int TOP_K = 10;
+
+    // 得分高的在前，得分相同按文本、商品 id 排序，保证结果稳定
+    static final Comparator<Suggestion> ORDER = Comparator.comparingDouble(Suggestion::getScore).reversed()
+            .thenComparing(Suggestion::getText)
+            .thenComparing(s -> s.getProductId() == null ? 0L : s.getProductId());
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        Suggestion[] terminals = NO_SUGGESTIONS; // key 恰好在此结束的结果
+        Suggestion[] top = NO_SUGGESTIONS;       // 子树中得分最高的 TOP_K 条（按 ORDER 排序）
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+    }
+
+    private final Node root = new Node();
+    private int nodeCount = 1;
+    private int keyCount;
+
+    /*
+     添加一个 key -> 结果
+     @param key 规范化后的 key（非空）
+     */
+    public void add(String key, Suggestion suggestion) {
+        Node node = root; // 根节点对应空前缀，不维护 top
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            int pos = Arrays.binarySearch(node.labels, c);
+            if (pos < 0) {
+                pos = -pos - 1;
+                Node created = new Node();
+                node.labels = insert(node.labels, pos, c);
+                node.children = insert(node.children, pos, created);
+                nodeCount++;
+            }
+            node = node.children[pos];
+            offerTop(node, suggestion);
+        }
+        node.terminals = append(node.terminals, suggestion);
+        keyCount++;
+    }
+
+    /*
+     删除一个 key -> 结果（按对象引用匹配）
+     */
+    public void remove(String key, Suggestion suggestion) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        Node last = path[key.length()];
+        Suggestion[] remaining = without(last.terminals, suggestion);
+        if (remaining == last.terminals) {
+            return;
+        }
+        last.terminals = remaining;
+        keyCount--;
+
+        // 自底向上：删除空节点，并重新计算路径上各节点的 top
+        for (int depth = key.length(); depth > 0; depth--) {
+            Node node = path[depth];
+            if (node.terminals.length == 0 && node.children.length == 0) {
+                Node parent = path[depth - 1];
+                int pos = Arrays.binarySearch(parent.labels, key.charAt(depth - 1));
+                parent.labels = removeAt(parent.labels, pos);
+                parent.children = parent.children.length == 1 ? NO_CHILDREN : removeAt(parent.children, pos);
+                nodeCount--;
+                continue;
+            }
+            recomputeTop(node);
+        }
+    }
+
+    /*
+     查询前缀下得分最高的结果
+     @param prefix 规范化后的前缀
+     @param limit 最多返回条数（不超过 TOP_K）
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null || node.top.length == 0) {
+            return Collections.emptyList();
+        }
+        int n = Math.min(limit, node.top.length);
+        List<Suggestion> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(node.top[i]);
+        }
+        return result;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    /*
+     估算前缀树自身占用的堆内存（按 64 位 JVM、开启压缩指针估算；不含 Suggestion 对象本身）
+     */
+    public long estimateMemoryBytes() {
+        long bytes = 0;
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            bytes += 32; // 对象头 12 + 4 个引用 16，按 8 字节对齐
+            bytes += arrayBytes(node.labels.length, 2, node.labels == NO_LABELS);
+            bytes += arrayBytes(node.children.length, 4, node.children == NO_CHILDREN);
+            bytes += arrayBytes(node.terminals.length, 4, node.terminals == NO_SUGGESTIONS);
+            bytes += arrayBytes(node.top.length, 4, node.top == NO_SUGGESTIONS);
+            stack.addAll(Arrays.asList(node.children));
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(int length, int elementBytes, boolean shared) {
+        if (shared) {
+            return 0;
+        }
+        return (16 + (long) length * elementBytes + 7) / 8 * 8;
+    }
+
+    // 把结果插入节点的 top 列表（已存在或排不进前 TOP_K 时不变）
+    private static void offerTop(Node node, Suggestion suggestion) {
+        Suggestion[] top = node.top;
+        for (Suggestion s : top) {
+            if (s == suggestion) {
+                return;
+            }
+        }
+        int pos = 0;
+        while (pos < top.length && ORDER.compare(top[pos], suggestion) <= 0) {
+            pos++;
+        }
+        if (pos >= TOP_K) {
+            return;
+        }
+        Suggestion[] merged = insert(top, pos, suggestion);
+        node.top = merged.length > TOP_K ? Arrays.copyOf(merged, TOP_K) : merged;
+    }
+
+    // 由本节点的 terminals 和各子节点的 top 重新合并出本节点的 top
+    private static void recomputeTop(Node node) {
+        List<Suggestion> candidates = new ArrayList<>(Arrays.asList(node.terminals));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(ORDER);
+        List<Suggestion> top = new ArrayList<>(TOP_K);
+        for (Suggestion s : candidates) {
+            if (top.size() == TOP_K) {
+                break;
+            }
+            if (!containsRef(top, s)) {
+                top.add(s);
+            }
+        }
+        node.top = top.isEmpty() ? NO_SUGGESTIONS : top.toArray(NO_SUGGESTIONS);
+    }
+
+    private static boolean containsRef(List<Suggestion> list, Suggestion s) {
+        for (Suggestion item : list) {
+            if (item == s) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static char[] insert(char[] array, int pos, char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, pos);
+        result[pos] = value;
+        System.arraycopy(array, pos, result, pos + 1, array.length - pos);
+        return result;
+    }
+
+    private static <E> E[] insert(E[] array, int pos, E value) {
+        E[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, pos, result, pos + 1, array.length - pos);
+        result[pos] = value;
+        return result;
+    }
+
+    private static Suggestion[] append(Suggestion[] array, Suggestion value) {
+        return insert(array, array.length, value);
+    }
+
+    private static Suggestion[] without(Suggestion[] array, Suggestion value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return array.length == 1 ? NO_SUGGESTIONS : removeAt(array, i);
+            }
+        }
+        return array;
+    }
+
+    private static char[] removeAt(char[] array, int pos) {
+        if (array.length == 1) {
+            return NO_LABELS;
+        }
+        char[] result = new char[array.length - 1];
+        System.arraycopy(array, 0, result, 0, pos);
+        System.arraycopy(array, pos + 1, result, pos, array.length - pos - 1);
+        return result;
+    }
+
+    private static <E> E[] removeAt(E[] array, int pos) {
+        E[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, pos + 1, result, pos, array.length - pos - 1);
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package com.nusiss.productservice.index;
+
+/*
+ 一条输入联想结果：商品名称或商品分类
+ */
+public final class Suggestion {
+
+    public enum Kind { PRODUCT, CATEGORY }
+
+    private final Kind kind;
+    private final String text;      // 展示文本（原始大小写）
+    private final Long productId;   // 仅 PRODUCT 有值
+    private final double score;     // 排序分：商品评分；分类为分类下商品的最高评分
+
+    public Suggestion(Kind kind, String text, Long productId, double score) {
+        this.kind = kind;
+        this.text = text;
+        this.productId = productId;
+        this.score = score;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,132 @@
+package com.nusiss.productservice.reservation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ 分段库存计数器：把一个商品的可售库存分散到多个槽位（stripe），每个槽位是一个独立的原子计数
+ - 秒杀时大量线程同时扣减同一个商品，若只有一个 AtomicLong，所有 CAS 都落在同一条缓存行上互相失败重试；
+   分段后各线程优先扣自己的槽位，冲突大幅减少
+ - 每个槽位都不会被扣成负数，所有槽位之和就是剩余可售库存，因此不会超卖
+ - 槽位之间间隔 PADDING 个 long，避免相邻槽位落在同一条缓存行上（伪共享）
+ 剩余库存很少、又分散在多个槽位时，一次需要多件的扣减可能先拿到一部分、凑不够再归还，
+ 这期间其他线程可能短暂看到库存不足（只会少卖，不会多卖）
+ */
+public class StripedStockCounter {
+
+    // 每个槽位占 16 个 long（128 字节），覆盖相邻缓存行预取
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    /*
+     @param initial 初始可售库存（小于 0 时按 0 处理）
+     @param stripes 槽位数，向上取整为 2 的幂
+     */
+    public StripedStockCounter(long initial, int stripes) {
+        int n = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = n - 1;
+        this.cells = new AtomicLongArray(n * PADDING);
+        long remaining = Math.max(0, initial);
+        for (int i = 0; i < n; i++) {
+            long share = remaining / (n - i);
+            cells.set(i * PADDING, share);
+            remaining -= share;
+        }
+    }
+
+    /*
+     扣减库存：先从当前线程对应的槽位扣，不够再依次从其他槽位扣；凑不够时把已扣的全部归还
+     @param quantity 扣减数量（大于 0）
+     @return 是否扣减成功
+     */
+    public boolean tryTake(long quantity) {
+        int start = home();
+        long need = quantity;
+        long[] taken = null;
+        for (int i = 0; i <= mask && need > 0; i++) {
+            int stripe = (start + i) & mask;
+            long got = takeFrom(stripe, need);
+            if (got > 0) {
+                if (got == quantity) {
+                    return true; // 常见情况：一个槽位就够了
+                }
+                if (taken == null) {
+                    taken = new long[mask + 1];
+                }
+                taken[stripe] += got;
+                need -= got;
+            }
+        }
+        if (need == 0) {
+            return true;
+        }
+        if (taken != null) {
+            for (int stripe = 0; stripe <= mask; stripe++) {
+                if (taken[stripe] > 0) {
+                    cells.addAndGet(stripe * PADDING, taken[stripe]);
+                }
+            }
+        }
+        return false;
+    }
+
+    // 从某个槽位最多扣 max 件，返回实际扣到的数量
+    private long takeFrom(int stripe, long max) {
+        int offset = stripe * PADDING;
+        while (true) {
+            long current = cells.get(offset);
+            if (current <= 0) {
+                return 0;
+            }
+            long got = Math.min(current, max);
+            if (cells.compareAndSet(offset, current, current - got)) {
+                return got;
+            }
+        }
+    }
+
+    /*
+     归还 / 补充库存，加到当前线程对应的槽位上
+     @param quantity 数量（小于等于 0 时忽略）
+     */
+    public void add(long quantity) {
+        if (quantity > 0) {
+            cells.addAndGet(home() * PADDING, quantity);
+        }
+    }
+
+    /*
+     尽量减少库存（例如后台调低了库存），不会扣成负数
+     @param quantity 希望减少的数量
+     @return 实际减少的数量
+     */
+    public long drain(long quantity) {
+        long need = quantity;
+        for (int stripe = 0; stripe <= mask && need > 0; stripe++) {
+            need -= takeFrom(stripe, need);
+        }
+        return quantity - need;
+    }
+
+    /*
+     当前可售库存（各槽位之和，并发修改时是近似值）
+     */
+    public long available() {
+        long sum = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            sum += cells.get(stripe * PADDING);
+        }
+        return sum;
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    // 按线程把请求分散到不同槽位
+    private int home() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,34 @@
+package com.nusiss.productservice.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/*
+ 基于共同购买的商品推荐（物品-物品协同过滤），只返回商品 ID，由调用方读取商品详情
+ 模型在后台定期重建，尚未构建或商品没有共同购买记录时返回空列表，调用方应改用分类排行榜补齐
+ */
+public interface CoPurchaseRecommendationService {
+
+    /*
+     与商品经常一起购买的商品
+     @param productId 商品 ID
+     @param limit 返回数量
+     @param excludeIds 需要排除的商品 ID，可为空
+     @return 商品 ID（相似度降序）
+     */
+    List<Long> getRelatedProductIds(Long productId, int limit, Collection<Long> excludeIds);
+
+    /*
+     根据用户购买过的商品推荐（不包含已购商品）
+     @param purchasedIds 用户购买过的商品 ID
+     @param limit 返回数量
+     @return 商品 ID（得分降序）
+     */
+    List<Long> getRecommendedProductIds(Collection<Long> purchasedIds, int limit);
+
+    /*
+     立即从所有购物篮来源重建模型并替换当前模型
+     @return 至少有一个邻居的商品数
+     */
+    int rebuild();
+}
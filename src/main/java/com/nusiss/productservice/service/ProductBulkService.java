@@ -0,0 +1,35 @@
+package com.nusiss.productservice.service;
+
+import com.nusiss.productservice.dto.BulkResult;
+import com.nusiss.productservice.entity.Product;
+
+import java.util.List;
+
+/*
+ 商品批量写入服务（供卖家导入任务使用）
+ 请求按固定大小分块，每块在一个事务内通过 JDBC 批量语句写入；
+ 某一块失败时整块回滚，再逐条重试，从而给出每一条各自的结果
+ */
+public interface ProductBulkService {
+
+    /*
+     批量新增商品
+     @param products 待新增的商品列表
+     @return 每条的处理结果（成功时带生成的 ID）
+     */
+    BulkResult createProducts(List<Product> products);
+
+    /*
+     批量更新商品，每个商品必须带 id，只更新非空字段（与单条更新相同）
+     @param products 待更新的商品列表
+     @return 每条的处理结果，不存在的 id 记为失败
+     */
+    BulkResult updateProducts(List<Product> products);
+
+    /*
+     批量删除商品
+     @param ids 待删除的商品 ID 列表
+     @return 每条的处理结果，不存在的 id 记为失败
+     */
+    BulkResult deleteProducts(List<Long> ids);
+}
@@ -0,0 +1,29 @@
+package com.nusiss.productservice.service;
+
+import com.nusiss.productservice.dto.CoverDriftReport;
+
+/*
+ 商品封面图维护服务
+ Products.cover_image_url 持久化保存每个商品的封面图（该商品 id 最小的 image 类型媒体），
+ 由 ProductMedia 的增删改同步维护，商品读取时无需再查询媒体表
+ */
+public interface ProductCoverService {
+
+    /*
+     重新计算并保存某个商品的封面图
+     @param productId 商品 ID（为 null 时忽略）
+     */
+    void refreshCover(Long productId);
+
+    /*
+     一次性回填任务：按 ID 分批扫描所有商品，把与媒体表不一致的封面图写回 Products
+     @return 实际被更新的商品数量
+     */
+    int backfillCovers();
+
+    /*
+     一致性检查：按 ID 分批扫描所有商品，报告已保存封面图与媒体表计算结果不一致的商品（只读，不修改数据）
+     @return 漂移报告
+     */
+    CoverDriftReport checkConsistency();
+}
@@ -0,0 +1,40 @@
+package com.nusiss.productservice.service;
+
+import com.nusiss.productservice.dto.DuplicateCandidate;
+import com.nusiss.productservice.dto.DuplicateGroup;
+import com.nusiss.productservice.entity.Product;
+
+import java.util.List;
+
+/*
+ 商品近重复检测：找出换个名称 / 描述重复发布的商品
+ 按名称、标题、描述的字符 shingle 计算 MinHash 签名，存入内存中的 LSH 分段索引，每次检测只比较同桶的商品
+ */
+public interface ProductDuplicateService {
+
+    /*
+     新增商品前的重复检测，按 product.duplicates.on-create 处理
+     索引尚未就绪或商品没有文本时不检测
+     @param product 待新增的商品
+     @return 疑似重复的已有商品 ID（相似度降序），没有时为空列表
+     @throws CustomException on-create 为 REJECT 且发现疑似重复
+     */
+    List<Long> checkNewProduct(Product product);
+
+    /*
+     与某个已有商品疑似重复的商品
+     @param productId 商品 ID
+     @param limit 返回数量
+     @return 疑似重复的商品（相似度降序，不含自身）；商品没有文本时为空列表
+     @throws ServiceBusyException 索引尚未构建完成
+     */
+    List<DuplicateCandidate> getDuplicatesOf(Long productId, int limit);
+
+    /*
+     扫描全部商品，把疑似重复的商品对合并成组
+     @param minSimilarity 相似度下限，为空时使用 product.duplicates.min-similarity
+     @return 疑似重复的商品组（按组大小降序，最多 product.duplicates.max-groups 组）
+     @throws ServiceBusyException 索引尚未构建完成
+     */
+    List<DuplicateGroup> scanDuplicates(Double minSimilarity);
+}
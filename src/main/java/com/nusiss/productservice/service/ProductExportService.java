@@ -0,0 +1,28 @@
+package com.nusiss.productservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ 商品目录导出服务
+ */
+public interface ProductExportService {
+
+    /*
+     打开导出的输出流（例如设置响应头后取得 Servlet 输出流），在取得导出名额之后才调用
+     */
+    @FunctionalInterface
+    interface OutputStreamOpener {
+        OutputStream open() throws IOException;
+    }
+
+    /*
+     以 NDJSON（每行一个商品 JSON）格式把全部商品流式写入输出流
+     数据库按 id 分批读取、逐行写出，内存占用与商品数量无关；输出流写不动（客户端读得慢）时读取也随之暂停，
+     等待客户端期间不占用数据库连接
+     同时进行的导出数量有上限，已满时抛出 ServiceBusyException（429），此时不会打开输出流
+     @param opener 打开输出流，导出结束后由本方法关闭
+     @return 写出的商品数量
+     */
+    long exportNdjson(OutputStreamOpener opener) throws IOException;
+}
@@ -1,6 +1,10 @@
 package com.nusiss.productservice.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.FeedbackAnalytics;
+import com.nusiss.productservice.dto.RatingSummary;
+import com.nusiss.productservice.dto.VersionStamp;
 import com.nusiss.productservice.entity.ProductFeedback;
 
 import java.util.List;
@@ -68,6 +72,23 @@ public interface ProductFeedbackService {
      */
     int getCommentCountByProductId(Long productId);
 
+    /*
+     批量获取商品的评分摘要（平均评分、评论数、星级分布），供列表页一次请求取回整页商品
+     @param productIds 商品 ID，重复的只返回一次
+     @return 评分摘要，按请求顺序；没有反馈的商品各项为 0
+     */
+    List<RatingSummary> getRatingSummaries(List<Long> productIds);
+
+    /*
+     商品反馈分析：全部反馈的星级分布、最近 7 / 30 天等窗口的反馈数与平均评分、按天与按月的反馈数序列
+     由按天 / 按月统计桶计算，不读取反馈明细
+     @param productId 产品 ID
+     @param days 按天序列的天数（超过上限时按上限）
+     @param months 按月序列的月数（超过上限时按上限）
+     @return 反馈分析结果
+     */
+    FeedbackAnalytics getFeedbackAnalytics(Long productId, int days, int months);
+
     /*
      扩展功能 3：根据产品 ID 获取反馈（支持分页 + 排序）
 
@@ -80,4 +101,23 @@ public interface ProductFeedbackService {
      */
     IPage<ProductFeedback> getFeedbackByProductIdWithPageAndSort(Long productId, int page, int size, String sortBy, String order);
 
+    /*
+     根据产品 ID 游标分页获取反馈（keyset 分页，不统计总数），每一页的代价与页深无关
+
+     @param productId 产品 ID
+     @param sortBy 排序字段："rating"、"create_datetime"，为空时按 id
+     @param order 排序方式，与分页版本一致："asc" 为升序，其余为降序；未指定排序字段时默认按 id 升序
+     @param cursor 上一页返回的 nextCursor，第一页传空；游标必须与 sortBy/order 一致
+     @param size 每页数量
+     @return 当前页反馈及下一页游标
+     */
+    CursorPage<ProductFeedback> getFeedbackByProductIdWithCursor(Long productId, String sortBy, String order, String cursor, int size);
+
+    /*
+     某个产品反馈列表的版本戳，该产品的反馈新增 / 修改 / 删除后改变，用于条件请求
+     @param productId 产品 ID
+     @return 版本戳
+     */
+    VersionStamp getFeedbackStamp(Long productId);
+
 }
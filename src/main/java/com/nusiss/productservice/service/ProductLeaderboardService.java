@@ -0,0 +1,23 @@
+package com.nusiss.productservice.service;
+
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.entity.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/*
+ 分类排行榜：同分类评分最高 / 最新的商品
+ */
+public interface ProductLeaderboardService {
+
+    /*
+     查询分类下排名最靠前的商品
+     @param category 商品分类（大小写不敏感），为 null 时跨所有分类
+     @param ranking 排序方式：评分最高 / 最新
+     @param limit 返回数量
+     @param excludeIds 需要排除的商品 ID，可为空
+     @return 商品列表
+     */
+    List<Product> getTopProducts(String category, LeaderboardRanking ranking, int limit, Collection<Long> excludeIds);
+}
@@ -0,0 +1,29 @@
+package com.nusiss.productservice.service;
+
+import java.util.List;
+
+/*
+ 商品关键词搜索服务
+ 在内存中维护 name / title / description 的倒排索引，启动时从数据库全量重建，之后随商品增删改增量更新
+ */
+public interface ProductSearchService {
+
+    /*
+     按相关度（BM25）搜索商品
+     @param query 查询语句，支持多词 AND（默认）/ OR、词尾 * 前缀匹配
+     @param limit 最多返回条数
+     @return 按相关度从高到低排列的商品 ID；索引尚未就绪时返回 null，调用方应退回数据库查询
+     */
+    List<Long> search(String query, int limit);
+
+    /*
+     从数据库全量重建索引（重建期间的增量变更会在重建完成后补上）
+     @return 索引的商品数量
+     */
+    long rebuild();
+
+    /*
+     索引是否已完成首次构建
+     */
+    boolean isReady();
+}
@@ -1,9 +1,15 @@
 package com.nusiss.productservice.service;
 
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.dto.VersionStamp;
 import com.nusiss.productservice.entity.Product;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 
@@ -18,6 +24,19 @@ public interface ProductService {
     // 根据 ID 查询商品
     Product getProductById(Long id);
 
+    /*
+     单个商品的版本戳（ETag 按内容计算，走本地缓存），用于 GET /products/{id} 的条件请求
+     @param id 商品 ID
+     @return 版本戳；商品不存在时返回 null
+     */
+    VersionStamp getProductStamp(Long id);
+
+    /*
+     商品目录的版本戳，任何商品变更后都会改变，用于列表 / 分页 / 筛选 / 排序接口的条件请求
+     @return 版本戳
+     */
+    VersionStamp getCatalogStamp();
+
     // 新增商品
     Product createProduct(Product product);
 
@@ -54,6 +73,12 @@ public interface ProductService {
     */
      List<Product> filterProducts(String name, String category, String status, BigDecimal minPrice, BigDecimal maxPrice, Double rating);
 
+     /*
+     分面统计 - 参数与多条件筛选相同，返回满足条件的商品中各分类 / 状态的数量，以及价格、评分区间直方图
+     @return 分面统计结果
+    */
+     ProductFacets getProductFacets(String name, String category, String status, BigDecimal minPrice, BigDecimal maxPrice, Double rating);
+
     /*
     4.排序功能 - 支持根据指定字段进行升序/降序排序，可结合分页和筛选条件一起使用
     @param name        商品名称（可选）
@@ -81,6 +106,61 @@ public interface ProductService {
             int size
     );
 
+    /*
+    1.1 分页功能（可选总数统计方式）
+    @param countMode 总数统计方式：EXACT / PARALLEL / CACHED / ESTIMATED / NONE
+    @return CountedPage<Product> 分页结果，包含统计方式及 COUNT 耗时
+     */
+    CountedPage<Product> getProductPage(int page, int size, CountMode countMode);
+
+    /*
+    4.1 排序 + 筛选 + 分页（可选总数统计方式），参数含义与 filterProductsWithSorting 相同
+    @param countMode 总数统计方式：EXACT / PARALLEL / CACHED / ESTIMATED / NONE
+    @return CountedPage<Product> 分页结果，包含统计方式及 COUNT 耗时
+     */
+    CountedPage<Product> filterProductsWithSorting(
+            String name,
+            String category,
+            String status,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Double rating,
+            String sortBy,
+            String order,
+            int page,
+            int size,
+            CountMode countMode
+    );
+
+    /*
+    5.游标分页功能 - 按 id 升序的游标（keyset）分页，每页代价与页深无关
+    @param cursor 上一页返回的 nextCursor，第一页传空
+    @param size   每页条数
+    @return CursorPage<Product> 当前页数据及下一页游标
+     */
+    CursorPage<Product> getProductPageByCursor(String cursor, int size);
+
+    /*
+    6.游标分页 + 筛选 + 排序 - 与 filterProductsWithSorting 条件相同，但使用游标代替页码
+    @param sortBy 排序字段，仅支持 "id", "price", "rating", "create_datetime"
+    @param order  排序顺序，"asc" 表示升序，"desc" 表示降序
+    @param cursor 上一页返回的 nextCursor，第一页传空；游标必须与 sortBy/order 一致
+    @param size   每页条数
+    @return CursorPage<Product> 当前页数据及下一页游标
+     */
+    CursorPage<Product> filterProductsWithCursor(
+            String name,
+            String category,
+            String status,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Double rating,
+            String sortBy,
+            String order,
+            String cursor,
+            int size
+    );
+
     /*
      基础推荐功能：根据某个商品推荐同类商品
      @param productId 当前浏览的商品 ID
@@ -89,11 +169,20 @@ public interface ProductService {
      */
     List<Product> getRelatedProducts(Long productId, int limit);
 
+    /*
+     更多类似商品：按商品文本（名称、标题、描述）的内容相似度查询
+     @param productId 商品 ID
+     @param limit 返回的商品数量
+     @return 相似商品列表（相似度降序）；商品不存在时返回 null
+     */
+    List<Product> getSimilarProducts(Long productId, int limit);
+
 
     /*
-     基于用户历史订单分类推荐商品
+     基于用户历史订单分类推荐商品（异步，不阻塞调用线程等待订单服务）
      @param userId 用户 ID
      @param limit 返回的商品数量
+     @return 推荐商品列表；订单服务不可用时为全部分类中评分最高的商品
      */
-    List<Product> getTopRecommendedProductsByUser(Long userId, int limit);
+    CompletableFuture<List<Product>> getTopRecommendedProductsByUser(Long userId, int limit);
 }
\ No newline at end of file
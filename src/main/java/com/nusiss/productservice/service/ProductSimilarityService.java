@@ -0,0 +1,18 @@
+package com.nusiss.productservice.service;
+
+import java.util.List;
+
+/*
+ 基于商品文本（name、title、description）的内容相似度检索（"更多类似商品"）
+ 只返回商品 ID，由调用方读取商品详情；索引尚未就绪或商品没有文本时返回空列表
+ */
+public interface ProductSimilarityService {
+
+    /*
+     查询文本内容最相似的商品
+     @param productId 商品 ID
+     @param limit 返回数量
+     @return 商品 ID（相似度降序，不含自身）
+     */
+    List<Long> getSimilarProductIds(Long productId, int limit);
+}
@@ -0,0 +1,26 @@
+package com.nusiss.productservice.service;
+
+import com.nusiss.productservice.dto.SuggestStats;
+import com.nusiss.productservice.index.Suggestion;
+
+import java.util.List;
+
+/*
+ 搜索框输入联想服务
+ 在内存前缀树中维护商品名称与分类，按评分返回联想结果，随商品增删改增量更新
+ */
+public interface ProductSuggestService {
+
+    /*
+     根据已输入的前缀返回联想结果（按评分从高到低）
+     @param query 已输入的内容
+     @param limit 最多返回条数
+     @return 联想结果；索引未就绪时退回数据库按名称前缀查询
+     */
+    List<Suggestion> suggest(String query, int limit);
+
+    /*
+     联想索引的规模与估算内存占用
+     */
+    SuggestStats getStats();
+}
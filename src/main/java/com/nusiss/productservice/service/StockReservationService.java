@@ -0,0 +1,40 @@
+package com.nusiss.productservice.service;
+
+import com.nusiss.productservice.dto.StockReservation;
+
+/*
+ 秒杀库存预留服务
+ 每个实例租用小块库存额度（记在 product_stock_lease 中，不改 Products.stock）放在内存的分段计数器中，
+ 额度内的预留只做内存 CAS；预留记录保存在数据库中，任意实例都能确认 / 释放，确认时才扣减 Products.stock
+ */
+public interface StockReservationService {
+
+    /*
+     预留库存
+     @param productId 商品 ID
+     @param quantity 数量（1 到 product.reservation.max-quantity）
+     @return 预留记录；库存不足时返回 null
+     */
+    StockReservation reserve(Long productId, int quantity);
+
+    /*
+     确认预留（支付成功），库存正式扣减
+     @param reservationId 预留 ID
+     @return 预留不存在或已过期时返回 false
+     */
+    boolean confirm(String reservationId);
+
+    /*
+     释放预留（取消订单），库存退回
+     @param reservationId 预留 ID
+     @return 预留不存在或已过期时返回 false
+     */
+    boolean release(String reservationId);
+
+    /*
+     查询商品的可售库存：Products.stock 减去所有 HELD 预留，任意实例查询结果一致
+     @param productId 商品 ID
+     @return 商品不存在时返回 null
+     */
+    Long getAvailableStock(Long productId);
+}
@@ -0,0 +1,154 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.client.OrderBasketSource;
+import com.nusiss.productservice.index.CoPurchaseModel;
+import com.nusiss.productservice.service.CoPurchaseRecommendationService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+/*
+ 共同购买推荐：从 OrderBasketSource 收集购物篮构建 CoPurchaseModel，查询只读取内存中的邻居数组
+ - 每隔 rebuild-interval-ms 在独立的后台线程全量重建（不占用 @Scheduled 的共享线程），
+   新模型构建完成后一次性替换，查询线程看到的始终是完整的旧模型或新模型
+ - 每个商品保留 max-neighbours 个邻居，共同购买少于 min-support 次的商品对忽略，超过 max-basket-size 个商品的购物篮不计入
+ 模型规模记录在 product.copurchase.products / product.copurchase.neighbours，重建耗时记录在 product.copurchase.rebuild
+ */
+@Service
+public class CoPurchaseRecommendationServiceImpl implements CoPurchaseRecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoPurchaseRecommendationServiceImpl.class);
+
+    @Autowired
+    private List<OrderBasketSource> basketSources;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.copurchase.max-neighbours:20}")
+    private int maxNeighbours = 20;
+
+    @Value("${product.copurchase.min-support:2}")
+    private int minSupport = 2;
+
+    @Value("${product.copurchase.max-basket-size:100}")
+    private int maxBasketSize = 100;
+
+    @Value("${product.copurchase.initial-delay-ms:10000}")
+    private long initialDelayMillis = 10_000;
+
+    @Value("${product.copurchase.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMillis = 600_000;
+
+    private volatile CoPurchaseModel model = CoPurchaseModel.empty();
+
+    private ScheduledExecutorService rebuildExecutor;
+    private Timer rebuildTimer;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("product.copurchase.products", this, s -> s.model.productCount())
+                .description("Products with co-purchase neighbours in the current model")
+                .register(meterRegistry);
+        Gauge.builder("product.copurchase.neighbours", this, s -> s.model.neighbourCount())
+                .description("Neighbour entries stored in the current co-purchase model")
+                .register(meterRegistry);
+        rebuildTimer = Timer.builder("product.copurchase.rebuild")
+                .description("Co-purchase model rebuild time")
+                .register(meterRegistry);
+        if (rebuildIntervalMillis > 0) {
+            rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "copurchase-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rebuildExecutor.scheduleWithFixedDelay(this::rebuildQuietly, initialDelayMillis, rebuildIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public List<Long> getRelatedProductIds(Long productId, int limit, Collection<Long> excludeIds) {
+        if (productId == null) {
+            return new ArrayList<>();
+        }
+        return toList(model.neighbours(productId, limit, excluding(excludeIds)));
+    }
+
+    @Override
+    public List<Long> getRecommendedProductIds(Collection<Long> purchasedIds, int limit) {
+        if (purchasedIds == null || purchasedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long[] history = purchasedIds.stream()
+                .filter(id -> id != null)
+                .mapToLong(Long::longValue)
+                .toArray();
+        return toList(model.recommend(history, limit, null));
+    }
+
+    @Override
+    public synchronized int rebuild() {
+        long start = System.nanoTime();
+        CoPurchaseModel.Builder builder = CoPurchaseModel.builder(maxNeighbours, minSupport, maxBasketSize);
+        for (OrderBasketSource source : basketSources) {
+            source.forEachBasket(builder::addBasket);
+        }
+        CoPurchaseModel fresh = builder.build();
+        model = fresh;
+        long elapsed = System.nanoTime() - start;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("共同购买模型重建完成：{} 个购物篮（跳过 {} 个过大的购物篮），{} 个商品，{} 个邻居，耗时 {} ms",
+                fresh.basketCount(), builder.skippedBaskets(), fresh.productCount(), fresh.neighbourCount(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return fresh.productCount();
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.error("共同购买模型重建失败，继续使用旧模型", e);
+        }
+    }
+
+    private static LongPredicate excluding(Collection<Long> excludeIds) {
+        if (excludeIds == null || excludeIds.isEmpty()) {
+            return null;
+        }
+        Set<Long> excluded = excludeIds instanceof Set ? (Set<Long>) excludeIds : new HashSet<>(excludeIds);
+        return excluded::contains;
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+}
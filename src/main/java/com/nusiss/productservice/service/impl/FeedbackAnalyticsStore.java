@@ -0,0 +1,110 @@
+package com.nusiss.productservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nusiss.productservice.dao.ProductFeedbackBucketMapper;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.index.FeedbackTimeSeries;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/*
+ 商品反馈时间序列的读取与维护
+ - 查询时按商品加载一次按天 / 按月统计桶（主键前缀范围扫描）构建 FeedbackTimeSeries，放入本地缓存，
+   之后任意窗口的查询只是数组读取；缓存容量按序列的估算字节数限制（maximumWeight + weigher）
+ - 反馈变更（本实例或经 ProductChangeLogRelay 同步的其他实例）后失效对应商品；跨天后重新加载
+ - 每天把超过 daily-retention-days 的按天统计桶合并到按月统计桶，按天统计桶的行数不随时间增长
+ */
+@Component
+public class FeedbackAnalyticsStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedbackAnalyticsStore.class);
+
+    @Autowired
+    private ProductFeedbackBucketMapper bucketMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${product.feedback.analytics.max-days:365}")
+    private int maxDays = 365; // 按天序列最多覆盖的天数
+
+    @Value("${product.feedback.analytics.max-months:24}")
+    private int maxMonths = 24; // 按月序列最多覆盖的月数
+
+    @Value("${product.feedback.analytics.daily-retention-days:400}")
+    private int dailyRetentionDays = 400; // 按天统计桶的保留天数，不小于 max-days
+
+    @Value("${product.feedback.analytics.cache-max-weight-bytes:16777216}")
+    private long cacheMaxWeightBytes = 16L * 1024 * 1024; // 缓存按序列估算的内存字节数限制，而不是商品数
+
+    private Cache<Long, FeedbackTimeSeries> cache;
+
+    @PostConstruct
+    public void init() {
+        dailyRetentionDays = Math.max(dailyRetentionDays, maxDays);
+        cache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxWeightBytes)
+                .weigher((Long id, FeedbackTimeSeries series) -> series.estimatedBytes())
+                .build();
+    }
+
+    /*
+     商品截至当天的反馈时间序列
+     */
+    public FeedbackTimeSeries get(Long productId) {
+        LocalDate today = LocalDate.now();
+        FeedbackTimeSeries series = cache.get(productId, id -> load(id, today));
+        if (!series.lastDay().equals(today)) { // 跨天
+            cache.asMap().remove(productId, series);
+            series = cache.get(productId, id -> load(id, today));
+        }
+        return series;
+    }
+
+    private FeedbackTimeSeries load(Long productId, LocalDate today) {
+        LocalDate fromMonth = today.withDayOfMonth(1).minusMonths(maxMonths - 1);
+        return FeedbackTimeSeries.build(today, maxDays, maxMonths,
+                bucketMapper.selectDaily(productId), bucketMapper.selectMonthly(productId, fromMonth));
+    }
+
+    // 反馈变化后失效（事件在事务提交后发布；加载中的条目会在加载完成后被移除）
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        if (event.getProductId() == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(event.getProductId());
+        }
+    }
+
+    /*
+     把超过保留天数的按天统计桶合并到按月统计桶，合并与删除在同一事务中
+     每个实例都会在同一时间执行：先用 SELECT ... FOR UPDATE 锁定待合并的行，后到的实例等前一个提交后
+     只会看到已删除的结果，直接结束（READ COMMITTED 下 INSERT ... SELECT 不加共享锁，不能只靠它串行化）
+     合并不改变任何月份的合计，缓存不需要失效
+     */
+    @Scheduled(cron = "${product.feedback.analytics.compact-cron:0 30 3 * * *}")
+    public void compact() {
+        LocalDate before = LocalDate.now().minusDays(dailyRetentionDays);
+        Integer merged = transactionTemplate.execute(status -> {
+            if (bucketMapper.lockDailyBefore(before) == 0) {
+                return 0; // 没有待合并的行，或其他实例刚合并完
+            }
+            bucketMapper.mergeDailyIntoMonthly(before);
+            return bucketMapper.deleteDailyBefore(before);
+        });
+        if (merged != null && merged > 0) {
+            logger.info("合并了 {} 个早于 {} 的按天统计桶", merged, before);
+        }
+    }
+}
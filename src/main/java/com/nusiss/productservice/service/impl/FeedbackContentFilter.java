@@ -0,0 +1,121 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.index.PhraseMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 反馈评论的内容筛查：新增 / 修改反馈时，评论中出现违禁词或垃圾短语则拒绝（400）
+ - 短语文件（product.feedback.content-filter.phrases-file）每行一个短语，空行和 # 开头的行忽略；中英文均可，不区分大小写和全角 / 半角
+ - 所有短语编译为一个 Aho-Corasick 自动机（PhraseMatcher），每条评论只扫描一遍，耗时与短语数量无关
+ - 热加载：每 reload-interval-ms 检查文件的修改时间和大小，变化后在后台编译新的自动机再整体替换，
+   请求线程始终读到完整的旧版本或新版本，不需要加锁也不需要停止服务；文件读取失败或被临时移走时继续使用旧版本
+ 未配置短语文件时不做筛查；被拒绝的次数记录在 product.feedback.content-filter.rejected
+ */
+@Component
+public class FeedbackContentFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedbackContentFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.feedback.content-filter.phrases-file:}")
+    private String phrasesFile = "";
+
+    private volatile PhraseMatcher matcher = PhraseMatcher.compile(List.of());
+
+    // 已加载文件的修改时间和大小，用于判断是否需要重新加载
+    private long loadedModified = -1;
+    private long loadedSize = -1;
+
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        rejected = Counter.builder("product.feedback.content-filter.rejected")
+                .description("Feedback rejected because the comment contains a banned phrase")
+                .register(meterRegistry);
+        reloadIfChanged();
+    }
+
+    /*
+     筛查评论
+     @param comment 评论内容，为空时不检查
+     @throws CustomException 评论中包含违禁短语
+     */
+    public void check(String comment) {
+        if (comment == null || comment.isEmpty()) {
+            return;
+        }
+        PhraseMatcher.Match match = matcher.findFirst(comment);
+        if (match != null) {
+            rejected.increment();
+            logger.debug("反馈评论命中违禁短语 \"{}\"", match.phrase());
+            throw new CustomException("Feedback comment contains prohibited content"); // 不返回命中的短语，避免被用来试探词表
+        }
+    }
+
+    // 当前的短语数
+    public int size() {
+        return matcher.size();
+    }
+
+    /*
+     短语文件有变化时重新加载（启动时和定时调用）
+     */
+    @Scheduled(fixedDelayString = "${product.feedback.content-filter.reload-interval-ms:30000}")
+    public synchronized void reloadIfChanged() {
+        if (!StringUtils.hasText(phrasesFile)) {
+            return;
+        }
+        Path path = Paths.get(phrasesFile);
+        try {
+            if (!Files.isRegularFile(path)) {
+                if (loadedModified < 0) {
+                    logger.warn("违禁短语文件 {} 不存在，暂不筛查反馈评论", path);
+                    loadedModified = 0; // 只提示一次
+                }
+                return;
+            }
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            long size = Files.size(path);
+            if (modified == loadedModified && size == loadedSize) {
+                return;
+            }
+            List<String> phrases = new ArrayList<>();
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    phrases.add(line);
+                }
+            }
+            long start = System.nanoTime();
+            PhraseMatcher compiled = PhraseMatcher.compile(phrases);
+            matcher = compiled;
+            loadedModified = modified;
+            loadedSize = size;
+            logger.info("已加载违禁短语 {} 个（{}），编译耗时 {} ms",
+                    compiled.size(), path, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            logger.warn("读取违禁短语文件 {} 失败，继续使用已加载的 {} 个短语", path, matcher.size(), e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.IdBlockSequenceMapper;
+import com.nusiss.productservice.dao.ProductFeedbackMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ 写缓冲的反馈 ID 分配：每次从 id_block_sequence 取一段连续的 ID（block-size 个），段内在内存中逐个分配
+ - 只在启用写缓冲时使用（写缓冲需要在写入数据库之前返回 ID）；未启用时同步写入仍由 AUTO_INCREMENT 分配 ID，不需要 007 迁移
+ - ID 与 AUTO_INCREMENT 处于同一范围（从当前最大 id 之后开始），JSON 中的数字在 JavaScript 里仍能精确表示
+ - 取段在独立的事务中完成（REQUIRES_NEW），不会因为调用方的事务而长时间锁住序列行
+ 启用写缓冲的前提：已执行 db/migration/007_id_block_sequence.sql，并且所有实例都已启用写缓冲、没有其他按 AUTO_INCREMENT
+ 插入反馈的写入方（滚动发布中的旧版本、管理工具、直接插入等）。段在内存中保留，AUTO_INCREMENT 分出的 ID 可能落在某个实例
+ 尚未用完的段内，该实例之后的插入会因主键冲突被当作坏数据丢弃；取段时检查 MAX(id) 只能避开已经写入的行
+ 实例重启时未用完的段被放弃，ID 会有空洞
+ */
+@Component
+public class FeedbackIdAllocator {
+
+    static final String SEQUENCE = "ProductFeedback";
+
+    @Autowired
+    private IdBlockSequenceMapper sequenceMapper;
+
+    @Autowired
+    private ProductFeedbackMapper productFeedbackMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${product.feedback.id-block-size:200}")
+    private int blockSize = 200;
+
+    private TransactionTemplate newTransaction;
+
+    private long nextId; // 当前段内下一个可分配的 ID
+    private long endId;  // 当前段的结束位置（不含）
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /*
+     分配一个反馈 ID，当前段用完时从数据库取下一段
+     */
+    public synchronized long next() {
+        if (nextId >= endId) {
+            long start = newTransaction.execute(status -> {
+                Long next = sequenceMapper.selectNextIdForUpdate(SEQUENCE);
+                if (next == null) {
+                    throw new IllegalStateException("id_block_sequence 中没有 " + SEQUENCE
+                            + " 的记录，请先执行 db/migration/007_id_block_sequence.sql");
+                }
+                // 不与已有的反馈重复（例如绕过本服务直接插入的行）
+                long from = Math.max(next, productFeedbackMapper.selectNextId());
+                sequenceMapper.updateNextId(SEQUENCE, from + blockSize);
+                return from;
+            });
+            nextId = start;
+            endId = start + blockSize;
+        }
+        return nextId++;
+    }
+}
@@ -0,0 +1,187 @@
+package com.nusiss.productservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nusiss.productservice.entity.ProductFeedback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ 写缓冲（FeedbackWriteBehindBuffer）的磁盘日志：接受的反馈在返回前先追加到日志文件（每行一条 JSON），
+ 写入数据库后再释放；进程重启后 recover 读出尚未释放的反馈重新写入
+ - 日志分段：当前段超过 maxSegmentBytes 后封存并新建一段；封存的段所有记录释放后删除，
+   当前段所有记录释放后截断为空，正常运行时磁盘上只保留尚未写入数据库的反馈
+ - 进程被杀时已 write 的数据仍在操作系统页缓存中，不会丢失；fsync 为 true 时每次追加都刷盘，节点掉电也不丢失
+ - 崩溃时最后一行可能只写了一半，恢复时跳过无法解析的行
+ 追加 / 释放通过对象锁串行执行（只是一次文件追加，持锁时间很短）
+ */
+class FeedbackSpillLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedbackSpillLog.class);
+
+    private static final String PREFIX = "feedback-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private final long maxSegmentBytes;
+
+    private long nextSequence;
+    private Segment current;
+
+    FeedbackSpillLog(Path directory, ObjectMapper objectMapper, boolean fsync, long maxSegmentBytes) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /*
+     日志中的一段，records 为尚未释放的记录数
+     */
+    static final class Segment {
+        private final Path path;
+        private FileChannel channel; // 封存的段为 null
+        private int records;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+    }
+
+    /*
+     一条恢复出来的反馈及其所在的段
+     */
+    static final class Recovered {
+        final ProductFeedback feedback;
+        final Segment segment;
+
+        private Recovered(ProductFeedback feedback, Segment segment) {
+            this.feedback = feedback;
+            this.segment = segment;
+        }
+    }
+
+    /*
+     读出上次运行遗留的全部反馈（按段的先后顺序），这些段被封存，记录全部释放后删除；之后打开新的当前段
+     */
+    synchronized List<Recovered> recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        List<Recovered> recovered = new ArrayList<>();
+        for (Path file : files) {
+            nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+            Segment segment = new Segment(file);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        recovered.add(new Recovered(objectMapper.readValue(line, ProductFeedback.class), segment));
+                        segment.records++;
+                    } catch (IOException e) {
+                        logger.warn("跳过反馈日志 {} 中无法解析的一行（崩溃时未写完）", file.getFileName());
+                    }
+                }
+            }
+            if (segment.records == 0) {
+                Files.deleteIfExists(file);
+            }
+        }
+        current = open();
+        return recovered;
+    }
+
+    /*
+     追加一条反馈（须在 recover 之后调用）
+     @return 反馈所在的段，写入数据库后交给 release
+     */
+    synchronized Segment append(ProductFeedback feedback) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(feedback) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (current.channel.size() > 0 && current.channel.size() + line.length > maxSegmentBytes) {
+            seal(current);
+            current = open();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            current.channel.write(buffer);
+        }
+        if (fsync) {
+            current.channel.force(false);
+        }
+        current.records++;
+        return current;
+    }
+
+    /*
+     释放段中已写入数据库的记录
+     @param count 释放的记录数
+     */
+    synchronized void release(Segment segment, int count) throws IOException {
+        segment.records -= count;
+        if (segment.records > 0) {
+            return;
+        }
+        if (segment == current) {
+            segment.channel.truncate(0);
+        } else if (segment.channel == null) {
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (current != null) {
+            Segment last = current;
+            current = null;
+            last.channel.close();
+            last.channel = null;
+            if (last.records == 0) {
+                Files.deleteIfExists(last.path);
+            }
+        }
+    }
+
+    private Segment open() throws IOException {
+        Segment segment = new Segment(directory.resolve(PREFIX + nextSequence++ + SUFFIX));
+        segment.channel = FileChannel.open(segment.path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return segment;
+    }
+
+    private void seal(Segment segment) throws IOException {
+        segment.channel.close();
+        segment.channel = null;
+        if (segment.records == 0) {
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
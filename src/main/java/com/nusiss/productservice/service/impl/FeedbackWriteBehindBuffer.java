@@ -0,0 +1,383 @@
+package com.nusiss.productservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.entity.ProductFeedback;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ 反馈的写缓冲（write-behind，product.feedback.write-behind.enabled=true 时启用）
+ - submit：分配 ID（FeedbackIdAllocator 按段分配，需要 007 迁移，启用前提见该类说明）、追加到磁盘日志（FeedbackSpillLog）后放入无锁队列，立即返回
+ - 队列有界：已满时抛出 ServiceBusyException（429 + Retry-After），由客户端退避重试
+ - 后台线程每 flush-interval-ms，或队列积压达到 batch-size 时被唤醒，按 batch-size 分批交给 BatchWriter（JDBC 批量写入），
+   写入成功后释放磁盘日志中的记录
+ - 整批失败时逐条重试：数据本身有问题的记录丢弃并记录日志，其余错误（数据库不可用等）保留在队列中，下一轮重试；
+   BatchWriter 可能抛出未经 Spring 转换的 MyBatis 异常，因此按异常链中的 SQLException 判断（见 isBadRow）
+ - 磁盘日志目录必须是持久卷上的绝对路径（启用时改用 k8s/write-behind/statefulset.yaml，为每个实例挂载自己的卷），
+   相对路径或容器可写层（overlay）/ 内存文件系统上的目录在启动时报错，除非 allow-ephemeral-spill-dir=true
+ - 停止时（ProductFeedbackServiceImpl 的 @PreDestroy）不再接受新反馈，写完队列中剩余的反馈；没能写入的留在磁盘日志中，
+   下次启动时恢复（BatchWriter 收到 replayed = true，需跳过已经写入的 ID）
+ 队列长度记录在 product.feedback.write-behind.queued，拒绝 / 丢弃次数和每批写入耗时记录在对应的 counter / timer 中
+ */
+@Component
+public class FeedbackWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedbackWriteBehindBuffer.class);
+
+    /*
+     批量写入反馈（在一个事务中插入并更新评分汇总），失败时抛出异常
+     @param replayed 批中是否有从磁盘日志恢复的反馈（可能在上次运行中已经写入）
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(List<ProductFeedback> batch, boolean replayed);
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FeedbackIdAllocator idAllocator;
+
+    @Value("${product.feedback.write-behind.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${product.feedback.write-behind.capacity:20000}")
+    private int capacity = 20_000; // 队列中最多等待写入的反馈数
+
+    @Value("${product.feedback.write-behind.batch-size:500}")
+    private int batchSize = 500; // 每批写入条数，也是提前唤醒写入线程的积压量
+
+    @Value("${product.feedback.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMillis = 200;
+
+    @Value("${product.feedback.write-behind.spill-dir:/var/lib/product-service/feedback-spill}")
+    private String spillDir = "/var/lib/product-service/feedback-spill"; // 磁盘日志目录（多实例部署时每个实例使用自己的持久卷）
+
+    @Value("${product.feedback.write-behind.allow-ephemeral-spill-dir:false}")
+    private boolean allowEphemeralSpillDir = false; // 仅用于本地开发：允许磁盘日志放在不持久的目录
+
+    @Value("${product.feedback.write-behind.fsync:false}")
+    private boolean fsync = false;
+
+    @Value("${product.feedback.write-behind.max-segment-bytes:67108864}")
+    private long maxSegmentBytes = 64L << 20;
+
+    @Value("${product.feedback.write-behind.retry-after-seconds:2}")
+    private long retryAfterSeconds = 2;
+
+    // 等待写入的反馈及其在磁盘日志中的段
+    private static final class Pending {
+        final ProductFeedback feedback;
+        final FeedbackSpillLog.Segment segment;
+        final boolean replayed;
+
+        Pending(ProductFeedback feedback, FeedbackSpillLog.Segment segment, boolean replayed) {
+            this.feedback = feedback;
+            this.segment = segment;
+            this.replayed = replayed;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(); // 队列中以及正在写入的反馈数
+    private final List<Pending> retry = new ArrayList<>();  // 上一轮没能写入的反馈；只在持有 flushLock 时访问
+    private final Object flushLock = new Object();
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private BatchWriter writer;
+    private FeedbackSpillLog spillLog;
+    private Thread flusher;
+
+    private Counter rejected;
+    private Counter dropped;
+    private Timer flushTimer;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     恢复磁盘日志中的反馈并启动写入线程
+     */
+    public synchronized void open(BatchWriter writer) {
+        this.writer = writer;
+        Gauge.builder("product.feedback.write-behind.queued", size, AtomicInteger::get)
+                .description("Feedback accepted but not yet written to the database")
+                .register(meterRegistry);
+        rejected = Counter.builder("product.feedback.write-behind.rejected")
+                .description("Feedback rejected because the write-behind queue was full")
+                .register(meterRegistry);
+        dropped = Counter.builder("product.feedback.write-behind.dropped")
+                .description("Buffered feedback dropped because the database rejected the row")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("product.feedback.write-behind.flush")
+                .description("Time to write one batch of buffered feedback")
+                .register(meterRegistry);
+        if (!spillDir.isBlank()) {
+            Path directory = Path.of(spillDir);
+            if (!allowEphemeralSpillDir) {
+                checkPersistent(directory);
+            }
+            spillLog = new FeedbackSpillLog(directory, objectMapper, fsync, maxSegmentBytes);
+            try {
+                List<FeedbackSpillLog.Recovered> recovered = spillLog.recover();
+                for (FeedbackSpillLog.Recovered record : recovered) {
+                    queue.add(new Pending(record.feedback, record.segment, true)); // 恢复的反馈不受容量限制
+                }
+                size.addAndGet(recovered.size());
+                if (!recovered.isEmpty()) {
+                    logger.info("从反馈日志恢复了 {} 条尚未写入数据库的反馈", recovered.size());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("无法打开反馈日志目录 " + spillDir, e);
+            }
+        } else {
+            logger.warn("反馈写缓冲没有配置磁盘日志（product.feedback.write-behind.spill-dir），进程退出时队列中的反馈会丢失");
+        }
+        running = true;
+        accepting = true;
+        flusher = new Thread(this::run, "feedback-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // 容器可写层和内存文件系统，Pod 重启或重新调度后内容丢失
+    private static final Set<String> EPHEMERAL_FILE_STORES = Set.of("overlay", "overlayfs", "aufs", "tmpfs", "ramfs");
+
+    // 磁盘日志目录必须是持久存储上的绝对路径，否则 Pod 重启后无法恢复尚未写入的反馈
+    static void checkPersistent(Path directory) {
+        if (!directory.isAbsolute()) {
+            throw new IllegalStateException("product.feedback.write-behind.spill-dir 必须是持久卷上的绝对路径: " + directory);
+        }
+        String type;
+        try {
+            Files.createDirectories(directory);
+            type = Files.getFileStore(directory).type().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法打开反馈日志目录 " + directory, e);
+        }
+        if (EPHEMERAL_FILE_STORES.contains(type)) {
+            throw new IllegalStateException("反馈日志目录 " + directory + " 位于 " + type
+                    + " 文件系统上，Pod 重启后会丢失；请挂载持久卷（见 k8s/write-behind/statefulset.yaml）");
+        }
+    }
+
+    /*
+     接受一条反馈：分配 ID 并写入磁盘日志后进入队列
+     @return 分配了 ID 的反馈（尚未写入数据库）
+     @throws ServiceBusyException 队列已满或正在停止
+     */
+    public ProductFeedback submit(ProductFeedback feedback) {
+        if (!accepting) {
+            throw new ServiceBusyException("Feedback service is shutting down", retryAfterSeconds);
+        }
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            rejected.increment();
+            throw new ServiceBusyException("Too many feedback submissions, please retry later", retryAfterSeconds);
+        }
+        try {
+            feedback.setId(idAllocator.next());
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            logger.warn("分配反馈 ID 失败", e);
+            throw new ServiceBusyException("Feedback service is temporarily unavailable, please retry later", retryAfterSeconds);
+        }
+        FeedbackSpillLog.Segment segment = null;
+        if (spillLog != null) {
+            try {
+                segment = spillLog.append(feedback);
+            } catch (IOException e) {
+                size.decrementAndGet();
+                throw new UncheckedIOException("写入反馈日志失败", e);
+            }
+        }
+        queue.add(new Pending(feedback, segment, false));
+        if (size.get() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return feedback;
+    }
+
+    // 等待写入的反馈数
+    public int size() {
+        return size.get();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                logger.error("反馈批量写入线程异常", e);
+            }
+        }
+    }
+
+    /*
+     写入当前队列中的全部反馈；遇到数据库错误时停止，剩余的留到下一轮
+     @return 是否全部写入
+     */
+    boolean flush() {
+        synchronized (flushLock) {
+            while (true) {
+                List<Pending> batch = new ArrayList<>(batchSize);
+                batch.addAll(retry);
+                retry.clear();
+                Pending pending;
+                while (batch.size() < batchSize && (pending = queue.poll()) != null) {
+                    batch.add(pending);
+                }
+                if (batch.isEmpty()) {
+                    return true;
+                }
+                if (!write(batch)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    // 写入一批；整批失败时逐条重试。返回 false 表示遇到了需要稍后重试的错误
+    private boolean write(List<Pending> batch) {
+        try {
+            flushTimer.record(() -> writer.write(feedbackOf(batch), batch.stream().anyMatch(p -> p.replayed)));
+            completed(batch);
+            return true;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1 && !isBadRow(e)) {
+                retry.addAll(batch);
+                logger.warn("反馈批量写入失败，{} 条反馈将在下一轮重试", size.get(), e);
+                return false;
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            try {
+                writer.write(List.of(pending.feedback), pending.replayed);
+                completed(List.of(pending));
+            } catch (RuntimeException e) {
+                if (isBadRow(e)) {
+                    dropped.increment();
+                    completed(List.of(pending));
+                    logger.error("反馈 {}（商品 {}）无法写入数据库，已丢弃", pending.feedback.getId(), pending.feedback.getProductId(), e);
+                    continue;
+                }
+                retry.addAll(batch.subList(i, batch.size()));
+                logger.warn("反馈写入失败，{} 条反馈将在下一轮重试", size.get(), e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     写入失败是否由数据本身引起（重试也不会成功）：约束冲突、数据截断 / 越界等
+     - Spring 转换后的 DataIntegrityViolationException
+     - 未经转换的异常（例如 MyBatis-Plus 批量插入抛出的 PersistenceException）按异常链中的 SQLException 判断：
+       SQLIntegrityConstraintViolationException、SQLDataException，或 SQLState 类别为 22（数据异常）/ 23（约束冲突）
+     其他错误（连接失败、超时、死锁、SQL 语法错误等）都视为暂时的，保留记录等待重试
+     */
+    static boolean isBadRow(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof SQLIntegrityConstraintViolationException
+                    || cause instanceof SQLDataException) {
+                return true;
+            }
+            if (cause instanceof SQLException sql) {
+                String state = sql.getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<ProductFeedback> feedbackOf(List<Pending> batch) {
+        List<ProductFeedback> feedback = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            feedback.add(pending.feedback);
+        }
+        return feedback;
+    }
+
+    // 已写入（或丢弃）的反馈：释放磁盘日志中的记录
+    private void completed(List<Pending> batch) {
+        Map<FeedbackSpillLog.Segment, Integer> released = new HashMap<>();
+        for (Pending pending : batch) {
+            if (pending.segment != null) {
+                released.merge(pending.segment, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<FeedbackSpillLog.Segment, Integer> entry : released.entrySet()) {
+            try {
+                spillLog.release(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                logger.warn("释放反馈日志记录失败，重启时这些反馈会被重新检查", e); // 重放会跳过已写入的 ID
+            }
+        }
+        size.addAndGet(-batch.size());
+    }
+
+    /*
+     停止接受新反馈，写完队列中剩余的反馈后关闭磁盘日志
+     */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) {
+            logger.warn("停止时仍有 {} 条反馈没能写入数据库，保留在反馈日志中，下次启动时恢复", size.get());
+        }
+        if (spillLog != null) {
+            try {
+                spillLog.close();
+            } catch (IOException e) {
+                logger.warn("关闭反馈日志失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.nusiss.productservice.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.BulkResult;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.service.ProductBulkService;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import org.apache.ibatis.executor.BatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+ ProductBulkService 实现类
+ - 新增 / 更新使用 MyBatis-Plus 的批量方法（BATCH 执行器 + JDBC addBatch），一块只需一次网络往返
+ - 删除先按 id IN (...) 查出存在的商品，再一条 DELETE ... IN 删除，一块两次往返
+ - 每块一个事务（TransactionTemplate），提交后再发布商品变更事件，保证内存索引不会看到被回滚的数据
+ - 整块失败（例如某一条数据超长）时回滚该块并逐条重试，只有出错的那几条记为失败
+ - 新增与单条接口一样逐条做近重复检测：REJECT 时该条记为失败，FLAG 时在该条结果中带回疑似重复的商品；
+   检测在写库前进行，同一请求内互相重复的商品不会被发现
+ */
+@Service
+public class ProductBulkServiceImpl implements ProductBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkServiceImpl.class);
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductDuplicateService duplicateService; // 新增前的近重复检测
+
+    @Value("${product.bulk.chunk-size:500}")
+    private int chunkSize = 500; // 每个事务 / 每次批量提交的条数
+
+    @Value("${product.bulk.max-items:5000}")
+    private int maxItems = 5000; // 单次请求最多允许的条数
+
+    /*
+     批量新增：忽略请求中的 id，由数据库生成
+     */
+    @Override
+    public BulkResult createProducts(List<Product> products) {
+        return execute("新增", products, new BulkOperation<>() {
+            @Override
+            public String validate(Product product) {
+                if (product == null) {
+                    return "Product is required";
+                }
+                product.setId(null); // 检测时不能把请求中的 id 当成自身排除
+                try {
+                    List<Long> duplicates = duplicateService.checkNewProduct(product);
+                    if (!duplicates.isEmpty()) {
+                        product.setPossibleDuplicateIds(duplicates);
+                    }
+                } catch (CustomException e) {
+                    return e.getMessage(); // on-create 为 REJECT
+                }
+                return null;
+            }
+
+            @Override
+            public boolean[] writeChunk(List<Product> chunk) {
+                chunk.forEach(p -> p.setId(null));
+                return applied(productMapper.insert(chunk, chunk.size()), chunk.size());
+            }
+
+            @Override
+            public boolean writeOne(Product product) {
+                product.setId(null); // 整块回滚后对象上可能残留已生成的 id
+                return productMapper.insert(product) > 0;
+            }
+
+            @Override
+            public Long idOf(Product product) {
+                return product == null ? null : product.getId();
+            }
+
+            @Override
+            public String notApplied() {
+                return "Product was not inserted";
+            }
+
+            @Override
+            public List<Long> possibleDuplicatesOf(Product product) {
+                return product.getPossibleDuplicateIds();
+            }
+
+            @Override
+            public void published(List<Product> applied) {
+                applied.forEach(p -> eventPublisher.publishEvent(ProductChangedEvent.created(p)));
+            }
+        });
+    }
+
+    /*
+     批量更新：与单条更新一样只写非空字段，不预先查询商品是否存在，以影响行数判断
+     */
+    @Override
+    public BulkResult updateProducts(List<Product> products) {
+        return execute("更新", products, new BulkOperation<>() {
+            @Override
+            public String validate(Product product) {
+                return product == null || product.getId() == null ? "id is required" : null;
+            }
+
+            @Override
+            public boolean[] writeChunk(List<Product> chunk) {
+                return applied(productMapper.updateById(chunk, chunk.size()), chunk.size());
+            }
+
+            @Override
+            public boolean writeOne(Product product) {
+                return productMapper.updateById(product) > 0;
+            }
+
+            @Override
+            public Long idOf(Product product) {
+                return product == null ? null : product.getId();
+            }
+
+            @Override
+            public void published(List<Product> applied) {
+                // 变更事件需要完整商品，提交后按 id 一次读回整块
+                List<Long> ids = applied.stream().map(Product::getId).collect(Collectors.toList());
+                productMapper.selectBatchIds(ids)
+                        .forEach(p -> eventPublisher.publishEvent(ProductChangedEvent.updated(p)));
+            }
+        });
+    }
+
+    /*
+     批量删除
+     */
+    @Override
+    public BulkResult deleteProducts(List<Long> ids) {
+        return execute("删除", ids, new BulkOperation<>() {
+            @Override
+            public String validate(Long id) {
+                return id == null ? "id is required" : null;
+            }
+
+            @Override
+            public boolean[] writeChunk(List<Long> chunk) {
+                List<Object> found = productMapper.selectObjs(new QueryWrapper<Product>().select("id").in("id", chunk));
+                Set<Long> existing = found.stream().map(o -> ((Number) o).longValue()).collect(Collectors.toSet());
+                if (!existing.isEmpty()) {
+                    productMapper.delete(new QueryWrapper<Product>().in("id", existing));
+                }
+                boolean[] applied = new boolean[chunk.size()];
+                for (int i = 0; i < chunk.size(); i++) {
+                    applied[i] = existing.contains(chunk.get(i));
+                }
+                return applied;
+            }
+
+            @Override
+            public boolean writeOne(Long id) {
+                return productMapper.deleteById(id) > 0;
+            }
+
+            @Override
+            public Long idOf(Long id) {
+                return id;
+            }
+
+            @Override
+            public void published(List<Long> applied) {
+                applied.forEach(id -> eventPublisher.publishEvent(ProductChangedEvent.deleted(id)));
+            }
+        });
+    }
+
+    /*
+     分块执行批量操作
+     @param label 操作名称（用于日志）
+     @param items 请求中的全部条目
+     @param op 具体的写入方式
+     @return 按请求顺序的逐条结果
+     */
+    private <T> BulkResult execute(String label, List<T> items, BulkOperation<T> op) {
+        if (items == null || items.isEmpty()) {
+            throw new CustomException("Bulk request must contain at least one item");
+        }
+        if (items.size() > maxItems) {
+            throw new CustomException("Bulk request exceeds the limit of " + maxItems + " items");
+        }
+
+        BulkResult.Item[] results = new BulkResult.Item[items.size()];
+        List<Integer> pending = new ArrayList<>(items.size()); // 通过校验、需要写库的下标
+        for (int i = 0; i < items.size(); i++) {
+            String error = op.validate(items.get(i));
+            if (error != null) {
+                results[i] = new BulkResult.Item(i, op.idOf(items.get(i)), false, error);
+            } else {
+                pending.add(i);
+            }
+        }
+
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Integer> indexes = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            List<T> chunk = indexes.stream().map(items::get).collect(Collectors.toList());
+
+            boolean[] applied;
+            try {
+                applied = transactionTemplate.execute(status -> op.writeChunk(chunk));
+            } catch (RuntimeException e) {
+                logger.warn("批量{}第 {} 块整体失败，改为逐条写入：{}", label, from / chunkSize + 1, errorMessage(e));
+                applied = null;
+            }
+
+            List<T> written = new ArrayList<>(chunk.size());
+            for (int k = 0; k < chunk.size(); k++) {
+                T item = chunk.get(k);
+                int index = indexes.get(k);
+                boolean success;
+                if (applied != null) {
+                    success = applied[k];
+                } else {
+                    try {
+                        success = op.writeOne(item);
+                    } catch (RuntimeException e) {
+                        results[index] = new BulkResult.Item(index, op.idOf(item), false, errorMessage(e));
+                        continue;
+                    }
+                }
+                BulkResult.Item result = new BulkResult.Item(index, op.idOf(item), success, success ? null : op.notApplied());
+                if (success) {
+                    result.setPossibleDuplicateIds(op.possibleDuplicatesOf(item));
+                    written.add(item);
+                }
+                results[index] = result;
+            }
+            if (!written.isEmpty()) {
+                op.published(written);
+            }
+        }
+
+        BulkResult result = new BulkResult();
+        for (BulkResult.Item item : results) {
+            result.add(item);
+        }
+        logger.info("批量{}完成：成功 {} 条，失败 {} 条", label, result.getSucceeded(), result.getFailed());
+        return result;
+    }
+
+    /*
+     把 BATCH 执行器返回的结果展开成每条语句是否生效
+     同一 SQL 的连续语句会合并成一个 BatchResult，按顺序展开后与提交顺序一致；
+     MySQL rewriteBatchedStatements 时插入的影响行数为 SUCCESS_NO_INFO，也视为成功
+     */
+    static boolean[] applied(List<BatchResult> batchResults, int expected) {
+        boolean[] applied = new boolean[expected];
+        int k = 0;
+        for (BatchResult batchResult : batchResults) {
+            for (int count : batchResult.getUpdateCounts()) {
+                if (k == expected) {
+                    throw new IllegalStateException("Batch returned more update counts than statements");
+                }
+                applied[k++] = count > 0 || count == Statement.SUCCESS_NO_INFO;
+            }
+        }
+        if (k != expected) {
+            throw new IllegalStateException("Batch returned " + k + " update counts for " + expected + " statements");
+        }
+        return applied;
+    }
+
+    private static String errorMessage(Throwable e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /*
+     一种批量操作（新增 / 更新 / 删除）的写入方式
+     */
+    private interface BulkOperation<T> {
+
+        // 写库前的校验，不通过时返回失败原因
+        String validate(T item);
+
+        // 在事务中批量写入一整块，返回每条是否生效
+        boolean[] writeChunk(List<T> chunk);
+
+        // 整块失败后的逐条写入
+        boolean writeOne(T item);
+
+        Long idOf(T item);
+
+        // 影响行数为 0 时的失败原因
+        default String notApplied() {
+            return "Product not found";
+        }
+
+        // 写入成功的条目疑似重复的已有商品，没有时为 null
+        default List<Long> possibleDuplicatesOf(T item) {
+            return null;
+        }
+
+        // 事务提交后发布变更事件
+        void published(List<T> applied);
+    }
+}
@@ -0,0 +1,152 @@
+package com.nusiss.productservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
+
+/*
+ 按 id 读取商品的本地缓存（Caffeine），供 ProductService.getProductById 使用
+ - 容量按估算的内存字节数限制（maximumWeight + weigher），写入后 ttl 过期
+ - 同一个 id 的并发未命中只会触发一次加载，其余请求等待同一次加载的结果（防止缓存击穿）
+ - 任何途径修改 / 删除商品都会发布 ProductChangedEvent，收到后按 id 精确失效
+ - 不存在的商品不缓存
+ - 加载时同时按字段内容计算 ETag，与商品一起缓存，条件请求不需要查库也不需要序列化；内容相同的商品在各实例上 ETag 相同
+ 命中率、加载耗时等指标注册为 cache.gets / cache.load / cache.load.duration（tag cache=products），
+ 可通过 /actuator/metrics/cache.gets?tag=cache:products 查看
+ */
+@Component
+public class ProductCache {
+
+    public static final String CACHE_NAME = "products";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.cache.max-weight-bytes:67108864}")
+    private long maxWeightBytes = 64L * 1024 * 1024;
+
+    @Value("${product.cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    private Cache<Long, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long id, Entry entry) -> weigh(entry.product) + 2 * entry.etag.length())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /*
+     读取商品，未命中时调用 loader 加载
+     @param id 商品 ID
+     @param loader 加载函数（通常是 productMapper::selectById），返回 null 表示商品不存在
+     @return 商品副本（调用方修改返回值不会影响缓存）；不存在时返回 null
+     */
+    public Product get(Long id, Function<Long, Product> loader) {
+        if (id == null) {
+            return null;
+        }
+        Entry entry = load(id, loader);
+        return entry == null ? null : copy(entry.product);
+    }
+
+    /*
+     读取商品的 ETag（按字段内容计算），未命中时调用 loader 加载
+     @return ETag（不含引号）；商品不存在时返回 null
+     */
+    public String etag(Long id, Function<Long, Product> loader) {
+        if (id == null) {
+            return null;
+        }
+        Entry entry = load(id, loader);
+        return entry == null ? null : entry.etag;
+    }
+
+    private Entry load(Long id, Function<Long, Product> loader) {
+        return cache.get(id, key -> {
+            Product product = loader.apply(key);
+            return product == null ? null : new Entry(product, contentHash(product));
+        });
+    }
+
+    // 商品变更后失效对应的缓存项；进行中的加载会先完成再被移除，不会留下旧值
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductId() != null) {
+            cache.invalidate(event.getProductId());
+        }
+    }
+
+    // 当前缓存的商品数（先执行待处理的淘汰）
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /*
+     估算一个商品对象占用的内存字节数：对象头和数值 / 时间字段按固定值计，字符串按长度计
+     */
+    static int weigh(Product product) {
+        int bytes = 256;
+        for (String s : new String[]{product.getName(), product.getDescription(), product.getCategory(),
+                product.getTitle(), product.getStatus(), product.getCreateUser(), product.getUpdateUser(),
+                product.getCoverImageUrl()}) {
+            if (s != null) {
+                bytes += 40 + 2 * s.length();
+            }
+        }
+        return bytes;
+    }
+
+    /*
+     按字段内容计算商品的哈希（MD5 十六进制），字段之间用 \u0000 分隔，null 与空字符串可区分
+     */
+    static String contentHash(Product product) {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : new Object[]{product.getId(), product.getName(), product.getDescription(), product.getPrice(), product.getStock(), product.getSellerId(), product.getCategory(), product.getTitle(),
+                product.getStatus(), product.getRating(), product.getCreateDatetime(), product.getUpdateDatetime(),
+                product.getCreateUser(), product.getUpdateUser(), product.getCoverImageUrl()}) {
+            sb.append(value == null ? "\u0001" : value.toString()).append('\u0000');
+        }
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Product copy(Product product) {
+        if (product == null) {
+            return null;
+        }
+        Product copy = new Product();
+        BeanUtils.copyProperties(product, copy);
+        return copy;
+    }
+
+    // 缓存项：商品及其 ETag
+    private static class Entry {
+        private final Product product;
+        private final String etag;
+
+        private Entry(Product product, String etag) {
+            this.product = product;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.CatalogQuery;
+import com.nusiss.productservice.index.ProductCatalogSnapshot;
+import com.nusiss.productservice.index.ProductIndexMaintainer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ 内存列式商品目录：在 ProductCatalogSnapshot 上执行筛选 / 排序 / 分页，代替每次把组合条件发给 MySQL
+ - 通过 product.catalog.in-memory.enabled=true 开启，默认关闭（关闭时不会创建该 Bean，全部走 SQL）
+ - 快照的重建与增量更新由 ProductIndexMaintainer 负责；首次重建完成前，或排序列不支持时返回 null，调用方走 SQL
+ - 按 product.catalog.cross-check-rate 的比例抽样，同时执行 SQL 并与内存结果对比；
+   不一致时记录日志并返回 SQL 结果，对比结果计入指标 product.catalog.cross-check{result}
+ */
+@Component
+@ConditionalOnProperty(name = "product.catalog.in-memory.enabled", havingValue = "true")
+public class ProductCatalogEngine extends ProductIndexMaintainer<ProductCatalogSnapshot> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogEngine.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.catalog.cross-check-rate:0.01}")
+    private double crossCheckRate = 0.01;
+
+    @Value("${product.facets.price-buckets:0,50,100,500,1000,5000}")
+    private BigDecimal[] priceBuckets;
+
+    /*
+     筛选（不分页），结果按 id 升序
+     @param sqlQuery 对应的 SQL 查询，仅在抽样对比时执行
+     @return 筛选结果；快照未就绪时返回 null
+     */
+    public List<Product> filter(CatalogQuery query, Supplier<List<Product>> sqlQuery) {
+        ProductCatalogSnapshot snapshot = current();
+        if (snapshot == null) {
+            return null;
+        }
+        List<Product> result = snapshot.filter(query);
+        if (shouldCrossCheck()) {
+            List<Product> expected = sqlQuery.get();
+            if (!sortedIds(expected).equals(sortedIds(result))) {
+                return mismatch("filter", expected.size(), result.size(), expected);
+            }
+            meterRegistry.counter("product.catalog.cross-check", "result", "match").increment();
+        }
+        return result;
+    }
+
+    /*
+     筛选 + 排序 + 分页
+     @param sortBy 排序列（为空时不排序）
+     @param order asc 为升序（大小写不敏感），其他为降序
+     @param offset 跳过的条数
+     @param size 每页条数
+     @param sqlQuery 对应的 SQL 分页查询，仅在抽样对比时执行
+     @return 当前页与总数；快照未就绪或排序列不支持时返回 null
+     */
+    public ProductCatalogSnapshot.Slice select(CatalogQuery query, String sortBy, String order, long offset, int size,
+                                               Supplier<ProductCatalogSnapshot.Slice> sqlQuery) {
+        ProductCatalogSnapshot snapshot = current();
+        boolean sorted = sortBy != null && !sortBy.isEmpty();
+        if (snapshot == null || (sorted && !ProductCatalogSnapshot.SORTABLE_COLUMNS.contains(sortBy))) {
+            return null;
+        }
+        ProductCatalogSnapshot.Slice result = snapshot.select(query, sortBy, "asc".equalsIgnoreCase(order), offset, size);
+        if (shouldCrossCheck()) {
+            ProductCatalogSnapshot.Slice expected = sqlQuery.get();
+            // 排序值相同的记录在 SQL 中顺序不确定，因此比较排序值序列；未指定排序时只比较总数和条数
+            Function<Product, Object> key = sorted ? p -> sortValue(p, sortBy) : p -> null;
+            boolean same = expected.getTotal() == result.getTotal()
+                    && expected.getRecords().stream().map(key).collect(Collectors.toList())
+                    .equals(result.getRecords().stream().map(key).collect(Collectors.toList()));
+            if (!same) {
+                return mismatch("select", expected.getTotal(), result.getTotal(), expected);
+            }
+            meterRegistry.counter("product.catalog.cross-check", "result", "match").increment();
+        }
+        return result;
+    }
+
+    /*
+     分面统计（对命中的商品遍历一次）
+     @param sqlQuery 对应的 SQL 统计，仅在抽样对比时执行
+     @return 分面统计；快照未就绪时返回 null
+     */
+    public ProductFacets facets(CatalogQuery query, Supplier<ProductFacets> sqlQuery) {
+        ProductCatalogSnapshot snapshot = current();
+        if (snapshot == null) {
+            return null;
+        }
+        ProductFacets result = snapshot.facets(query);
+        if (shouldCrossCheck()) {
+            ProductFacets expected = sqlQuery.get();
+            // SQL 分组返回的取值大小写可能与快照不同，按小写比较
+            boolean same = expected.getTotal() == result.getTotal()
+                    && countsByValue(expected.getCategories()).equals(countsByValue(result.getCategories()))
+                    && countsByValue(expected.getStatuses()).equals(countsByValue(result.getStatuses()))
+                    && expected.getPriceBuckets().equals(result.getPriceBuckets())
+                    && expected.getRatingBuckets().equals(result.getRatingBuckets());
+            if (!same) {
+                return mismatch("facets", expected.getTotal(), result.getTotal(), expected);
+            }
+            meterRegistry.counter("product.catalog.cross-check", "result", "match").increment();
+        }
+        return result;
+    }
+
+    private static Map<String, Long> countsByValue(List<ProductFacets.ValueCount> counts) {
+        return counts.stream().collect(Collectors.toMap(
+                c -> c.getValue().toLowerCase(Locale.ROOT), ProductFacets.ValueCount::getCount, Long::sum));
+    }
+
+    private <T> T mismatch(String operation, long expectedCount, long actualCount, T expected) {
+        meterRegistry.counter("product.catalog.cross-check", "result", "mismatch").increment();
+        logger.warn("内存商品目录与 SQL 结果不一致（{}）：SQL {} 条，内存 {} 条，本次返回 SQL 结果",
+                operation, expectedCount, actualCount);
+        return expected;
+    }
+
+    private boolean shouldCrossCheck() {
+        return crossCheckRate > 0 && ThreadLocalRandom.current().nextDouble() < crossCheckRate;
+    }
+
+    private static List<Long> sortedIds(List<Product> products) {
+        return products.stream().map(Product::getId).sorted().collect(Collectors.toList());
+    }
+
+    // 价格按数值比较（忽略 10.0 与 10.00 的精度差异）
+    private static Object sortValue(Product product, String column) {
+        switch (column) {
+            case "price":
+                return product.getPrice() == null ? null : product.getPrice().stripTrailingZeros();
+            case "rating":
+                return product.getRating();
+            case "stock":
+                return product.getStock();
+            case "create_datetime":
+                return product.getCreateDatetime();
+            case "update_datetime":
+                return product.getUpdateDatetime();
+            default:
+                return Objects.requireNonNull(product.getId());
+        }
+    }
+
+    @Override
+    protected ProductCatalogSnapshot newIndex() {
+        return priceBuckets == null ? new ProductCatalogSnapshot() : new ProductCatalogSnapshot(priceBuckets);
+    }
+
+    @Override
+    protected void put(ProductCatalogSnapshot snapshot, Product product) {
+        snapshot.put(product);
+    }
+
+    @Override
+    protected void remove(ProductCatalogSnapshot snapshot, Long productId) {
+        snapshot.remove(productId);
+    }
+}
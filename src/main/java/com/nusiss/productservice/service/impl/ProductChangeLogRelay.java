@@ -0,0 +1,233 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductChangeLogMapper;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.entity.ProductChangeLog;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ 基于数据库变更日志的跨实例失效通道（无需额外的消息中间件）
+ - 写：本实例发布的 ProductChangedEvent 先进入内存队列，每 flush-interval-ms 批量追加到 product_change_log
+ - 读：每个实例每 poll-interval-ms 读取 id > 游标 的新记录（主键范围扫描），跳过自己写入的记录，
+   按 id 批量读取商品当前状态后以 remote=true 重新发布 ProductChangedEvent，本地缓存 / 内存索引照常处理
+ - 自增 id 不一定按提交顺序可见（并发事务、回滚），游标跳过的 id 记为空洞，在 gap-timeout-ms 内每次轮询再按 id 补查
+ - 商品反馈的变更同样写入（change_type = FEEDBACK，product_id 为反馈所属商品），其他实例重新发布 FeedbackChangedEvent
+ - 同步延迟（变更发生到其他实例处理完成）记录在 product.change-log.lag 计时器中
+ 缓存的 TTL 是最后的兜底：进程异常退出时队列中尚未写入的变更会丢失
+ */
+@Component
+@ConditionalOnProperty(name = "product.change-log.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductChangeLogRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeLogRelay.class);
+
+    // 反馈变更在 change_type 中的取值
+    static final String FEEDBACK_CHANGE = "FEEDBACK";
+
+    // 单次最多跟踪的空洞数量，超过的直接放弃（依赖缓存 TTL）
+    private static final int MAX_TRACKED_GAPS = 1000;
+
+    // 清理过期记录时单条 DELETE 的上限
+    private static final int PRUNE_BATCH_SIZE = 10_000;
+
+    @Autowired
+    private ProductChangeLogMapper changeLogMapper;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.change-log.poll-batch-size:500}")
+    private int pollBatchSize = 500;
+
+    @Value("${product.change-log.gap-timeout-ms:10000}")
+    private long gapTimeoutMillis = 10_000;
+
+    @Value("${product.change-log.retention-minutes:60}")
+    private long retentionMinutes = 60;
+
+    private final String origin = UUID.randomUUID().toString(); // 本实例标识
+
+    private final Queue<ProductChangeLog> outbox = new ConcurrentLinkedQueue<>(); // 等待写入的本地变更
+
+    private long lastId = -1; // 轮询游标，-1 表示尚未初始化；只在 poll 中访问
+
+    private final Map<Long, Long> gaps = new HashMap<>(); // 空洞 id -> 发现时间；只在 poll 中访问
+
+    private Timer lagTimer;
+
+    @PostConstruct
+    public void init() {
+        lagTimer = Timer.builder("product.change-log.lag")
+                .description("Time from a product change on one replica until another replica has applied it")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    // 本地变更进入队列；从日志读到的远程变更不再写回
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isRemote() || event.getProductId() == null) {
+            return;
+        }
+        enqueue(event.getProductId(), event.getType().name());
+    }
+
+    // 本地反馈变更进入队列；无法确定所属商品的变更只在本实例生效
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        if (event.isRemote() || event.getProductId() == null) {
+            return;
+        }
+        enqueue(event.getProductId(), FEEDBACK_CHANGE);
+    }
+
+    private void enqueue(Long productId, String changeType) {
+        ProductChangeLog log = new ProductChangeLog();
+        log.setProductId(productId);
+        log.setChangeType(changeType);
+        log.setOrigin(origin);
+        log.setCreateDatetime(LocalDateTime.now());
+        outbox.add(log);
+    }
+
+    /*
+     把队列中的本地变更批量写入 product_change_log；失败时放回队列下次重试
+     */
+    @Scheduled(fixedDelayString = "${product.change-log.flush-interval-ms:100}")
+    public void flush() {
+        List<ProductChangeLog> batch = new ArrayList<>();
+        ProductChangeLog log;
+        while ((log = outbox.poll()) != null) {
+            batch.add(log);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            changeLogMapper.insert(batch, batch.size());
+        } catch (RuntimeException e) {
+            outbox.addAll(batch);
+            logger.warn("写入商品变更日志失败，{} 条变更将在下次重试", batch.size(), e);
+        }
+    }
+
+    /*
+     读取其他实例的变更并在本地重新发布
+     */
+    @Scheduled(fixedDelayString = "${product.change-log.poll-interval-ms:500}")
+    public synchronized void poll() {
+        if (lastId < 0) {
+            Long maxId = changeLogMapper.selectMaxId();
+            lastId = maxId == null ? 0 : maxId;
+            return;
+        }
+        List<ProductChangeLog> rows = new ArrayList<>(changeLogMapper.selectAfter(lastId, pollBatchSize));
+        long now = System.currentTimeMillis();
+        trackGaps(rows, now);
+        if (!gaps.isEmpty()) {
+            List<ProductChangeLog> late = changeLogMapper.selectBatchIds(new ArrayList<>(gaps.keySet()));
+            late.forEach(row -> gaps.remove(row.getId()));
+            rows.addAll(late);
+            gaps.values().removeIf(firstSeen -> now - firstSeen > gapTimeoutMillis);
+        }
+        apply(rows);
+    }
+
+    // 游标之后的记录 id 不连续时，把缺失的 id 记为空洞，然后推进游标
+    private void trackGaps(List<ProductChangeLog> rows, long now) {
+        long expected = lastId + 1;
+        for (ProductChangeLog row : rows) {
+            for (long id = expected; id < row.getId() && gaps.size() < MAX_TRACKED_GAPS; id++) {
+                gaps.put(id, now);
+            }
+            expected = row.getId() + 1;
+            lastId = row.getId();
+        }
+    }
+
+    // 每个商品只发布一次，按数据库中的当前状态：存在则 UPDATED，已删除则 DELETED；反馈变更每个商品发布一次 FeedbackChangedEvent
+    private void apply(List<ProductChangeLog> rows) {
+        Map<Long, LocalDateTime> changed = new LinkedHashMap<>(); // 商品 ID -> 最早的变更时间
+        Map<Long, LocalDateTime> feedbackChanged = new LinkedHashMap<>();
+        for (ProductChangeLog row : rows) {
+            if (!origin.equals(row.getOrigin())) {
+                Map<Long, LocalDateTime> target = FEEDBACK_CHANGE.equals(row.getChangeType()) ? feedbackChanged : changed;
+                target.merge(row.getProductId(), row.getCreateDatetime(), (a, b) -> b.isBefore(a) ? b : a);
+            }
+        }
+        for (Map.Entry<Long, LocalDateTime> entry : feedbackChanged.entrySet()) {
+            eventPublisher.publishEvent(new FeedbackChangedEvent(entry.getKey(), true));
+            recordLag(entry.getValue());
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Long, Product> current = productMapper.selectBatchIds(changed.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Map.Entry<Long, LocalDateTime> entry : changed.entrySet()) {
+            Product product = current.get(entry.getKey());
+            eventPublisher.publishEvent(product != null
+                    ? new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, product.getId(), product, true)
+                    : new ProductChangedEvent(ProductChangedEvent.Type.DELETED, entry.getKey(), null, true));
+            recordLag(entry.getValue());
+        }
+        logger.debug("同步了其他实例的 {} 个商品变更", changed.size());
+    }
+
+    private void recordLag(LocalDateTime changedAt) {
+        Duration lag = Duration.between(changedAt, LocalDateTime.now());
+        lagTimer.record(lag.isNegative() ? Duration.ZERO : lag); // 实例间时钟偏差可能得到负值
+    }
+
+    /*
+     清理超过保留时间的记录（每个实例都会执行，重复删除无副作用）
+     */
+    @Scheduled(fixedDelayString = "${product.change-log.prune-interval-ms:600000}")
+    public void prune() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(retentionMinutes);
+        int deleted;
+        do {
+            deleted = changeLogMapper.deleteOlderThan(before, PRUNE_BATCH_SIZE);
+        } while (deleted == PRUNE_BATCH_SIZE);
+    }
+
+    // 停止前写入剩余的本地变更
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,136 @@
+package com.nusiss.productservice.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dao.ProductMediaMapper;
+import com.nusiss.productservice.dto.CoverDriftReport;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.service.ProductCoverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ ProductCoverService 实现类
+ */
+@Service
+public class ProductCoverServiceImpl implements ProductCoverService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCoverServiceImpl.class);
+
+    // 回填 / 一致性检查时每批扫描的商品数量
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductMediaMapper productMediaMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 封面变化后通知内存中的商品快照
+
+    /*
+     重新计算并保存某个商品的封面图（第一张图片类型 media，没有图片时清空）
+     */
+    @Override
+    public void refreshCover(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        ProductMedia media = productMediaMapper.selectOne(
+                Wrappers.<ProductMedia>lambdaQuery()
+                        .eq(ProductMedia::getProductId, productId)
+                        .eq(ProductMedia::getMediaType, "image")
+                        .orderByAsc(ProductMedia::getId)
+                        .last("LIMIT 1")
+        );
+        saveCover(productId, media != null ? media.getUrl() : null);
+    }
+
+    /*
+     一次性回填任务
+     */
+    @Override
+    public int backfillCovers() {
+        CoverDriftReport report = scan();
+        for (CoverDriftReport.Drift drift : report.getDrifts()) {
+            saveCover(drift.getProductId(), drift.getExpectedUrl());
+        }
+        logger.info("封面图回填完成：检查 {} 个商品，更新 {} 个", report.getCheckedCount(), report.getDrifts().size());
+        return report.getDrifts().size();
+    }
+
+    /*
+     一致性检查（只读）
+     */
+    @Override
+    public CoverDriftReport checkConsistency() {
+        CoverDriftReport report = scan();
+        if (!report.getDrifts().isEmpty()) {
+            logger.warn("封面图不一致：检查 {} 个商品，发现 {} 个漂移", report.getCheckedCount(), report.getDrifts().size());
+        }
+        return report;
+    }
+
+    // 按 ID 分批扫描商品，每批用一次集合查询计算期望的封面图，并与已保存的值比较
+    private CoverDriftReport scan() {
+        CoverDriftReport report = new CoverDriftReport();
+        long lastId = 0L;
+        while (true) {
+            List<Product> batch = productMapper.selectList(
+                    Wrappers.<Product>lambdaQuery()
+                            .select(Product::getId, Product::getCoverImageUrl)
+                            .gt(Product::getId, lastId)
+                            .orderByAsc(Product::getId)
+                            .last("LIMIT " + SCAN_BATCH_SIZE)
+            );
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = batch.stream().map(Product::getId).collect(Collectors.toList());
+            Map<Long, String> expected = new HashMap<>();
+            for (ProductMedia media : productMediaMapper.selectCoverImages(ids)) {
+                expected.putIfAbsent(media.getProductId(), media.getUrl());
+            }
+
+            for (Product product : batch) {
+                String expectedUrl = expected.get(product.getId());
+                if (!Objects.equals(product.getCoverImageUrl(), expectedUrl)) {
+                    report.getDrifts().add(new CoverDriftReport.Drift(product.getId(), product.getCoverImageUrl(), expectedUrl));
+                }
+            }
+
+            report.setCheckedCount(report.getCheckedCount() + batch.size());
+            lastId = batch.get(batch.size() - 1).getId();
+            if (batch.size() < SCAN_BATCH_SIZE) {
+                break;
+            }
+        }
+        return report;
+    }
+
+    // 只更新 cover_image_url 一列；更新成功后重新读取该商品并发布 UPDATED 事件
+    private void saveCover(Long productId, String url) {
+        int updated = productMapper.update(null, Wrappers.<Product>lambdaUpdate()
+                .set(Product::getCoverImageUrl, url)
+                .eq(Product::getId, productId));
+        if (updated > 0) {
+            Product product = productMapper.selectById(productId);
+            if (product != null) {
+                eventPublisher.publishEvent(ProductChangedEvent.updated(product));
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.constant.DuplicateCheckMode;
+import com.nusiss.productservice.dto.DuplicateCandidate;
+import com.nusiss.productservice.dto.DuplicateGroup;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.MinHashLsh;
+import com.nusiss.productservice.index.ProductIndexMaintainer;
+import com.nusiss.productservice.index.ProductShingler;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ 商品近重复检测：ProductShingler 把商品文本切成字符 shingle，MinHashLsh 计算签名并按 bands x rows 分段建立内存索引
+ - 重建与增量更新由 ProductIndexMaintainer 负责，新增的商品在 ProductChangedEvent 后进入索引
+ - 新增商品时只查询同桶的商品并用完整签名核实，不与全部商品逐一比较
+ - 全量扫描同样只比较同桶的商品对，相似的商品对用并查集合并成组
+ 索引规模记录在 product.duplicates.products；标记 / 拒绝次数记录在 product.duplicates.flagged / product.duplicates.rejected，
+ 全量扫描耗时记录在 product.duplicates.scan
+ */
+@Service
+public class ProductDuplicateServiceImpl extends ProductIndexMaintainer<MinHashLsh> implements ProductDuplicateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductDuplicateServiceImpl.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.duplicates.bands:20}")
+    private int bands = 20;
+
+    @Value("${product.duplicates.rows:5}")
+    private int rows = 5;
+
+    @Value("${product.duplicates.shingle-size:3}")
+    private int shingleSize = 3;
+
+    @Value("${product.duplicates.min-similarity:0.8}")
+    private double minSimilarity = 0.8; // 估算相似度达到该值才视为疑似重复
+
+    @Value("${product.duplicates.on-create:FLAG}")
+    private DuplicateCheckMode onCreate = DuplicateCheckMode.FLAG;
+
+    @Value("${product.duplicates.max-results:20}")
+    private int maxResults = 20;
+
+    @Value("${product.duplicates.max-groups:1000}")
+    private int maxGroups = 1000;
+
+    private ProductShingler shingler;
+    private Counter flagged;
+    private Counter rejected;
+    private Timer scanTimer;
+
+    @PostConstruct
+    public void init() {
+        shingler = new ProductShingler(shingleSize);
+        flagged = Counter.builder("product.duplicates.flagged")
+                .description("New products flagged as likely duplicates")
+                .register(meterRegistry);
+        rejected = Counter.builder("product.duplicates.rejected")
+                .description("New products rejected as likely duplicates")
+                .register(meterRegistry);
+        scanTimer = Timer.builder("product.duplicates.scan")
+                .description("Full-catalog near-duplicate scan time")
+                .register(meterRegistry);
+        Gauge.builder("product.duplicates.products", this, s -> s.current() == null ? 0 : s.current().size())
+                .description("Products in the near-duplicate index")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Long> checkNewProduct(Product product) {
+        MinHashLsh index = current();
+        if (onCreate == DuplicateCheckMode.OFF || index == null) {
+            return new ArrayList<>();
+        }
+        int[] signature = index.signature(shingler.shingles(product));
+        if (signature == null) {
+            return new ArrayList<>();
+        }
+        long self = product.getId() != null ? product.getId() : Long.MIN_VALUE;
+        List<MinHashLsh.Candidate> candidates = index.query(signature, minSimilarity, self);
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MinHashLsh.Candidate best = candidates.get(0);
+        if (onCreate == DuplicateCheckMode.REJECT) {
+            rejected.increment();
+            throw new CustomException("Product looks like a duplicate of product " + best.id());
+        }
+        flagged.increment();
+        logger.info("新商品 \"{}\" 与 {} 个已有商品疑似重复，最相似的是商品 {}（{}）",
+                product.getName(), candidates.size(), best.id(), best.similarity());
+        List<Long> ids = new ArrayList<>();
+        for (MinHashLsh.Candidate candidate : candidates.subList(0, Math.min(candidates.size(), maxResults))) {
+            ids.add(candidate.id());
+        }
+        return ids;
+    }
+
+    @Override
+    public List<DuplicateCandidate> getDuplicatesOf(Long productId, int limit) {
+        MinHashLsh index = readyIndex();
+        List<DuplicateCandidate> result = new ArrayList<>();
+        int[] signature = productId == null ? null : index.signatureOf(productId);
+        if (signature == null || limit <= 0) {
+            return result;
+        }
+        for (MinHashLsh.Candidate candidate : index.query(signature, minSimilarity, productId)) {
+            if (result.size() >= Math.min(limit, maxResults)) {
+                break;
+            }
+            result.add(new DuplicateCandidate(candidate.id(), candidate.similarity()));
+        }
+        return result;
+    }
+
+    @Override
+    public List<DuplicateGroup> scanDuplicates(Double minSimilarity) {
+        double threshold = minSimilarity != null ? minSimilarity : this.minSimilarity;
+        if (threshold <= 0 || threshold > 1) {
+            throw new CustomException("minSimilarity must be in (0, 1]: " + minSimilarity);
+        }
+        MinHashLsh index = readyIndex();
+        long start = System.nanoTime();
+
+        // 并查集：商品 -> 父节点；根节点 -> 组内相似商品对的最低相似度
+        Map<Long, Long> parent = new HashMap<>();
+        Map<Long, Double> weakest = new HashMap<>();
+        index.forEachPair(threshold, (a, b, similarity) -> {
+            long rootA = find(parent, a);
+            long rootB = find(parent, b);
+            double min = Math.min(similarity, Math.min(
+                    weakest.getOrDefault(rootA, 1.0), weakest.getOrDefault(rootB, 1.0)));
+            if (rootA != rootB) {
+                parent.put(rootB, rootA);
+                weakest.remove(rootB);
+            }
+            weakest.put(rootA, min);
+        });
+
+        Map<Long, List<Long>> members = new HashMap<>();
+        for (Long id : parent.keySet()) {
+            members.computeIfAbsent(find(parent, id), k -> new ArrayList<>()).add(id);
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (Map.Entry<Long, List<Long>> entry : members.entrySet()) {
+            List<Long> ids = entry.getValue();
+            Collections.sort(ids);
+            groups.add(new DuplicateGroup(ids, weakest.get(entry.getKey())));
+        }
+        groups.sort((x, y) -> x.getProductIds().size() != y.getProductIds().size()
+                ? Integer.compare(y.getProductIds().size(), x.getProductIds().size())
+                : Long.compare(x.getProductIds().get(0), y.getProductIds().get(0)));
+        scanTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.info("近重复扫描完成：{} 个商品中发现 {} 组疑似重复", index.size(), groups.size());
+        return groups.size() > maxGroups ? new ArrayList<>(groups.subList(0, maxGroups)) : groups;
+    }
+
+    // 并查集查找（路径压缩）；首次出现的商品自成一组
+    private static long find(Map<Long, Long> parent, long id) {
+        long root = id;
+        Long p;
+        while ((p = parent.get(root)) != null && p != root) {
+            root = p;
+        }
+        parent.putIfAbsent(id, id);
+        long node = id;
+        while (node != root) {
+            long next = parent.get(node);
+            parent.put(node, root);
+            node = next;
+        }
+        return root;
+    }
+
+    private MinHashLsh readyIndex() {
+        MinHashLsh index = current();
+        if (index == null) {
+            throw new ServiceBusyException("Duplicate index is still loading, please retry later", 5);
+        }
+        return index;
+    }
+
+    @Override
+    protected MinHashLsh newIndex() {
+        return new MinHashLsh(bands, rows, 42);
+    }
+
+    @Override
+    protected void put(MinHashLsh index, Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        index.put(product.getId(), index.signature(shingler.shingles(product))); // 没有文本时签名为 null，从索引中删除
+    }
+
+    @Override
+    protected void remove(MinHashLsh index, Long productId) {
+        index.remove(productId);
+    }
+}
@@ -0,0 +1,106 @@
+package com.nusiss.productservice.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.service.ProductExportService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Semaphore;
+
+/*
+ ProductExportService 实现类
+ - 通过 ProductMapper.scanInBatches 按 id 分批读取（每批 batch-size 行），逐行序列化写出，不在内存中保留已写出的批次
+ - 不开启事务、不使用服务端游标：每批查询只短暂借用一个连接，写给客户端时不占用连接池，
+   也不受 MySQL net_write_timeout 的限制（慢客户端不会让数据库中途断开结果集）
+ - 背压：写入 Servlet 输出流是阻塞的，客户端读得慢时 write 会阻塞，也就不会继续读取下一批
+ - 同时进行的导出最多 max-concurrent 个（每个导出占用一个 Tomcat 线程），已满时返回 429
+ 分批读取不是一致性快照：导出期间新增的商品 id 较大时会被导出，已导出部分的修改不会反映
+ */
+@Service
+public class ProductExportServiceImpl implements ProductExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductExportServiceImpl.class);
+
+    // 每写出多少行主动 flush 一次，让客户端尽快收到数据
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${product.export.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${product.export.max-concurrent:4}")
+    private int maxConcurrent = 4;
+
+    @Value("${product.export.retry-after-seconds:30}")
+    private long retryAfterSeconds = 30;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    public long exportNdjson(OutputStreamOpener opener) throws IOException {
+        if (!permits.tryAcquire()) {
+            throw new ServiceBusyException("Too many catalog exports in progress, please retry later", retryAfterSeconds);
+        }
+        try (OutputStream out = opener.open()) {
+            return export(out);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private long export(OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long rows;
+        // 默认每写一个值就 flush 一次，这里关闭，改为每 FLUSH_EVERY_ROWS 行 flush
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // 输出流由 exportNdjson 关闭
+            generator.setRootValueSeparator(null);
+            long[] written = {0};
+            try {
+                productMapper.scanInBatches(batchSize, batch -> {
+                    try {
+                        for (Product product : batch) {
+                            writer.writeValue(generator, product);
+                            generator.writeRaw('\n');
+                            if (++written[0] % FLUSH_EVERY_ROWS == 0) {
+                                generator.flush();
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // 客户端断开等写出错误
+            }
+            rows = written[0];
+            generator.flush();
+        }
+        logger.info("商品导出完成：{} 条，耗时 {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+}
@@ -4,19 +4,48 @@ package com.nusiss.productservice.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.nusiss.productservice.config.CustomException;
 import com.nusiss.productservice.dao.ProductFeedbackMapper;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.FeedbackAnalytics;
+import com.nusiss.productservice.dto.RatingSummary;
+import com.nusiss.productservice.dto.VersionStamp;
+import com.nusiss.productservice.entity.Product;
 import com.nusiss.productservice.entity.ProductFeedback;
+import com.nusiss.productservice.entity.ProductRatingSummary;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.index.FeedbackTimeSeries;
 import com.nusiss.productservice.service.ProductFeedbackService;
+import com.nusiss.productservice.util.KeysetCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /*
  ProductFeedbackService 实现类，负责处理产品反馈的具体业务逻辑
+ 新增 / 修改反馈前先筛查评论（FeedbackContentFilter）
+ 写反馈和更新评分汇总（ProductRatingAggregator）在同一个事务中完成，提交后再发布变更事件
+ 启用写缓冲（FeedbackWriteBehindBuffer）时，新增反馈先进入缓冲立即返回，由后台线程批量写入
  */
 @Service
 public class ProductFeedbackServiceImpl implements ProductFeedbackService {
@@ -24,6 +53,51 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
     @Autowired
     private ProductFeedbackMapper productFeedbackMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 发布反馈变更事件，驱动反馈列表的 ETag 更新
+
+    @Autowired
+    private ResourceVersionRegistry versionRegistry; // 条件请求使用的资源版本号
+
+    @Autowired
+    private ProductRatingAggregator ratingAggregator; // 商品评分汇总（评论数、平均评分、星级分布）
+
+    @Autowired
+    private ProductMapper productMapper; // 评分变化后读取商品，发布商品变更事件
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FeedbackWriteBehindBuffer writeBehindBuffer; // 新增反馈的写缓冲（默认关闭）
+
+    @Autowired
+    private FeedbackAnalyticsStore analyticsStore; // 按天 / 按月的反馈时间序列
+
+    @Autowired
+    private FeedbackContentFilter contentFilter; // 评论违禁短语筛查
+
+    @Value("${product.feedback.analytics.windows:7,30}")
+    private int[] analyticsWindows = {7, 30}; // 反馈分析返回的最近 N 天窗口
+
+    @Value("${product.feedback.summary-max-ids:500}")
+    private int summaryMaxIds = 500; // 批量评分摘要单次最多查询的商品数
+
+    @PostConstruct
+    public void init() {
+        if (writeBehindBuffer.isEnabled()) {
+            writeBehindBuffer.open(this::insertBatch);
+        }
+    }
+
+    // 在本服务依赖的 Mapper / 事务管理器销毁之前写完缓冲中的反馈
+    @PreDestroy
+    public void shutdown() {
+        if (writeBehindBuffer.isEnabled()) {
+            writeBehindBuffer.close();
+        }
+    }
+
     /*
      创建新的产品反馈
      @param feedback 用户提交的反馈对象
@@ -31,10 +105,43 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
      */
     @Override
     public ProductFeedback createFeedback(ProductFeedback feedback) {
-        productFeedbackMapper.insert(feedback);
+        contentFilter.check(feedback.getComment());
+        if (feedback.getCreateDatetime() == null) { // 按创建日期计入按天统计桶
+            feedback.setCreateDatetime(LocalDateTime.now());
+        }
+        if (writeBehindBuffer.isEnabled()) {
+            return writeBehindBuffer.submit(feedback); // 返回分配的 ID，写入数据库后才发布变更事件
+        }
+        Set<Long> rated = transactionTemplate.execute(status -> {
+            productFeedbackMapper.insert(feedback);
+            return ratingAggregator.onCreated(feedback);
+        });
+        publishChanges(Collections.singleton(feedback.getProductId()), rated);
         return feedback;
     }
 
+    /*
+     写缓冲的批量写入：一个事务中 JDBC 批量插入并合并更新评分汇总，提交后发布变更事件
+     @param replayed 批中有从磁盘日志恢复的反馈，先跳过上次运行中已经写入的 ID
+     */
+    private void insertBatch(List<ProductFeedback> batch, boolean replayed) {
+        List<ProductFeedback> rows = batch;
+        if (replayed) {
+            Set<Long> existing = productFeedbackMapper.selectBatchIds(batch.stream().map(ProductFeedback::getId).toList())
+                    .stream().map(ProductFeedback::getId).collect(Collectors.toSet());
+            rows = batch.stream().filter(feedback -> !existing.contains(feedback.getId())).toList();
+            if (rows.isEmpty()) {
+                return;
+            }
+        }
+        List<ProductFeedback> inserted = rows;
+        Set<Long> rated = transactionTemplate.execute(status -> {
+            productFeedbackMapper.insert(inserted, inserted.size());
+            return ratingAggregator.onCreated(inserted);
+        });
+        publishChanges(inserted.stream().map(ProductFeedback::getProductId).collect(Collectors.toCollection(LinkedHashSet::new)), rated);
+    }
+
     /*
      根据反馈 ID 获取反馈详情
      @param id 反馈主键
@@ -73,7 +180,26 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
      */
     @Override
     public boolean updateFeedback(ProductFeedback feedback) {
-        return productFeedbackMapper.updateById(feedback) > 0;
+        contentFilter.check(feedback.getComment()); // 没有带评论时保持原评论，不需要检查
+        Set<Long> affected = new LinkedHashSet<>(); // 反馈列表发生变化的商品（反馈改挂到其他商品时为两个）
+        Set<Long> rated = transactionTemplate.execute(status -> {
+            ProductFeedback existing = productFeedbackMapper.selectByIdForUpdate(feedback.getId()); // 按修改前的值计算汇总变化量
+            if (existing == null || productFeedbackMapper.updateById(feedback) <= 0) {
+                return null;
+            }
+            ProductFeedback updated = new ProductFeedback(); // updateById 不更新 null 字段，没有带的字段保持原值
+            updated.setProductId(feedback.getProductId() != null ? feedback.getProductId() : existing.getProductId());
+            updated.setRating(feedback.getRating() != null ? feedback.getRating() : existing.getRating());
+            updated.setCreateDatetime(feedback.getCreateDatetime() != null ? feedback.getCreateDatetime() : existing.getCreateDatetime());
+            affected.add(existing.getProductId());
+            affected.add(updated.getProductId());
+            return ratingAggregator.onUpdated(existing, updated);
+        });
+        if (rated == null) {
+            return false;
+        }
+        publishChanges(affected, rated);
+        return true;
     }
 
     /*
@@ -83,28 +209,46 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
      */
     @Override
     public boolean deleteFeedback(Long id) {
-        return productFeedbackMapper.deleteById(id) > 0;
+        ProductFeedback[] deleted = new ProductFeedback[1];
+        Set<Long> rated = transactionTemplate.execute(status -> {
+            ProductFeedback existing = productFeedbackMapper.selectByIdForUpdate(id); // 删除前记下所属商品和评分
+            if (existing == null || productFeedbackMapper.deleteById(id) <= 0) {
+                return null;
+            }
+            deleted[0] = existing;
+            return ratingAggregator.onDeleted(existing);
+        });
+        if (rated == null) {
+            return false;
+        }
+        publishChanges(Collections.singleton(deleted[0].getProductId()), rated);
+        return true;
+    }
+
+    /*
+     事务提交后发布事件：反馈列表变化的商品发布 FeedbackChangedEvent；
+     评分变化的商品（Products.rating 已同步）发布商品修改事件，刷新商品缓存、排行榜和其他实例
+     */
+    private void publishChanges(Collection<Long> feedbackProductIds, Collection<Long> ratedProductIds) {
+        for (Long productId : feedbackProductIds) {
+            eventPublisher.publishEvent(new FeedbackChangedEvent(productId));
+        }
+        for (Long productId : ratedProductIds) {
+            Product product = productMapper.selectById(productId);
+            if (product != null) {
+                eventPublisher.publishEvent(ProductChangedEvent.updated(product));
+            }
+        }
     }
 
     /*
      扩展功能1 ：获取某个产品的平均评分
+     直接读取评分汇总行（主键查询），不再加载该商品的全部反馈
      */
     @Override
     public Double getAverageRatingByProductId(Long productId) {
-        // 使用 MyBatis Plus 提供的 lambdaQuery 构建查询条件
-        List<ProductFeedback> feedbackList = productFeedbackMapper
-                .selectList(Wrappers.<ProductFeedback>lambdaQuery()
-                        .eq(ProductFeedback::getProductId, productId)
-                        .isNotNull(ProductFeedback::getRating)); // 过滤掉空评分记录
-
-        if (feedbackList == null || feedbackList.isEmpty()) {
-            return null; // 如果没有评分记录，返回 null
-        }
-        // 计算平均值
-        double sum = feedbackList.stream()
-                .mapToDouble(ProductFeedback::getRating)
-                .sum();
-        return sum / feedbackList.size();
+        ProductRatingSummary summary = ratingAggregator.getSummary(productId);
+        return summary == null ? null : summary.getAverageRating(); // 没有评分记录时返回 null
     }
 
     /*
@@ -112,12 +256,66 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
      */
     @Override
     public int getCommentCountByProductId(Long productId) {
-        // 统计该产品的反馈总数（即评论数）
-        return productFeedbackMapper.selectCount(
-                Wrappers.<ProductFeedback>lambdaQuery()
-                        .eq(ProductFeedback::getProductId, productId)
-        ).intValue();
+        // 评论数即该产品的反馈总数，由评分汇总维护
+        ProductRatingSummary summary = ratingAggregator.getSummary(productId);
+        return summary == null || summary.getFeedbackCount() == null ? 0 : summary.getFeedbackCount().intValue();
+    }
 
+    /*
+     批量获取商品的评分摘要：去重后一次主键 IN 查询评分汇总表
+     */
+    @Override
+    public List<RatingSummary> getRatingSummaries(List<Long> productIds) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+        if (ids.size() > summaryMaxIds) {
+            throw new CustomException("Rating summary request exceeds the limit of " + summaryMaxIds + " products");
+        }
+        Map<Long, ProductRatingSummary> summaries = new HashMap<>();
+        for (ProductRatingSummary summary : ratingAggregator.getSummaries(ids)) {
+            summaries.put(summary.getProductId(), summary);
+        }
+        List<RatingSummary> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(RatingSummary.of(id, summaries.get(id)));
+        }
+        return result;
+    }
+
+    /*
+     商品反馈分析：全部反馈的分布读评分汇总行，窗口和序列读缓存的时间序列（前缀和数组）
+     */
+    @Override
+    public FeedbackAnalytics getFeedbackAnalytics(Long productId, int days, int months) {
+        FeedbackTimeSeries series = analyticsStore.get(productId);
+        LocalDate today = series.lastDay();
+        FeedbackAnalytics analytics = new FeedbackAnalytics();
+        analytics.setProductId(productId);
+        analytics.setAllTime(RatingSummary.of(productId, ratingAggregator.getSummary(productId)));
+        for (int window : analyticsWindows) {
+            int n = Math.min(window, series.days());
+            analytics.getWindows().add(window(today.minusDays(n - 1), today, series.lastDays(n)));
+        }
+        long[] dailyCounts = series.dailyCounts(days);
+        analytics.setDailyFrom(today.minusDays(dailyCounts.length - 1));
+        analytics.setDailyCounts(dailyCounts);
+        for (int ago = Math.max(1, Math.min(months, series.months())) - 1; ago >= 0; ago--) {
+            LocalDate first = series.lastMonth().minusMonths(ago).atDay(1);
+            LocalDate last = ago == 0 ? today : first.plusMonths(1).minusDays(1);
+            analytics.getMonths().add(window(first, last, series.month(ago)));
+        }
+        return analytics;
+    }
+
+    private static FeedbackAnalytics.Window window(LocalDate from, LocalDate to, FeedbackTimeSeries.Totals totals) {
+        FeedbackAnalytics.Window window = new FeedbackAnalytics.Window();
+        window.setFrom(from);
+        window.setTo(to);
+        window.setCommentCount(totals.feedbackCount());
+        window.setRatingCount(totals.ratingCount());
+        window.setAverageRating(totals.averageRating());
+        window.setStarCounts(totals.starCounts());
+        return window;
     }
 
     /*
@@ -143,13 +341,15 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
         // 根据 sortBy 和 order 参数设置排序规则
         if (sortBy != null && !sortBy.isEmpty()) {
             boolean isAsc = "asc".equalsIgnoreCase(order); // 判断 order 是否为 asc 大小写不敏感
-            // 支持的排序字段
+            // 支持的排序字段；id 作为决胜键，排序与 (product_id, 排序列, id) 索引一致，不需要 filesort
             switch (sortBy) {
                 case "rating": // 按评分排序
                     wrapper.orderBy(true, isAsc, ProductFeedback::getRating); // 如果 order 为 asc，则按照升序排序。
+                    wrapper.orderBy(true, isAsc, ProductFeedback::getId);
                     break;
                 case "create_datetime": // 按创建时间排序
                     wrapper.orderBy(true, isAsc, ProductFeedback::getCreateDatetime); // 如果 order 为 asc，则按照升序排序。
+                    wrapper.orderBy(true, isAsc, ProductFeedback::getId);
                     break;
                 default:
                     // 如果传了非法字段，可以不排序或抛异常/警告（这里默认不排序）
@@ -159,5 +359,88 @@ public class ProductFeedbackServiceImpl implements ProductFeedbackService {
 
         return productFeedbackMapper.selectPage(pageRequest, wrapper);
     }
-}
 
+    // 游标分页允许的排序字段（数据库列名），每个都有对应的 (product_id, 排序列, id) 索引
+    private static final List<String> CURSOR_SORT_COLUMNS = List.of("id", "rating", "create_datetime");
+
+    // 游标分页每页最大条数
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /*
+     游标分页：WHERE product_id = ? AND (排序值, id) 在游标之后 ORDER BY 排序值, id LIMIT size + 1
+     沿 (product_id, 排序列, id) 索引定位到游标位置后顺序读取，不跳过前面的行，也不执行 COUNT
+     */
+    @Override
+    public CursorPage<ProductFeedback> getFeedbackByProductIdWithCursor(Long productId, String sortBy, String order,
+                                                                        String cursor, int size) {
+        boolean sorted = sortBy != null && !sortBy.isEmpty();
+        String column = sorted ? sortBy : "id";
+        if (!CURSOR_SORT_COLUMNS.contains(column)) {
+            throw new CustomException("Unsupported sort field for cursor paging: " + sortBy);
+        }
+        // 与分页版本保持一致：指定排序字段时只有 asc 为升序；未指定时按 id 升序
+        boolean asc = sorted ? "asc".equalsIgnoreCase(order) : !"desc".equalsIgnoreCase(order);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+
+        QueryWrapper<ProductFeedback> wrapper = new QueryWrapper<>();
+        wrapper.eq("product_id", productId);
+
+        KeysetCursor previous = KeysetCursor.decode(cursor);
+        if (previous != null) {
+            previous.checkMatches(column, asc);
+            previous.applySeek(wrapper, column, parseSortValue(column, previous.getLastValue()));
+        }
+        KeysetCursor.applyOrder(wrapper, column, asc);
+        wrapper.last("LIMIT " + (pageSize + 1)); // 多取一条用于判断是否还有下一页
+
+        List<ProductFeedback> rows = productFeedbackMapper.selectList(wrapper);
+        boolean hasNext = rows.size() > pageSize;
+        List<ProductFeedback> records = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            ProductFeedback last = records.get(records.size() - 1);
+            nextCursor = new KeysetCursor(column, asc, sortValueOf(last, column), last.getId()).encode();
+        }
+        return new CursorPage<>(records, pageSize, hasNext, nextCursor);
+    }
+
+    // 读取反馈在某个排序列上的值
+    private Object sortValueOf(ProductFeedback feedback, String column) {
+        switch (column) {
+            case "rating":
+                return feedback.getRating();
+            case "create_datetime":
+                return feedback.getCreateDatetime();
+            default:
+                return feedback.getId();
+        }
+    }
+
+    // 把游标中的字符串排序值转换回列类型
+    private Object parseSortValue(String column, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            switch (column) {
+                case "rating":
+                    return Integer.valueOf(value);
+                case "create_datetime":
+                    return LocalDateTime.parse(value);
+                default:
+                    return Long.valueOf(value);
+            }
+        } catch (RuntimeException e) {
+            throw new CustomException("Invalid cursor");
+        }
+    }
+
+    /*
+     某个产品反馈列表的版本戳（内存中的版本号，不查询数据库）
+     */
+    @Override
+    public VersionStamp getFeedbackStamp(Long productId) {
+        return versionRegistry.feedbackStamp(productId);
+    }
+}
@@ -0,0 +1,143 @@
+package com.nusiss.productservice.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.CategoryLeaderboard;
+import com.nusiss.productservice.index.ProductIndexMaintainer;
+import com.nusiss.productservice.service.ProductLeaderboardService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ 分类排行榜（同分类评分最高 / 最新的商品），替代每次请求都执行的 ORDER BY rating DESC LIMIT n；
+ 不指定分类时合并各分类的榜单（用于订单服务不可用时的推荐兜底）
+ - 每个分类、每种排序只在内存中保留前 product.leaderboard.size 个商品，查询为 O(K)
+ - 重建与增量更新由 ProductIndexMaintainer 负责（商品评分、分类、状态变化都会发布 ProductChangedEvent）
+ - 删除或降分使榜单可信部分不足时，按同样的排序从数据库读取前 size + 1 个补齐；
+   索引未就绪、limit 超过 size 或补齐期间有并发变更时直接查询数据库
+ 命中情况记录在指标 product.leaderboard.requests（tag result=hit / refill / database）
+ */
+@Service
+public class ProductLeaderboardServiceImpl extends ProductIndexMaintainer<CategoryLeaderboard> implements ProductLeaderboardService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.leaderboard.size:50}")
+    private int size = 50;
+
+    @Value("${product.leaderboard.excluded-statuses:}")
+    private String[] excludedStatuses = {};
+
+    private Counter hits;
+    private Counter refills;
+    private Counter databaseQueries;
+
+    @PostConstruct
+    public void registerMetrics() {
+        hits = requestCounter("hit");
+        refills = requestCounter("refill");
+        databaseQueries = requestCounter("database");
+        Gauge.builder("product.leaderboard.products", this,
+                        s -> s.current() == null ? 0 : s.current().heldCount())
+                .description("Products held in the per-category leaderboards")
+                .register(meterRegistry);
+    }
+
+    private Counter requestCounter(String result) {
+        return Counter.builder("product.leaderboard.requests")
+                .description("Leaderboard lookups by how they were answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Product> getTopProducts(String category, LeaderboardRanking ranking, int limit, Collection<Long> excludeIds) {
+        if (limit <= 0 || (category != null && !StringUtils.hasText(category))) {
+            return new ArrayList<>();
+        }
+        CategoryLeaderboard board = current();
+        if (board == null || limit > board.capacity()) {
+            databaseQueries.increment();
+            return selectTop(category, ranking, limit, excludeIds);
+        }
+        List<Product> result = category == null
+                ? board.topAcrossCategories(ranking, limit, excludeIds)
+                : board.top(category, ranking, limit, excludeIds);
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        if (category == null) { // 跨分类时不做补齐，直接查询数据库
+            databaseQueries.increment();
+            return selectTop(null, ranking, limit, excludeIds);
+        }
+        // 可信部分不足：从数据库补齐整个榜单，再从内存中读取
+        long modCount = board.modCount();
+        List<Product> rows = selectTop(category, ranking, board.capacity() + 1, null);
+        if (board.load(category, ranking, rows, modCount)) {
+            result = board.top(category, ranking, limit, excludeIds);
+            if (result != null) {
+                refills.increment();
+                return result;
+            }
+        }
+        databaseQueries.increment();
+        return selectTop(category, ranking, limit, excludeIds);
+    }
+
+    // 数据库查询，排序与 CategoryLeaderboard 一致（MySQL 降序时 NULL 排在最后）
+    private List<Product> selectTop(String category, LeaderboardRanking ranking, int limit, Collection<Long> excludeIds) {
+        QueryWrapper<Product> query = new QueryWrapper<>();
+        query.eq(category != null, "category", category);
+        if (excludeIds != null && !excludeIds.isEmpty()) {
+            query.notIn("id", excludeIds);
+        }
+        List<String> statuses = excludedStatuses();
+        if (!statuses.isEmpty()) {
+            query.and(w -> w.isNull("status").or().notIn("status", statuses));
+        }
+        if (ranking == LeaderboardRanking.NEWEST) {
+            query.orderByDesc("create_datetime").orderByDesc("id");
+        } else {
+            query.orderByDesc("rating").orderByAsc("id");
+        }
+        query.last("LIMIT " + limit);
+        return productMapper.selectList(query);
+    }
+
+    private List<String> excludedStatuses() {
+        return Arrays.stream(excludedStatuses)
+                .filter(StringUtils::hasText)
+                .map(String::trim)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected CategoryLeaderboard newIndex() {
+        return new CategoryLeaderboard(size, excludedStatuses());
+    }
+
+    @Override
+    protected void put(CategoryLeaderboard index, Product product) {
+        index.put(product);
+    }
+
+    @Override
+    protected void remove(CategoryLeaderboard index, Long productId) {
+        index.remove(productId);
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.nusiss.productservice.entity.ProductMedia;
 import com.nusiss.productservice.dao.ProductMediaMapper;
+import com.nusiss.productservice.service.ProductCoverService;
 import com.nusiss.productservice.service.ProductMediaService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,6 +21,9 @@ public class ProductMediaServiceImpl implements ProductMediaService {
     @Autowired
     private ProductMediaMapper productMediaMapper;
 
+    @Autowired
+    private ProductCoverService productCoverService; // 媒体变更后同步维护商品封面图
+
     /*
      创建新的 ProductMedia 记录
      @param media ProductMedia 实体对象
@@ -28,7 +32,11 @@ public class ProductMediaServiceImpl implements ProductMediaService {
     @Override
     public ProductMedia createProductMedia(ProductMedia media) {
         int rows = productMediaMapper.insert(media);
-        return rows > 0 ? media : null;
+        if (rows <= 0) {
+            return null;
+        }
+        productCoverService.refreshCover(media.getProductId());
+        return media;
     }
 
     /*
@@ -69,7 +77,18 @@ public class ProductMediaServiceImpl implements ProductMediaService {
      */
     @Override
     public boolean updateProductMedia(ProductMedia media) {
-        return productMediaMapper.updateById(media) > 0;
+        // 先记录更新前所属的商品，媒体可能被改挂到其他商品上
+        ProductMedia before = media.getId() != null ? productMediaMapper.selectById(media.getId()) : null;
+
+        boolean updated = productMediaMapper.updateById(media) > 0;
+        if (updated) {
+            Long oldProductId = before != null ? before.getProductId() : null;
+            productCoverService.refreshCover(oldProductId);
+            if (media.getProductId() != null && !media.getProductId().equals(oldProductId)) {
+                productCoverService.refreshCover(media.getProductId());
+            }
+        }
+        return updated;
     }
 
     /*
@@ -105,8 +124,12 @@ public class ProductMediaServiceImpl implements ProductMediaService {
             System.err.println("警告：图片文件不存在，跳过删除：" + filePath);
         }
 
-        // 5. 删除数据库记录
-        return productMediaMapper.deleteById(id) > 0;
+        // 5. 删除数据库记录，并重新计算该商品的封面图
+        boolean deleted = productMediaMapper.deleteById(id) > 0;
+        if (deleted) {
+            productCoverService.refreshCover(media.getProductId());
+        }
+        return deleted;
     }
 
 }
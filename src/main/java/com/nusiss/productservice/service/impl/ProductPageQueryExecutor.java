@@ -0,0 +1,229 @@
+package com.nusiss.productservice.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+ 商品分页查询执行器：根据 CountMode 选择总数统计方式
+ MyBatis-Plus 的 selectPage 会先顺序执行一次 COUNT(*) 再查询当前页，
+ 这里把 COUNT 与分页查询拆开，以支持并行、缓存、估算或跳过统计。
+
+ 各模式的耗时通过 Micrometer 暴露：
+ - product.page.count{mode}：统计总数的耗时
+ - product.page.query{mode}：整次分页查询（含统计）的耗时
+ 可通过 /actuator/metrics/product.page.count?tag=mode:PARALLEL 查看
+ */
+@Component
+public class ProductPageQueryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductPageQueryExecutor.class);
+
+    // 缓存的筛选条件数量上限，超过后先清理过期项，仍超过则整体清空
+    private static final int MAX_CACHED_COUNTS = 10_000;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.page.count-cache-ttl-ms:30000}")
+    private long countCacheTtlMillis;
+
+    // 并行 COUNT 使用的有界线程池，队列满时由调用线程自己执行（退化为顺序执行）
+    private final ThreadPoolExecutor countExecutor = new ThreadPoolExecutor(
+            2, 8, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(200),
+            namedThreadFactory("product-count-"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    // 规范化筛选条件 -> 缓存的总数
+    private final Map<String, CachedCount> countCache = new ConcurrentHashMap<>();
+
+    /*
+     执行分页查询
+     @param filterSupplier 每次调用返回一个新的筛选条件（不含排序），COUNT 与分页查询各自使用一份
+     @param sortApplier    在分页查询的条件上追加排序
+     @param filterKey      规范化后的筛选条件，用作 CACHED 模式的缓存键
+     @param page           当前页码（从 1 开始）
+     @param size           每页条数
+     @param mode           统计方式
+     */
+    public CountedPage<Product> execute(Supplier<QueryWrapper<Product>> filterSupplier,
+                                        Consumer<QueryWrapper<Product>> sortApplier,
+                                        String filterKey, long page, long size, CountMode mode) {
+        long current = Math.max(1, page);
+        long pageSize = Math.max(1, size);
+        long offset = (current - 1) * pageSize;
+        long start = System.nanoTime();
+
+        CountedPage<Product> result = new CountedPage<>();
+        result.setCurrent(current);
+        result.setSize(pageSize);
+        result.setCountMode(mode);
+
+        if (mode == CountMode.NONE) {
+            // 多取一条判断是否有下一页，不执行 COUNT
+            QueryWrapper<Product> wrapper = filterSupplier.get();
+            sortApplier.accept(wrapper);
+            wrapper.last("LIMIT " + offset + ", " + (pageSize + 1));
+            List<Product> rows = productMapper.selectList(wrapper);
+            boolean hasNext = rows.size() > pageSize;
+            result.setRecords(hasNext ? new ArrayList<>(rows.subList(0, (int) pageSize)) : rows);
+            result.setHasNext(hasNext);
+            record(mode, start);
+            return result;
+        }
+
+        CompletableFuture<Long> parallelCount = null;
+        if (mode == CountMode.PARALLEL) {
+            QueryWrapper<Product> countWrapper = filterSupplier.get();
+            parallelCount = CompletableFuture.supplyAsync(() -> timedCount(countWrapper, mode, result), countExecutor);
+        }
+
+        List<Product> records = selectPageRecords(filterSupplier, sortApplier, current, pageSize);
+        result.setRecords(records);
+
+        long total;
+        if (parallelCount != null) {
+            total = parallelCount.join();
+        } else if (records.size() < pageSize && (!records.isEmpty() || current == 1)) {
+            // 当前页未填满，说明已经是最后一页，总数可直接算出，无需 COUNT
+            total = offset + records.size();
+        } else {
+            long countStart = System.nanoTime();
+            switch (mode) {
+                case CACHED:
+                    total = cachedCount(filterSupplier, filterKey);
+                    break;
+                case ESTIMATED:
+                    total = Math.max(estimatedCount(filterSupplier.get()), offset + records.size());
+                    result.setTotalEstimated(true);
+                    break;
+                default:
+                    total = productMapper.selectCount(filterSupplier.get());
+                    break;
+            }
+            result.setCountMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - countStart));
+            meterRegistry.timer("product.page.count", "mode", mode.name())
+                    .record(System.nanoTime() - countStart, TimeUnit.NANOSECONDS);
+        }
+
+        result.setTotal(total);
+        result.setHasNext(current * pageSize < total);
+        record(mode, start);
+        return result;
+    }
+
+    // 只查询当前页数据（关闭 MyBatis-Plus 自带的 COUNT）
+    private List<Product> selectPageRecords(Supplier<QueryWrapper<Product>> filterSupplier,
+                                            Consumer<QueryWrapper<Product>> sortApplier,
+                                            long current, long size) {
+        Page<Product> pageObj = new Page<>(current, size, false);
+        QueryWrapper<Product> wrapper = filterSupplier.get();
+        sortApplier.accept(wrapper);
+        return productMapper.selectPage(pageObj, wrapper).getRecords();
+    }
+
+    // 在 COUNT 线程中执行，耗时写入 result（join 之后对调用线程可见）
+    private long timedCount(QueryWrapper<Product> countWrapper, CountMode mode, CountedPage<Product> result) {
+        long start = System.nanoTime();
+        long total = productMapper.selectCount(countWrapper);
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("product.page.count", "mode", mode.name()).record(elapsed, TimeUnit.NANOSECONDS);
+        result.setCountMillis(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return total;
+    }
+
+    private long cachedCount(Supplier<QueryWrapper<Product>> filterSupplier, String filterKey) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = countCache.get(filterKey);
+        if (cached != null && cached.expiresAt > now) {
+            meterRegistry.counter("product.page.count.cache", "result", "hit").increment();
+            return cached.total;
+        }
+        meterRegistry.counter("product.page.count.cache", "result", "miss").increment();
+
+        long total = productMapper.selectCount(filterSupplier.get());
+        if (countCache.size() >= MAX_CACHED_COUNTS) {
+            countCache.values().removeIf(c -> c.expiresAt <= now);
+            if (countCache.size() >= MAX_CACHED_COUNTS) {
+                countCache.clear();
+            }
+        }
+        countCache.put(filterKey, new CachedCount(total, now + countCacheTtlMillis));
+        return total;
+    }
+
+    // 根据 EXPLAIN 的 rows * filtered / 100 估算匹配行数
+    private long estimatedCount(QueryWrapper<Product> filter) {
+        try {
+            List<Map<String, Object>> plan = productMapper.explainFilter(filter);
+            long estimate = 0;
+            for (Map<String, Object> row : plan) {
+                Object rows = row.get("rows");
+                Object filtered = row.get("filtered");
+                if (rows instanceof Number) {
+                    double ratio = filtered instanceof Number ? ((Number) filtered).doubleValue() / 100.0 : 1.0;
+                    estimate = Math.max(estimate, Math.round(((Number) rows).doubleValue() * ratio));
+                }
+            }
+            return estimate;
+        } catch (RuntimeException e) {
+            // 估算失败时退回精确统计
+            logger.warn("EXPLAIN 估算总数失败，改用 COUNT(*)：{}", e.getMessage());
+            return productMapper.selectCount(filter);
+        }
+    }
+
+    private void record(CountMode mode, long start) {
+        meterRegistry.timer("product.page.query", "mode", mode.name())
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        countExecutor.shutdown();
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class CachedCount {
+        private final long total;
+        private final long expiresAt;
+
+        private CachedCount(long total, long expiresAt) {
+            this.total = total;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductFeedbackBucketMapper;
+import com.nusiss.productservice.dao.ProductRatingSummaryMapper;
+import com.nusiss.productservice.entity.ProductFeedback;
+import com.nusiss.productservice.entity.ProductFeedbackBucket;
+import com.nusiss.productservice.entity.ProductRatingSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ 商品评分汇总（product_rating_summary）与按天统计桶（product_feedback_daily）的增量维护
+ - 反馈新增 / 修改 / 删除时计算每个受影响商品的变化量（反馈数、评分数、评分总和、星级分布），
+   用一条原子的 upsert 累加到汇总行，不再为了求平均评分加载全部反馈
+ - 同样的变化量累加到反馈创建当天的统计桶，供评分趋势查询（FeedbackAnalyticsStore）
+ - 评分有变化时同步 Products.rating 为新的平均评分
+ - 各方法必须在写反馈的同一个事务中调用，反馈和汇总一起提交或回滚
+ 评分不在 1-5 之间时计入评分数和总和，但不计入任何星级
+ */
+@Component
+public class ProductRatingAggregator {
+
+    @Autowired
+    private ProductRatingSummaryMapper summaryMapper;
+
+    @Autowired
+    private ProductFeedbackBucketMapper bucketMapper;
+
+    /*
+     新增反馈后调用
+     @return 评分发生变化（Products.rating 已同步）的商品 ID
+     */
+    public Set<Long> onCreated(ProductFeedback feedback) {
+        Deltas deltas = new Deltas();
+        contribute(deltas, feedback, 1);
+        return apply(deltas);
+    }
+
+    /*
+     批量新增反馈后调用，同一商品 / 同一天的变化量合并为一次 upsert
+     @return 评分发生变化的商品 ID
+     */
+    public Set<Long> onCreated(Collection<ProductFeedback> feedbackList) {
+        Deltas deltas = new Deltas();
+        for (ProductFeedback feedback : feedbackList) {
+            contribute(deltas, feedback, 1);
+        }
+        return apply(deltas);
+    }
+
+    /*
+     修改反馈后调用
+     @param before 修改前的反馈（加锁读取）
+     @param after 修改后的反馈（只用到 productId、rating 和 createDatetime）
+     @return 评分发生变化的商品 ID
+     */
+    public Set<Long> onUpdated(ProductFeedback before, ProductFeedback after) {
+        Deltas deltas = new Deltas();
+        contribute(deltas, before, -1);
+        contribute(deltas, after, 1);
+        return apply(deltas);
+    }
+
+    /*
+     删除反馈后调用
+     @return 评分发生变化的商品 ID
+     */
+    public Set<Long> onDeleted(ProductFeedback feedback) {
+        Deltas deltas = new Deltas();
+        contribute(deltas, feedback, -1);
+        return apply(deltas);
+    }
+
+    /*
+     查询商品的评分汇总（主键查询）
+     @return 汇总行，商品还没有任何反馈时为 null
+     */
+    public ProductRatingSummary getSummary(Long productId) {
+        return summaryMapper.selectById(productId);
+    }
+
+    /*
+     批量查询评分汇总（一次主键 IN 查询）
+     @return 存在汇总行的商品，没有反馈的商品不在结果中
+     */
+    public List<ProductRatingSummary> getSummaries(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return summaryMapper.selectBatchIds(productIds);
+    }
+
+    // 把一条反馈按 sign（+1 / -1）计入对应商品的变化量，以及它创建当天的统计桶
+    private static void contribute(Deltas deltas, ProductFeedback feedback, int sign) {
+        Long productId = feedback.getProductId();
+        if (productId == null) {
+            return;
+        }
+        deltas.summaries.computeIfAbsent(productId, id -> new Delta(id, null)).add(feedback.getRating(), sign);
+        if (feedback.getCreateDatetime() != null) { // 没有创建时间的历史反馈不在按天统计桶中
+            LocalDate day = feedback.getCreateDatetime().toLocalDate();
+            deltas.days.computeIfAbsent(productId, id -> new LinkedHashMap<>())
+                    .computeIfAbsent(day, d -> new Delta(productId, d))
+                    .add(feedback.getRating(), sign);
+        }
+    }
+
+    private Set<Long> apply(Deltas deltas) {
+        Set<Long> ratingChanged = new LinkedHashSet<>();
+        for (Delta delta : deltas.summaries.values()) {
+            if (delta.isZero()) {
+                continue; // 只改了评论内容
+            }
+            summaryMapper.applyDelta(delta.toSummary());
+            if (delta.ratingCount != 0 || delta.ratingSum != 0) {
+                summaryMapper.syncProductRating(delta.productId);
+                ratingChanged.add(delta.productId);
+            }
+        }
+        for (Map<LocalDate, Delta> days : deltas.days.values()) {
+            for (Delta delta : days.values()) {
+                if (!delta.isZero()) {
+                    bucketMapper.applyDailyDelta(delta.toBucket());
+                }
+            }
+        }
+        return ratingChanged;
+    }
+
+    // 一次写操作涉及的全部变化量：按商品（评分汇总）和按商品 + 日期（按天统计桶）
+    private static final class Deltas {
+        final Map<Long, Delta> summaries = new LinkedHashMap<>();
+        final Map<Long, Map<LocalDate, Delta>> days = new LinkedHashMap<>();
+    }
+
+    // 反馈数、评分数、评分总和与 1-5 星分布的变化量
+    private static final class Delta {
+        final Long productId;
+        final LocalDate day; // 按天统计桶的日期，评分汇总的变化量为 null
+        long feedbackCount;
+        long ratingCount;
+        long ratingSum;
+        final long[] stars = new long[5];
+
+        Delta(Long productId, LocalDate day) {
+            this.productId = productId;
+            this.day = day;
+        }
+
+        void add(Integer rating, int sign) {
+            feedbackCount += sign;
+            if (rating == null) {
+                return;
+            }
+            ratingCount += sign;
+            ratingSum += (long) sign * rating;
+            if (rating >= 1 && rating <= 5) { // 超出 1-5 的评分不计入星级分布
+                stars[rating - 1] += sign;
+            }
+        }
+
+        boolean isZero() {
+            if (feedbackCount != 0 || ratingCount != 0 || ratingSum != 0) {
+                return false;
+            }
+            for (long star : stars) {
+                if (star != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        ProductRatingSummary toSummary() {
+            ProductRatingSummary summary = new ProductRatingSummary();
+            summary.setProductId(productId);
+            summary.setFeedbackCount(feedbackCount);
+            summary.setRatingCount(ratingCount);
+            summary.setRatingSum(ratingSum);
+            summary.setStar1(stars[0]);
+            summary.setStar2(stars[1]);
+            summary.setStar3(stars[2]);
+            summary.setStar4(stars[3]);
+            summary.setStar5(stars[4]);
+            return summary;
+        }
+
+        ProductFeedbackBucket toBucket() {
+            ProductFeedbackBucket bucket = new ProductFeedbackBucket();
+            bucket.setProductId(productId);
+            bucket.setBucketDate(day);
+            bucket.setFeedbackCount(feedbackCount);
+            bucket.setRatingCount(ratingCount);
+            bucket.setRatingSum(ratingSum);
+            bucket.setStar1(stars[0]);
+            bucket.setStar2(stars[1]);
+            bucket.setStar3(stars[2]);
+            bucket.setStar4(stars[3]);
+            bucket.setStar5(stars[4]);
+            return bucket;
+        }
+    }
+}
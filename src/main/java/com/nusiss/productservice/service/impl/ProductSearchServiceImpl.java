@@ -0,0 +1,70 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.InvertedIndex;
+import com.nusiss.productservice.index.ProductIndexMaintainer;
+import com.nusiss.productservice.index.ProductTokenizer;
+import com.nusiss.productservice.index.SearchQuery;
+import com.nusiss.productservice.service.ProductSearchService;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ 基于内存倒排索引的商品搜索
+ - 字段权重：name 3，title 2，description 1（同一个词在商品名中出现比在描述中出现更相关）
+ - 重建与增量更新由 ProductIndexMaintainer 负责；首次重建完成前 search 返回 null，由 ProductServiceImpl 退回 LIKE 查询
+ */
+@Service
+public class ProductSearchServiceImpl extends ProductIndexMaintainer<InvertedIndex> implements ProductSearchService {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float TITLE_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    @Override
+    public List<Long> search(String query, int limit) {
+        InvertedIndex index = current();
+        if (index == null) {
+            return null;
+        }
+        SearchQuery parsed = SearchQuery.parse(query);
+        if (parsed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return index.search(parsed, limit);
+    }
+
+    @Override
+    protected InvertedIndex newIndex() {
+        return new InvertedIndex();
+    }
+
+    @Override
+    protected void put(InvertedIndex index, Product product) {
+        index.put(product.getId(), termFrequencies(product));
+    }
+
+    @Override
+    protected void remove(InvertedIndex index, Long productId) {
+        index.remove(productId);
+    }
+
+    // 按字段权重累加每个词的词频
+    static Map<String, Float> termFrequencies(Product product) {
+        Map<String, Float> freqs = new HashMap<>();
+        addField(freqs, product.getName(), NAME_WEIGHT);
+        addField(freqs, product.getTitle(), TITLE_WEIGHT);
+        addField(freqs, product.getDescription(), DESCRIPTION_WEIGHT);
+        return freqs;
+    }
+
+    private static void addField(Map<String, Float> freqs, String text, float weight) {
+        for (String token : ProductTokenizer.tokenize(text)) {
+            freqs.merge(token, weight, Float::sum);
+        }
+    }
+}
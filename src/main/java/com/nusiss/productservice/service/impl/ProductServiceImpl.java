@@ -1,24 +1,53 @@
 package com.nusiss.productservice.service.impl;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.nusiss.commonservice.feign.OrderFeignClient;
+import com.nusiss.productservice.client.OrderHistoryClient;
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.constant.LeaderboardRanking;
 import com.nusiss.productservice.dao.ProductMapper;
-import com.nusiss.productservice.dao.ProductMediaMapper;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.dto.VersionStamp;
 import com.nusiss.productservice.entity.Product;
-import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.index.CatalogQuery;
+import com.nusiss.productservice.index.ProductCatalogSnapshot;
+import com.nusiss.productservice.service.CoPurchaseRecommendationService;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import com.nusiss.productservice.service.ProductLeaderboardService;
+import com.nusiss.productservice.service.ProductSearchService;
 import com.nusiss.productservice.service.ProductService;
+import com.nusiss.productservice.service.ProductSimilarityService;
+import com.nusiss.productservice.util.KeysetCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import org.springframework.util.StringUtils;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,50 +57,132 @@ public class ProductServiceImpl implements ProductService {
     private ProductMapper productMapper;
 
     @Autowired
-    private OrderFeignClient orderFeignClient;
+    private OrderHistoryClient orderHistoryClient; // 异步查询用户历史订单（缓存 + 超时 + 熔断）
 
+    @Autowired
+    private ProductPageQueryExecutor pageQueryExecutor; // 可选总数统计方式的分页查询
+
+    @Autowired
+    private ProductSearchService productSearchService; // 内存倒排索引搜索
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 发布商品变更事件，驱动索引增量更新
+
+    @Autowired
+    private ProductCache productCache; // 按 id 读取商品的本地缓存
+
+    @Autowired
+    private ResourceVersionRegistry versionRegistry; // 条件请求使用的资源版本号
+
+    @Autowired
+    private ProductLeaderboardService leaderboardService; // 分类排行榜（同分类评分最高的商品）
+
+    @Autowired
+    private CoPurchaseRecommendationService coPurchaseService; // 共同购买推荐（经常一起购买的商品）
+
+    @Autowired
+    private ProductSimilarityService similarityService; // 商品文本内容相似度（近似最近邻索引）
+
+    @Autowired
+    private ProductDuplicateService duplicateService; // 商品近重复检测（MinHash / LSH 索引）
+
+    @Autowired(required = false)
+    private ProductCatalogEngine catalogEngine; // 内存列式目录，product.catalog.in-memory.enabled=true 时才存在
+
+    @Value("${product.facets.price-buckets:0,50,100,500,1000,5000}")
+    private BigDecimal[] priceBuckets = {BigDecimal.ZERO};
+
+    @Value("${product.search.max-results:200}")
+    private int searchMaxResults = 200;
+
+    @Value("${product.similar.max-results:50}")
+    private int similarMaxResults = 50;
+
+    @Value("${product.recommend.user.max-concurrent:8}")
+    private int recommendMaxConcurrent = 8;
+
+    @Value("${product.recommend.user.max-queued:200}")
+    private int recommendMaxQueued = 200;
+
+    // 按用户推荐的数据库查询阶段：不在订单服务的回调线程上执行，有界，满了返回 429
+    private ThreadPoolExecutor recommendExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        recommendExecutor = new ThreadPoolExecutor(recommendMaxConcurrent, recommendMaxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, recommendMaxQueued)), runnable -> {
+                    Thread thread = new Thread(runnable, "recommend-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        recommendExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        recommendExecutor.shutdown();
+    }
 
     // 查询所有商品
     @Override
     public List<Product> getAllProducts() {
-        List<Product> list = productMapper.selectList(null);
-        setCoverImages(list); // 设置封面图
-        return list;
+        return productMapper.selectList(null);
     }
 
-    // 根据id查询商品
+    // 根据id查询商品（先查本地缓存，未命中再查数据库）
     @Override
     public Product getProductById(Long id) {
-        Product product = productMapper.selectById(id);
-        setCoverImage(product); // 设置封面图
-        return product;
+        return productCache.get(id, productMapper::selectById);
+    }
+
+    // 单个商品的版本戳：ETag 与商品一起缓存，Last-Modified 为本实例观察到的最后变更时间
+    @Override
+    public VersionStamp getProductStamp(Long id) {
+        String etag = productCache.etag(id, productMapper::selectById);
+        return etag == null ? null : new VersionStamp(etag, versionRegistry.productModifiedAt(id));
+    }
+
+    // 商品目录的版本戳
+    @Override
+    public VersionStamp getCatalogStamp() {
+        return versionRegistry.catalogStamp();
     }
 
-    // 创建商品
+    // 创建商品：先做近重复检测（拒绝模式下发现重复时抛出异常），疑似重复的已有商品 ID 随返回结果带给调用方
     @Override
     public Product createProduct(Product product) {
+        List<Long> duplicates = duplicateService.checkNewProduct(product);
         productMapper.insert(product);
+        eventPublisher.publishEvent(ProductChangedEvent.created(product));
+        if (!duplicates.isEmpty()) {
+            product.setPossibleDuplicateIds(duplicates);
+        }
         return product;
     }
 
-    // 更新商品
+    // 更新商品（与删除一样以影响行数判断商品是否存在，无需先查询；写入成功后读回完整商品发布变更事件）
     @Override
     public Product updateProduct(Long id, Product product) {
-        Product existing = productMapper.selectById(id);
-        if (existing == null) return null;
-
         product.setId(id);
-        productMapper.updateById(product);
+        if (productMapper.updateById(product) == 0) {
+            return null; // MySQL 驱动默认返回匹配行数，字段值没有变化时也不为 0
+        }
+        Product updated = productMapper.selectById(id);
+        if (updated != null) {
+            eventPublisher.publishEvent(ProductChangedEvent.updated(updated));
+        }
         return product;
     }
 
-    // 删除商品
+    // 删除商品（以影响行数判断商品是否存在，无需先查询）
     @Override
     public boolean deleteProduct(Long id) {
-        Product existing = productMapper.selectById(id);
-        if (existing == null) return false;
-
-        return productMapper.deleteById(id) > 0;
+        boolean deleted = productMapper.deleteById(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+        }
+        return deleted;
     }
 
     //扩展功能 1.分页功能
@@ -84,23 +195,17 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Page<Product> getProductPage(int page, int size) {
         Page<Product> pageRequest = new Page<>(page, size); // 创建分页对象
-        Page<Product> result = productMapper.selectPage(pageRequest, new QueryWrapper<>());
-        setCoverImages(result.getRecords()); // 设置封面图
-        return result;
+        return productMapper.selectPage(pageRequest, new QueryWrapper<>());
     }
 
     // 扩展功能 2.关键词搜索功能
     /*
-     根据关键词搜索产品，模糊匹配 name 和 description 字段
+     根据关键词搜索产品，在 name、title、description 上做分词检索，按相关度（BM25）排序
+     支持多个词 AND（默认）/ OR 组合，以及词尾 * 的前缀匹配，例如：华为 手机、iphone OR 华为、ipho*
+     搜索索引尚未构建完成时，退回到 name 字段的模糊匹配
      @param keyword 搜索关键词
      @return 匹配的产品列表
      */
-
-    /**
-     * 根据关键词搜索产品，仅模糊匹配 name 字段（商品名称）
-     * @param keyword 搜索关键词
-     * @return 匹配的产品列表
-     */
     @Override
     public List<Product> searchProducts(String keyword) {
         // 关键词为空则返回空列表
@@ -108,17 +213,25 @@ public class ProductServiceImpl implements ProductService {
             return Collections.emptyList();
         }
 
-        // 创建查询条件，仅在 name 字段模糊匹配
-        QueryWrapper<Product> queryWrapper = new QueryWrapper<>();
-        queryWrapper.like("name", keyword.trim());
-
-        // 执行查询
-        List<Product> list = productMapper.selectList(queryWrapper);
-
-        // 设置封面图（如果你有这个逻辑）
-        setCoverImages(list);
+        List<Long> rankedIds = productSearchService.search(keyword.trim(), searchMaxResults);
+        if (rankedIds == null) {
+            // 索引未就绪：仅在 name 字段模糊匹配
+            QueryWrapper<Product> queryWrapper = new QueryWrapper<>();
+            queryWrapper.like("name", keyword.trim());
+            return productMapper.selectList(queryWrapper);
+        }
+        if (rankedIds.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        return list;
+        // 按 id 批量读取后恢复索引给出的相关度顺序（封面图已持久化在 cover_image_url 列中）
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < rankedIds.size(); i++) {
+            rank.put(rankedIds.get(i), i);
+        }
+        List<Product> products = new ArrayList<>(productMapper.selectBatchIds(rankedIds));
+        products.sort(Comparator.comparingInt(p -> rank.getOrDefault(p.getId(), Integer.MAX_VALUE)));
+        return products;
     }
 
     // 扩展功能 3.多条件筛选功能
@@ -136,42 +249,96 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public List<Product> filterProducts(String name, String category, String status, BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
         // 使用 MyBatis Plus 提供的 QueryWrapper 构造动态查询条件
-        QueryWrapper<Product> wrapper = new QueryWrapper<>();
-
-        // 模糊查询 name（商品名称）
-        if (name != null && !name.isEmpty()) {
-            wrapper.like("name", name);
+        QueryWrapper<Product> wrapper = buildFilterWrapper(name, category, status, minPrice, maxPrice, rating);
+
+        // 开启内存目录时优先在内存快照中筛选
+        if (catalogEngine != null) {
+            CatalogQuery query = new CatalogQuery(name, category, status, minPrice, maxPrice, rating);
+            List<Product> result = catalogEngine.filter(query, () -> productMapper.selectList(wrapper));
+            if (result != null) {
+                return result;
+            }
         }
 
-        // 精确匹配 category（商品种类）
-        if (category != null && !category.isEmpty()) {
-            wrapper.eq("category", category);
-        }
+        // 返回查询结果
+        return productMapper.selectList(wrapper);
+    }
 
-        // 精确匹配 status（商品状态）
-        if (status != null && !status.isEmpty()) {
-            wrapper.eq("status", status);
+    /*
+     分面统计：开启内存目录时在快照上对命中商品遍历一次完成全部统计，
+     否则用 3 条 SQL（分类分组、状态分组、价格 / 评分区间的条件求和）
+     */
+    @Override
+    public ProductFacets getProductFacets(String name, String category, String status,
+                                          BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
+        if (catalogEngine != null) {
+            CatalogQuery query = new CatalogQuery(name, category, status, minPrice, maxPrice, rating);
+            ProductFacets facets = catalogEngine.facets(query,
+                    () -> facetsFromSql(name, category, status, minPrice, maxPrice, rating));
+            if (facets != null) {
+                return facets;
+            }
         }
+        return facetsFromSql(name, category, status, minPrice, maxPrice, rating);
+    }
 
-        // 最低价格（大于等于）
-        if (minPrice != null) {
-            wrapper.ge("price", minPrice);
+    private ProductFacets facetsFromSql(String name, String category, String status,
+                                        BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
+        ProductFacets facets = new ProductFacets();
+        facets.setCategories(groupCounts("category", name, category, status, minPrice, maxPrice, rating));
+        facets.setStatuses(groupCounts("status", name, category, status, minPrice, maxPrice, rating));
+
+        BigDecimal[] priceBounds = priceBuckets.clone();
+        Arrays.sort(priceBounds);
+        BigDecimal[] ratingBounds = ProductCatalogSnapshot.ratingBucketBounds();
+        List<String> columns = new ArrayList<>();
+        columns.add("COUNT(*) AS total");
+        addBucketColumns(columns, "price", "p", priceBounds);
+        addBucketColumns(columns, "rating", "r", ratingBounds);
+
+        QueryWrapper<Product> wrapper = buildFilterWrapper(name, category, status, minPrice, maxPrice, rating);
+        wrapper.select(columns.toArray(new String[0]));
+        List<Map<String, Object>> rows = productMapper.selectMaps(wrapper);
+        Map<String, Object> row = rows.isEmpty() || rows.get(0) == null ? Collections.emptyMap() : rows.get(0);
+
+        facets.setTotal(longValue(row.get("total")));
+        facets.setPriceBuckets(ProductCatalogSnapshot.rangeCounts(priceBounds, bucketCounts(row, "p", priceBounds.length)));
+        facets.setRatingBuckets(ProductCatalogSnapshot.rangeCounts(ratingBounds, bucketCounts(row, "r", ratingBounds.length)));
+        return facets;
+    }
+
+    // SELECT column AS value, COUNT(*) AS count ... GROUP BY column（不统计 NULL）
+    private List<ProductFacets.ValueCount> groupCounts(String column, String name, String category, String status,
+                                                       BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
+        QueryWrapper<Product> wrapper = buildFilterWrapper(name, category, status, minPrice, maxPrice, rating);
+        wrapper.select(column + " AS value", "COUNT(*) AS count").isNotNull(column).groupBy(column);
+        List<ProductFacets.ValueCount> counts = new ArrayList<>();
+        for (Map<String, Object> row : productMapper.selectMaps(wrapper)) {
+            counts.add(new ProductFacets.ValueCount(String.valueOf(row.get("value")), longValue(row.get("count"))));
         }
+        counts.sort(ProductCatalogSnapshot.FACET_ORDER);
+        return counts;
+    }
 
-        // 最高价格（小于等于）
-        if (maxPrice != null) {
-            wrapper.le("price", maxPrice);
+    // 每个区间一列：SUM(CASE WHEN column >= 下界 AND column < 上界 THEN 1 ELSE 0 END)，最后一个区间没有上界
+    private static void addBucketColumns(List<String> columns, String column, String alias, BigDecimal[] bounds) {
+        for (int i = 0; i < bounds.length; i++) {
+            String condition = column + " >= " + bounds[i].toPlainString()
+                    + (i + 1 < bounds.length ? " AND " + column + " < " + bounds[i + 1].toPlainString() : "");
+            columns.add("SUM(CASE WHEN " + condition + " THEN 1 ELSE 0 END) AS " + alias + i);
         }
+    }
 
-        // 评分（大于等于）
-        if (rating != null) {
-            wrapper.ge("rating", rating);
+    private static long[] bucketCounts(Map<String, Object> row, String alias, int buckets) {
+        long[] counts = new long[buckets];
+        for (int i = 0; i < buckets; i++) {
+            counts[i] = longValue(row.get(alias + i));
         }
+        return counts;
+    }
 
-        // 返回查询结果
-        List<Product> list = productMapper.selectList(wrapper);
-        setCoverImages(list); // 设置封面图
-        return list;
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
     }
 
     // 扩展功能 4.排序功能 - 支持根据指定字段进行升序/降序排序，可结合分页和筛选条件一起使用
@@ -195,111 +362,313 @@ public class ProductServiceImpl implements ProductService {
         // 1. 构建分页对象，传入当前页码和每页数量
         Page<Product> pageObj = new Page<>(page, size); //如page = 1，表示第一页,size = 10，表示每页查 10 条数据
 
-        // 2. 构建查询条件
-        QueryWrapper<Product> queryWrapper = new QueryWrapper<>(); //动态查询构造器
+        // 2. 构建查询条件（字段不为空才添加）
+        QueryWrapper<Product> queryWrapper = buildFilterWrapper(name, category, status, minPrice, maxPrice, rating);
+
+        // 3. 排序逻辑（字段名必须存在于数据库表中）
+        applySort(queryWrapper, sortBy, order);
+
+        // 开启内存目录时优先在内存快照中筛选、排序、分页
+        ProductCatalogSnapshot.Slice slice = selectFromCatalog(name, category, status, minPrice, maxPrice, rating,
+                sortBy, order, page, size, () -> queryWrapper);
+        if (slice != null) {
+            pageObj.setRecords(slice.getRecords());
+            pageObj.setTotal(slice.getTotal());
+            return pageObj;
+        }
+
+        // 4. 执行分页查询并返回结果
+        return productMapper.selectPage(pageObj, queryWrapper);
+    }
 
-        // 3. 动态添加筛选条件（字段不为空才添加）
+    // 在内存目录中执行分页查询；未开启、未就绪或排序列不支持时返回 null
+    private ProductCatalogSnapshot.Slice selectFromCatalog(String name, String category, String status,
+                                                          BigDecimal minPrice, BigDecimal maxPrice, Double rating,
+                                                          String sortBy, String order, long page, long size,
+                                                          Supplier<QueryWrapper<Product>> sqlWrapper) {
+        if (catalogEngine == null) {
+            return null;
+        }
+        CatalogQuery query = new CatalogQuery(name, category, status, minPrice, maxPrice, rating);
+        long offset = (Math.max(1, page) - 1) * size;
+        return catalogEngine.select(query, StringUtils.hasText(sortBy) ? sortBy : null, order, offset, (int) size, () -> {
+            IPage<Product> expected = productMapper.selectPage(new Page<>(page, size), sqlWrapper.get());
+            return new ProductCatalogSnapshot.Slice(expected.getRecords(), expected.getTotal());
+        });
+    }
+
+    // 排序逻辑：指定了排序字段时，order 为 asc（大小写不敏感）则升序，否则降序
+    private void applySort(QueryWrapper<Product> queryWrapper, String sortBy, String order) {
+        if (StringUtils.hasText(sortBy)) {
+            boolean isAsc = "asc".equalsIgnoreCase(order); //判断 order 是否为 asc 大小写不敏感
+            if (isAsc) {
+                queryWrapper.orderByAsc(sortBy); //如果 order 为 asc，则按照升序排序。
+            } else {
+                queryWrapper.orderByDesc(sortBy); //如果 order 为 desc，则按照降序排序。
+            }
+        }
+    }
+
+    /*
+     分页查询商品列表（可选择总数统计方式）
+     */
+    @Override
+    public CountedPage<Product> getProductPage(int page, int size, CountMode countMode) {
+        return pageQueryExecutor.execute(QueryWrapper::new, wrapper -> { }, "", page, size, countMode);
+    }
+
+    /*
+     排序 + 筛选 + 分页（可选择总数统计方式）
+     */
+    @Override
+    public CountedPage<Product> filterProductsWithSorting(String name, String category, String status,
+                                                          BigDecimal minPrice, BigDecimal maxPrice, Double rating,
+                                                          String sortBy, String order, int page, int size,
+                                                          CountMode countMode) {
+        long current = Math.max(1, page);
+        long pageSize = Math.max(1, size);
+        ProductCatalogSnapshot.Slice slice = selectFromCatalog(name, category, status, minPrice, maxPrice, rating,
+                sortBy, order, current, pageSize, () -> {
+                    QueryWrapper<Product> wrapper = buildFilterWrapper(name, category, status, minPrice, maxPrice, rating);
+                    applySort(wrapper, sortBy, order);
+                    return wrapper;
+                });
+        if (slice != null) {
+            // 内存目录中总数在筛选时已经得到，任何统计方式都直接返回精确总数
+            CountedPage<Product> result = new CountedPage<>();
+            result.setRecords(slice.getRecords());
+            result.setCurrent(current);
+            result.setSize(pageSize);
+            result.setTotal(slice.getTotal());
+            result.setHasNext(current * pageSize < slice.getTotal());
+            result.setCountMode(countMode);
+            return result;
+        }
+        return pageQueryExecutor.execute(
+                () -> buildFilterWrapper(name, category, status, minPrice, maxPrice, rating),
+                wrapper -> applySort(wrapper, sortBy, order),
+                filterKey(name, category, status, minPrice, maxPrice, rating),
+                page, size, countMode);
+    }
+
+    // 规范化筛选条件（空白视为未传，价格去掉末尾 0），作为总数缓存的键；排序不影响总数，不参与
+    private String filterKey(String name, String category, String status,
+                             BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
+        return "name=" + (StringUtils.hasText(name) ? name : "")
+                + "|category=" + (StringUtils.hasText(category) ? category : "")
+                + "|status=" + (StringUtils.hasText(status) ? status : "")
+                + "|minPrice=" + (minPrice != null ? minPrice.stripTrailingZeros().toPlainString() : "")
+                + "|maxPrice=" + (maxPrice != null ? maxPrice.stripTrailingZeros().toPlainString() : "")
+                + "|rating=" + (rating != null ? rating : "");
+    }
+
+    /*
+     构建多条件筛选的查询条件（filter / sort / 游标分页共用）
+     字段为空则不添加对应条件
+     */
+    private QueryWrapper<Product> buildFilterWrapper(String name, String category, String status,
+                                                     BigDecimal minPrice, BigDecimal maxPrice, Double rating) {
+        QueryWrapper<Product> wrapper = new QueryWrapper<>();
         if (StringUtils.hasText(name)) {
-            queryWrapper.like("name", name); //用户传了 name，就在 SQL 中添加 name LIKE '%name%' 条件。如果 name 非空，则模糊匹配商品名称。
+            wrapper.like("name", name); // 模糊查询 name（商品名称）
         }
         if (StringUtils.hasText(category)) {
-            queryWrapper.eq("category", category);
+            wrapper.eq("category", category); // 精确匹配 category（商品种类）
         }
         if (StringUtils.hasText(status)) {
-            queryWrapper.eq("status", status); //如果 status 非空，则过滤状态为这个值的产品。
+            wrapper.eq("status", status); // 精确匹配 status（商品状态）
         }
         if (minPrice != null) {
-            queryWrapper.ge("price", minPrice); //如果 minPrice 非空，则过滤价格大于等于这个值的产品。
+            wrapper.ge("price", minPrice); // 最低价格（大于等于）
         }
         if (maxPrice != null) {
-            queryWrapper.le("price", maxPrice); //如果 maxPrice 非空，则过滤价格小于等于这个值的产品。
+            wrapper.le("price", maxPrice); // 最高价格（小于等于）
         }
         if (rating != null) {
-            queryWrapper.ge("rating", rating);
+            wrapper.ge("rating", rating); // 评分（大于等于）
         }
+        return wrapper;
+    }
 
-        // 4. 排序逻辑（字段名必须存在于数据库表中）
-        if (StringUtils.hasText(sortBy)) {
-            boolean isAsc = "asc".equalsIgnoreCase(order); //判断 order 是否为 asc 大小写不敏感
-            if (isAsc) {
-                queryWrapper.orderByAsc(sortBy); //如果 order 为 asc，则按照升序排序。
-            } else {
-                queryWrapper.orderByDesc(sortBy); //如果 order 为 desc，则按照降序排序。
-            }
-        }
+    // 扩展功能 5.游标分页（keyset / seek）
+    // 游标分页允许的排序字段（必须是数据库列名）
+    private static final List<String> CURSOR_SORT_COLUMNS = List.of("id", "price", "rating", "create_datetime");
 
-        // 5. 执行分页查询并返回结果
-        IPage<Product> result = productMapper.selectPage(pageObj, queryWrapper);
-        setCoverImages(result.getRecords()); // 设置封面图
-        return result;
+    // 游标分页每页最大条数
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /*
+     游标分页查询商品列表（按 id 升序）
+     */
+    @Override
+    public CursorPage<Product> getProductPageByCursor(String cursor, int size) {
+        return filterProductsWithCursor(null, null, null, null, null, null, "id", "asc", cursor, size);
     }
 
     /*
-     给每个 Product 对象设置封面图 URL（即该产品的第一张图片）
+     游标分页 + 筛选 + 排序：WHERE 筛选条件 AND (排序值, id) 在游标之后 ORDER BY 排序值, id LIMIT size + 1
+     每一页的代价与页深无关
      */
-    @Autowired
-    private ProductMediaMapper productMediaMapper; // 注入 ProductMediaMapper 用于查询封面图
-
-    // 工具方法：为某个 Product 设置封面图（第一张图片类型 media）
-    private void setCoverImage(Product product) {
-        if (product != null && product.getId() != null) {
-            ProductMedia media = productMediaMapper.selectOne(
-                    Wrappers.<ProductMedia>lambdaQuery()
-                            .eq(ProductMedia::getProductId, product.getId())
-                            .eq(ProductMedia::getMediaType, "image")
-                            .orderByAsc(ProductMedia::getId)
-                            .last("LIMIT 1")
-            );
-            if (media != null) {
-                product.setCoverImageUrl(media.getUrl());
-            }
+    @Override
+    public CursorPage<Product> filterProductsWithCursor(String name, String category, String status,
+                                                        BigDecimal minPrice, BigDecimal maxPrice, Double rating,
+                                                        String sortBy, String order, String cursor, int size) {
+        String column = StringUtils.hasText(sortBy) ? sortBy : "id";
+        if (!CURSOR_SORT_COLUMNS.contains(column)) {
+            throw new CustomException("Unsupported sort field for cursor paging: " + sortBy);
+        }
+        // 与 /products/sort 保持一致：指定排序字段时只有 asc 为升序；未指定时按 id 升序
+        boolean asc = StringUtils.hasText(sortBy) ? "asc".equalsIgnoreCase(order) : !"desc".equalsIgnoreCase(order);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+
+        QueryWrapper<Product> wrapper = buildFilterWrapper(name, category, status, minPrice, maxPrice, rating);
+
+        KeysetCursor previous = KeysetCursor.decode(cursor);
+        if (previous != null) {
+            previous.checkMatches(column, asc);
+            previous.applySeek(wrapper, column, parseSortValue(column, previous.getLastValue()));
+        }
+        KeysetCursor.applyOrder(wrapper, column, asc);
+        wrapper.last("LIMIT " + (pageSize + 1)); // 多取一条用于判断是否还有下一页
+
+        List<Product> rows = productMapper.selectList(wrapper);
+        boolean hasNext = rows.size() > pageSize;
+        List<Product> records = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = records.get(records.size() - 1);
+            nextCursor = new KeysetCursor(column, asc, sortValueOf(last, column), last.getId()).encode();
+        }
+        return new CursorPage<>(records, pageSize, hasNext, nextCursor);
+    }
+
+    // 读取商品在某个排序列上的值
+    private Object sortValueOf(Product product, String column) {
+        switch (column) {
+            case "price":
+                return product.getPrice() != null ? product.getPrice().toPlainString() : null;
+            case "rating":
+                return product.getRating();
+            case "create_datetime":
+                return product.getCreateDatetime();
+            default:
+                return product.getId();
         }
     }
 
-    // 工具方法：为多个 Product 设置封面图
-    private void setCoverImages(List<Product> products) {
-        if (products != null) {
-            for (Product product : products) {
-                setCoverImage(product);
+    // 把游标中的字符串排序值转换回列类型
+    private Object parseSortValue(String column, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            switch (column) {
+                case "price":
+                    return new BigDecimal(value);
+                case "rating":
+                    return Double.valueOf(value);
+                case "create_datetime":
+                    return LocalDateTime.parse(value);
+                default:
+                    return Long.valueOf(value);
             }
+        } catch (RuntimeException e) {
+            throw new CustomException("Invalid cursor");
         }
     }
 
     /*
-     对猜你喜欢推荐接口进行开发实现，用于MVP商品推荐。TODO:  待完善，之后引入完善的推荐系统
+     对猜你喜欢推荐接口进行开发实现，用于MVP商品推荐
+     优先返回经常与当前商品一起购买的商品，不足 limit 个时依次用文本内容相似的商品、同分类评分最高的商品补齐
      */
     @Override
     public List<Product> getRelatedProducts(Long productId, int limit) {
-        // Step 1: 查询当前商品
-        Product currentProduct = productMapper.selectById(productId);
-        if (currentProduct == null || currentProduct.getCategory() == null) {
+        // Step 1: 查询当前商品（走本地缓存）
+        Product currentProduct = getProductById(productId);
+        if (currentProduct == null) {
             return new ArrayList<>();
         }
 
-        // Step 2: 查询同分类下的商品，排除当前商品，按评分降序排列
-        QueryWrapper<Product> query = new QueryWrapper<>();
-        query.eq("category", currentProduct.getCategory())
-                .ne("id", productId)
-                .orderByDesc("rating")
-                .last("LIMIT " + limit);
+        // Step 2: 共同购买模型中的相似商品
+        List<Product> related = loadProducts(coPurchaseService.getRelatedProductIds(productId, limit, List.of(productId)));
 
-        List<Product> products = productMapper.selectList(query);
-        setCoverImages(products); // 设置封面图
-        return products;
+        // Step 3: 用文本内容相似的商品补齐（没有分类或分类很小的商品也能推荐）
+        if (related.size() < limit) {
+            List<Long> chosen = new ArrayList<>();
+            for (Product product : related) {
+                chosen.add(product.getId());
+            }
+            for (Product product : loadProducts(similarityService.getSimilarProductIds(productId, limit))) {
+                if (related.size() >= limit) {
+                    break;
+                }
+                if (!chosen.contains(product.getId())) {
+                    related.add(product);
+                }
+            }
+        }
+
+        // Step 4: 从分类排行榜读取同分类评分最高的商品补齐，排除当前商品和已推荐的商品
+        List<Long> excludeIds = new ArrayList<>();
+        excludeIds.add(productId);
+        return fillFromLeaderboard(related, currentProduct.getCategory(), limit, excludeIds);
+    }
+
+    // 更多类似商品：从内容相似度索引读取，商品详情走本地缓存
+    @Override
+    public List<Product> getSimilarProducts(Long productId, int limit) {
+        if (getProductById(productId) == null) {
+            return null;
+        }
+        return loadProducts(similarityService.getSimilarProductIds(productId, Math.min(limit, similarMaxResults)));
     }
 
 
     /*
-    对基于用户历史订单分类推荐商品接口进行开发实现，用于MVP商品推荐。TODO:  待完善，之后引入完善的推荐系统
+    对基于用户历史订单推荐商品接口进行开发实现，用于MVP商品推荐
+    历史订单通过 OrderHistoryClient 异步查询，订单服务不可用时改为推荐全部分类中评分最高的商品
+    优先按共同购买模型推荐，不足 limit 个时用购买最多的分类的排行榜补齐
+    查到历史订单后的推荐（读取数据库）交给 recommendExecutor 执行；排队已满时以 ServiceBusyException（429）结束
     */
     @Override
-    public List<Product> getTopRecommendedProductsByUser(Long userId, int limit) {
-        // 直接拿到商品 ID 列表，不再封装在 ApiResponse 中
-        List<Long> purchasedProductIds = orderFeignClient.getProductIdsByUserId(userId);
-        if (purchasedProductIds == null || purchasedProductIds.isEmpty()) {
+    public CompletableFuture<List<Product>> getTopRecommendedProductsByUser(Long userId, int limit) {
+        CompletableFuture<List<Product>> result = new CompletableFuture<>();
+        orderHistoryClient.getPurchasedProductIds(userId).whenComplete((purchasedProductIds, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            try {
+                recommendExecutor.execute(() -> {
+                    try {
+                        result.complete(recommendByPurchases(purchasedProductIds, limit));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(new ServiceBusyException("Too many recommendation requests, please retry later", 1));
+            }
+        });
+        return result;
+    }
+
+    private List<Product> recommendByPurchases(List<Long> purchasedProductIds, int limit) {
+        if (purchasedProductIds == null) {
+            // 订单服务不可用且没有缓存：降级为全部分类的评分排行榜
+            return leaderboardService.getTopProducts(null, LeaderboardRanking.RATING, limit, null);
+        }
+        if (purchasedProductIds.isEmpty()) {
             return new ArrayList<>();
         }
 
+        // Step 1: 共同购买模型推荐
+        List<Product> recommended = loadProducts(coPurchaseService.getRecommendedProductIds(purchasedProductIds, limit));
+        if (recommended.size() >= limit) {
+            return recommended;
+        }
+
         // Step 2: 查这些商品的分类
         List<Product> purchasedProducts = productMapper.selectBatchIds(purchasedProductIds);
 
@@ -308,20 +677,42 @@ public class ProductServiceImpl implements ProductService {
                 .filter(p -> p.getCategory() != null)
                 .collect(Collectors.groupingBy(Product::getCategory, Collectors.counting()));
 
-        if (categoryCount.isEmpty()) return new ArrayList<>();
+        if (categoryCount.isEmpty()) return recommended;
 
         String topCategory = Collections.max(categoryCount.entrySet(), Map.Entry.comparingByValue()).getKey();
 
-        // Step 4: 查该分类下评分高商品，排除已买商品
-        QueryWrapper<Product> query = new QueryWrapper<>();
-        query.eq("category", topCategory)
-                .notIn("id", purchasedProductIds)
-                .orderByDesc("rating")
-                .last("LIMIT " + limit);
+        // Step 4: 从分类排行榜读取该分类下评分高的商品补齐，排除已买商品和已推荐的商品
+        return fillFromLeaderboard(recommended, topCategory, limit, new ArrayList<>(purchasedProductIds));
+    }
 
-        List<Product> recommended = productMapper.selectList(query);
-        setCoverImages(recommended); // 设置封面图
-        return recommended;
+    // 按 ID 读取商品（走本地缓存），跳过已删除的商品
+    private List<Product> loadProducts(List<Long> ids) {
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = getProductById(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // 用分类排行榜把推荐结果补齐到 limit 个
+    private List<Product> fillFromLeaderboard(List<Product> recommended, String category, int limit, List<Long> excludeIds) {
+        if (recommended.size() >= limit || category == null) {
+            return recommended;
+        }
+        for (Product product : recommended) {
+            excludeIds.add(product.getId());
+        }
+        List<Product> top = leaderboardService.getTopProducts(category, LeaderboardRanking.RATING,
+                limit - recommended.size(), excludeIds);
+        if (recommended.isEmpty()) {
+            return top;
+        }
+        List<Product> result = new ArrayList<>(recommended);
+        result.addAll(top);
+        return result;
     }
 
 
@@ -0,0 +1,144 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.HnswIndex;
+import com.nusiss.productservice.index.ProductIndexMaintainer;
+import com.nusiss.productservice.index.ProductTextVectorizer;
+import com.nusiss.productservice.service.ProductSimilarityService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ 商品内容相似度：ProductTextVectorizer 把商品文本转换为特征哈希向量，存入 HnswIndex 做近似最近邻检索
+ - 重建与增量更新由 ProductIndexMaintainer 负责；只改价格、库存等非文本字段时向量不变，索引不做修改
+ - HNSW 的删除和更新会留下已删除节点，数量超过 compact-min-deleted 且占比超过 compact-ratio 时在后台全量重建
+ 索引规模记录在 product.similar.products / product.similar.deleted / product.similar.offheap-bytes，查询耗时记录在 product.similar.search
+ */
+@Service
+public class ProductSimilarityServiceImpl extends ProductIndexMaintainer<HnswIndex> implements ProductSimilarityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSimilarityServiceImpl.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.similar.dimensions:256}")
+    private int dimensions = 256;
+
+    @Value("${product.similar.m:16}")
+    private int m = 16;
+
+    @Value("${product.similar.ef-construction:100}")
+    private int efConstruction = 100;
+
+    @Value("${product.similar.ef-search:64}")
+    private int efSearch = 64;
+
+    @Value("${product.similar.compact-ratio:0.3}")
+    private double compactRatio = 0.3;
+
+    @Value("${product.similar.compact-min-deleted:1000}")
+    private int compactMinDeleted = 1000;
+
+    private ProductTextVectorizer vectorizer;
+    private Timer searchTimer;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        vectorizer = new ProductTextVectorizer(dimensions);
+        searchTimer = Timer.builder("product.similar.search")
+                .description("Content-similarity nearest-neighbour search time")
+                .register(meterRegistry);
+        Gauge.builder("product.similar.products", this, s -> s.current() == null ? 0 : s.current().size())
+                .description("Products in the content-similarity index")
+                .register(meterRegistry);
+        Gauge.builder("product.similar.deleted", this, s -> s.current() == null ? 0 : s.current().deletedCount())
+                .description("Deleted nodes still held in the content-similarity graph")
+                .register(meterRegistry);
+        Gauge.builder("product.similar.offheap-bytes", this, s -> s.current() == null ? 0 : s.current().offHeapBytes())
+                .description("Off-heap memory used by content-similarity vectors")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Long> getSimilarProductIds(Long productId, int limit) {
+        HnswIndex index = current();
+        if (index == null || productId == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        long[] ids = index.searchSimilar(productId, limit);
+        searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        List<Long> result = new ArrayList<>();
+        if (ids != null) {
+            for (long id : ids) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected HnswIndex newIndex() {
+        return new HnswIndex(dimensions, m, efConstruction, efSearch, 42);
+    }
+
+    @Override
+    protected void put(HnswIndex index, Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        float[] vector = vectorizer.vectorize(product);
+        if (vector == null) {
+            index.remove(product.getId());
+        } else {
+            index.put(product.getId(), vector);
+        }
+        compactIfNeeded(index);
+    }
+
+    @Override
+    protected void remove(HnswIndex index, Long productId) {
+        index.remove(productId);
+        compactIfNeeded(index);
+    }
+
+    // 已删除节点过多时在后台重建；只检查正在使用的索引，重建过程中构建的新索引不会触发
+    private void compactIfNeeded(HnswIndex index) {
+        if (index != current()) {
+            return;
+        }
+        int deleted = index.deletedCount();
+        if (deleted < compactMinDeleted || deleted < compactRatio * (deleted + index.size())) {
+            return;
+        }
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                logger.info("相似商品索引中有 {} 个已删除节点，开始重建", deleted);
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.warn("相似商品索引重建失败", e);
+            } finally {
+                compacting.set(false);
+            }
+        }, "similar-index-compact");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
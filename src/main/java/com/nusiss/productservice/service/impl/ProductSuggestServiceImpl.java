@@ -0,0 +1,94 @@
+package com.nusiss.productservice.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.nusiss.productservice.dto.SuggestStats;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.ProductIndexMaintainer;
+import com.nusiss.productservice.index.ProductSuggestIndex;
+import com.nusiss.productservice.index.SuggestTrie;
+import com.nusiss.productservice.index.Suggestion;
+import com.nusiss.productservice.service.ProductSuggestService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ 基于内存前缀树的输入联想
+ - 每个前缀节点预先缓存评分最高的若干条结果，查询只需走完前缀路径，耗时与商品总数无关
+ - 重建与增量更新由 ProductIndexMaintainer 负责
+ - 内存占用通过 /products/suggest/stats 以及指标 product.suggest.memory.bytes 查看
+ */
+@Service
+public class ProductSuggestServiceImpl extends ProductIndexMaintainer<ProductSuggestIndex> implements ProductSuggestService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("product.suggest.memory.bytes", this,
+                        s -> s.current() == null ? 0 : s.current().estimateMemoryBytes())
+                .description("Estimated heap used by the typeahead suggest index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Suggestion> suggest(String query, int limit) {
+        if (!StringUtils.hasText(query) || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int size = Math.min(limit, SuggestTrie.TOP_K);
+        ProductSuggestIndex index = current();
+        if (index != null) {
+            return index.suggest(query, size);
+        }
+        // 索引未就绪：按名称前缀查询（前缀 LIKE 可以使用 name 上的索引）
+        List<Product> products = productMapper.selectList(Wrappers.<Product>lambdaQuery()
+                .select(Product::getId, Product::getName, Product::getRating)
+                .likeRight(Product::getName, query.trim())
+                .orderByDesc(Product::getRating)
+                .last("LIMIT " + size));
+        return products.stream()
+                .map(p -> new Suggestion(Suggestion.Kind.PRODUCT, p.getName(), p.getId(),
+                        p.getRating() == null ? 0 : p.getRating()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public SuggestStats getStats() {
+        SuggestStats stats = new SuggestStats();
+        ProductSuggestIndex index = current();
+        stats.setReady(index != null);
+        if (index != null) {
+            stats.setProductCount(index.productCount());
+            stats.setCategoryCount(index.categoryCount());
+            stats.setKeyCount(index.keyCount());
+            stats.setNodeCount(index.nodeCount());
+            stats.setEstimatedMemoryBytes(index.estimateMemoryBytes());
+        }
+        return stats;
+    }
+
+    @Override
+    protected ProductSuggestIndex newIndex() {
+        return new ProductSuggestIndex();
+    }
+
+    @Override
+    protected void put(ProductSuggestIndex index, Product product) {
+        index.put(product);
+    }
+
+    @Override
+    protected void remove(ProductSuggestIndex index, Long productId) {
+        index.remove(productId);
+    }
+}
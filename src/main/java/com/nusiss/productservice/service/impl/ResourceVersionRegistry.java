@@ -0,0 +1,87 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dto.VersionStamp;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ 内存中的资源版本号，供条件请求（If-None-Match / If-Modified-Since）在不查询数据库的情况下判断内容是否变化
+ - 商品列表类接口（全部 / 分页 / 筛选 / 排序）：任何商品变更都使目录版本加一
+ - 单个商品：记录每个商品最后一次变更的时间（ETag 由 ProductCache 按内容计算）
+ - 某商品的反馈列表：按商品记录反馈版本号；无法确定商品时使所有商品的反馈版本失效
+ 版本号只在本实例内有效，ETag 中带上实例标识，重启或换到其他实例时不会误判为未修改；
+ 其他实例上的变更通过 ProductChangeLogRelay 重新发布的事件同步过来
+ */
+@Component
+public class ResourceVersionRegistry {
+
+    // 实例标识，ETag 前缀
+    private final String instance = UUID.randomUUID().toString().substring(0, 8);
+
+    // 启动时间，没有记录到变更时作为 Last-Modified
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private volatile long catalogModifiedAt = startedAt;
+
+    private final Map<Long, Long> productModifiedAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong feedbackGeneration = new AtomicLong(); // 所有商品反馈的公共版本
+    private volatile long feedbackGenerationModifiedAt = startedAt;
+    private final Map<Long, long[]> feedbackVersions = new ConcurrentHashMap<>(); // 商品 ID -> {版本号, 修改时间}
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        long now = System.currentTimeMillis();
+        if (event.getProductId() != null) {
+            productModifiedAt.put(event.getProductId(), now);
+        }
+        catalogModifiedAt = now;
+        catalogVersion.incrementAndGet();
+    }
+
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        long now = System.currentTimeMillis();
+        if (event.getProductId() == null) {
+            feedbackGenerationModifiedAt = now;
+            feedbackGeneration.incrementAndGet();
+            return;
+        }
+        feedbackVersions.compute(event.getProductId(),
+                (id, current) -> new long[]{current == null ? 1 : current[0] + 1, now});
+    }
+
+    /*
+     商品目录的版本戳（列表、分页、筛选、排序接口共用，URL 不同的响应由客户端分别缓存）
+     */
+    public VersionStamp catalogStamp() {
+        long modifiedAt = catalogModifiedAt;
+        return new VersionStamp("c-" + instance + "-" + catalogVersion.get(), modifiedAt);
+    }
+
+    /*
+     单个商品的最后修改时间（本实例启动后没有变更过时为启动时间）
+     */
+    public long productModifiedAt(Long productId) {
+        return productModifiedAt.getOrDefault(productId, startedAt);
+    }
+
+    /*
+     某商品反馈列表的版本戳
+     */
+    public VersionStamp feedbackStamp(Long productId) {
+        long[] version = feedbackVersions.get(productId);
+        long perProduct = version == null ? 0 : version[0];
+        long modifiedAt = Math.max(version == null ? startedAt : version[1], feedbackGenerationModifiedAt);
+        return new VersionStamp("f-" + instance + "-" + feedbackGeneration.get() + "-" + productId + "-" + perProduct,
+                modifiedAt);
+    }
+}
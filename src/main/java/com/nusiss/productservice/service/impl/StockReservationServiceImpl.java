@@ -0,0 +1,570 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dao.ProductStockLeaseMapper;
+import com.nusiss.productservice.dao.ProductStockReservationMapper;
+import com.nusiss.productservice.dto.StockReservation;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.entity.ProductStockLease;
+import com.nusiss.productservice.entity.ProductStockReservation;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.reservation.StripedStockCounter;
+import com.nusiss.productservice.service.StockReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ StockReservationService 实现类
+ - Products.stock 始终是尚未售出的实物库存，只在确认预留时扣减，商品列表、导出、快照读到的都是真实库存
+ - 每个实例按商品租用一小块库存额度（lease-size），记在 product_stock_lease 表中；续租时锁定商品行，
+   保证所有实例的额度之和不超过 Products.stock，因此多副本部署也不会超卖
+ - 租到的额度放在分段计数器（StripedStockCounter）中，额度内的预留只做内存 CAS 加一条预留记录；额度用完再续租
+ - 预留记录保存在 product_stock_reservation 表中，任意实例都能确认 / 释放；状态变化是带 status = 'HELD' 条件的 UPDATE，
+   确认、释放、过期只有一方成功；确认在同一个事务中扣减 Products.stock 和创建预留的实例的额度
+ - 释放 / 过期的库存回到创建预留的实例的额度：就是本实例时放回计数器，否则直接减少对方的额度行
+ - 一段时间没有预留的商品，剩余额度批量退回（合并成一条 UPDATE ... quantity = quantity - n）；服务停止时退回全部额度
+ - 可售库存 = Products.stock - HELD 预留之和，不含任何实例的本地状态，所有实例查询结果一致
+ - 每个 reconcile 周期刷新本实例额度行的心跳；心跳超过 lease-stale-seconds 的实例（进程异常退出）由其他实例
+   把额度收回到其 HELD 预留之和。本实例超过一半时间没有心跳成功时拒绝预留、丢弃本地额度，恢复后按 HELD 预留重新同步，
+   避免额度被其他实例收回后仍在使用；各实例的时钟偏差须远小于 lease-stale-seconds 的一半
+ 注意：后台直接把 Products.stock 改到低于已租出的额度时，在额度退回之前不会再续租，已预留的仍可确认（库存扣到 0 为止）
+ */
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ProductStockReservationMapper reservationMapper;
+
+    @Autowired
+    private ProductStockLeaseMapper leaseMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // 确认扣减库存后通知内存索引
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.reservation.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    @Value("${product.reservation.max-quantity:10}")
+    private int maxQuantity = 10;
+
+    @Value("${product.reservation.stripes:16}")
+    private int stripes = 16;
+
+    @Value("${product.reservation.lease-size:20}")
+    private int leaseSize = 20; // 每次向数据库租用的库存件数
+
+    @Value("${product.reservation.lease-idle-seconds:30}")
+    private long leaseIdleSeconds = 30; // 超过该时间没有预留的商品，剩余额度退回数据库
+
+    @Value("${product.reservation.lease-stale-seconds:60}")
+    private long leaseStaleSeconds = 60; // 超过该时间没有心跳的实例，其额度由其他实例收回
+
+    @Value("${product.reservation.sold-out-recheck-ms:500}")
+    private long soldOutRecheckMs = 500; // 数据库库存不足后，该时间内不再向数据库续租
+
+    @Value("${product.reservation.sweep-batch-size:500}")
+    private int sweepBatchSize = 500;
+
+    @Value("${product.reservation.reconcile-batch-size:500}")
+    private int reconcileBatchSize = 500;
+
+    @Value("${product.reservation.retention-hours:24}")
+    private long retentionHours = 24; // 已结束的预留保留时长
+
+    // 本实例在 product_stock_lease 中的 owner
+    private final String owner = UUID.randomUUID().toString();
+
+    // 本实例租用的库存额度
+    private final Map<Long, SkuStock> stocks = new ConcurrentHashMap<>();
+
+    // 待退回数据库的额度：商品 ID -> 数量；与 epoch 一起在 synchronized (returns) 内修改
+    private final Map<Long, Long> returns = new ConcurrentHashMap<>();
+
+    // 本地额度被整体丢弃（心跳超时）的次数；丢弃前开始的释放不再退回额度，由重新同步统一处理
+    private volatile long epoch;
+
+    // 丢弃本地额度后，需要按 HELD 预留重新同步本实例的额度行
+    private boolean resyncPending; // 只在 reconcileLock 内读写
+
+    // 最近一次心跳成功的时间（毫秒时间戳）
+    private volatile long heartbeatAt = System.currentTimeMillis();
+
+    // Products.stock 发生了变化（确认）、需要通知内存索引的商品
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    // 串行化心跳、退回额度和重新同步
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+
+    /*
+     预留库存
+     */
+    @Override
+    public StockReservation reserve(Long productId, int quantity) {
+        if (quantity <= 0 || quantity > maxQuantity) {
+            throw new CustomException("quantity must be between 1 and " + maxQuantity);
+        }
+        if (productId == null) {
+            throw new CustomException("Product not found");
+        }
+        if (lapsed(System.currentTimeMillis())) {
+            throw new ServiceBusyException("Stock leases are being re-synchronised, please retry later", 1);
+        }
+        long epochAtStart = epoch;
+        while (true) {
+            SkuStock sku = stocks.computeIfAbsent(productId, id -> new SkuStock(new StripedStockCounter(0, stripes)));
+            long now = System.currentTimeMillis();
+            if (now - sku.lastUsed > 1000) {
+                sku.lastUsed = now; // 只用于判断空闲，精度一秒即可，避免每次预留都写同一个字段
+            }
+            if (sku.counter.tryTake(quantity)) {
+                break;
+            }
+            Boolean leased = lease(productId, sku, quantity, epochAtStart);
+            if (leased == null) {
+                continue; // 额度刚被退回，重新取
+            }
+            if (!leased) {
+                meterRegistry.counter("product.reservation", "result", "sold_out").increment();
+                return null;
+            }
+            break;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        ProductStockReservation reservation = new ProductStockReservation();
+        reservation.setId(UUID.randomUUID().toString());
+        reservation.setProductId(productId);
+        reservation.setOwner(owner);
+        reservation.setQuantity(quantity);
+        reservation.setStatus(ProductStockReservation.HELD);
+        reservation.setExpiresAt(now.plusSeconds(ttlSeconds));
+        reservation.setCreateDatetime(now);
+        reservation.setUpdateDatetime(now);
+        try {
+            reservationMapper.insert(reservation);
+        } catch (RuntimeException e) {
+            giveBack(productId, quantity, epochAtStart);
+            throw e;
+        }
+        if (epoch != epochAtStart) {
+            // 预留期间本地额度被丢弃并重新同步，同步时可能还看不到这条预留：补记到额度上，宁可少卖
+            leaseMapper.add(productId, owner, quantity, now);
+        }
+        meterRegistry.counter("product.reservation", "result", "reserved").increment();
+        return new StockReservation(reservation.getId(), productId, quantity, reservation.getExpiresAt());
+    }
+
+    /*
+     本地额度不足时续租，至少 quantity 件；成功时 quantity 件直接归本次预留，其余放入计数器
+     续租在一个事务中：锁定商品行，可租 = Products.stock - 所有实例的额度之和，再增加本实例的额度行
+     @return 是否租到；额度已被退回（需要重新取 SkuStock）时返回 null
+     */
+    private Boolean lease(Long productId, SkuStock sku, int quantity, long epochAtStart) {
+        synchronized (sku) {
+            if (epoch != epochAtStart) {
+                // 本地额度刚被丢弃，重新同步之前不能再续租，否则新租的额度会被同步覆盖
+                throw new ServiceBusyException("Stock leases are being re-synchronised, please retry later", 1);
+            }
+            if (sku.retired) {
+                return null;
+            }
+            if (sku.counter.tryTake(quantity)) {
+                return true; // 等锁期间其他线程已续租
+            }
+            if (System.currentTimeMillis() - sku.soldOutAt < soldOutRecheckMs) {
+                return false;
+            }
+            Long granted = transactionTemplate.execute(status -> {
+                Long dbStock = productMapper.lockStock(productId);
+                if (dbStock == null) {
+                    return null;
+                }
+                long free = dbStock - leaseMapper.sumLeased(productId);
+                if (free < quantity) {
+                    return 0L;
+                }
+                long n = Math.min(free, Math.max(leaseSize, quantity));
+                leaseMapper.add(productId, owner, n, LocalDateTime.now());
+                return n;
+            });
+            if (granted == null) {
+                sku.retired = true;
+                stocks.remove(productId, sku);
+                throw new CustomException("Product not found");
+            }
+            if (granted == 0) {
+                sku.soldOutAt = System.currentTimeMillis();
+                return false;
+            }
+            sku.counter.add(granted - quantity);
+            return true;
+        }
+    }
+
+    /*
+     确认预留：任意实例都可以确认；在一个事务中修改预留状态、扣减 Products.stock 和创建预留的实例的额度
+     锁顺序与续租一致（先商品行再额度行）
+     */
+    @Override
+    public boolean confirm(String reservationId) {
+        ProductStockReservation reservation = reservationId == null ? null : reservationMapper.selectById(reservationId);
+        if (reservation == null || !ProductStockReservation.HELD.equals(reservation.getStatus())) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Long productId = reservation.getProductId();
+        int quantity = reservation.getQuantity();
+        Boolean confirmed = transactionTemplate.execute(status -> {
+            productMapper.lockStock(productId);
+            leaseMapper.lock(productId, reservation.getOwner());
+            if (reservationMapper.confirm(reservationId, now) != 1) {
+                return false;
+            }
+            productMapper.sellStock(productId, quantity);
+            leaseMapper.reduce(productId, reservation.getOwner(), quantity);
+            return true;
+        });
+        if (Boolean.TRUE.equals(confirmed)) {
+            changed.add(productId);
+            meterRegistry.counter("product.reservation", "result", "confirmed").increment();
+            return true;
+        }
+        // 已结束或已过期；已过期但清理任务还没来得及处理的，就地释放
+        if (finish(reservation, true, now)) {
+            meterRegistry.counter("product.reservation", "result", "expired").increment();
+        }
+        return false;
+    }
+
+    /*
+     释放预留，库存退回
+     */
+    @Override
+    public boolean release(String reservationId) {
+        ProductStockReservation reservation = reservationId == null ? null : reservationMapper.selectById(reservationId);
+        if (reservation == null || !ProductStockReservation.HELD.equals(reservation.getStatus())
+                || !finish(reservation, false, LocalDateTime.now())) {
+            return false;
+        }
+        meterRegistry.counter("product.reservation", "result", "released").increment();
+        return true;
+    }
+
+    /*
+     释放 / 过期一条预留：锁定创建预留的实例的额度行后修改状态；库存回到该实例的额度，
+     是其他实例时在同一个事务中减少其额度行，是本实例时提交后放回计数器
+     @return 状态是否由本次调用修改
+     */
+    private boolean finish(ProductStockReservation reservation, boolean expire, LocalDateTime now) {
+        Long productId = reservation.getProductId();
+        boolean local = owner.equals(reservation.getOwner());
+        long epochAtStart = epoch;
+        Boolean finished = transactionTemplate.execute(status -> {
+            leaseMapper.lock(productId, reservation.getOwner());
+            int updated = expire
+                    ? reservationMapper.expire(reservation.getId(), now)
+                    : reservationMapper.release(reservation.getId(), now);
+            if (updated != 1) {
+                return false;
+            }
+            if (!local) {
+                leaseMapper.reduce(productId, reservation.getOwner(), reservation.getQuantity());
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(finished)) {
+            return false;
+        }
+        if (local) {
+            giveBack(productId, reservation.getQuantity(), epochAtStart);
+        }
+        return true;
+    }
+
+    /*
+     可售库存 = Products.stock - HELD 预留之和，与本地额度无关
+     */
+    @Override
+    public Long getAvailableStock(Long productId) {
+        Product product = productId == null ? null : productMapper.selectById(productId);
+        if (product == null) {
+            return null;
+        }
+        long dbStock = product.getStock() == null ? 0 : product.getStock();
+        return Math.max(0, dbStock - reservationMapper.sumHeld(productId));
+    }
+
+    /*
+     定时释放超时未确认的预留（包括其他实例创建的），每次最多 sweepBatchSize 条
+     */
+    @Scheduled(fixedDelayString = "${product.reservation.sweep-interval-ms:1000}")
+    public void expireReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (ProductStockReservation reservation : reservationMapper.selectExpired(now, sweepBatchSize)) {
+            if (finish(reservation, true, now)) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            meterRegistry.counter("product.reservation", "result", "expired").increment(expired);
+            logger.info("释放过期库存预留 {} 个", expired);
+        }
+    }
+
+    /*
+     定时刷新心跳、退回空闲商品的额度，并把待退回的额度批量写回 product_stock_lease，
+     每批最多 reconcileBatchSize 个商品、一条 UPDATE
+     */
+    @Scheduled(fixedDelayString = "${product.reservation.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            heartbeat();
+            retireLeases(System.currentTimeMillis() - leaseIdleSeconds * 1000);
+            flushReturns();
+            publishChanged();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /*
+     定时删除已结束超过 retentionHours 的预留，收回心跳超时的实例的额度
+     */
+    @Scheduled(fixedDelayString = "${product.reservation.cleanup-interval-ms:60000}")
+    public void purgeFinished() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        int deleted;
+        do {
+            deleted = reservationMapper.deleteFinishedBefore(before, sweepBatchSize);
+        } while (deleted >= sweepBatchSize);
+        reclaimStaleLeases();
+    }
+
+    // 刷新本实例额度行的心跳；心跳已超时则先丢弃本地额度，心跳恢复时按 HELD 预留重新同步
+    private void heartbeat() {
+        long now = System.currentTimeMillis();
+        if (lapsed(now) && !resyncPending) {
+            dropLeases();
+        }
+        try {
+            if (resyncPending) {
+                for (ProductStockLease lease : leaseMapper.selectByOwner(owner)) {
+                    resetLease(lease.getProductId(), owner);
+                }
+                resyncPending = false;
+                logger.info("库存额度已按持有的预留重新同步");
+            }
+            leaseMapper.touch(owner, LocalDateTime.now());
+            heartbeatAt = now;
+        } catch (RuntimeException e) {
+            logger.warn("库存额度心跳失败", e);
+        }
+    }
+
+    private boolean lapsed(long now) {
+        return now - heartbeatAt > leaseStaleSeconds * 500;
+    }
+
+    // 丢弃全部本地额度和待退回的额度（不写库），之后由重新同步把本实例的额度行设为 HELD 预留之和
+    private void dropLeases() {
+        synchronized (returns) {
+            epoch++;
+            returns.clear();
+        }
+        resyncPending = true;
+        for (Map.Entry<Long, SkuStock> entry : stocks.entrySet()) {
+            SkuStock sku = entry.getValue();
+            synchronized (sku) {
+                sku.retired = true;
+            }
+            stocks.remove(entry.getKey(), sku);
+        }
+        logger.warn("库存额度心跳超过 {} 秒未成功，已丢弃本地额度，等待重新同步", leaseStaleSeconds / 2);
+    }
+
+    // 收回心跳超时的实例的额度，删除已收回的空额度行和商品已删除的额度行
+    private void reclaimStaleLeases() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(leaseStaleSeconds);
+        int reclaimed = 0;
+        for (ProductStockLease lease : leaseMapper.selectStale(before, reconcileBatchSize)) {
+            if (!owner.equals(lease.getOwner())) {
+                resetLease(lease.getProductId(), lease.getOwner());
+                reclaimed++;
+            }
+        }
+        leaseMapper.deleteEmptyBefore(before);
+        leaseMapper.deleteOrphaned();
+        if (reclaimed > 0) {
+            logger.info("收回心跳超时实例的库存额度 {} 个", reclaimed);
+        }
+    }
+
+    // 锁定额度行后把额度设为 HELD 预留之和，与该行上的确认 / 释放串行执行
+    private void resetLease(Long productId, String leaseOwner) {
+        transactionTemplate.execute(status -> {
+            leaseMapper.lock(productId, leaseOwner);
+            return leaseMapper.resetToHeld(productId, leaseOwner);
+        });
+    }
+
+    // 把 lastUsed 早于 cutoff 的商品额度退回（放入待退回）
+    private void retireLeases(long cutoff) {
+        for (Map.Entry<Long, SkuStock> entry : stocks.entrySet()) {
+            SkuStock sku = entry.getValue();
+            if (sku.lastUsed >= cutoff) {
+                continue;
+            }
+            synchronized (sku) {
+                if (sku.retired || sku.lastUsed >= cutoff) {
+                    continue;
+                }
+                sku.retired = true;
+                stocks.remove(entry.getKey(), sku);
+                long unused = sku.counter.drain(Long.MAX_VALUE);
+                if (unused > 0) {
+                    synchronized (returns) {
+                        returns.merge(entry.getKey(), unused, Long::sum);
+                    }
+                }
+            }
+        }
+    }
+
+    private void flushReturns() {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        for (Long productId : new ArrayList<>(returns.keySet())) {
+            Long quantity = returns.remove(productId);
+            if (quantity != null && quantity > 0) {
+                deltas.put(productId, quantity);
+            }
+            if (deltas.size() >= reconcileBatchSize) {
+                flush(deltas);
+                deltas = new LinkedHashMap<>();
+            }
+        }
+        if (!deltas.isEmpty()) {
+            flush(deltas);
+        }
+    }
+
+    // 写回一批退回的额度；失败时放回待退回，下个周期重试
+    private void flush(Map<Long, Long> deltas) {
+        try {
+            leaseMapper.returnBatch(owner, deltas);
+        } catch (RuntimeException e) {
+            synchronized (returns) {
+                deltas.forEach((productId, quantity) -> returns.merge(productId, quantity, Long::sum));
+            }
+            logger.warn("库存额度退回失败，{} 个商品的额度将在下个周期重试", deltas.size(), e);
+        }
+    }
+
+    // 确认改变了 Products.stock 的商品，每个周期统一通知一次
+    private void publishChanged() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(changed);
+        changed.removeAll(ids);
+        productMapper.selectBatchIds(ids)
+                .forEach(product -> eventPublisher.publishEvent(ProductChangedEvent.updated(product)));
+    }
+
+    // 本实例的额度中又空出的库存：优先放回计数器，计数器已退回时等待批量退回；
+    // 期间本地额度被整体丢弃过（epoch 变化）时不再退回，重新同步会把额度设为 HELD 预留之和
+    private void giveBack(Long productId, int quantity, long epochAtStart) {
+        SkuStock sku = stocks.get(productId);
+        if (sku != null) {
+            synchronized (sku) {
+                if (!sku.retired) {
+                    sku.counter.add(quantity);
+                    return;
+                }
+            }
+        }
+        synchronized (returns) {
+            if (epoch == epochAtStart) {
+                returns.merge(productId, (long) quantity, Long::sum);
+            }
+        }
+    }
+
+    /*
+     商品被删除时丢弃本地额度（额度行由 purgeFinished 删除，无需退回）
+     */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.DELETED || event.getProductId() == null) {
+            return;
+        }
+        SkuStock sku = stocks.remove(event.getProductId());
+        if (sku != null) {
+            synchronized (sku) {
+                sku.retired = true;
+            }
+        }
+        returns.remove(event.getProductId());
+    }
+
+    // 服务停止前退回全部额度和待退回的额度
+    @PreDestroy
+    public void shutdown() {
+        reconcileLock.lock();
+        try {
+            retireLeases(Long.MAX_VALUE);
+            flushReturns();
+            publishChanged();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /*
+     一个商品在本实例租用的库存额度
+     */
+    private static final class SkuStock {
+        final StripedStockCounter counter; // 租到但尚未预留的库存
+        volatile long lastUsed;            // 最近一次预留的时间（毫秒时间戳）
+        long soldOutAt;                    // 最近一次续租时数据库库存不足的时间，只在锁内读写
+        boolean retired;                   // 额度已退回，不能再加回库存，只在锁内读写
+
+        SkuStock(StripedStockCounter counter) {
+            this.counter = counter;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.nusiss.productservice.util;
+
+import com.nusiss.productservice.dto.VersionStamp;
+import org.springframework.web.context.request.WebRequest;
+
+/*
+ HTTP 条件请求工具（If-None-Match / If-Modified-Since）
+ 在查询数据之前调用：内容未变化时 WebRequest 已把响应状态设为 304，控制器直接返回 null，不查询也不序列化响应体；
+ 否则在响应中写入 ETag / Last-Modified 后照常返回数据。If-None-Match 优先于 If-Modified-Since
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /*
+     @param request 当前请求
+     @param stamp 资源的版本戳；为 null（资源不存在或无法确定版本）时不做条件判断
+     @return true 表示客户端缓存仍然有效，应直接返回 304
+     */
+    public static boolean notModified(WebRequest request, VersionStamp stamp) {
+        return stamp != null && request.checkNotModified(stamp.getEtag(), stamp.getLastModified());
+    }
+}
@@ -0,0 +1,137 @@
+package com.nusiss.productservice.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nusiss.productservice.config.CustomException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+ 游标（keyset / seek）分页工具
+ 游标令牌对客户端不透明，内容为：排序字段 + 排序方向 + 上一页最后一条记录的排序值 + 该记录的 id。
+ 下一页通过 WHERE (排序值, id) 在上一条之后 + ORDER BY 排序值, id + LIMIT 实现，
+ 无论翻到第几页都只读取 size + 1 行，且插入/删除数据不会导致翻页重复或遗漏。
+
+ NULL 的处理与 MySQL 排序规则保持一致：升序时 NULL 排在最前，降序时 NULL 排在最后。
+ */
+public final class KeysetCursor {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+    private static final String NULL_VALUE = "~"; // 排序值为 NULL 时的占位符
+
+    private final String sortBy;    // 排序字段（数据库列名）
+    private final boolean asc;      // 是否升序
+    private final String lastValue; // 上一页最后一条记录的排序值（字符串形式，NULL 时为 null）
+    private final long lastId;      // 上一页最后一条记录的 id
+
+    public KeysetCursor(String sortBy, boolean asc, Object lastValue, long lastId) {
+        this.sortBy = sortBy;
+        this.asc = asc;
+        this.lastValue = lastValue != null ? lastValue.toString() : null;
+        this.lastId = lastId;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public boolean isAsc() {
+        return asc;
+    }
+
+    public String getLastValue() {
+        return lastValue;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    /*
+     编码为 URL 安全的不透明令牌
+     */
+    public String encode() {
+        String raw = String.join(SEPARATOR, VERSION, sortBy, asc ? "asc" : "desc",
+                lastValue != null ? lastValue : NULL_VALUE, Long.toString(lastId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     解析客户端传入的游标令牌
+     @param token 游标令牌，为空表示第一页
+     @return 解析后的游标，第一页返回 null
+     @throws CustomException 令牌格式非法
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new CustomException("Invalid cursor");
+            }
+            String value = NULL_VALUE.equals(parts[3]) ? null : parts[3];
+            return new KeysetCursor(parts[1], "asc".equals(parts[2]), value, Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException e) {
+            throw new CustomException("Invalid cursor");
+        }
+    }
+
+    /*
+     校验游标与本次请求的排序方式一致（同一个游标不能换排序条件继续翻页）
+     */
+    public void checkMatches(String sortBy, boolean asc) {
+        if (!this.sortBy.equals(sortBy) || this.asc != asc) {
+            throw new CustomException("Cursor does not match the requested sort order");
+        }
+    }
+
+    /*
+     追加 seek 条件：只返回排在 (lastValue, lastId) 之后的记录
+     @param wrapper 查询条件
+     @param column 排序列
+     @param typedLastValue 已转换为列类型的上一条排序值（可为 null）
+     */
+    public <T> void applySeek(QueryWrapper<T> wrapper, String column, Object typedLastValue) {
+        if ("id".equals(column)) {
+            if (asc) {
+                wrapper.gt("id", lastId);
+            } else {
+                wrapper.lt("id", lastId);
+            }
+            return;
+        }
+
+        if (asc) {
+            if (typedLastValue == null) {
+                // 上一条为 NULL：剩余的 NULL（按 id）以及所有非 NULL
+                wrapper.and(w -> w.nested(n -> n.isNull(column).gt("id", lastId)).or().isNotNull(column));
+            } else {
+                wrapper.and(w -> w.gt(column, typedLastValue)
+                        .or().nested(n -> n.eq(column, typedLastValue).gt("id", lastId)));
+            }
+        } else {
+            if (typedLastValue == null) {
+                // 降序时 NULL 排在最后，只剩下 id 更小的 NULL
+                wrapper.isNull(column).lt("id", lastId);
+            } else {
+                wrapper.and(w -> w.lt(column, typedLastValue)
+                        .or().nested(n -> n.eq(column, typedLastValue).lt("id", lastId))
+                        .or().isNull(column));
+            }
+        }
+    }
+
+    /*
+     追加与 seek 条件对应的排序：ORDER BY column, id（同方向），id 作为唯一的决胜键
+     */
+    public static <T> void applyOrder(QueryWrapper<T> wrapper, String column, boolean asc) {
+        wrapper.orderBy(true, asc, column);
+        if (!"id".equals(column)) {
+            wrapper.orderBy(true, asc, "id");
+        }
+    }
+}
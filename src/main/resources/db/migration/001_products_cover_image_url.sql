@@ -0,0 +1,3 @@
+-- 商品封面图持久化：cover_image_url 由 ProductMedia 的增删改维护（见 ProductCoverService）
+-- 执行后调用 POST /media/covers/backfill 回填已有商品，GET /media/covers/drift 检查一致性
+ALTER TABLE Products ADD COLUMN cover_image_url VARCHAR(512) NULL;
@@ -0,0 +1,10 @@
+-- 商品变更日志：每个实例把本地的商品增删改追加到这里，其他实例轮询 id > 游标 的新记录来失效本地缓存 / 索引
+-- 只保留最近一段时间（product.change-log.retention-minutes），由各实例定期清理
+CREATE TABLE product_change_log (
+    id              BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    product_id      BIGINT      NOT NULL,
+    change_type     VARCHAR(16) NOT NULL,
+    origin          VARCHAR(64) NOT NULL,
+    create_datetime DATETIME(3) NOT NULL,
+    INDEX idx_product_change_log_create_datetime (create_datetime)
+);
@@ -0,0 +1,28 @@
+-- 商品评分汇总：反馈数、评分数、评分总和与 1-5 星分布，由反馈的增删改在同一事务中增量维护（见 ProductRatingAggregator）
+-- 平均评分 / 评论数接口只读这一行；Products.rating 随之同步为平均评分
+CREATE TABLE product_rating_summary (
+    product_id      BIGINT      NOT NULL PRIMARY KEY,
+    feedback_count  BIGINT      NOT NULL DEFAULT 0,
+    rating_count    BIGINT      NOT NULL DEFAULT 0,
+    rating_sum      BIGINT      NOT NULL DEFAULT 0,
+    star_1          BIGINT      NOT NULL DEFAULT 0,
+    star_2          BIGINT      NOT NULL DEFAULT 0,
+    star_3          BIGINT      NOT NULL DEFAULT 0,
+    star_4          BIGINT      NOT NULL DEFAULT 0,
+    star_5          BIGINT      NOT NULL DEFAULT 0,
+    update_datetime DATETIME(3) NOT NULL
+);
+
+-- 回填已有反馈（在新版本上线前执行）
+INSERT INTO product_rating_summary
+    (product_id, feedback_count, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5, update_datetime)
+SELECT product_id, COUNT(*), COUNT(rating), COALESCE(SUM(rating), 0),
+       COALESCE(SUM(rating = 1), 0), COALESCE(SUM(rating = 2), 0), COALESCE(SUM(rating = 3), 0),
+       COALESCE(SUM(rating = 4), 0), COALESCE(SUM(rating = 5), 0), NOW(3)
+FROM ProductFeedback
+WHERE product_id IS NOT NULL
+GROUP BY product_id;
+
+UPDATE Products p JOIN product_rating_summary s ON s.product_id = p.id
+SET p.rating = s.rating_sum / s.rating_count
+WHERE s.rating_count > 0;
@@ -0,0 +1,41 @@
+-- 商品反馈的按天统计桶：每个商品每天一行（按反馈的创建日期），反馈数、评分数、评分总和与 1-5 星分布
+-- 与 product_rating_summary 一样由反馈的增删改在同一事务中增量维护（见 ProductRatingAggregator）
+CREATE TABLE product_feedback_daily (
+    product_id      BIGINT NOT NULL,
+    bucket_date     DATE   NOT NULL,
+    feedback_count  BIGINT NOT NULL DEFAULT 0,
+    rating_count    BIGINT NOT NULL DEFAULT 0,
+    rating_sum      BIGINT NOT NULL DEFAULT 0,
+    star_1          BIGINT NOT NULL DEFAULT 0,
+    star_2          BIGINT NOT NULL DEFAULT 0,
+    star_3          BIGINT NOT NULL DEFAULT 0,
+    star_4          BIGINT NOT NULL DEFAULT 0,
+    star_5          BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id, bucket_date)
+);
+
+-- 超过保留天数的按天统计桶由定时任务合并到按月统计桶（bucket_month 为当月 1 日）
+CREATE TABLE product_feedback_monthly (
+    product_id      BIGINT NOT NULL,
+    bucket_month    DATE   NOT NULL,
+    feedback_count  BIGINT NOT NULL DEFAULT 0,
+    rating_count    BIGINT NOT NULL DEFAULT 0,
+    rating_sum      BIGINT NOT NULL DEFAULT 0,
+    star_1          BIGINT NOT NULL DEFAULT 0,
+    star_2          BIGINT NOT NULL DEFAULT 0,
+    star_3          BIGINT NOT NULL DEFAULT 0,
+    star_4          BIGINT NOT NULL DEFAULT 0,
+    star_5          BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id, bucket_month)
+);
+
+-- 回填已有反馈（在新版本上线前执行）；超过保留天数的部分由第一次合并任务移到按月统计桶
+-- 没有创建时间的历史反馈不计入统计桶（只计入 product_rating_summary）
+INSERT INTO product_feedback_daily
+    (product_id, bucket_date, feedback_count, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5)
+SELECT product_id, DATE(create_datetime), COUNT(*), COUNT(rating), COALESCE(SUM(rating), 0),
+       COALESCE(SUM(rating = 1), 0), COALESCE(SUM(rating = 2), 0), COALESCE(SUM(rating = 3), 0),
+       COALESCE(SUM(rating = 4), 0), COALESCE(SUM(rating = 5), 0)
+FROM ProductFeedback
+WHERE product_id IS NOT NULL AND create_datetime IS NOT NULL
+GROUP BY product_id, DATE(create_datetime);
@@ -0,0 +1,6 @@
+-- 商品反馈列表（/feedback/by-product）的排序索引：与 WHERE product_id = ? ORDER BY 排序列, id 一致，
+-- 分页与游标分页都沿索引顺序读取，不需要 filesort；游标分页按 (排序列, id) 直接定位到上一页的末尾
+-- 不指定排序字段时按 id 排序，使用 (product_id, id)
+CREATE INDEX idx_product_feedback_product_id_id ON ProductFeedback (product_id, id);
+CREATE INDEX idx_product_feedback_product_rating ON ProductFeedback (product_id, rating, id);
+CREATE INDEX idx_product_feedback_product_created ON ProductFeedback (product_id, create_datetime, id);
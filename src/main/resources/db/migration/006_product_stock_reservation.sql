@@ -0,0 +1,31 @@
+-- 秒杀库存预留：所有实例共享，任意实例都能确认 / 释放其他实例创建的预留
+-- Products.stock 始终是尚未售出的实物库存，只有确认时才扣减；各实例租用的额度记在 product_stock_lease 中，
+-- 续租时锁定商品行（SELECT ... FOR UPDATE），保证 所有额度之和 <= Products.stock，多副本不会超卖
+-- 预留状态只能从 HELD 变为 CONFIRMED / RELEASED / EXPIRED 之一（条件 UPDATE 保证只有一方成功）；
+-- 可售库存 = Products.stock - HELD 预留之和，任意实例查询结果一致
+CREATE TABLE product_stock_reservation (
+    id              VARCHAR(36) NOT NULL PRIMARY KEY,
+    product_id      BIGINT      NOT NULL,
+    owner           VARCHAR(36) NOT NULL, -- 创建预留的实例，预留的库存来自该实例的额度
+    quantity        INT         NOT NULL,
+    status          VARCHAR(16) NOT NULL,
+    expires_at      DATETIME(3) NOT NULL,
+    create_datetime DATETIME(3) NOT NULL,
+    update_datetime DATETIME(3) NOT NULL,
+    INDEX idx_product_stock_reservation_status_expires (status, expires_at),
+    INDEX idx_product_stock_reservation_status_updated (status, update_datetime),
+    INDEX idx_product_stock_reservation_product_status (product_id, status, owner)
+);
+
+-- 每个实例在每个商品上租用的额度：quantity = 尚未预留的额度 + 该实例创建的 HELD 预留，确认 / 释放到其他实例时减少
+-- update_datetime 是实例的心跳；超过 product.reservation.lease-stale-seconds 没有心跳的实例（进程异常退出）
+-- 由其他实例把额度收回到其 HELD 预留之和
+CREATE TABLE product_stock_lease (
+    product_id      BIGINT      NOT NULL,
+    owner           VARCHAR(36) NOT NULL,
+    quantity        BIGINT      NOT NULL,
+    update_datetime DATETIME(3) NOT NULL,
+    PRIMARY KEY (product_id, owner),
+    INDEX idx_product_stock_lease_owner (owner),
+    INDEX idx_product_stock_lease_updated (update_datetime)
+);
@@ -0,0 +1,10 @@
+-- 按段分配的 ID 序列：各实例每次取一段连续的 ID（next_id 前移 block-size），在内存中逐个分配，见 FeedbackIdAllocator
+-- 反馈的写缓冲需要在写入数据库之前返回 ID；ID 仍与 AUTO_INCREMENT 处于同一范围，不会超过 JavaScript 能精确表示的整数
+-- 只有启用写缓冲（product.feedback.write-behind.enabled=true）时才需要，必须在启用之前执行
+CREATE TABLE id_block_sequence (
+    name    VARCHAR(64) NOT NULL PRIMARY KEY,
+    next_id BIGINT      NOT NULL
+);
+
+INSERT INTO id_block_sequence (name, next_id)
+SELECT 'ProductFeedback', COALESCE(MAX(id), 0) + 1 FROM ProductFeedback;
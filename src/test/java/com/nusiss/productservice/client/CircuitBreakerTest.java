@@ -0,0 +1,80 @@
+package com.nusiss.productservice.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1000, now::get);
+
+    private void call(boolean success) {
+        assertTrue(breaker.tryAcquire());
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    @Test
+    void testOpensAtFailureRateAfterMinimumCalls() {
+        call(false); // 只有 1 次调用，未达到 minimumCalls
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(true);  // 1/2 = 50%
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState()); // 成功不会打开
+
+        call(false); // 2/3
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void testSlidingWindowForgetsOldFailures() {
+        call(false);
+        call(true);
+        call(true);
+        call(true);
+        call(true); // 最早的失败被移出窗口
+        call(false); // 1/4
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpenAllowsSingleTrial() {
+        call(false);
+        call(false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(1000);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire()); // 试探期间只放行一次
+
+        breaker.onFailure(); // 试探失败，重新打开
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(1000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(); // 试探成功，关闭并清空统计
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testReleaseReturnsTrialPermit() {
+        call(false);
+        call(false);
+        now.addAndGet(1000);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,175 @@
+package com.nusiss.productservice.client;
+
+import com.nusiss.productservice.event.OrderHistoryFetchedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ 使用本地订单服务桩 StubOrderHistorySource 注入延迟和故障
+ */
+class OrderHistoryClientTest {
+
+    private final StubOrderHistorySource orderService = new StubOrderHistorySource();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+
+    private OrderHistoryClient client;
+
+    @BeforeEach
+    void setUp() {
+        orderService.setPurchases(1L, List.of(3L, 5L));
+        client = newClient(200, 300, 4, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    private OrderHistoryClient newClient(long timeoutMillis, long cacheTtlSeconds, int maxConcurrent, int maxQueued) {
+        OrderHistoryClient c = new OrderHistoryClient();
+        ReflectionTestUtils.setField(c, "source", orderService);
+        ReflectionTestUtils.setField(c, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(c, "eventPublisher", (ApplicationEventPublisher) events::add);
+        ReflectionTestUtils.setField(c, "timeoutMillis", timeoutMillis);
+        ReflectionTestUtils.setField(c, "cacheTtlSeconds", cacheTtlSeconds);
+        ReflectionTestUtils.setField(c, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(c, "maxQueued", maxQueued);
+        ReflectionTestUtils.setField(c, "circuitWindowSize", 4);
+        ReflectionTestUtils.setField(c, "circuitMinimumCalls", 2);
+        c.init();
+        return c;
+    }
+
+    private List<Long> get(long userId) throws Exception {
+        return client.getPurchasedProductIds(userId).get(2, TimeUnit.SECONDS);
+    }
+
+    private long count(String result) {
+        return meterRegistry.get("product.order-history.requests").tag("result", result).timer().count();
+    }
+
+    @Test
+    void testResultIsCachedPerUser() throws Exception {
+        assertEquals(List.of(3L, 5L), get(1L));
+        assertEquals(List.of(3L, 5L), get(1L));
+        assertEquals(List.of(), get(2L));
+
+        assertEquals(2, orderService.getCalls());
+        assertEquals(1, count("cached"));
+    }
+
+    @Test
+    void testFreshResultsArePublishedForCoPurchaseModel() throws Exception {
+        get(1L);
+        get(1L); // 缓存命中不再发布
+
+        assertEquals(1, events.size());
+        OrderHistoryFetchedEvent event = (OrderHistoryFetchedEvent) events.get(0);
+        assertEquals(1L, event.getUserId());
+        assertEquals(List.of(3L, 5L), event.getProductIds());
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneCall() throws Exception {
+        orderService.setLatencyMillis(100);
+        List<CompletableFuture<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(client.getPurchasedProductIds(1L));
+        }
+        for (CompletableFuture<List<Long>> future : futures) {
+            assertEquals(List.of(3L, 5L), future.get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(1, orderService.getCalls());
+    }
+
+    @Test
+    void testSlowOrderServiceTimesOutWithoutBlockingCaller() throws Exception {
+        orderService.setLatencyMillis(1000);
+
+        long start = System.nanoTime();
+        CompletableFuture<List<Long>> future = client.getPurchasedProductIds(1L);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100)); // 调用方立即返回
+
+        assertNull(future.get(2, TimeUnit.SECONDS)); // 超时且没有缓存
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(800));
+        assertEquals(1, count("unavailable"));
+    }
+
+    @Test
+    void testFailureFallsBackToStaleCache() throws Exception {
+        client.shutdown();
+        client = newClient(200, 0, 4, 4); // 缓存立即过期，但仍可作为兜底
+
+        assertEquals(List.of(3L, 5L), get(1L));
+        orderService.setFailureRate(1.0);
+
+        assertEquals(List.of(3L, 5L), get(1L));
+        assertEquals(1, count("stale"));
+        assertEquals(2, orderService.getCalls());
+    }
+
+    @Test
+    void testCircuitOpensAfterFailuresAndStopsCalling() throws Exception {
+        orderService.setFailureRate(1.0);
+        assertNull(get(1L));
+        assertNull(get(2L));
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+
+        for (long userId = 3; userId < 10; userId++) {
+            assertNull(get(userId));
+        }
+        assertEquals(2, orderService.getCalls()); // 熔断期间不再调用订单服务
+    }
+
+    @Test
+    void testBulkheadRejectsInsteadOfQueueingWithoutBound() throws Exception {
+        client.shutdown();
+        client = newClient(2000, 300, 1, 1); // 1 个并发 + 1 个排队
+        orderService.setLatencyMillis(300);
+
+        List<CompletableFuture<List<Long>>> futures = new ArrayList<>();
+        for (long userId = 100; userId < 110; userId++) {
+            futures.add(client.getPurchasedProductIds(userId));
+        }
+        int rejected = 0;
+        for (int i = 2; i < futures.size(); i++) {
+            if (futures.get(i).isDone() && futures.get(i).get() == null) {
+                rejected++;
+            }
+        }
+        assertEquals(8, rejected); // 超出隔离舱容量的请求立即降级
+        assertEquals(List.of(), futures.get(0).get(2, TimeUnit.SECONDS));
+        assertEquals(List.of(), futures.get(1).get(2, TimeUnit.SECONDS));
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState()); // 被拒绝不算订单服务失败
+    }
+
+    @Test
+    void testManySlowUsersCompleteWithinTimeout() throws Exception {
+        orderService.setLatencyMillis(5000);
+        List<CompletableFuture<List<Long>>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (long userId = 1; userId <= 200; userId++) {
+            futures.add(client.getPurchasedProductIds(userId));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(2, TimeUnit.SECONDS);
+
+        // 订单服务每次需要 5 秒，但所有请求都在超时（200ms）附近结束，最多只有 4 + 4 个调用进入订单服务
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertTrue(orderService.getCalls() <= 8, "calls=" + orderService.getCalls());
+    }
+}
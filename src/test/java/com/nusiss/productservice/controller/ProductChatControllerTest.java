@@ -1,7 +1,8 @@
 package com.nusiss.productservice.controller;
 
-import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.constant.LeaderboardRanking;
 import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.service.ProductLeaderboardService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,7 +24,7 @@ public class ProductChatControllerTest {
     private MockMvc mockMvc;
 
     @MockBean
-    private ProductMapper productMapper;
+    private ProductLeaderboardService leaderboardService;
 
     @Test
     void testRecommendSmartphones() throws Exception {
@@ -92,7 +93,7 @@ public class ProductChatControllerTest {
         p3.setRating(4.7);
 
         List<Product> mockProducts = List.of(p1, p2, p3);
-        Mockito.when(productMapper.findTop5ByCategoryOrderByRatingDesc(category)).thenReturn(mockProducts);
+        Mockito.when(leaderboardService.getTopProducts(category, LeaderboardRanking.RATING, 5, null)).thenReturn(mockProducts);
     }
 
 }
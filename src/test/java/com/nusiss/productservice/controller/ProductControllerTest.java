@@ -4,8 +4,25 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.dto.BulkResult;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.DuplicateCandidate;
+import com.nusiss.productservice.dto.DuplicateGroup;
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.dto.SuggestStats;
+import com.nusiss.productservice.dto.VersionStamp;
 import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.index.Suggestion;
+import com.nusiss.productservice.service.ProductBulkService;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import com.nusiss.productservice.service.ProductExportService;
+import com.nusiss.productservice.service.ProductLeaderboardService;
 import com.nusiss.productservice.service.ProductService;
+import com.nusiss.productservice.service.ProductSuggestService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -14,11 +31,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,6 +59,21 @@ class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductSuggestService productSuggestService;
+
+    @MockBean
+    private ProductExportService productExportService;
+
+    @MockBean
+    private ProductBulkService productBulkService;
+
+    @MockBean
+    private ProductLeaderboardService leaderboardService;
+
+    @MockBean
+    private ProductDuplicateService duplicateService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -46,6 +88,148 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
 
+    @Test
+    @DisplayName("GET /products - 返回目录 ETag / Last-Modified")
+    void testGetAllProducts_SetsValidators() throws Exception {
+        when(productService.getCatalogStamp()).thenReturn(new VersionStamp("c-1-7", 1_700_000_000_000L));
+        when(productService.getAllProducts()).thenReturn(List.of(new Product()));
+
+        mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"c-1-7\""))
+                .andExpect(header().exists("Last-Modified"));
+    }
+
+    @Test
+    @DisplayName("GET /products/sort - If-None-Match 命中时返回 304，不查询")
+    void testSort_NotModified() throws Exception {
+        when(productService.getCatalogStamp()).thenReturn(new VersionStamp("c-1-7", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/products/sort?sortBy=price&order=asc").header("If-None-Match", "\"c-1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(productService, never()).filterProductsWithSorting(
+                any(), any(), any(), any(), any(), any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /products/page - If-Modified-Since 未变化时返回 304")
+    void testPage_NotModifiedSince() throws Exception {
+        when(productService.getCatalogStamp()).thenReturn(new VersionStamp("c-1-7", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/products/page").header("If-Modified-Since", "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(productService, never()).getProductPage(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /products/filter - ETag 已变化时返回新数据")
+    void testFilter_ModifiedReturnsBody() throws Exception {
+        when(productService.getCatalogStamp()).thenReturn(new VersionStamp("c-1-8", 1_700_000_000_000L));
+        when(productService.filterProducts(any(), any(), any(), any(), any(), any())).thenReturn(List.of(new Product()));
+
+        mockMvc.perform(get("/products/filter?category=Phones").header("If-None-Match", "\"c-1-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"c-1-8\""))
+                .andExpect(jsonPath("$.data.length()").value(1));
+    }
+
+    @Test
+    @DisplayName("GET /products/{id} - 商品 ETag 命中时返回 304，不读取商品")
+    void testGetProductById_NotModified() throws Exception {
+        when(productService.getProductStamp(1L)).thenReturn(new VersionStamp("abc123", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/products/1").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified());
+
+        verify(productService, never()).getProductById(anyLong());
+    }
+
+    @Test
+    @DisplayName("GET /products?format=ndjson - 流式导出")
+    void testExportProducts_Ndjson() throws Exception {
+        doAnswer(invocation -> {
+            ProductExportService.OutputStreamOpener opener = invocation.getArgument(0);
+            OutputStream out = opener.open();
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(productExportService).exportNdjson(any());
+
+        mockMvc.perform(get("/products?format=ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    @DisplayName("GET /products?format=ndjson&gzip=true - gzip 流式导出")
+    void testExportProducts_Gzip() throws Exception {
+        doAnswer(invocation -> {
+            ProductExportService.OutputStreamOpener opener = invocation.getArgument(0);
+            OutputStream out = opener.open();
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            out.close(); // 由导出服务关闭（gzip 写出结尾）
+            return 1L;
+        }).when(productExportService).exportNdjson(any());
+
+        byte[] body = mockMvc.perform(get("/products?format=ndjson&gzip=true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("{\"id\":1}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("GET /products?format=ndjson - 同时进行的导出已满时返回 429")
+    void testExportProducts_Busy() throws Exception {
+        when(productExportService.exportNdjson(any()))
+                .thenThrow(new ServiceBusyException("Too many catalog exports in progress, please retry later", 30));
+
+        mockMvc.perform(get("/products?format=ndjson&gzip=true"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(header().doesNotExist("Content-Encoding"));
+    }
+
+    @Test
+    @DisplayName("POST /products/bulk - 部分失败时逐条返回结果")
+    void testBulkCreate_PartialFailure() throws Exception {
+        BulkResult result = new BulkResult();
+        result.add(new BulkResult.Item(0, 11L, true, null));
+        result.add(new BulkResult.Item(1, null, false, "Data too long for column 'name'"));
+        when(productBulkService.createProducts(anyList())).thenReturn(result);
+
+        mockMvc.perform(post("/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"A\"},{\"name\":\"B\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.data.succeeded").value(1))
+                .andExpect(jsonPath("$.data.items[0].id").value(11))
+                .andExpect(jsonPath("$.data.items[1].error").value("Data too long for column 'name'"));
+    }
+
+    @Test
+    @DisplayName("DELETE /products/bulk - 批量删除")
+    void testBulkDelete() throws Exception {
+        BulkResult result = new BulkResult();
+        result.add(new BulkResult.Item(0, 1L, true, null));
+        result.add(new BulkResult.Item(1, 2L, true, null));
+        when(productBulkService.deleteProducts(List.of(1L, 2L))).thenReturn(result);
+
+        mockMvc.perform(delete("/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.succeeded").value(2));
+    }
+
     @Test
     @DisplayName("GET /products/{id} - 商品存在")
     void testGetProductById_Found() throws Exception {
@@ -141,6 +325,41 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
 
+    @Test
+    @DisplayName("GET /products/page?countMode=NONE - 不统计总数")
+    void testGetProductsByPageWithCountMode() throws Exception {
+        CountedPage<Product> counted = new CountedPage<>();
+        counted.setRecords(List.of(new Product()));
+        counted.setHasNext(true);
+        counted.setCountMode(CountMode.NONE);
+        when(productService.getProductPage(1, 10, CountMode.NONE)).thenReturn(counted);
+
+        mockMvc.perform(get("/products/page?page=1&size=10&countMode=none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.countMode").value("NONE"))
+                .andExpect(jsonPath("$.data.hasNext").value(true));
+    }
+
+    @Test
+    @DisplayName("GET /products/sort?countMode=xxx - 不支持的统计方式")
+    void testFilterProductsWithSorting_InvalidCountMode() throws Exception {
+        mockMvc.perform(get("/products/sort?countMode=xxx"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    @DisplayName("GET /products/page?cursor= - 游标分页")
+    void testGetProductsByCursor() throws Exception {
+        CursorPage<Product> cursorPage = new CursorPage<>(List.of(new Product()), 10, true, "next-token");
+        when(productService.getProductPageByCursor("", 10)).thenReturn(cursorPage);
+
+        mockMvc.perform(get("/products/page?cursor=&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.hasNext").value(true))
+                .andExpect(jsonPath("$.data.nextCursor").value("next-token"));
+    }
+
     @Test
     @DisplayName("GET /products/search - 关键词搜索")
     void testSearchProducts() throws Exception {
@@ -151,6 +370,46 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
 
+    @Test
+    @DisplayName("GET /products/suggest - 输入联想")
+    void testSuggest() throws Exception {
+        when(productSuggestService.suggest("iph", 5)).thenReturn(List.of(
+                new Suggestion(Suggestion.Kind.PRODUCT, "Apple iPhone 15", 1L, 4.8)));
+
+        mockMvc.perform(get("/products/suggest?q=iph&limit=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].text").value("Apple iPhone 15"))
+                .andExpect(jsonPath("$.data[0].kind").value("PRODUCT"));
+    }
+
+    @Test
+    @DisplayName("GET /products/suggest/stats - 联想索引内存占用")
+    void testSuggestStats() throws Exception {
+        SuggestStats stats = new SuggestStats();
+        stats.setReady(true);
+        stats.setEstimatedMemoryBytes(2048);
+        when(productSuggestService.getStats()).thenReturn(stats);
+
+        mockMvc.perform(get("/products/suggest/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.estimatedMemoryBytes").value(2048));
+    }
+
+    @Test
+    @DisplayName("GET /products/facets - 分面统计")
+    void testGetProductFacets() throws Exception {
+        ProductFacets facets = new ProductFacets();
+        facets.setTotal(4);
+        facets.getCategories().add(new ProductFacets.ValueCount("Phones", 4));
+        when(productService.getProductFacets(isNull(), eq("Phones"), isNull(), any(), isNull(), isNull()))
+                .thenReturn(facets);
+
+        mockMvc.perform(get("/products/facets?category=Phones&minPrice=100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.total").value(4))
+                .andExpect(jsonPath("$.data.categories[0].value").value("Phones"));
+    }
+
     @Test
     @DisplayName("GET /products/filter - 多条件筛选")
     void testFilterProducts() throws Exception {
@@ -177,6 +436,20 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
 
+    @Test
+    @DisplayName("GET /products/sort?cursor= - 游标分页排序")
+    void testFilterProductsWithCursor() throws Exception {
+        CursorPage<Product> cursorPage = new CursorPage<>(List.of(new Product()), 10, false, null);
+        when(productService.filterProductsWithCursor(
+                        any(), any(), any(), any(), any(), any(),
+                        eq("price"), eq("asc"), eq("abc"), eq(10)))
+                .thenReturn(cursorPage);
+
+        mockMvc.perform(get("/products/sort?cursor=abc&sortBy=price&order=asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.hasNext").value(false));
+    }
+
     @Test
     void testGetRelatedProducts() throws Exception {
         Product p = new Product();
@@ -195,6 +468,58 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.data[0].id").value(2));
     }
 
+    @Test
+    void testGetSimilarProducts() throws Exception {
+        Product p = new Product();
+        p.setId(4L);
+        when(productService.getSimilarProducts(1L, 3)).thenReturn(List.of(p));
+
+        mockMvc.perform(get("/products/1/similar").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(4));
+    }
+
+    @Test
+    void testGetSimilarProducts_NotFound() throws Exception {
+        when(productService.getSimilarProducts(99L, 10)).thenReturn(null);
+
+        mockMvc.perform(get("/products/99/similar"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testGetDuplicateProducts() throws Exception {
+        when(productService.getProductById(1L)).thenReturn(new Product());
+        when(duplicateService.getDuplicatesOf(1L, 10)).thenReturn(List.of(new DuplicateCandidate(4L, 0.92)));
+
+        mockMvc.perform(get("/products/1/duplicates"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].productId").value(4))
+                .andExpect(jsonPath("$.data[0].similarity").value(0.92));
+
+        mockMvc.perform(get("/products/99/duplicates"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testScanDuplicateProducts() throws Exception {
+        when(duplicateService.scanDuplicates(0.9)).thenReturn(List.of(new DuplicateGroup(List.of(1L, 2L, 4L), 0.91)));
+
+        mockMvc.perform(get("/products/duplicates").param("minSimilarity", "0.9"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].productIds.length()").value(3));
+    }
+
+    @Test
+    void testScanDuplicateProducts_IndexLoading() throws Exception {
+        when(duplicateService.scanDuplicates(null)).thenThrow(new ServiceBusyException("Duplicate index is still loading, please retry later", 5));
+
+        mockMvc.perform(get("/products/duplicates"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
     @Test
     void testGetRecommendedProductsByUser() throws Exception {
         Product p = new Product();
@@ -205,11 +530,34 @@ class ProductControllerTest {
 
         List<Product> mockList = List.of(p);
 
-        when(productService.getTopRecommendedProductsByUser(1L, 5)).thenReturn(mockList);
+        when(productService.getTopRecommendedProductsByUser(1L, 5)).thenReturn(CompletableFuture.completedFuture(mockList));
+
+        MvcResult asyncResult = mockMvc.perform(get("/products/recommend/user/1/top"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/products/recommend/user/1/top"))
+        mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data[0].id").value(7));
     }
+
+    @Test
+    @DisplayName("GET /products/top - 分类排行榜")
+    void testGetTopProducts() throws Exception {
+        Product newest = new Product();
+        newest.setId(9L);
+        when(leaderboardService.getTopProducts("Phones", LeaderboardRanking.NEWEST, 3, null)).thenReturn(List.of(newest));
+
+        mockMvc.perform(get("/products/top?category=Phones&ranking=newest&limit=3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(9));
+    }
+
+    @Test
+    @DisplayName("GET /products/top - 不支持的排序方式返回 400")
+    void testGetTopProducts_InvalidRanking() throws Exception {
+        mockMvc.perform(get("/products/top?category=Phones&ranking=price"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -4,6 +4,12 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nusiss.productservice.config.ApiResponse;
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.FeedbackAnalytics;
+import com.nusiss.productservice.dto.RatingSummary;
+import com.nusiss.productservice.dto.VersionStamp;
 import com.nusiss.productservice.entity.ProductFeedback;
 import com.nusiss.productservice.service.ProductFeedbackService;
 import org.junit.jupiter.api.DisplayName;
@@ -45,6 +51,17 @@ class ProductFeedbackControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void testCreateFeedback_QueueFull() throws Exception {
+        Mockito.when(feedbackService.createFeedback(any())).thenThrow(new ServiceBusyException("busy", 2));
+
+        mockMvc.perform(post("/feedback")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":1,\"rating\":5}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+
     @Test
     void testGetAllFeedback() throws Exception {
         Mockito.when(feedbackService.getAllFeedback()).thenReturn(List.of(new ProductFeedback()));
@@ -137,6 +154,45 @@ class ProductFeedbackControllerTest {
                 .andExpect(jsonPath("$.data").value(5));
     }
 
+    @Test
+    void testGetRatingSummaries() throws Exception {
+        RatingSummary first = new RatingSummary();
+        first.setProductId(1L);
+        first.setAverageRating(4.5);
+        first.setCommentCount(2);
+        first.setStarCounts(new long[]{0, 0, 0, 1, 1});
+        RatingSummary second = new RatingSummary();
+        second.setProductId(2L);
+        Mockito.when(feedbackService.getRatingSummaries(List.of(1L, 2L))).thenReturn(List.of(first, second));
+
+        mockMvc.perform(get("/feedback/summary?productIds=1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].averageRating").value(4.5))
+                .andExpect(jsonPath("$.data[0].starCounts[4]").value(1))
+                .andExpect(jsonPath("$.data[1].commentCount").value(0));
+    }
+
+    @Test
+    void testGetFeedbackAnalytics() throws Exception {
+        FeedbackAnalytics analytics = new FeedbackAnalytics();
+        analytics.setProductId(1L);
+        analytics.setDailyCounts(new long[]{0, 3});
+        Mockito.when(feedbackService.getFeedbackAnalytics(1L, 30, 12)).thenReturn(analytics);
+
+        mockMvc.perform(get("/feedback/analytics?productId=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.productId").value(1))
+                .andExpect(jsonPath("$.data.dailyCounts[1]").value(3));
+    }
+
+    @Test
+    void testGetRatingSummaries_TooMany() throws Exception {
+        Mockito.when(feedbackService.getRatingSummaries(any())).thenThrow(new CustomException("too many"));
+
+        mockMvc.perform(get("/feedback/summary?productIds=1,2"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetFeedbackByProductIdWithPageAndSort() throws Exception {
         Page<ProductFeedback> page = new Page<>();
@@ -147,4 +203,39 @@ class ProductFeedbackControllerTest {
         mockMvc.perform(get("/feedback/by-product?productId=1"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void testGetFeedbackByProductIdWithPageAndSort_NotModified() throws Exception {
+        Mockito.when(feedbackService.getFeedbackStamp(1L)).thenReturn(new VersionStamp("f-1-0-1-3", 1_700_000_000_000L));
+
+        mockMvc.perform(get("/feedback/by-product?productId=1").header("If-None-Match", "\"f-1-0-1-3\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(feedbackService, Mockito.never())
+                .getFeedbackByProductIdWithPageAndSort(anyLong(), anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    void testGetFeedbackByProductIdWithPageAndSort_SetsETag() throws Exception {
+        Mockito.when(feedbackService.getFeedbackStamp(1L)).thenReturn(new VersionStamp("f-1-0-1-4", 1_700_000_000_000L));
+        Mockito.when(feedbackService.getFeedbackByProductIdWithPageAndSort(anyLong(), anyInt(), anyInt(), any(), any()))
+                .thenReturn(new Page<>());
+
+        mockMvc.perform(get("/feedback/by-product?productId=1").header("If-None-Match", "\"f-1-0-1-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"f-1-0-1-4\""));
+    }
+
+    @Test
+    void testGetFeedbackByProductIdWithCursor() throws Exception {
+        CursorPage<ProductFeedback> page = new CursorPage<>(List.of(new ProductFeedback()), 10, true, "next-token");
+        Mockito.when(feedbackService.getFeedbackByProductIdWithCursor(1L, "rating", "desc", "", 10)).thenReturn(page);
+
+        mockMvc.perform(get("/feedback/by-product?productId=1&cursor=&sortBy=rating&order=desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.nextCursor").value("next-token"));
+
+        Mockito.verify(feedbackService, Mockito.never())
+                .getFeedbackByProductIdWithPageAndSort(anyLong(), anyInt(), anyInt(), any(), any());
+    }
 }
@@ -2,7 +2,9 @@ package com.nusiss.productservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.CoverDriftReport;
 import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.service.ProductCoverService;
 import com.nusiss.productservice.service.ProductMediaService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -35,6 +37,9 @@ class ProductMediaControllerTest {
     @MockBean
     private ProductMediaService productMediaService;
 
+    @MockBean
+    private ProductCoverService productCoverService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -183,4 +188,26 @@ class ProductMediaControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(false));
     }
+
+    @Test
+    void testBackfillCovers() throws Exception {
+        Mockito.when(productCoverService.backfillCovers()).thenReturn(3);
+
+        mockMvc.perform(post("/media/covers/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(3));
+    }
+
+    @Test
+    void testCheckCoverDrift() throws Exception {
+        CoverDriftReport report = new CoverDriftReport();
+        report.setCheckedCount(10);
+        report.getDrifts().add(new CoverDriftReport.Drift(1L, null, "http://localhost/uploadFile/a.jpg"));
+        Mockito.when(productCoverService.checkConsistency()).thenReturn(report);
+
+        mockMvc.perform(get("/media/covers/drift"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.checkedCount").value(10))
+                .andExpect(jsonPath("$.data.drifts[0].productId").value(1));
+    }
 }
@@ -0,0 +1,67 @@
+package com.nusiss.productservice.controller;
+
+import com.nusiss.productservice.dto.StockReservation;
+import com.nusiss.productservice.service.StockReservationService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StockReservationController.class)
+class StockReservationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private StockReservationService stockReservationService;
+
+    @Test
+    void testReserve_Created() throws Exception {
+        Mockito.when(stockReservationService.reserve(1L, 2))
+                .thenReturn(new StockReservation("r-1", 1L, 2, LocalDateTime.now().plusMinutes(5)));
+
+        mockMvc.perform(post("/reservations").param("productId", "1").param("quantity", "2"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data.id").value("r-1"))
+                .andExpect(jsonPath("$.data.quantity").value(2));
+    }
+
+    @Test
+    void testReserve_SoldOut() throws Exception {
+        Mockito.when(stockReservationService.reserve(1L, 1)).thenReturn(null);
+
+        mockMvc.perform(post("/reservations").param("productId", "1"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void testConfirmAndRelease() throws Exception {
+        Mockito.when(stockReservationService.confirm("r-1")).thenReturn(true);
+        Mockito.when(stockReservationService.release("r-2")).thenReturn(false);
+
+        mockMvc.perform(post("/reservations/r-1/confirm"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/reservations/r-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetAvailableStock() throws Exception {
+        Mockito.when(stockReservationService.getAvailableStock(1L)).thenReturn(42L);
+
+        mockMvc.perform(get("/reservations/stock/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(42));
+        mockMvc.perform(get("/reservations/stock/2"))
+                .andExpect(status().isNotFound());
+    }
+}
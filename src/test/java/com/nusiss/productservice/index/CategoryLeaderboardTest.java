@@ -0,0 +1,183 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryLeaderboardTest {
+
+    private CategoryLeaderboard board;
+
+    @BeforeEach
+    void setUp() {
+        board = new CategoryLeaderboard(3, List.of("Inactive"));
+    }
+
+    private static Product product(long id, String category, Double rating) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName("P" + id);
+        p.setCategory(category);
+        p.setRating(rating);
+        p.setStatus("ACTIVE");
+        p.setCreateDatetime(LocalDateTime.of(2025, 1, 1, 0, 0).plusDays(id));
+        return p;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products == null ? null : products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    private List<Long> top(String category, int limit) {
+        return ids(board.top(category, LeaderboardRanking.RATING, limit, null));
+    }
+
+    @Test
+    void testTop_RankedByRatingThenIdWithNullsLast() {
+        board.put(product(1L, "Phones", 4.5));
+        board.put(product(2L, "phones", null));
+        board.put(product(3L, "Phones", 4.9));
+        board.put(product(4L, "Tablets", 5.0));
+
+        assertEquals(List.of(3L, 1L, 2L), top("PHONES", 3));
+        assertEquals(List.of(3L), top("Phones", 1));
+        assertEquals(List.of(), top("Laptops", 3));
+        assertEquals(List.of(3L, 2L, 1L), ids(board.top("phones", LeaderboardRanking.NEWEST, 3, null)));
+    }
+
+    @Test
+    void testBoundedCapacity_EvictionMakesTailUntrusted() {
+        for (long id = 1; id <= 5; id++) {
+            board.put(product(id, "Phones", (double) id)); // 评分 1..5，只保留 5,4,3
+        }
+        assertEquals(List.of(5L, 4L, 3L), top("Phones", 3));
+        assertEquals(3, board.heldCount());
+
+        // 删除榜首后只剩 4,3 可信，取 3 个需要从数据库补齐
+        board.remove(5L);
+        assertEquals(List.of(4L, 3L), top("Phones", 2));
+        assertNull(top("Phones", 3));
+
+        // 新商品评分低于被挤出的 2 分，不能进入榜单
+        board.put(product(6L, "Phones", 1.5));
+        assertNull(top("Phones", 3));
+    }
+
+    @Test
+    void testCategoryRatingAndStatusChangesMoveProducts() {
+        board.put(product(1L, "Phones", 4.0));
+        board.put(product(2L, "Phones", 3.0));
+
+        board.put(product(2L, "Phones", 4.8)); // 评分变化
+        assertEquals(List.of(2L, 1L), top("Phones", 3));
+
+        board.put(product(1L, "Tablets", 4.0)); // 分类变化
+        assertEquals(List.of(2L), top("Phones", 3));
+        assertEquals(List.of(1L), top("Tablets", 3));
+
+        Product inactive = product(2L, "Phones", 4.8);
+        inactive.setStatus("INACTIVE"); // 不参与排行的状态
+        board.put(inactive);
+        assertEquals(List.of(), top("Phones", 3));
+        assertEquals(1, board.heldCount());
+    }
+
+    @Test
+    void testExcludeIdsAndReturnedCopies() {
+        board.put(product(1L, "Phones", 4.0));
+        board.put(product(2L, "Phones", 3.0));
+
+        assertEquals(List.of(2L), ids(board.top("Phones", LeaderboardRanking.RATING, 3, Set.of(1L))));
+
+        board.top("Phones", LeaderboardRanking.RATING, 1, null).get(0).setRating(0.0);
+        assertEquals(4.0, board.top("Phones", LeaderboardRanking.RATING, 1, null).get(0).getRating());
+    }
+
+    @Test
+    void testLoad_RefillsAndRejectsStaleRows() {
+        for (long id = 1; id <= 5; id++) {
+            board.put(product(id, "Phones", (double) id));
+        }
+        board.remove(5L);
+        board.remove(4L);
+        assertNull(top("Phones", 2));
+
+        // 数据库读取期间发生变更：放弃本次结果
+        long stale = board.modCount();
+        board.put(product(7L, "Laptops", 3.0));
+        assertFalse(board.load("Phones", LeaderboardRanking.RATING,
+                List.of(product(3L, "Phones", 3.0), product(2L, "Phones", 2.0)), stale));
+
+        // 数据库返回 capacity + 1 = 4 行以内：全部载入，榜单包含全部商品
+        long modCount = board.modCount();
+        assertTrue(board.load("Phones", LeaderboardRanking.RATING,
+                List.of(product(3L, "Phones", 3.0), product(2L, "Phones", 2.0), product(1L, "Phones", 1.0)), modCount));
+        assertEquals(List.of(3L, 2L, 1L), top("Phones", 3));
+        assertEquals(List.of(3L, 2L, 1L), top("Phones", 10));
+    }
+
+    @Test
+    void testTopAcrossCategories_MergesTrustedPrefixes() {
+        board.put(product(1L, "Phones", 4.0));
+        board.put(product(2L, "Tablets", 4.5));
+        board.put(product(3L, "Laptops", 3.0));
+
+        assertEquals(List.of(2L, 1L, 3L), ids(board.topAcrossCategories(LeaderboardRanking.RATING, 5, null)));
+        assertEquals(List.of(1L, 3L), ids(board.topAcrossCategories(LeaderboardRanking.RATING, 2, Set.of(2L))));
+
+        // Phones 挤出了 2.5 分的商品：排在 2.5 分之后的结果不可信
+        board.put(product(4L, "Phones", 3.5));
+        board.put(product(5L, "Phones", 3.2));
+        board.put(product(6L, "Phones", 2.5));
+        assertEquals(List.of(2L, 1L, 4L, 5L, 3L), ids(board.topAcrossCategories(LeaderboardRanking.RATING, 5, null)));
+        assertNull(board.topAcrossCategories(LeaderboardRanking.RATING, 6, null));
+    }
+
+    @Test
+    void testRandomizedAgainstFullSort() {
+        Random random = new Random(42);
+        CategoryLeaderboard small = new CategoryLeaderboard(8, List.of());
+        Map<Long, Product> truth = new HashMap<>();
+        for (int step = 0; step < 5000; step++) {
+            long id = random.nextInt(60);
+            if (random.nextInt(4) == 0) {
+                small.remove(id);
+                truth.remove(id);
+            } else {
+                Product p = product(id, random.nextBoolean() ? "A" : "B", random.nextInt(10) == 0 ? null : (double) random.nextInt(50));
+                small.put(p);
+                truth.put(id, p);
+            }
+            String category = random.nextBoolean() ? "A" : "B";
+            List<Long> expected = truth.values().stream()
+                    .filter(p -> p.getCategory().equals(category))
+                    .sorted(CategoryLeaderboard.BY_RATING)
+                    .limit(5)
+                    .map(Product::getId)
+                    .collect(Collectors.toList());
+            List<Product> actual = small.top(category, LeaderboardRanking.RATING, 5, null);
+            if (actual == null) { // 可信部分不足：模拟从数据库补齐
+                List<Product> rows = truth.values().stream()
+                        .filter(p -> p.getCategory().equals(category))
+                        .sorted(CategoryLeaderboard.BY_RATING)
+                        .limit(9)
+                        .collect(Collectors.toCollection(ArrayList::new));
+                assertTrue(small.load(category, LeaderboardRanking.RATING, rows, small.modCount()));
+                actual = small.top(category, LeaderboardRanking.RATING, 5, null);
+            }
+            assertEquals(expected, ids(actual), "step " + step);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.nusiss.productservice.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoPurchaseModelTest {
+
+    private static CoPurchaseModel build(int maxNeighbours, int minSupport, long[]... baskets) {
+        CoPurchaseModel.Builder builder = CoPurchaseModel.builder(maxNeighbours, minSupport, 10);
+        for (long[] basket : baskets) {
+            builder.addBasket(basket);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testNeighboursOrderedByCosineSimilarity() {
+        // 1 与 2 共同出现 3 次，与 3 共同出现 2 次；3 单独出现得多，相似度更低
+        CoPurchaseModel model = build(10, 1,
+                new long[]{1, 2}, new long[]{1, 2}, new long[]{1, 2, 3}, new long[]{1, 3},
+                new long[]{3}, new long[]{3}, new long[]{4});
+
+        assertArrayEquals(new long[]{2, 3}, model.neighbours(1, 5, null));
+        assertArrayEquals(new long[]{1, 3}, model.neighbours(2, 5, null));
+        assertArrayEquals(new long[0], model.neighbours(4, 5, null)); // 从未与其他商品一起购买
+        assertArrayEquals(new long[0], model.neighbours(99, 5, null));
+        assertEquals(7, model.basketCount());
+        assertEquals(3, model.productCount());
+    }
+
+    @Test
+    void testLimitAndExclude() {
+        CoPurchaseModel model = build(10, 1, new long[]{1, 2, 3, 4});
+
+        assertArrayEquals(new long[]{2}, model.neighbours(1, 1, null));
+        assertArrayEquals(new long[]{2, 4}, model.neighbours(1, 5, id -> id == 3));
+        assertArrayEquals(new long[0], model.neighbours(1, 0, null));
+    }
+
+    @Test
+    void testMinSupportAndMaxNeighbours() {
+        CoPurchaseModel model = build(1, 2,
+                new long[]{1, 2}, new long[]{1, 2}, new long[]{1, 3}, new long[]{1, 4}, new long[]{1, 4});
+
+        assertArrayEquals(new long[]{2}, model.neighbours(1, 5, null)); // 只保留 1 个邻居，同分时 ID 小的在前
+        assertArrayEquals(new long[]{1}, model.neighbours(4, 5, null));
+        assertArrayEquals(new long[0], model.neighbours(3, 5, null));   // 只共同出现 1 次
+    }
+
+    @Test
+    void testDuplicateIdsInBasketCountOnce() {
+        CoPurchaseModel model = build(10, 2, new long[]{1, 1, 2, 2});
+
+        assertArrayEquals(new long[0], model.neighbours(1, 5, null));
+    }
+
+    @Test
+    void testOversizedAndEmptyBasketsAreSkipped() {
+        CoPurchaseModel.Builder builder = CoPurchaseModel.builder(10, 1, 3);
+
+        assertFalse(builder.addBasket(new long[]{1, 2, 3, 4}));
+        assertFalse(builder.addBasket(new long[0]));
+        assertTrue(builder.addBasket(new long[]{5, 6}));
+
+        CoPurchaseModel model = builder.build();
+        assertEquals(1, builder.skippedBaskets());
+        assertEquals(1, model.basketCount());
+        assertArrayEquals(new long[0], model.neighbours(1, 5, null));
+        assertArrayEquals(new long[]{6}, model.neighbours(5, 5, null));
+    }
+
+    @Test
+    void testRecommendSumsNeighbourScoresAndSkipsPurchased() {
+        CoPurchaseModel model = build(10, 1,
+                new long[]{1, 10}, new long[]{2, 10}, new long[]{1, 11}, new long[]{1, 2}, new long[]{3, 12});
+
+        // 10 同时是 1 和 2 的邻居，得分最高；已购的 1、2 不会被推荐
+        long[] result = model.recommend(new long[]{1, 2, 2}, 5, null);
+        assertEquals(10, result[0]);
+        assertEquals(Set.of(10L, 11L), toSet(result));
+        assertArrayEquals(new long[]{11}, model.recommend(new long[]{1, 2}, 5, id -> id == 10));
+        assertArrayEquals(new long[0], model.recommend(new long[]{99}, 5, null));
+        assertArrayEquals(new long[0], model.recommend(new long[0], 5, null));
+    }
+
+    @Test
+    void testEmptyModel() {
+        CoPurchaseModel model = CoPurchaseModel.empty();
+
+        assertEquals(0, model.productCount());
+        assertArrayEquals(new long[0], model.neighbours(1, 5, null));
+        assertArrayEquals(new long[0], model.recommend(new long[]{1}, 5, null));
+    }
+
+    @Test
+    void testMatchesBruteForceOnRandomBaskets() {
+        Random random = new Random(7);
+        List<long[]> baskets = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long[] basket = new long[1 + random.nextInt(6)];
+            for (int j = 0; j < basket.length; j++) {
+                basket[j] = random.nextInt(200) - 50; // 包含 0 和负数 ID
+            }
+            baskets.add(basket);
+        }
+        CoPurchaseModel model = build(5, 2, baskets.toArray(new long[0][]));
+
+        Map<Long, Set<Long>> occurrences = new HashMap<>();
+        for (int b = 0; b < baskets.size(); b++) {
+            for (long id : baskets.get(b)) {
+                occurrences.computeIfAbsent(id, k -> new HashSet<>()).add((long) b);
+            }
+        }
+        for (long id : occurrences.keySet()) {
+            List<long[]> expected = new ArrayList<>(); // {other, co}
+            for (long other : occurrences.keySet()) {
+                if (other == id) {
+                    continue;
+                }
+                Set<Long> both = new HashSet<>(occurrences.get(id));
+                both.retainAll(occurrences.get(other));
+                if (both.size() >= 2) {
+                    expected.add(new long[]{other, both.size()});
+                }
+            }
+            Map<Long, Double> score = new HashMap<>();
+            for (long[] e : expected) {
+                // 与模型一样按 float 精度比较，同分时 ID 小的在前
+                score.put(e[0], (double) (float) (e[1] / Math.sqrt((double) occurrences.get(id).size() * occurrences.get(e[0]).size())));
+            }
+            List<Long> ranked = new ArrayList<>(score.keySet());
+            ranked.sort(Comparator.comparing((Long o) -> -score.get(o)).thenComparing(o -> o));
+            long[] top = ranked.stream().limit(5).mapToLong(Long::longValue).toArray();
+
+            assertArrayEquals(top, model.neighbours(id, 5, null), "product " + id);
+        }
+    }
+
+    @Test
+    void testLongIntHashMapGrowsAndAccumulates() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long key = -500; key < 500; key++) {
+            map.put(key * 1_000_003L, (int) key);
+        }
+        for (long key = -500; key < 500; key++) {
+            assertEquals((int) key, map.get(key * 1_000_003L, Integer.MIN_VALUE));
+        }
+        assertEquals(1000, map.size());
+        assertEquals(-1, map.get(7, -1));
+        assertEquals(3, map.addTo(7, 3));
+        assertEquals(5, map.addTo(7, 2));
+        assertEquals(1001, map.size());
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,116 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.ProductFeedbackBucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedbackTimeSeriesTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+
+    // 一个按天统计桶：count 条反馈，每条都是 star 星
+    private static ProductFeedbackBucket bucket(LocalDate day, long count, int star) {
+        ProductFeedbackBucket bucket = new ProductFeedbackBucket();
+        bucket.setProductId(1L);
+        bucket.setBucketDate(day);
+        bucket.setFeedbackCount(count);
+        bucket.setRatingCount(count);
+        bucket.setRatingSum(count * star);
+        bucket.setStar1(star == 1 ? count : 0L);
+        bucket.setStar2(star == 2 ? count : 0L);
+        bucket.setStar3(star == 3 ? count : 0L);
+        bucket.setStar4(star == 4 ? count : 0L);
+        bucket.setStar5(star == 5 ? count : 0L);
+        return bucket;
+    }
+
+    @Test
+    void testWindowsAndDailyCounts() {
+        List<ProductFeedbackBucket> daily = List.of(
+                bucket(TODAY, 2, 5),
+                bucket(TODAY.minusDays(6), 1, 1),   // 7 天窗口的第一天
+                bucket(TODAY.minusDays(7), 4, 3),   // 只在 30 天窗口中
+                bucket(TODAY.minusDays(40), 9, 2)); // 超出保留的 30 天
+        FeedbackTimeSeries series = FeedbackTimeSeries.build(TODAY, 30, 3, daily, List.of());
+
+        FeedbackTimeSeries.Totals week = series.lastDays(7);
+        assertEquals(3, week.feedbackCount());
+        assertEquals(11.0 / 3, week.averageRating(), 1e-9);
+        assertArrayEquals(new long[]{1, 0, 0, 0, 2}, week.starCounts());
+
+        FeedbackTimeSeries.Totals month = series.lastDays(30);
+        assertEquals(7, month.feedbackCount());
+        assertEquals(23, month.ratingSum());
+        assertEquals(7, series.lastDays(365).feedbackCount(), "超出保留天数时按保留天数计算");
+
+        assertArrayEquals(new long[]{4, 1, 0, 0, 0, 0, 0, 2}, series.dailyCounts(8));
+        assertEquals(30, series.dailyCounts(1000).length);
+        assertNull(FeedbackTimeSeries.build(TODAY, 30, 3, List.of(), List.of()).lastDays(7).averageRating());
+    }
+
+    @Test
+    void testMonthsCombineMonthlyAndDailyBuckets() {
+        List<ProductFeedbackBucket> daily = List.of(
+                bucket(TODAY, 1, 5),
+                bucket(LocalDate.of(2024, 2, 29), 2, 4),
+                bucket(LocalDate.of(2024, 1, 31), 3, 3));     // 尚未合并的旧按天统计桶
+        List<ProductFeedbackBucket> monthly = List.of(
+                bucket(LocalDate.of(2024, 1, 1), 10, 1),
+                bucket(LocalDate.of(2023, 12, 1), 100, 2));  // 超出保留的 3 个月
+        FeedbackTimeSeries series = FeedbackTimeSeries.build(TODAY, 30, 3, daily, monthly);
+
+        assertEquals(YearMonth.of(2024, 3), series.lastMonth());
+        assertEquals(1, series.month(0).feedbackCount());
+        assertEquals(2, series.month(1).feedbackCount());
+        assertEquals(13, series.month(2).feedbackCount());
+        assertArrayEquals(new long[]{10, 0, 3, 0, 0}, series.month(2).starCounts());
+        assertEquals(0, series.month(3).feedbackCount());
+        assertEquals(3, series.lastDays(30).feedbackCount()); // 2 月 29 日在 30 天内，1 月 31 日不在
+    }
+
+    @Test
+    void testWindowsMatchBruteForce() {
+        Random random = new Random(7);
+        List<ProductFeedbackBucket> daily = new ArrayList<>();
+        long[] perDay = new long[100];
+        for (int d = 0; d < 100; d++) {
+            if (random.nextInt(3) == 0) {
+                continue;
+            }
+            perDay[d] = 1 + random.nextInt(20);
+            daily.add(bucket(TODAY.minusDays(d), perDay[d], 1 + random.nextInt(5)));
+        }
+        FeedbackTimeSeries series = FeedbackTimeSeries.build(TODAY, 90, 12, daily, List.of());
+        for (int n = 1; n <= 90; n++) {
+            long expected = 0;
+            for (int d = 0; d < n; d++) {
+                expected += perDay[d];
+            }
+            assertEquals(expected, series.lastDays(n).feedbackCount(), "window " + n);
+        }
+    }
+
+    // 只保存有反馈的日子：一条反馈的商品只占几百字节，而不是 (days + 1) * 8 个 long
+    @Test
+    void testSparseSeriesIsSmall() {
+        FeedbackTimeSeries one = FeedbackTimeSeries.build(TODAY, 365, 24, List.of(bucket(TODAY.minusDays(3), 1, 4)), List.of());
+        assertTrue(one.estimatedBytes() < 512, one.estimatedBytes() + " bytes");
+        assertEquals(1, one.lastDays(4).feedbackCount());
+        assertEquals(0, one.lastDays(3).feedbackCount());
+        assertArrayEquals(new long[]{1, 0, 0, 0}, one.dailyCounts(4));
+        assertEquals(1, one.month(0).feedbackCount() + one.month(1).feedbackCount());
+
+        List<ProductFeedbackBucket> everyDay = new ArrayList<>();
+        for (int d = 0; d < 365; d++) {
+            everyDay.add(bucket(TODAY.minusDays(d), 1, 5));
+        }
+        assertTrue(FeedbackTimeSeries.build(TODAY, 365, 24, everyDay, List.of()).estimatedBytes() > one.estimatedBytes() * 50);
+    }
+}
@@ -0,0 +1,148 @@
+package com.nusiss.productservice.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 16;
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return normalize(vector);
+    }
+
+    private static float[] axis(int dimension, float noise) {
+        float[] vector = new float[DIMENSIONS];
+        vector[dimension] = 1;
+        vector[(dimension + 1) % DIMENSIONS] = noise;
+        return normalize(vector);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    @Test
+    void testSearchSimilarExcludesSelfAndOrdersByDistance() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 4, 32, 16, 1);
+        index.put(1, axis(0, 0));
+        index.put(2, axis(0, 0.1f));
+        index.put(3, axis(0, 0.5f));
+        index.put(4, axis(5, 0));
+
+        assertArrayEquals(new long[]{2, 3}, index.searchSimilar(1, 2));
+        assertArrayEquals(new long[]{2, 3, 4}, index.searchSimilar(1, 10));
+        assertNull(index.searchSimilar(99, 2));
+        assertArrayEquals(new long[]{4}, index.search(axis(5, 0.01f), 1));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void testEmptyIndex() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 4, 32, 16, 1);
+
+        assertArrayEquals(new long[0], index.search(axis(0, 0), 5));
+        assertNull(index.searchSimilar(1, 5));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRemoveAndUpdate() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 4, 32, 16, 1);
+        index.put(1, axis(0, 0));
+        index.put(2, axis(0, 0.1f));
+        index.put(3, axis(0, 0.5f));
+
+        assertTrue(index.remove(2));
+        assertFalse(index.remove(2));
+        assertArrayEquals(new long[]{3}, index.searchSimilar(1, 5)); // 已删除的节点不出现在结果中
+        assertFalse(index.contains(2));
+        assertEquals(1, index.deletedCount());
+
+        assertFalse(index.put(3, axis(0, 0.5f)));                  // 向量未变化
+        assertEquals(1, index.deletedCount());
+        assertTrue(index.put(3, axis(7, 0)));                       // 移到另一个方向
+        assertEquals(2, index.deletedCount());
+        assertArrayEquals(new long[]{1}, index.search(axis(0, 0.2f), 1));
+        assertArrayEquals(new long[]{3}, index.search(axis(7, 0.2f), 1));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testRejectsWrongDimensions() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 4, 32, 16, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> index.put(1, new float[3]));
+    }
+
+    @Test
+    void testRecallAgainstBruteForce() {
+        Random random = new Random(42);
+        int count = 3000;
+        List<float[]> vectors = new ArrayList<>();
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 64, 7);
+        for (int i = 0; i < count; i++) {
+            float[] vector = randomVector(random);
+            vectors.add(vector);
+            index.put(i, vector);
+        }
+        // 删除一部分，验证删除后图仍然可以导航
+        for (int i = 0; i < count; i += 10) {
+            index.remove(i);
+        }
+
+        int k = 10;
+        int hits = 0;
+        int queries = 200;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            List<Integer> exact = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (i % 10 != 0) {
+                    exact.add(i);
+                }
+            }
+            exact.sort(Comparator.comparingDouble((Integer i) -> -dot(query, vectors.get(i))));
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < k; i++) {
+                expected.add((long) exact.get(i));
+            }
+            for (long id : index.search(query, k)) {
+                assertNotEquals(0L, id % 10);
+                if (expected.contains(id)) {
+                    hits++;
+                }
+            }
+        }
+        double recall = (double) hits / (queries * k);
+        assertTrue(recall >= 0.9, "recall@10 = " + recall);
+        assertTrue(index.offHeapBytes() >= (long) count * DIMENSIONS * Float.BYTES);
+    }
+}
@@ -0,0 +1,97 @@
+package com.nusiss.productservice.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        put(1L, "Apple iPhone 15 Pro");
+        put(2L, "华为 Mate60 手机");
+        put(3L, "Xiaomi 14 小米手机");
+        put(4L, "iPad Air 平板");
+    }
+
+    private void put(long id, String text) {
+        Map<String, Float> freqs = new HashMap<>();
+        for (String token : ProductTokenizer.tokenize(text)) {
+            freqs.merge(token, 1f, Float::sum);
+        }
+        index.put(id, freqs);
+    }
+
+    private List<Long> search(String query) {
+        return index.search(SearchQuery.parse(query), 10);
+    }
+
+    @Test
+    void testTokenize_MixedChineseAndEnglish() {
+        List<String> tokens = ProductTokenizer.tokenize("iPhone15 华为手机");
+        assertTrue(tokens.containsAll(List.of("iphone15", "iphone", "15", "华为", "为手", "手机", "华")));
+    }
+
+    @Test
+    void testSearch_ChineseAndEnglish() {
+        assertEquals(List.of(2L, 3L), search("手机").stream().sorted().toList());
+        assertEquals(List.of(1L), search("IPHONE15"));
+    }
+
+    @Test
+    void testSearch_AndOr() {
+        assertEquals(List.of(), search("平板 apple"));
+        assertEquals(List.of(1L, 4L), search("平板 OR apple").stream().sorted().toList());
+    }
+
+    @Test
+    void testSearch_Prefix() {
+        assertEquals(List.of(1L), search("ipho*"));
+        assertEquals(List.of(1L, 4L), search("ip*").stream().sorted().toList());
+    }
+
+    @Test
+    void testSearch_PrefixExpandsEveryMatchingTerm() {
+        for (int i = 0; i < 100; i++) {
+            index.put(100L + i, Map.of(String.format("ipaa%03d", i), 1f)); // 按字母序排在 ipzz 之前
+        }
+        index.put(300L, Map.of("ipzz", 1f, "tail", 1f));
+
+        assertEquals(List.of(300L), search("ip* tail"));
+    }
+
+    @Test
+    void testSearch_PrefixTakesBestExpansionPerDocument() {
+        index.put(10L, Map.of("iphx1", 1f, "iphx2", 1f, "iphx3", 1f)); // 命中 3 个展开词，每个都较弱
+        index.put(11L, Map.of("iphy", 2f));                            // 只命中 1 个，但更强
+
+        assertEquals(11L, search("iph*").get(0));
+    }
+
+    @Test
+    void testSearch_RanksHigherTermFrequencyFirst() {
+        Map<String, Float> weighted = new HashMap<>();
+        weighted.put("air", 3f);
+        index.put(5L, weighted);
+
+        assertEquals(List.of(5L, 4L), search("air"));
+    }
+
+    @Test
+    void testPutAndRemove_Incremental() {
+        put(3L, "Xiaomi 14 Ultra");
+        assertEquals(List.of(2L), search("手机"));
+
+        index.remove(2L);
+        assertTrue(search("手机").isEmpty());
+        assertEquals(3, index.size());
+    }
+}
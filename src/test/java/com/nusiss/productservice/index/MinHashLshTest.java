@@ -0,0 +1,157 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashLshTest {
+
+    private final ProductShingler shingler = new ProductShingler(3);
+
+    private static Product product(String name, String description) {
+        Product p = new Product();
+        p.setName(name);
+        p.setDescription(description);
+        return p;
+    }
+
+    private int[] signature(MinHashLsh index, String name, String description) {
+        return index.signature(shingler.shingles(product(name, description)));
+    }
+
+    // 元素 [from, to) 的集合
+    private static long[] range(long from, long to) {
+        long[] set = new long[(int) (to - from)];
+        for (int i = 0; i < set.length; i++) {
+            set[i] = from + i;
+        }
+        return set;
+    }
+
+    @Test
+    void testSignatureEstimatesJaccard() {
+        MinHashLsh index = new MinHashLsh(50, 4, 7);
+        int[] a = index.signature(range(0, 1000));
+        int[] b = index.signature(range(250, 1250)); // 交集 750，并集 1250，Jaccard 0.6
+
+        assertEquals(0.6, MinHashLsh.similarity(a, b), 0.1);
+        assertEquals(1.0, MinHashLsh.similarity(a, index.signature(range(0, 1000))));
+        assertTrue(MinHashLsh.similarity(a, index.signature(range(5000, 6000))) < 0.05);
+        assertNull(index.signature(new long[0]));
+    }
+
+    @Test
+    void testFindsRepostedListing() {
+        MinHashLsh index = new MinHashLsh(20, 5, 42);
+        String description = "Brand new, sealed in box. 6.1-inch Super Retina XDR display, A16 Bionic chip, "
+                + "48MP main camera, USB-C. Ships within 24 hours with one year warranty.";
+        index.put(1L, signature(index, "Apple iPhone 15 128GB Black", description));
+        index.put(2L, signature(index, "Samsung Galaxy S24 256GB", "Unlocked Android phone with 120Hz display and 50MP camera"));
+        index.put(3L, signature(index, "实木餐桌 六人位", "北美白橡木，榫卯结构，免费送货上门"));
+
+        int[] repost = signature(index, "iPhone 15 128 GB black - Apple", description.toUpperCase() + "!!");
+        List<MinHashLsh.Candidate> candidates = index.query(repost, 0.8, -1);
+
+        assertEquals(1, candidates.size());
+        assertEquals(1L, candidates.get(0).id());
+        assertTrue(candidates.get(0).similarity() >= 0.8);
+
+        List<MinHashLsh.Candidate> chinese = index.query(signature(index, "实木餐桌（六人位）", "北美白橡木 榫卯结构 免费送货上门"), 0.8, -1);
+        assertEquals(3L, chinese.get(0).id());
+        assertTrue(index.query(index.signatureOf(1L), 0.5, 1L).stream().noneMatch(c -> c.id() == 2L)); // 同类但不同的商品
+    }
+
+    @Test
+    void testReplaceAndRemove() {
+        MinHashLsh index = new MinHashLsh(20, 5, 42);
+        int[] phone = signature(index, "Apple iPhone 15 128GB Black", "Brand new sealed box with warranty");
+        index.put(1L, phone);
+        index.put(2L, phone);
+        assertEquals(1, index.query(phone, 0.8, 1L).size());
+
+        index.put(2L, signature(index, "Oak dining table", "Solid wood table for six")); // 文本改了，不再相似
+        assertEquals(List.of(), index.query(phone, 0.8, 1L));
+
+        index.remove(1L);
+        index.put(2L, null);
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.query(phone, 0.0, -1));
+    }
+
+    // 与两两比较的朴素实现对比：LSH 找出的相似对都是真的相似对，并且高相似度的对几乎不会漏掉
+    @Test
+    void testPairsMatchBruteForce() {
+        MinHashLsh index = new MinHashLsh(20, 5, 42);
+        Random random = new Random(3);
+        List<int[]> signatures = new ArrayList<>();
+        for (int doc = 0; doc < 200; doc++) {
+            long base = doc % 50 * 10_000L;             // 每 4 个文档共享同一个基础集合
+            long[] set = range(base, base + 300);
+            for (int i = 0; i < 15; i++) {
+                set[random.nextInt(set.length)] = 1_000_000L + random.nextInt(1_000_000); // 少量改动
+            }
+            int[] signature = index.signature(set);
+            signatures.add(signature);
+            index.put(doc, signature);
+        }
+
+        List<String> lshPairs = new ArrayList<>();
+        index.forEachPair(0.8, (a, b, similarity) -> lshPairs.add(a + "-" + b));
+        List<String> exactPairs = new ArrayList<>();
+        for (int a = 0; a < signatures.size(); a++) {
+            for (int b = a + 1; b < signatures.size(); b++) {
+                if (MinHashLsh.similarity(signatures.get(a), signatures.get(b)) >= 0.8) {
+                    exactPairs.add(a + "-" + b);
+                }
+            }
+        }
+
+        assertFalse(exactPairs.isEmpty());
+        assertTrue(exactPairs.containsAll(lshPairs));
+        assertTrue(lshPairs.size() >= exactPairs.size() * 0.99, lshPairs.size() + " / " + exactPairs.size());
+        assertEquals(lshPairs.size(), lshPairs.stream().distinct().count()); // 每对只回调一次
+    }
+
+    // 扫描期间的写入和查询不必等到扫描结束
+    @Test
+    void testScanDoesNotBlockWritersOrQueries() {
+        MinHashLsh index = new MinHashLsh(20, 5, 11);
+        int[] signature = index.signature(range(0, 500));
+        for (long doc = 0; doc < 3; doc++) {
+            index.put(doc, signature);
+        }
+
+        List<String> pairs = new ArrayList<>();
+        index.forEachPair(0.8, (a, b, similarity) -> {
+            if (pairs.isEmpty()) {
+                // 回调仍在扫描中：另一个线程的写入（随后的查询排在它后面）必须能完成
+                CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> {
+                    index.put(100, index.signature(range(10_000, 10_500)));
+                    return index.query(signature, 0.8, -1).size();
+                });
+                assertEquals(3, assertDoesNotThrow(() -> writer.get(5, TimeUnit.SECONDS)));
+                index.remove(2); // 回调中也可以修改索引
+            }
+            pairs.add(a + "-" + b);
+        });
+
+        assertFalse(pairs.isEmpty());
+        assertEquals(2, index.query(signature, 0.8, -1).size());
+        assertNotNull(index.signatureOf(100));
+    }
+
+    @Test
+    void testShinglesIgnoreCasePunctuationAndFullWidth() {
+        assertArrayEquals(shingler.shingles(product("iPhone 15, Black!", null)),
+                shingler.shingles(product("ＩＰＨＯＮＥ１５ black", null)));
+        assertEquals(1, shingler.shingles(product("书", null)).length); // 不足 3 个字符整体作为一个 shingle
+        assertEquals(0, shingler.shingles(product(" - ", null)).length);
+    }
+}
@@ -0,0 +1,109 @@
+package com.nusiss.productservice.index;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ 违禁短语筛查的基准测试：Aho-Corasick 自动机（PhraseMatcher.findFirst）与逐个短语 contains 的对比
+ - 短语为随机生成的中文（3-6 个汉字）和英文（2-3 个单词）各半，评论为 500 字左右的中英文混合文本（英文大小写混合）
+ - 评论中不含任何短语：筛查的常见情况，也是两种做法都要扫描完整文本的最坏情况
+ - phraseCount 取不同的值，可以看出逐个 contains 的耗时随短语数量线性增长，自动机基本不变
+ 不在 mvn test 中运行；运行方式：mvn test-compile 后以 test classpath 执行本类的 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhraseMatcherBenchmark {
+
+    @Param({"1000", "30000"})
+    public int phraseCount;
+
+    private PhraseMatcher matcher;
+    private String[] phrases;   // 折叠后的短语，供逐个 contains 使用
+    private String[] comments;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Set<String> generated = new LinkedHashSet<>();
+        while (generated.size() < phraseCount) {
+            generated.add(generated.size() % 2 == 0 ? chinese(random, 3 + random.nextInt(4)) : english(random, 2 + random.nextInt(2)));
+        }
+        matcher = PhraseMatcher.compile(generated);
+        phrases = generated.stream().map(PhraseMatcher::fold).toArray(String[]::new);
+
+        List<String> clean = new ArrayList<>();
+        while (clean.size() < 64) {
+            StringBuilder comment = new StringBuilder();
+            while (comment.length() < 500) {
+                comment.append(random.nextBoolean() ? chinese(random, 8) : english(random, 4)).append(random.nextBoolean() ? "，" : ". ");
+            }
+            String text = comment.toString();
+            if (matcher.findFirst(text) == null) {
+                clean.add(text);
+            }
+        }
+        comments = clean.toArray(new String[0]);
+    }
+
+    private static String chinese(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('\u4e00' + random.nextInt(3000)));
+        }
+        return sb.toString();
+    }
+
+    private static String english(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            int letters = 3 + random.nextInt(5);
+            boolean upper = random.nextInt(4) == 0;
+            for (int j = 0; j < letters; j++) {
+                sb.append((char) ((upper ? 'A' : 'a') + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private String nextComment() {
+        next = (next + 1) % comments.length;
+        return comments[next];
+    }
+
+    @Benchmark
+    public PhraseMatcher.Match automaton() {
+        return matcher.findFirst(nextComment());
+    }
+
+    @Benchmark
+    public String perPhraseContains() {
+        String text = PhraseMatcher.fold(nextComment());
+        for (String phrase : phrases) {
+            if (text.contains(phrase)) {
+                return phrase;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PhraseMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.nusiss.productservice.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhraseMatcherTest {
+
+    private static List<String> ends(List<PhraseMatcher.Match> matches) {
+        List<String> result = new ArrayList<>();
+        for (PhraseMatcher.Match match : matches) {
+            result.add(match.phrase() + "@" + match.start() + "-" + match.end());
+        }
+        return result;
+    }
+
+    @Test
+    void testFindsOverlappingAndNestedPhrases() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("he", "she", "his", "hers"));
+
+        assertEquals(List.of("she@1-4", "he@2-4", "hers@2-6"), ends(matcher.findAll("ushers")));
+        assertEquals("she", matcher.findFirst("ushers").phrase()); // 同一位置结束时取最长的
+        assertNull(matcher.findFirst("nothing to see"));
+    }
+
+    @Test
+    void testChineseAndMixedPhrases() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("加微信", "刷单", "免费领取"));
+
+        PhraseMatcher.Match match = matcher.findFirst("质量不错，想要优惠请加微信 abc123");
+        assertEquals("加微信", match.phrase());
+        assertEquals(10, match.start());
+        assertEquals(13, match.end());
+        assertEquals(List.of("刷单@2-4", "免费领取@5-9"), ends(matcher.findAll("专业刷单，免费领取")));
+    }
+
+    @Test
+    void testFoldsCaseAndFullWidth() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("Free Gift", "ＶＩＰ"));
+
+        assertNotNull(matcher.findFirst("get your FREE GIFT now"));
+        assertNotNull(matcher.findFirst("ｆｒｅｅ　ｇｉｆｔ"));
+        assertNotNull(matcher.findFirst("vip only"));
+        assertNull(matcher.findFirst("freegift"));
+    }
+
+    @Test
+    void testBlankAndDuplicatePhrasesAreIgnored() {
+        PhraseMatcher matcher = PhraseMatcher.compile(List.of("spam", "SPAM", " ", ""));
+
+        assertEquals(1, matcher.size());
+        assertEquals(1, matcher.findAll("spam").size());
+        assertNull(PhraseMatcher.compile(List.of()).findFirst("anything"));
+    }
+
+    // 与逐个短语 indexOf 的朴素实现对比（随机短语和文本，字母表很小以制造大量重叠）
+    @Test
+    void testMatchesNaiveScan() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            List<String> phrases = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                phrases.add(randomText(random, 1 + random.nextInt(5)));
+            }
+            PhraseMatcher matcher = PhraseMatcher.compile(phrases);
+            String text = randomText(random, 200);
+
+            int expected = 0;
+            int firstEnd = Integer.MAX_VALUE;
+            for (String phrase : new LinkedHashSet<>(phrases)) {
+                for (int at = text.indexOf(phrase); at >= 0; at = text.indexOf(phrase, at + 1)) {
+                    expected++;
+                    firstEnd = Math.min(firstEnd, at + phrase.length());
+                }
+            }
+            assertEquals(expected, matcher.findAll(text).size(), "round " + round);
+            PhraseMatcher.Match first = matcher.findFirst(text);
+            assertEquals(firstEnd, first == null ? Integer.MAX_VALUE : first.end(), "round " + round);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append("ab刷单".charAt(random.nextInt(4)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogSnapshotTest {
+
+    private ProductCatalogSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new ProductCatalogSnapshot();
+        snapshot.put(product(1L, "Apple iPhone 15", "Phones", "ACTIVE", "6999.00", 4.5));
+        snapshot.put(product(2L, "iPhone 14 Case", "Accessories", "ACTIVE", "99.90", 4.9));
+        snapshot.put(product(3L, "华为 Mate60 手机", "phones", "INACTIVE", "5999.00", null));
+        snapshot.put(product(4L, "Budget Phone", "Phones", "ACTIVE", null, 3.0));
+        snapshot.put(product(5L, "Galaxy S24", "Phones", "ACTIVE", "5999.00", 4.7));
+    }
+
+    private static Product product(long id, String name, String category, String status, String price, Double rating) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setCategory(category);
+        p.setStatus(status);
+        p.setPrice(price == null ? null : new BigDecimal(price));
+        p.setRating(rating);
+        return p;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    private List<Long> filter(String name, String category, String status, String minPrice, String maxPrice, Double rating) {
+        return ids(snapshot.filter(new CatalogQuery(name, category, status,
+                minPrice == null ? null : new BigDecimal(minPrice),
+                maxPrice == null ? null : new BigDecimal(maxPrice), rating)));
+    }
+
+    @Test
+    void testFilter_CategoryAndStatusAreCaseInsensitive() {
+        assertEquals(List.of(1L, 3L, 4L, 5L), filter(null, "PHONES", null, null, null, null));
+        assertEquals(List.of(1L, 4L, 5L), filter(null, "phones", "active", null, null, null));
+        assertEquals(List.of(), filter(null, "Laptops", null, null, null, null));
+    }
+
+    @Test
+    void testFilter_RangesExcludeNulls() {
+        // 价格区间两端都包含；price 为 NULL 的商品不满足价格条件
+        assertEquals(List.of(3L, 5L), filter(null, null, null, "5999", "5999.004", null));
+        assertEquals(List.of(2L), filter(null, null, null, null, "99.9", null));
+        // rating 为 NULL 的商品不满足评分条件
+        assertEquals(List.of(1L, 2L, 5L), filter(null, null, null, null, null, 4.5));
+    }
+
+    @Test
+    void testFilter_NameContains() {
+        assertEquals(List.of(1L, 2L), filter("IPHONE", null, null, null, null, null));
+        assertEquals(List.of(3L), filter("mate60", "Phones", null, null, null, null));
+    }
+
+    @Test
+    void testSelect_SortWithNullsAndPaging() {
+        CatalogQuery all = new CatalogQuery(null, null, null, null, null, null);
+
+        // 降序时 NULL 排在最后，排序值相同按 id 升序
+        ProductCatalogSnapshot.Slice desc = snapshot.select(all, "price", false, 0, 10);
+        assertEquals(List.of(1L, 3L, 5L, 2L, 4L), ids(desc.getRecords()));
+        assertEquals(5, desc.getTotal());
+
+        // 升序时 NULL 排在最前
+        ProductCatalogSnapshot.Slice ascPage2 = snapshot.select(all, "rating", true, 2, 2);
+        assertEquals(List.of(1L, 5L), ids(ascPage2.getRecords()));
+        assertEquals(5, ascPage2.getTotal());
+    }
+
+    @Test
+    void testWrites_InvalidateSortOrderAndReuseSlots() {
+        CatalogQuery phones = new CatalogQuery(null, "Phones", null, null, null, null);
+        assertEquals(List.of(5L, 1L, 4L), ids(snapshot.select(phones, "rating", false, 0, 3).getRecords()));
+
+        snapshot.put(product(4L, "Budget Phone", "Phones", "ACTIVE", null, 5.0));
+        snapshot.remove(5L);
+        snapshot.put(product(6L, "Pixel 9", "Tablets", "ACTIVE", "4999.00", 4.8));
+
+        assertEquals(List.of(4L, 1L, 3L), ids(snapshot.select(phones, "rating", false, 0, 10).getRecords()));
+        assertEquals(List.of(6L), filter(null, "tablets", null, null, null, null));
+        assertEquals(5, snapshot.size());
+    }
+
+    @Test
+    void testSelect_ReturnsCopies() {
+        Product first = snapshot.filter(new CatalogQuery(null, null, null, null, null, null)).get(0);
+        first.setName("changed");
+
+        assertEquals("Apple iPhone 15", snapshot.filter(new CatalogQuery("apple", null, null, null, null, null)).get(0).getName());
+    }
+
+    @Test
+    void testSelect_UnsupportedSortColumn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.select(new CatalogQuery(null, null, null, null, null, null), "name", true, 0, 10));
+    }
+
+    @Test
+    void testFacets_SinglePassCounts() {
+        ProductFacets facets = snapshot.facets(new CatalogQuery(null, null, null, null, null, null));
+
+        assertEquals(5, facets.getTotal());
+        assertEquals(new ProductFacets.ValueCount("Phones", 4), facets.getCategories().get(0));
+        assertEquals(new ProductFacets.ValueCount("Accessories", 1), facets.getCategories().get(1));
+        assertEquals(new ProductFacets.ValueCount("ACTIVE", 4), facets.getStatuses().get(0));
+
+        // 默认价格区间 0,50,100,500,1000,5000：99.90 落在 [50,100)，5999/6999 落在 [5000,+∞)，NULL 不计
+        List<Long> priceCounts = facets.getPriceBuckets().stream().map(ProductFacets.RangeCount::getCount).collect(Collectors.toList());
+        assertEquals(List.of(0L, 1L, 0L, 0L, 0L, 3L), priceCounts);
+        assertNull(facets.getPriceBuckets().get(5).getTo());
+
+        // 评分区间：3.0 -> [3,4)，4.5 / 4.7 / 4.9 -> [4,5]
+        List<Long> ratingCounts = facets.getRatingBuckets().stream().map(ProductFacets.RangeCount::getCount).collect(Collectors.toList());
+        assertEquals(List.of(0L, 0L, 0L, 1L, 3L), ratingCounts);
+    }
+
+    @Test
+    void testFacets_RespectFilterAndCustomBuckets() {
+        ProductCatalogSnapshot custom = new ProductCatalogSnapshot(new BigDecimal[]{new BigDecimal("6000"), new BigDecimal("0")});
+        custom.put(product(1L, "A", "Phones", "ACTIVE", "6999.00", 4.5));
+        custom.put(product(2L, "B", "Phones", "INACTIVE", "10.00", 1.0));
+        custom.put(product(3L, "C", "Tablets", "ACTIVE", "6000.00", 2.0));
+
+        ProductFacets facets = custom.facets(new CatalogQuery(null, null, "active", null, null, null));
+        assertEquals(2, facets.getTotal());
+        assertEquals(2, facets.getCategories().size());
+        assertEquals(new BigDecimal("0"), facets.getPriceBuckets().get(0).getFrom());
+        assertEquals(0, facets.getPriceBuckets().get(0).getCount());
+        assertEquals(2, facets.getPriceBuckets().get(1).getCount());
+    }
+}
@@ -0,0 +1,93 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSuggestIndexTest {
+
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSuggestIndex();
+        index.put(product(1L, "Apple iPhone 15", "Phones", 4.5));
+        index.put(product(2L, "iPhone 14 Case", "Accessories", 4.9));
+        index.put(product(3L, "华为 Mate60 手机", "Phones", 4.7));
+        index.put(product(4L, "iPad Air", "Tablets", 3.0));
+    }
+
+    private static Product product(long id, String name, String category, Double rating) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setCategory(category);
+        p.setRating(rating);
+        return p;
+    }
+
+    private List<String> texts(String query) {
+        return index.suggest(query, 10).stream().map(Suggestion::getText).collect(Collectors.toList());
+    }
+
+    @Test
+    void testSuggest_RankedByRatingIncludingWordStarts() {
+        // "iph" 命中名称开头（id 2）以及第二个词开头（id 1），按评分排序
+        assertEquals(List.of("iPhone 14 Case", "Apple iPhone 15"), texts("IPH"));
+        assertEquals(List.of("华为 Mate60 手机"), texts("华为"));
+        assertEquals(List.of("华为 Mate60 手机"), texts("mate"));
+    }
+
+    @Test
+    void testSuggest_CategoryUsesHighestRating() {
+        List<Suggestion> result = index.suggest("pho", 10);
+        assertEquals(1, result.size());
+        assertEquals(Suggestion.Kind.CATEGORY, result.get(0).getKind());
+        assertEquals(4.7, result.get(0).getScore());
+
+        index.remove(3L);
+        assertEquals(4.5, index.suggest("pho", 10).get(0).getScore());
+        index.remove(1L);
+        assertTrue(index.suggest("pho", 10).isEmpty());
+        assertEquals(2, index.categoryCount());
+    }
+
+    @Test
+    void testPut_ReplacesOldKeysAndScore() {
+        index.put(product(2L, "Galaxy S24", "Phones", 4.9));
+
+        assertEquals(List.of("Apple iPhone 15"), texts("iph"));
+        assertEquals(List.of("Galaxy S24"), texts("gal"));
+        assertEquals(4.9, index.suggest("phones", 10).get(0).getScore());
+    }
+
+    @Test
+    void testTopK_RecomputedAfterRemoval() {
+        for (long id = 10; id < 25; id++) {
+            index.put(product(id, "Widget " + id, null, (double) id));
+        }
+        assertEquals(SuggestTrie.TOP_K, index.suggest("widget", 20).size());
+        assertEquals("Widget 24", texts("widget").get(0));
+
+        index.remove(24L);
+        List<String> afterRemove = texts("widget");
+        assertEquals("Widget 23", afterRemove.get(0));
+        assertEquals(SuggestTrie.TOP_K, afterRemove.size());
+        assertEquals("Widget 14", afterRemove.get(SuggestTrie.TOP_K - 1));
+    }
+
+    @Test
+    void testRemoveAll_PrunesTrie() {
+        for (long id = 1; id <= 4; id++) {
+            index.remove(id);
+        }
+        assertEquals(0, index.keyCount());
+        assertEquals(1, index.nodeCount());
+        assertTrue(index.estimateMemoryBytes() > 0);
+    }
+}
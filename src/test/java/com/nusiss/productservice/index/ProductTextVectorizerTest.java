@@ -0,0 +1,58 @@
+package com.nusiss.productservice.index;
+
+import com.nusiss.productservice.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductTextVectorizerTest {
+
+    private final ProductTextVectorizer vectorizer = new ProductTextVectorizer(256);
+
+    private static Product product(String name, String title, String description) {
+        Product p = new Product();
+        p.setName(name);
+        p.setTitle(title);
+        p.setDescription(description);
+        return p;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    @Test
+    void testVectorIsNormalized() {
+        float[] vector = vectorizer.vectorize(product("iPhone 15", "Apple phone", "A phone with a great camera"));
+
+        assertEquals(256, vector.length);
+        assertEquals(1.0, cosine(vector, vector), 1e-5);
+    }
+
+    @Test
+    void testNoTextGivesNull() {
+        assertNull(vectorizer.vectorize(product(null, "", "the of and")));
+    }
+
+    @Test
+    void testSimilarTextsAreCloser() {
+        float[] phone = vectorizer.vectorize(product("Galaxy S24 phone", null, "Android smartphone with OLED screen"));
+        float[] phones = vectorizer.vectorize(product("Pixel 8 phones", null, "Android smartphones, OLED display"));
+        float[] chair = vectorizer.vectorize(product("Office chair", null, "Ergonomic mesh chair with lumbar support"));
+
+        assertTrue(cosine(phone, phones) > cosine(phone, chair));
+    }
+
+    @Test
+    void testChineseText() {
+        float[] a = vectorizer.vectorize(product("华为手机", null, "5G 智能手机"));
+        float[] b = vectorizer.vectorize(product("小米手机", null, "智能手机"));
+        float[] c = vectorizer.vectorize(product("实木书桌", null, "办公家具"));
+
+        assertTrue(cosine(a, b) > cosine(a, c));
+    }
+}
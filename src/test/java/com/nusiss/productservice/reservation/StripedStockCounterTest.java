@@ -0,0 +1,37 @@
+package com.nusiss.productservice.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTest {
+
+    @Test
+    void testInitialStockSpreadAcrossStripes() {
+        StripedStockCounter counter = new StripedStockCounter(10, 3);
+        assertEquals(4, counter.stripes()); // 向上取整为 2 的幂
+        assertEquals(10, counter.available());
+        assertEquals(1, new StripedStockCounter(5, 1).stripes());
+        assertEquals(0, new StripedStockCounter(-3, 4).available());
+    }
+
+    @Test
+    void testTakeAcrossStripesAndRollback() {
+        StripedStockCounter counter = new StripedStockCounter(3, 4); // 各槽位为 0,1,1,1
+        assertTrue(counter.tryTake(2));
+        assertFalse(counter.tryTake(2)); // 只剩 1 件，凑不够时已扣的要归还
+        assertEquals(1, counter.available());
+        assertTrue(counter.tryTake(1));
+        assertFalse(counter.tryTake(1));
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    void testAddAndDrain() {
+        StripedStockCounter counter = new StripedStockCounter(2, 4);
+        counter.add(5);
+        assertEquals(7, counter.available());
+        assertEquals(7, counter.drain(10)); // 不会扣成负数
+        assertEquals(0, counter.available());
+    }
+}
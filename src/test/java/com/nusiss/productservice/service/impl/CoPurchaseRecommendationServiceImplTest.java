@@ -0,0 +1,101 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.client.FileOrderBasketSource;
+import com.nusiss.productservice.client.ObservedOrderBasketSource;
+import com.nusiss.productservice.event.OrderHistoryFetchedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoPurchaseRecommendationServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ObservedOrderBasketSource observed = new ObservedOrderBasketSource();
+
+    private final FileOrderBasketSource file = new FileOrderBasketSource();
+
+    private CoPurchaseRecommendationServiceImpl service;
+
+    private Path orders;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        orders = Files.createTempFile("orders", ".txt");
+        Files.write(orders, List.of(
+                "# 每行一个订单",
+                "1, 2, 3",
+                "1 2",
+                "",
+                "2,3",
+                "1,abc"  // 格式错误，跳过
+        ), StandardCharsets.UTF_8);
+        ReflectionTestUtils.setField(file, "file", orders.toString());
+        observed.init();
+
+        service = new CoPurchaseRecommendationServiceImpl();
+        ReflectionTestUtils.setField(service, "basketSources", List.of(observed, file));
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "minSupport", 1);
+        ReflectionTestUtils.setField(service, "rebuildIntervalMillis", 0L); // 测试中手动重建
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.shutdown();
+        Files.deleteIfExists(orders);
+    }
+
+    @Test
+    void testEmptyBeforeFirstRebuild() {
+        assertEquals(List.of(), service.getRelatedProductIds(1L, 5, null));
+        assertEquals(List.of(), service.getRecommendedProductIds(List.of(1L), 5));
+    }
+
+    @Test
+    void testRebuildFromFileAndObservedHistories() {
+        observed.onOrderHistoryFetched(new OrderHistoryFetchedEvent(7L, List.of(1L, 4L)));
+        observed.onOrderHistoryFetched(new OrderHistoryFetchedEvent(8L, List.of()));
+
+        assertEquals(4, service.rebuild());
+
+        // 1 出现在 3 个购物篮中：与 2 共同 2 次，与 4（只出现 1 次）和 3 各共同 1 次
+        assertEquals(List.of(2L, 4L, 3L), service.getRelatedProductIds(1L, 5, null));
+        assertEquals(List.of(2L, 4L), service.getRelatedProductIds(1L, 5, Set.of(3L)));
+        assertEquals(List.of(3L, 1L), service.getRelatedProductIds(2L, 5, null));
+        assertEquals(List.of(1L), service.getRelatedProductIds(4L, 5, null));
+        assertEquals(List.of(2L, 3L), service.getRecommendedProductIds(List.of(1L, 4L), 2));
+        assertEquals(4.0, meterRegistry.get("product.copurchase.products").gauge().value(), 0.0);
+        assertEquals(1, meterRegistry.get("product.copurchase.rebuild").timer().count());
+    }
+
+    @Test
+    void testRebuildSwapsInNewModel() throws Exception {
+        service.rebuild();
+        assertEquals(List.of(2L, 3L), service.getRelatedProductIds(1L, 5, null));
+
+        Files.write(orders, List.of("1,9", "1,9", "1,9"), StandardCharsets.UTF_8);
+        service.rebuild();
+
+        assertEquals(List.of(9L), service.getRelatedProductIds(1L, 5, null));
+        assertEquals(List.of(), service.getRelatedProductIds(3L, 5, null));
+    }
+
+    @Test
+    void testMissingFileContributesNothing() {
+        ReflectionTestUtils.setField(file, "file", orders.resolveSibling("missing-orders.txt").toString());
+
+        assertEquals(0, service.rebuild());
+    }
+}
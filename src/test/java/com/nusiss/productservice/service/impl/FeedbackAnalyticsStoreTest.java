@@ -0,0 +1,87 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductFeedbackBucketMapper;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.index.FeedbackTimeSeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FeedbackAnalyticsStoreTest {
+
+    @InjectMocks
+    private FeedbackAnalyticsStore store;
+
+    @Mock
+    private ProductFeedbackBucketMapper bucketMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(store, "maxDays", 30);
+        ReflectionTestUtils.setField(store, "maxMonths", 6);
+        ReflectionTestUtils.setField(store, "dailyRetentionDays", 10); // 小于 max-days 时按 max-days
+        ReflectionTestUtils.setField(store, "cacheMaxWeightBytes", 1L << 20);
+        store.init();
+        when(bucketMapper.selectDaily(any())).thenReturn(List.of());
+        when(bucketMapper.selectMonthly(any(), any())).thenReturn(List.of());
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void testSeriesIsCachedUntilFeedbackChanges() {
+        FeedbackTimeSeries first = store.get(1L);
+        assertEquals(LocalDate.now(), first.lastDay());
+        assertEquals(30, first.days());
+        assertSame(first, store.get(1L));
+        verify(bucketMapper, times(1)).selectDaily(1L);
+        verify(bucketMapper).selectMonthly(1L, LocalDate.now().withDayOfMonth(1).minusMonths(5));
+
+        store.onFeedbackChanged(new FeedbackChangedEvent(2L)); // 其他商品
+        assertSame(first, store.get(1L));
+
+        store.onFeedbackChanged(new FeedbackChangedEvent(1L));
+        assertNotSame(first, store.get(1L));
+        verify(bucketMapper, times(2)).selectDaily(1L);
+    }
+
+    @Test
+    void testCompactLocksMergesThenDeletesInOneTransaction() {
+        LocalDate before = LocalDate.now().minusDays(30);
+        when(bucketMapper.lockDailyBefore(before)).thenReturn(4);
+
+        store.compact();
+
+        InOrder inOrder = inOrder(transactionTemplate, bucketMapper);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(bucketMapper).lockDailyBefore(before); // 先锁定，并发执行的实例在此排队
+        inOrder.verify(bucketMapper).mergeDailyIntoMonthly(before);
+        inOrder.verify(bucketMapper).deleteDailyBefore(before);
+    }
+
+    @Test
+    void testCompactSkipsWhenAnotherReplicaAlreadyMerged() {
+        when(bucketMapper.lockDailyBefore(any())).thenReturn(0); // 等到锁时行已被删除
+
+        store.compact();
+
+        verify(bucketMapper, never()).mergeDailyIntoMonthly(any());
+        verify(bucketMapper, never()).deleteDailyBefore(any());
+    }
+}
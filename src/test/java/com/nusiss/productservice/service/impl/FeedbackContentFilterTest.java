@@ -0,0 +1,81 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedbackContentFilterTest {
+
+    @TempDir
+    Path dir;
+
+    private Path phrases;
+    private FeedbackContentFilter filter;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        phrases = dir.resolve("banned-phrases.txt");
+        write("# 违禁短语\n加微信\n\nFree Gift\n", 1_000);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new FeedbackContentFilter();
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(filter, "phrasesFile", phrases.toString());
+        filter.init();
+    }
+
+    // 写入短语文件并设置修改时间（避免文件系统时间精度导致检测不到变化）
+    private void write(String content, long modifiedMillis) throws Exception {
+        Files.writeString(phrases, content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(phrases, FileTime.fromMillis(modifiedMillis));
+    }
+
+    @Test
+    void testRejectsCommentsWithBannedPhrases() {
+        assertEquals(2, filter.size());
+        assertThrows(CustomException.class, () -> filter.check("想要优惠请加微信"));
+        assertThrows(CustomException.class, () -> filter.check("FREE GIFT inside"));
+        filter.check("质量很好，物流也快");
+        filter.check(null);
+        assertEquals(2, meterRegistry.counter("product.feedback.content-filter.rejected").count());
+    }
+
+    @Test
+    void testReloadsWhenFileChanges() throws Exception {
+        write("刷单\n", 2_000);
+        filter.reloadIfChanged();
+
+        assertEquals(1, filter.size());
+        filter.check("想要优惠请加微信"); // 旧短语已移除
+        assertThrows(CustomException.class, () -> filter.check("专业刷单"));
+    }
+
+    @Test
+    void testKeepsLoadedPhrasesWhenFileDisappears() throws Exception {
+        Files.delete(phrases);
+        filter.reloadIfChanged();
+
+        assertEquals(2, filter.size());
+        assertThrows(CustomException.class, () -> filter.check("加微信"));
+    }
+
+    @Test
+    void testNoPhrasesFileDisablesScreening() {
+        FeedbackContentFilter disabled = new FeedbackContentFilter();
+        ReflectionTestUtils.setField(disabled, "meterRegistry", meterRegistry);
+        disabled.init();
+
+        assertEquals(0, disabled.size());
+        disabled.check("加微信");
+    }
+}
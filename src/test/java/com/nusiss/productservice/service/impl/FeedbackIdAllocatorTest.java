@@ -0,0 +1,72 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.IdBlockSequenceMapper;
+import com.nusiss.productservice.dao.ProductFeedbackMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FeedbackIdAllocatorTest {
+
+    @InjectMocks
+    private FeedbackIdAllocator allocator;
+
+    @Mock
+    private IdBlockSequenceMapper sequenceMapper;
+
+    @Mock
+    private ProductFeedbackMapper productFeedbackMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(allocator, "blockSize", 3);
+        allocator.init();
+    }
+
+    @Test
+    void testIdsComeInBlocksFromTheSequence() {
+        when(sequenceMapper.selectNextIdForUpdate(FeedbackIdAllocator.SEQUENCE)).thenReturn(100L, 103L);
+        when(productFeedbackMapper.selectNextId()).thenReturn(50L);
+
+        List<Long> ids = LongStream.range(0, 5).map(i -> allocator.next()).boxed().toList();
+
+        assertEquals(List.of(100L, 101L, 102L, 103L, 104L), ids);
+        verify(sequenceMapper).updateNextId(FeedbackIdAllocator.SEQUENCE, 103L);
+        verify(sequenceMapper).updateNextId(FeedbackIdAllocator.SEQUENCE, 106L);
+        verify(sequenceMapper, times(2)).selectNextIdForUpdate(FeedbackIdAllocator.SEQUENCE); // 每个段只访问一次数据库
+
+        // 取段在独立事务中完成，不加入调用方的事务
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(2)).getTransaction(definition.capture());
+        assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getValue().getPropagationBehavior());
+    }
+
+    @Test
+    void testBlockStartsAfterExistingFeedback() {
+        when(sequenceMapper.selectNextIdForUpdate(FeedbackIdAllocator.SEQUENCE)).thenReturn(100L);
+        when(productFeedbackMapper.selectNextId()).thenReturn(500L); // 有绕过本服务插入的行
+
+        assertEquals(500L, allocator.next());
+        verify(sequenceMapper).updateNextId(FeedbackIdAllocator.SEQUENCE, 503L);
+    }
+
+    @Test
+    void testMissingSequenceRowFails() {
+        assertThrows(IllegalStateException.class, () -> allocator.next());
+        verify(sequenceMapper, never()).updateNextId(any(), anyLong());
+        verify(transactionManager).rollback(any());
+    }
+}
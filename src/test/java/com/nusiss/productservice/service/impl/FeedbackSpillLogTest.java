@@ -0,0 +1,106 @@
+package com.nusiss.productservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nusiss.productservice.entity.ProductFeedback;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedbackSpillLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private static ProductFeedback feedback(long id) {
+        ProductFeedback feedback = new ProductFeedback();
+        feedback.setId(id);
+        feedback.setProductId(10L);
+        feedback.setRating(4);
+        feedback.setComment("评论 " + id);
+        feedback.setCreateDatetime(LocalDateTime.of(2024, 3, 15, 12, 0));
+        return feedback;
+    }
+
+    private long fileCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testUnreleasedRecordsAreRecovered() throws Exception {
+        FeedbackSpillLog log = new FeedbackSpillLog(directory, objectMapper, false, 1 << 20);
+        assertTrue(log.recover().isEmpty());
+        FeedbackSpillLog.Segment segment = log.append(feedback(1));
+        log.append(feedback(2));
+        log.append(feedback(3));
+        log.release(segment, 1); // 只写入了一条，进程随后被杀（没有 close）
+
+        List<FeedbackSpillLog.Recovered> recovered = new FeedbackSpillLog(directory, objectMapper, false, 1 << 20).recover();
+        assertEquals(List.of(1L, 2L, 3L), recovered.stream().map(r -> r.feedback.getId()).toList(),
+                "当前段的记录没有全部释放前不会截断，重放由写入方按 ID 去重");
+        assertEquals("评论 2", recovered.get(1).feedback.getComment());
+        assertEquals(LocalDateTime.of(2024, 3, 15, 12, 0), recovered.get(1).feedback.getCreateDatetime());
+    }
+
+    @Test
+    void testFullyReleasedLogIsEmpty() throws Exception {
+        FeedbackSpillLog log = new FeedbackSpillLog(directory, objectMapper, true, 1 << 20);
+        log.recover();
+        FeedbackSpillLog.Segment segment = log.append(feedback(1));
+        log.append(feedback(2));
+        log.release(segment, 2);
+        log.append(feedback(3)); // 截断后继续追加
+
+        List<FeedbackSpillLog.Recovered> recovered = new FeedbackSpillLog(directory, objectMapper, false, 1 << 20).recover();
+        assertEquals(List.of(3L), recovered.stream().map(r -> r.feedback.getId()).toList());
+    }
+
+    @Test
+    void testSealedSegmentsAreDeletedOnceReleased() throws Exception {
+        FeedbackSpillLog log = new FeedbackSpillLog(directory, objectMapper, false, 200); // 每段只放得下一条
+        log.recover();
+        FeedbackSpillLog.Segment first = log.append(feedback(1));
+        FeedbackSpillLog.Segment second = log.append(feedback(2));
+        assertNotSame(first, second);
+        assertEquals(2, fileCount());
+
+        log.release(first, 1);
+        assertEquals(1, fileCount());
+        log.release(second, 1);
+        log.close();
+        assertEquals(0, fileCount());
+    }
+
+    @Test
+    void testTornLastLineIsSkippedAndRecoveredSegmentsAreDeletedAfterRelease() throws Exception {
+        FeedbackSpillLog log = new FeedbackSpillLog(directory, objectMapper, false, 1 << 20);
+        log.recover();
+        log.append(feedback(1));
+        Path file;
+        try (Stream<Path> files = Files.list(directory)) {
+            file = files.findFirst().orElseThrow();
+        }
+        Files.write(file, "{\"id\":2,\"produ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FeedbackSpillLog restarted = new FeedbackSpillLog(directory, objectMapper, false, 1 << 20);
+        List<FeedbackSpillLog.Recovered> recovered = restarted.recover();
+        assertEquals(1, recovered.size());
+        restarted.release(recovered.get(0).segment, 1);
+        assertFalse(Files.exists(file));
+        restarted.append(feedback(3)); // 新的段编号在恢复的段之后
+        assertEquals(List.of(3L), new FeedbackSpillLog(directory, objectMapper, false, 1 << 20).recover()
+                .stream().map(r -> r.feedback.getId()).toList());
+    }
+}
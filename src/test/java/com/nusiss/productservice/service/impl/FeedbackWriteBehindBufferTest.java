@@ -0,0 +1,223 @@
+package com.nusiss.productservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.entity.ProductFeedback;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FeedbackWriteBehindBufferTest {
+
+    @TempDir
+    Path spillDir;
+
+    private final List<FeedbackWriteBehindBuffer> opened = new ArrayList<>();
+
+    private final AtomicLong ids = new AtomicLong(1000);
+
+    // 写入的批次（每批为反馈 ID 列表）及是否包含恢复的反馈
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+    private final List<Boolean> replayFlags = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(FeedbackWriteBehindBuffer::close);
+    }
+
+    // 写入线程的时间间隔设得很长，测试中显式调用 flush
+    private FeedbackWriteBehindBuffer buffer(int capacity, int batchSize, FeedbackWriteBehindBuffer.BatchWriter writer) {
+        FeedbackWriteBehindBuffer buffer = new FeedbackWriteBehindBuffer();
+        ReflectionTestUtils.setField(buffer, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(buffer, "meterRegistry", new SimpleMeterRegistry());
+        FeedbackIdAllocator idAllocator = mock(FeedbackIdAllocator.class);
+        when(idAllocator.next()).thenAnswer(inv -> ids.incrementAndGet());
+        ReflectionTestUtils.setField(buffer, "idAllocator", idAllocator);
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "capacity", capacity);
+        ReflectionTestUtils.setField(buffer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMillis", 3_600_000L);
+        ReflectionTestUtils.setField(buffer, "spillDir", spillDir.toString());
+        ReflectionTestUtils.setField(buffer, "allowEphemeralSpillDir", true); // 临时目录可能在 tmpfs / overlay 上
+        buffer.open(writer);
+        opened.add(buffer);
+        return buffer;
+    }
+
+    private FeedbackWriteBehindBuffer.BatchWriter recording() {
+        return (batch, replayed) -> {
+            batches.add(batch.stream().map(ProductFeedback::getId).toList());
+            replayFlags.add(replayed);
+        };
+    }
+
+    private static ProductFeedback feedback(int rating) {
+        ProductFeedback feedback = new ProductFeedback();
+        feedback.setProductId(1L);
+        feedback.setRating(rating);
+        return feedback;
+    }
+
+    @Test
+    void testSubmitAssignsIdAndFlushesInBatches() {
+        FeedbackWriteBehindBuffer buffer = buffer(100, 2, recording());
+        long first = buffer.submit(feedback(5)).getId();
+        long second = buffer.submit(feedback(4)).getId();
+        long third = buffer.submit(feedback(3)).getId();
+        assertEquals(List.of(1001L, 1002L, 1003L), List.of(first, second, third)); // 来自 ID 段
+
+        assertTrue(buffer.flush());
+
+        assertEquals(List.of(List.of(first, second), List.of(third)), batches);
+        assertEquals(List.of(false, false), replayFlags);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testFullQueueRejectsWithRetryAfter() {
+        FeedbackWriteBehindBuffer buffer = buffer(2, 100, recording());
+        buffer.submit(feedback(5));
+        buffer.submit(feedback(5));
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> buffer.submit(feedback(5)));
+        assertTrue(e.getRetryAfterSeconds() > 0);
+
+        buffer.flush();
+        assertNotNull(buffer.submit(feedback(5)).getId()); // 写入后又有空位
+    }
+
+    @Test
+    void testTransientFailureKeepsFeedbackForNextRound() {
+        boolean[] databaseUp = {false};
+        FeedbackWriteBehindBuffer buffer = buffer(100, 10, (batch, replayed) -> {
+            if (!databaseUp[0]) {
+                throw new QueryTimeoutException("database unavailable");
+            }
+            batches.add(batch.stream().map(ProductFeedback::getId).toList());
+        });
+        long id = buffer.submit(feedback(5)).getId();
+
+        assertFalse(buffer.flush());
+        assertEquals(1, buffer.size());
+
+        databaseUp[0] = true;
+        assertTrue(buffer.flush());
+        assertEquals(List.of(List.of(id)), batches);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testBadRowIsDroppedAndTheRestOfTheBatchIsWritten() {
+        FeedbackWriteBehindBuffer buffer = buffer(100, 10, (batch, replayed) -> {
+            if (batch.stream().anyMatch(f -> f.getRating() > 5)) {
+                throw new DataIntegrityViolationException("rating out of range");
+            }
+            batches.add(batch.stream().map(ProductFeedback::getId).toList());
+        });
+        long good = buffer.submit(feedback(5)).getId();
+        buffer.submit(feedback(9));
+        long alsoGood = buffer.submit(feedback(1)).getId();
+
+        assertTrue(buffer.flush());
+
+        assertEquals(List.of(List.of(good), List.of(alsoGood)), batches); // 整批失败后逐条写入
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testUnwrittenFeedbackIsReplayedAfterRestart() {
+        FeedbackWriteBehindBuffer crashed = buffer(100, 10, (batch, replayed) -> {
+            throw new QueryTimeoutException("database unavailable");
+        });
+        long first = crashed.submit(feedback(5)).getId();
+        long second = crashed.submit(feedback(4)).getId();
+        // 进程被杀：没有调用 close，磁盘日志中的两条反馈都没有释放
+
+        FeedbackWriteBehindBuffer restarted = buffer(100, 10, recording());
+        assertEquals(2, restarted.size());
+        assertTrue(restarted.flush());
+
+        assertEquals(List.of(List.of(first, second)), batches);
+        assertEquals(List.of(true), replayFlags);
+    }
+
+    @Test
+    void testCloseDrainsQueueAndRejectsNewFeedback() {
+        FeedbackWriteBehindBuffer buffer = buffer(100, 10, recording());
+        long id = buffer.submit(feedback(5)).getId();
+
+        buffer.close();
+
+        assertEquals(List.of(List.of(id)), batches);
+        assertThrows(ServiceBusyException.class, () -> buffer.submit(feedback(5)));
+        assertEquals(0, buffer(100, 10, recording()).size(), "写完的反馈不会在下次启动时重放");
+    }
+
+    // MyBatis-Plus 的批量插入不经过 SqlSessionTemplate 的异常转换，抛出的是 MyBatis 的 PersistenceException
+    @Test
+    void testUntranslatedMyBatisErrorsAreClassifiedBySqlState() {
+        FeedbackWriteBehindBuffer buffer = buffer(100, 10, (batch, replayed) -> {
+            if (batch.stream().anyMatch(f -> f.getRating() > 5)) {
+                BatchUpdateException cause = new BatchUpdateException(
+                        "Data truncation: Out of range value for column 'rating' at row 1", "22003", 1264, new int[0]);
+                throw new PersistenceException("### Error flushing statements",
+                        new BatchExecutorException("insert failed", cause, List.of(), null));
+            }
+            if (batch.stream().anyMatch(f -> f.getRating() == 0)) {
+                throw new PersistenceException(new SQLIntegrityConstraintViolationException(
+                        "Duplicate entry for key 'PRIMARY'", "23000", 1062));
+            }
+            batches.add(batch.stream().map(ProductFeedback::getId).toList());
+        });
+        long good = buffer.submit(feedback(5)).getId();
+        buffer.submit(feedback(9));
+        buffer.submit(feedback(0));
+
+        assertTrue(buffer.flush());
+
+        assertEquals(List.of(List.of(good)), batches); // 两条坏数据被丢弃，没有阻塞队列
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testUntranslatedConnectionFailureIsRetried() {
+        boolean[] databaseUp = {false};
+        FeedbackWriteBehindBuffer buffer = buffer(100, 10, (batch, replayed) -> {
+            if (!databaseUp[0]) {
+                throw new PersistenceException(new SQLNonTransientConnectionException("Communications link failure", "08S01"));
+            }
+            batches.add(batch.stream().map(ProductFeedback::getId).toList());
+        });
+        long id = buffer.submit(feedback(5)).getId();
+
+        assertFalse(buffer.flush());
+        assertEquals(1, buffer.size());
+
+        databaseUp[0] = true;
+        assertTrue(buffer.flush());
+        assertEquals(List.of(List.of(id)), batches);
+    }
+
+    @Test
+    void testSpillDirMustBeAbsolute() {
+        assertThrows(IllegalStateException.class, () -> FeedbackWriteBehindBuffer.checkPersistent(Path.of("feedback-spill")));
+    }
+}
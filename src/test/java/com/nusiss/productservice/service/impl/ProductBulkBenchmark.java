@@ -0,0 +1,173 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import org.apache.ibatis.executor.BatchResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ 商品写入的吞吐基准测试：单条接口（createProduct + updateProduct）与批量接口（createProducts + updateProducts）的对比
+ - 一次操作 = 新增 items 个商品并全部更新一次，结果为每秒完成的操作数
+ - ProductMapper 和事务由内存实现代替，每次数据库往返（一条语句、一次批量提交、一次事务提交）停顿 roundTripMicros 微秒，
+   模拟网络和数据库的耗时；roundTripMicros = 0 时只比较两条路径本身的 CPU 开销
+ - 单条接口每个商品 3 次往返（INSERT、UPDATE、读回），批量接口每块（chunk-size 条）一次批量提交加一次事务提交，更新后整块读回一次
+ 不在 mvn test 中运行；运行方式：mvn test-compile 后以 test classpath 执行本类的 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductBulkBenchmark {
+
+    @Param({"0", "200"})
+    public int roundTripMicros;
+
+    @Param({"500"})
+    public int items;
+
+    private ProductServiceImpl productService;
+    private ProductBulkServiceImpl productBulkService;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Setup
+    public void setUp() {
+        ProductMapper productMapper = fakeMapper();
+        ApplicationEventPublisher eventPublisher = event -> { };
+        ProductDuplicateService duplicateService = (ProductDuplicateService) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ProductDuplicateService.class},
+                (proxy, method, args) -> method.getReturnType() == List.class ? List.of() : null);
+        TransactionTemplate transactionTemplate = new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                T result = action.doInTransaction(new SimpleTransactionStatus());
+                roundTrip(); // 提交
+                return result;
+            }
+        };
+
+        productService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "productMapper", productMapper);
+        ReflectionTestUtils.setField(productService, "duplicateService", duplicateService);
+        ReflectionTestUtils.setField(productService, "eventPublisher", eventPublisher);
+
+        productBulkService = new ProductBulkServiceImpl();
+        ReflectionTestUtils.setField(productBulkService, "productMapper", productMapper);
+        ReflectionTestUtils.setField(productBulkService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(productBulkService, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(productBulkService, "duplicateService", duplicateService);
+    }
+
+    // 只实现两条路径用到的方法，每次调用算一次数据库往返
+    @SuppressWarnings("unchecked")
+    private ProductMapper fakeMapper() {
+        return (ProductMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ProductMapper.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> "ProductMapper";
+                        };
+                    }
+                    roundTrip();
+                    switch (method.getName()) {
+                        case "insert":
+                            if (args.length == 2) {
+                                Collection<Product> chunk = (Collection<Product>) args[0];
+                                chunk.forEach(p -> p.setId(nextId.getAndIncrement()));
+                                return batchOf(chunk.size());
+                            }
+                            ((Product) args[0]).setId(nextId.getAndIncrement());
+                            return 1;
+                        case "updateById":
+                            return args.length == 2 ? batchOf(((Collection<?>) args[0]).size()) : 1;
+                        case "selectById":
+                            return product((Long) args[0]);
+                        case "selectBatchIds":
+                            List<Product> found = new ArrayList<>();
+                            for (Object id : (Collection<?>) args[0]) {
+                                found.add(product((Long) id));
+                            }
+                            return found;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private void roundTrip() {
+        if (roundTripMicros > 0) {
+            LockSupport.parkNanos(roundTripMicros * 1000L);
+        }
+    }
+
+    private static List<BatchResult> batchOf(int size) {
+        BatchResult result = new BatchResult(null, "sql", null);
+        int[] counts = new int[size];
+        Arrays.fill(counts, 1);
+        result.setUpdateCounts(counts);
+        return List.of(result);
+    }
+
+    private static Product product(Long id) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName("商品" + id);
+        return p;
+    }
+
+    private List<Product> newProducts() {
+        List<Product> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            Product p = new Product();
+            p.setName("商品" + i);
+            p.setPrice(BigDecimal.valueOf(i));
+            list.add(p);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public int singleItem() {
+        int updated = 0;
+        for (Product p : newProducts()) {
+            productService.createProduct(p);
+            if (productService.updateProduct(p.getId(), p) != null) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public int bulk() {
+        List<Product> products = newProducts();
+        productBulkService.createProducts(products);
+        return productBulkService.updateProducts(products).getSucceeded();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductBulkBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,240 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.BulkResult;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductBulkServiceImplTest {
+
+    @InjectMocks
+    private ProductBulkServiceImpl productBulkService;
+
+    @InjectMocks
+    private ProductServiceImpl productService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductDuplicateService duplicateService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(productBulkService, "chunkSize", 500);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    private static List<Product> products(int n) {
+        List<Product> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Product p = new Product();
+            p.setId(i + 1L);
+            p.setName("商品" + i);
+            list.add(p);
+        }
+        return list;
+    }
+
+    // 模拟 BATCH 执行器：同一 SQL 的连续语句合并为一个 BatchResult
+    private static List<BatchResult> batchOf(int... counts) {
+        BatchResult result = new BatchResult(mock(MappedStatement.class), "sql", null);
+        result.setUpdateCounts(counts);
+        return List.of(result);
+    }
+
+    // 每条语句都影响 1 行
+    private static List<BatchResult> batchOf(Collection<?> params) {
+        int[] counts = new int[params.size()];
+        Arrays.fill(counts, 1);
+        return batchOf(counts);
+    }
+
+    @Test
+    void testCreate_ChunkedBatchesAndEvents() {
+        AtomicInteger nextId = new AtomicInteger(100);
+        when(productMapper.insert(anyCollection(), anyInt())).thenAnswer(inv -> {
+            Collection<Product> chunk = inv.getArgument(0);
+            chunk.forEach(p -> p.setId((long) nextId.getAndIncrement()));
+            int[] counts = new int[chunk.size()];
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO); // rewriteBatchedStatements 时插入不返回行数
+            return batchOf(counts);
+        });
+
+        BulkResult result = productBulkService.createProducts(products(1200));
+
+        assertEquals(1200, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        assertEquals(100L, result.getItems().get(0).getId());
+        verify(productMapper, times(3)).insert(anyCollection(), anyInt()); // 500 + 500 + 200
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(eventPublisher, times(1200)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testCreate_ChecksDuplicatesPerItem() {
+        List<Product> input = products(3);
+        when(duplicateService.checkNewProduct(input.get(0)))
+                .thenThrow(new CustomException("Product looks like a duplicate of product 7"));
+        when(duplicateService.checkNewProduct(input.get(1))).thenReturn(List.of(7L, 8L));
+        when(productMapper.insert(anyCollection(), anyInt())).thenAnswer(inv -> {
+            Collection<Product> chunk = inv.getArgument(0);
+            assertEquals(2, chunk.size()); // 被拒绝的那一条不写库
+            chunk.forEach(p -> p.setId(p.getName().equals("商品1") ? 21L : 22L));
+            return batchOf(chunk);
+        });
+
+        BulkResult result = productBulkService.createProducts(input);
+
+        assertEquals(2, result.getSucceeded());
+        assertFalse(result.getItems().get(0).isSuccess());
+        assertEquals("Product looks like a duplicate of product 7", result.getItems().get(0).getError());
+        assertEquals(21L, result.getItems().get(1).getId());
+        assertEquals(List.of(7L, 8L), result.getItems().get(1).getPossibleDuplicateIds());
+        assertNull(result.getItems().get(2).getPossibleDuplicateIds());
+        verify(duplicateService, times(3)).checkNewProduct(any());
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testCreate_FailedChunkFallsBackToSingleRows() {
+        List<Product> input = products(3);
+        when(productMapper.insert(anyCollection(), anyInt()))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        when(productMapper.insert(any(Product.class))).thenAnswer(inv -> {
+            Product p = inv.getArgument(0);
+            if ("商品1".equals(p.getName())) {
+                throw new DataIntegrityViolationException("Data too long for column 'name'");
+            }
+            p.setId(7L);
+            return 1;
+        });
+
+        BulkResult result = productBulkService.createProducts(input);
+
+        assertEquals(2, result.getSucceeded());
+        assertFalse(result.getItems().get(1).isSuccess());
+        assertEquals("Data too long for column 'name'", result.getItems().get(1).getError());
+        assertEquals(7L, result.getItems().get(2).getId());
+        // 失败的那一条不发布事件
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testUpdate_MissingIdsAndNotFound() {
+        List<Product> input = products(3);
+        input.get(0).setId(null);
+        when(productMapper.updateById(anyCollection(), anyInt())).thenAnswer(inv -> batchOf(1, 0));
+        Product reloaded = new Product();
+        reloaded.setId(2L);
+        when(productMapper.selectBatchIds(List.of(2L))).thenReturn(List.of(reloaded));
+
+        BulkResult result = productBulkService.updateProducts(input);
+
+        assertEquals("id is required", result.getItems().get(0).getError());
+        assertTrue(result.getItems().get(1).isSuccess());
+        assertEquals("Product not found", result.getItems().get(2).getError());
+        verify(productMapper, never()).selectById(any());
+        ArgumentCaptor<ProductChangedEvent> captor = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(ProductChangedEvent.Type.UPDATED, captor.getValue().getType());
+    }
+
+    @Test
+    void testDelete_ReportsMissingIds() {
+        doReturn(List.of(1L, 3L)).when(productMapper).selectObjs(any());
+
+        BulkResult result = productBulkService.deleteProducts(List.of(1L, 2L, 3L));
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals("Product not found", result.getItems().get(1).getError());
+        verify(productMapper, times(1)).delete(any());
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testLimits() {
+        ReflectionTestUtils.setField(productBulkService, "maxItems", 2);
+        assertThrows(CustomException.class, () -> productBulkService.createProducts(List.of()));
+        assertThrows(CustomException.class, () -> productBulkService.createProducts(products(3)));
+    }
+
+    @Test
+    void testApplied_RejectsMismatchedCounts() {
+        assertArrayEquals(new boolean[]{true, false, true},
+                ProductBulkServiceImpl.applied(batchOf(1, 0, Statement.SUCCESS_NO_INFO), 3));
+        assertThrows(IllegalStateException.class, () -> ProductBulkServiceImpl.applied(batchOf(1), 2));
+    }
+
+    /*
+     吞吐对比：以数据库往返次数衡量。导入 2000 个商品并全部更新一次，
+     单条接口需要 2000 次 INSERT + 2000 次 (UPDATE + 读回的 SELECT)，批量接口每 500 条一次批量提交
+     */
+    @Test
+    void testRoundTrips_SingleVersusBulk() {
+        int n = 2000;
+        AtomicInteger roundTrips = new AtomicInteger();
+        when(productMapper.insert(any(Product.class))).thenAnswer(inv -> roundTrips.incrementAndGet());
+        when(productMapper.selectById(any())).thenAnswer(inv -> {
+            roundTrips.incrementAndGet();
+            return new Product();
+        });
+        when(productMapper.updateById(any(Product.class))).thenAnswer(inv -> roundTrips.incrementAndGet());
+        when(productMapper.insert(anyCollection(), anyInt())).thenAnswer(inv -> {
+            roundTrips.incrementAndGet();
+            return batchOf((Collection<?>) inv.getArgument(0));
+        });
+        when(productMapper.updateById(anyCollection(), anyInt())).thenAnswer(inv -> {
+            roundTrips.incrementAndGet();
+            return batchOf((Collection<?>) inv.getArgument(0));
+        });
+        when(productMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> {
+            roundTrips.incrementAndGet();
+            return List.of();
+        });
+
+        List<Product> single = products(n);
+        for (Product p : single) {
+            productService.createProduct(p);
+            productService.updateProduct(p.getId(), p);
+        }
+        int singleRoundTrips = roundTrips.getAndSet(0);
+
+        productBulkService.createProducts(products(n));
+        productBulkService.updateProducts(products(n));
+        int bulkRoundTrips = roundTrips.get();
+
+        assertEquals(3 * n, singleRoundTrips);
+        assertEquals(4 + 4 + 4, bulkRoundTrips); // 插入 4 批，更新 4 批 + 提交后读回 4 次
+    }
+}
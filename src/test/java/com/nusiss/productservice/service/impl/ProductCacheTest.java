@@ -0,0 +1,152 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    private ProductCache productCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        productCache = new ProductCache();
+        ReflectionTestUtils.setField(productCache, "meterRegistry", meterRegistry);
+        productCache.init();
+    }
+
+    private Product product(Long id, String name) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        return p;
+    }
+
+    private Function<Long, Product> loader(String name) {
+        return id -> {
+            loads.incrementAndGet();
+            return product(id, name);
+        };
+    }
+
+    @Test
+    void testHitReturnsCopy() {
+        Product first = productCache.get(1L, loader("A"));
+        first.setName("changed");
+
+        assertEquals("A", productCache.get(1L, loader("B")).getName());
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "products").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        Function<Long, Product> slowLoader = id -> {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return product(id, "A");
+        };
+        List<Future<Product>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return productCache.get(7L, slowLoader);
+            }));
+        }
+        start.countDown();
+        for (Future<Product> f : futures) {
+            assertEquals("A", f.get(10, TimeUnit.SECONDS).getName());
+        }
+        pool.shutdown();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testChangeEventInvalidatesOnlyThatId() {
+        productCache.get(1L, loader("A"));
+        productCache.get(2L, loader("A"));
+
+        productCache.onProductChanged(ProductChangedEvent.updated(product(1L, "B")));
+
+        assertEquals("B", productCache.get(1L, loader("B")).getName());
+        assertEquals("A", productCache.get(2L, loader("B")).getName());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testMissingProductIsNotCached() {
+        assertNull(productCache.get(9L, id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        productCache.get(9L, loader("A"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testEtagSharesEntryWithGet() {
+        String etag = productCache.etag(1L, loader("A"));
+        productCache.get(1L, loader("B"));
+
+        assertEquals(1, loads.get());
+        assertEquals(32, etag.length());
+        assertEquals(etag, ProductCache.contentHash(product(1L, "A")));
+        assertNull(productCache.etag(2L, id -> null));
+    }
+
+    @Test
+    void testContentHashDependsOnEveryVisibleField() {
+        Product a = product(1L, "A");
+        a.setPrice(new BigDecimal("99.90"));
+        Product b = product(1L, "A");
+        b.setPrice(new BigDecimal("99.9")); // 序列化结果不同，ETag 也要不同
+        Product c = product(1L, "A");
+        c.setPrice(new BigDecimal("99.90"));
+        c.setDescription("");
+
+        assertNotEquals(ProductCache.contentHash(a), ProductCache.contentHash(b));
+        assertNotEquals(ProductCache.contentHash(a), ProductCache.contentHash(c)); // null 与空字符串不同
+        Product same = product(1L, "A");
+        same.setPrice(new BigDecimal("99.90"));
+        assertEquals(ProductCache.contentHash(a), ProductCache.contentHash(same));
+    }
+
+    @Test
+    void testWeightBound() {
+        ReflectionTestUtils.setField(productCache, "maxWeightBytes", 10_000L);
+        productCache.init();
+        for (long id = 0; id < 200; id++) {
+            productCache.get(id, loader("x".repeat(100)));
+        }
+        // 每个商品约 256 + 40 + 200 字节，10KB 最多容纳约 20 个
+        assertTrue(productCache.size() <= 21, "size=" + productCache.size());
+        assertEquals(496, ProductCache.weigh(product(1L, "x".repeat(100))));
+    }
+}
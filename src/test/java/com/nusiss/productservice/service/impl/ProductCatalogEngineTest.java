@@ -0,0 +1,111 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.index.CatalogQuery;
+import com.nusiss.productservice.index.ProductCatalogSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductCatalogEngineTest {
+
+    @InjectMocks
+    private ProductCatalogEngine catalogEngine;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CatalogQuery phones = new CatalogQuery(null, "Phones", null, null, null, null);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(catalogEngine, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(catalogEngine, "crossCheckRate", 1.0); // 每次都与 SQL 对比
+    }
+
+    private static Product product(long id, String category, String price) {
+        Product p = new Product();
+        p.setId(id);
+        p.setCategory(category);
+        p.setPrice(new BigDecimal(price));
+        return p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(List<Product> products) {
+        when(productMapper.scanInBatches(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<Product>> consumer = invocation.getArgument(1);
+            consumer.accept(products);
+            return (long) products.size();
+        });
+        catalogEngine.rebuild();
+    }
+
+    private double crossCheckCount(String result) {
+        return meterRegistry.counter("product.catalog.cross-check", "result", result).count();
+    }
+
+    @Test
+    void testNotReady_ReturnsNull() {
+        assertNull(catalogEngine.filter(phones, List::of));
+        assertNull(catalogEngine.select(phones, "price", "asc", 0, 10, () -> null));
+    }
+
+    @Test
+    void testFilter_MatchesSql() {
+        Product p1 = product(1L, "Phones", "10.00");
+        Product p2 = product(2L, "Laptops", "20.00");
+        load(List.of(p1, p2));
+
+        List<Product> result = catalogEngine.filter(phones, () -> List.of(p1));
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(1.0, crossCheckCount("match"));
+    }
+
+    @Test
+    void testSelect_MismatchReturnsSqlResult() {
+        load(List.of(product(1L, "Phones", "10.00"), product(2L, "Phones", "20.00")));
+
+        // 数据库中已出现快照尚未同步的新商品
+        ProductCatalogSnapshot.Slice sql = new ProductCatalogSnapshot.Slice(
+                List.of(product(3L, "Phones", "30.00"), product(2L, "Phones", "20.00")), 3);
+        ProductCatalogSnapshot.Slice result = catalogEngine.select(phones, "price", "desc", 0, 2, () -> sql);
+
+        assertSame(sql, result);
+        assertEquals(1.0, crossCheckCount("mismatch"));
+    }
+
+    @Test
+    void testSelect_UnsupportedSortFallsBack() {
+        load(List.of(product(1L, "Phones", "10.00")));
+        assertNull(catalogEngine.select(phones, "name", "asc", 0, 10, () -> null));
+    }
+
+    @Test
+    void testIncrementalUpdate_FromEvents() {
+        load(List.of(product(1L, "Phones", "10.00")));
+        ReflectionTestUtils.setField(catalogEngine, "crossCheckRate", 0.0);
+
+        catalogEngine.onProductChanged(ProductChangedEvent.created(product(2L, "Phones", "5.00")));
+        catalogEngine.onProductChanged(ProductChangedEvent.deleted(1L));
+
+        ProductCatalogSnapshot.Slice result = catalogEngine.select(phones, "price", "asc", 0, 10, () -> null);
+        assertEquals(1, result.getTotal());
+        assertEquals(2L, result.getRecords().get(0).getId());
+    }
+}
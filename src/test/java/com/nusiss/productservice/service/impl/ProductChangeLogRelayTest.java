@@ -0,0 +1,176 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductChangeLogMapper;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.entity.ProductChangeLog;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductChangeLogRelayTest {
+
+    @InjectMocks
+    private ProductChangeLogRelay relay;
+
+    @Mock
+    private ProductChangeLogMapper changeLogMapper;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(relay, "meterRegistry", meterRegistry);
+        relay.init();
+        when(changeLogMapper.selectMaxId()).thenReturn(10L);
+        relay.poll(); // 第一次轮询只初始化游标
+    }
+
+    private static ProductChangeLog row(long id, long productId, String origin) {
+        ProductChangeLog log = new ProductChangeLog();
+        log.setId(id);
+        log.setProductId(productId);
+        log.setChangeType("UPDATED");
+        log.setOrigin(origin);
+        log.setCreateDatetime(LocalDateTime.now().minusNanos(50_000_000));
+        return log;
+    }
+
+    private static Product product(long id) {
+        Product p = new Product();
+        p.setId(id);
+        return p;
+    }
+
+    @Test
+    void testLocalChangesAreFlushedInOneBatch() {
+        relay.onProductChanged(ProductChangedEvent.updated(product(1L)));
+        relay.onProductChanged(ProductChangedEvent.deleted(2L));
+        relay.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, 3L, product(3L), true));
+
+        relay.flush();
+
+        ArgumentCaptor<Collection<ProductChangeLog>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(changeLogMapper, times(1)).insert(captor.capture(), anyInt());
+        List<ProductChangeLog> logs = new ArrayList<>(captor.getValue());
+        assertEquals(2, logs.size()); // 远程变更不再写回
+        assertEquals("DELETED", logs.get(1).getChangeType());
+
+        relay.flush();
+        verify(changeLogMapper, times(1)).insert(anyCollection(), anyInt());
+    }
+
+    @Test
+    void testFlushFailureRequeues() {
+        relay.onProductChanged(ProductChangedEvent.updated(product(1L)));
+        when(changeLogMapper.insert(anyCollection(), anyInt())).thenThrow(new RuntimeException("db down")).thenReturn(List.of());
+
+        relay.flush();
+        relay.flush();
+
+        verify(changeLogMapper, times(2)).insert(anyCollection(), anyInt());
+    }
+
+    @Test
+    void testPollPublishesRemoteChangesOncePerProduct() {
+        relay.onProductChanged(ProductChangedEvent.updated(product(9L)));
+        relay.flush();
+        ArgumentCaptor<Collection<ProductChangeLog>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(changeLogMapper).insert(captor.capture(), anyInt());
+        String ownOrigin = captor.getValue().iterator().next().getOrigin();
+
+        when(changeLogMapper.selectAfter(10L, 500)).thenReturn(List.of(
+                row(11, 1L, "other"), row(12, 1L, "other"), row(13, 2L, "other"), row(14, 9L, ownOrigin)));
+        when(productMapper.selectBatchIds(anyCollection())).thenReturn(List.of(product(1L)));
+
+        relay.poll();
+
+        ArgumentCaptor<ProductChangedEvent> events = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(ProductChangedEvent.Type.UPDATED, events.getAllValues().get(0).getType());
+        assertTrue(events.getAllValues().get(0).isRemote());
+        assertEquals(ProductChangedEvent.Type.DELETED, events.getAllValues().get(1).getType()); // 商品 2 已不存在
+        assertEquals(2, meterRegistry.get("product.change-log.lag").timer().count());
+
+        // 游标推进到 14
+        relay.poll();
+        verify(changeLogMapper).selectAfter(14L, 500);
+    }
+
+    @Test
+    void testGapsAreRecheckedUntilTheyCommit() {
+        when(changeLogMapper.selectAfter(10L, 500)).thenReturn(List.of(row(13, 3L, "other")));
+        when(productMapper.selectBatchIds(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return ids.stream().map(ProductChangeLogRelayTest::product).toList();
+        });
+        relay.poll();
+
+        // id 11、12 之前未提交，下一次轮询补查到 12
+        when(changeLogMapper.selectAfter(13L, 500)).thenReturn(List.of());
+        when(changeLogMapper.selectBatchIds(anyCollection())).thenReturn(List.of(row(12, 5L, "other")));
+        relay.poll();
+
+        ArgumentCaptor<Collection<Long>> gapIds = ArgumentCaptor.forClass(Collection.class);
+        verify(changeLogMapper, atLeastOnce()).selectBatchIds(gapIds.capture());
+        assertTrue(gapIds.getAllValues().get(0).containsAll(List.of(11L, 12L)));
+        ArgumentCaptor<ProductChangedEvent> events = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(5L, events.getAllValues().get(1).getProductId());
+    }
+
+    @Test
+    void testFeedbackChangesAreRelayedWithoutReadingProducts() {
+        relay.onFeedbackChanged(new FeedbackChangedEvent(4L));
+        relay.onFeedbackChanged(new FeedbackChangedEvent(null)); // 无法确定所属商品，不写入
+        relay.onFeedbackChanged(new FeedbackChangedEvent(5L, true));
+        relay.flush();
+
+        ArgumentCaptor<Collection<ProductChangeLog>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(changeLogMapper).insert(captor.capture(), anyInt());
+        List<ProductChangeLog> logs = new ArrayList<>(captor.getValue());
+        assertEquals(1, logs.size());
+        assertEquals(ProductChangeLogRelay.FEEDBACK_CHANGE, logs.get(0).getChangeType());
+
+        ProductChangeLog first = row(11, 7L, "other");
+        first.setChangeType(ProductChangeLogRelay.FEEDBACK_CHANGE);
+        ProductChangeLog second = row(12, 7L, "other");
+        second.setChangeType(ProductChangeLogRelay.FEEDBACK_CHANGE);
+        when(changeLogMapper.selectAfter(10L, 500)).thenReturn(List.of(first, second));
+        relay.poll();
+
+        ArgumentCaptor<FeedbackChangedEvent> events = ArgumentCaptor.forClass(FeedbackChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        assertEquals(7L, events.getValue().getProductId());
+        assertTrue(events.getValue().isRemote());
+        verify(productMapper, never()).selectBatchIds(anyCollection());
+    }
+
+    @Test
+    void testPrune() {
+        when(changeLogMapper.deleteOlderThan(any(), anyInt())).thenReturn(10_000, 3);
+        relay.prune();
+        verify(changeLogMapper, times(2)).deleteOlderThan(any(), anyInt());
+    }
+}
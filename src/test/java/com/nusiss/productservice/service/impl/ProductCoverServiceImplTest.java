@@ -0,0 +1,112 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dao.ProductMediaMapper;
+import com.nusiss.productservice.dto.CoverDriftReport;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductCoverServiceImplTest {
+
+    @InjectMocks
+    private ProductCoverServiceImpl productCoverService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private ProductMediaMapper productMediaMapper;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testRefreshCover_UpdatesProductRow() {
+        ProductMedia media = new ProductMedia();
+        media.setUrl("http://example.com/img.jpg");
+        when(productMediaMapper.selectOne(any())).thenReturn(media);
+
+        productCoverService.refreshCover(1L);
+
+        verify(productMapper, times(1)).update(isNull(), any());
+    }
+
+    @Test
+    void testRefreshCover_PublishesReloadedProduct() {
+        Product reloaded = new Product();
+        reloaded.setId(1L);
+        reloaded.setCoverImageUrl("http://example.com/img.jpg");
+        when(productMediaMapper.selectOne(any())).thenReturn(null);
+        when(productMapper.update(isNull(), any())).thenReturn(1);
+        when(productMapper.selectById(1L)).thenReturn(reloaded);
+
+        productCoverService.refreshCover(1L);
+
+        ArgumentCaptor<ProductChangedEvent> captor = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertSame(reloaded, captor.getValue().getProduct());
+    }
+
+    @Test
+    void testRefreshCover_NullProductId() {
+        productCoverService.refreshCover(null);
+        verifyNoInteractions(productMapper, productMediaMapper);
+    }
+
+    @Test
+    void testCheckConsistency_ReportsDrift() {
+        Product inSync = new Product();
+        inSync.setId(1L);
+        inSync.setCoverImageUrl("http://example.com/1.jpg");
+        Product drifted = new Product();
+        drifted.setId(2L); // 未保存封面图，但媒体表中有图片
+
+        ProductMedia m1 = new ProductMedia();
+        m1.setProductId(1L);
+        m1.setUrl("http://example.com/1.jpg");
+        ProductMedia m2 = new ProductMedia();
+        m2.setProductId(2L);
+        m2.setUrl("http://example.com/2.jpg");
+
+        when(productMapper.selectList(any())).thenReturn(List.of(inSync, drifted));
+        when(productMediaMapper.selectCoverImages(any())).thenReturn(List.of(m1, m2));
+
+        CoverDriftReport report = productCoverService.checkConsistency();
+
+        assertEquals(2, report.getCheckedCount());
+        assertEquals(1, report.getDrifts().size());
+        assertEquals(2L, report.getDrifts().get(0).getProductId());
+        assertEquals("http://example.com/2.jpg", report.getDrifts().get(0).getExpectedUrl());
+        verify(productMapper, never()).update(any(), any());
+    }
+
+    @Test
+    void testBackfillCovers_WritesOnlyDriftedRows() {
+        Product drifted = new Product();
+        drifted.setId(2L);
+        drifted.setCoverImageUrl("http://example.com/deleted.jpg"); // 图片已被删除
+
+        when(productMapper.selectList(any())).thenReturn(List.of(drifted));
+        when(productMediaMapper.selectCoverImages(any())).thenReturn(List.of());
+
+        int updated = productCoverService.backfillCovers();
+
+        assertEquals(1, updated);
+        verify(productMapper, times(1)).update(isNull(), any());
+    }
+}
@@ -0,0 +1,139 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.constant.DuplicateCheckMode;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.DuplicateCandidate;
+import com.nusiss.productservice.dto.DuplicateGroup;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductDuplicateServiceImplTest {
+
+    private static final String PHONE = "Brand new, sealed in box. 6.1-inch display, A16 chip, 48MP main camera, "
+            + "USB-C. Ships within 24 hours with one year warranty.";
+
+    @InjectMocks
+    private ProductDuplicateServiceImpl duplicateService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(duplicateService, "meterRegistry", meterRegistry);
+        duplicateService.init();
+    }
+
+    private static Product product(Long id, String name, String description) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setDescription(description);
+        return p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rebuildWith(List<Product> products) {
+        when(productMapper.scanInBatches(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<Product>> consumer = invocation.getArgument(1);
+            consumer.accept(products);
+            return (long) products.size();
+        });
+        duplicateService.rebuild();
+    }
+
+    private void rebuildCatalog() {
+        rebuildWith(List.of(
+                product(1L, "Apple iPhone 15 128GB Black", PHONE),
+                product(2L, "iPhone 15 128 GB black (Apple)", PHONE + " Free case!"),
+                product(3L, "Oak dining table", "Solid wood table for six"),
+                product(4L, "Apple iPhone 15 - 128GB - black", PHONE.toLowerCase()),
+                product(5L, "实木餐桌 六人位", "北美白橡木，榫卯结构，免费送货上门"),
+                product(6L, "实木餐桌（六人位）", "北美白橡木 榫卯结构 免费送货上门"),
+                product(7L, null, null)));
+    }
+
+    @Test
+    void testNotReady() {
+        assertEquals(List.of(), duplicateService.checkNewProduct(product(null, "Apple iPhone 15 128GB Black", PHONE)));
+        assertThrows(ServiceBusyException.class, () -> duplicateService.scanDuplicates(null));
+        assertThrows(ServiceBusyException.class, () -> duplicateService.getDuplicatesOf(1L, 5));
+    }
+
+    @Test
+    void testNewProductIsFlagged() {
+        rebuildCatalog();
+
+        List<Long> duplicates = duplicateService.checkNewProduct(product(null, "APPLE iPhone 15, 128GB, Black", PHONE));
+
+        assertEquals(List.of(1L, 2L, 4L), duplicates.stream().sorted().toList());
+        assertEquals(List.of(), duplicateService.checkNewProduct(product(null, "Walnut bookshelf", "Five shelves, easy assembly")));
+        assertEquals(List.of(), duplicateService.checkNewProduct(product(null, null, null)));
+        assertEquals(1, meterRegistry.counter("product.duplicates.flagged").count());
+    }
+
+    @Test
+    void testRejectAndOffModes() {
+        rebuildCatalog();
+        Product repost = product(null, "Apple iPhone 15 128GB Black", PHONE);
+
+        ReflectionTestUtils.setField(duplicateService, "onCreate", DuplicateCheckMode.REJECT);
+        assertThrows(CustomException.class, () -> duplicateService.checkNewProduct(repost));
+
+        ReflectionTestUtils.setField(duplicateService, "onCreate", DuplicateCheckMode.OFF);
+        assertEquals(List.of(), duplicateService.checkNewProduct(repost));
+    }
+
+    @Test
+    void testDuplicatesOfExistingProduct() {
+        rebuildCatalog();
+
+        List<DuplicateCandidate> duplicates = duplicateService.getDuplicatesOf(5L, 10);
+
+        assertEquals(1, duplicates.size());
+        assertEquals(6L, duplicates.get(0).getProductId());
+        assertTrue(duplicates.get(0).getSimilarity() >= 0.8);
+        assertEquals(List.of(), duplicateService.getDuplicatesOf(7L, 10)); // 没有文本，不在索引中
+        assertEquals(List.of(), duplicateService.getDuplicatesOf(3L, 10));
+    }
+
+    @Test
+    void testScanGroupsDuplicates() {
+        rebuildCatalog();
+
+        List<DuplicateGroup> groups = duplicateService.scanDuplicates(null);
+
+        assertEquals(2, groups.size());
+        assertEquals(List.of(1L, 2L, 4L), groups.get(0).getProductIds()); // 大组在前
+        assertEquals(List.of(5L, 6L), groups.get(1).getProductIds());
+        assertTrue(groups.get(0).getMinSimilarity() >= 0.8);
+        assertThrows(CustomException.class, () -> duplicateService.scanDuplicates(1.5));
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        rebuildCatalog();
+
+        duplicateService.onProductChanged(ProductChangedEvent.updated(product(6L, "Leather office chair", "Ergonomic, adjustable height")));
+        duplicateService.onProductChanged(ProductChangedEvent.deleted(2L));
+
+        assertEquals(List.of(), duplicateService.getDuplicatesOf(5L, 10));
+        assertEquals(List.of(4L), duplicateService.getDuplicatesOf(1L, 10).stream().map(DuplicateCandidate::getProductId).toList());
+    }
+}
@@ -0,0 +1,118 @@
+package com.nusiss.productservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductExportServiceImplTest {
+
+    @InjectMocks
+    private ProductExportServiceImpl productExportService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(productExportService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(productExportService, "batchSize", 2);
+        ReflectionTestUtils.setField(productExportService, "maxConcurrent", 1);
+        productExportService.init();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void catalog(List<Product> products) {
+        when(productMapper.scanInBatches(eq(2), any())).thenAnswer(invocation -> {
+            Consumer<List<Product>> consumer = invocation.getArgument(1);
+            for (int i = 0; i < products.size(); i += 2) {
+                consumer.accept(products.subList(i, Math.min(i + 2, products.size())));
+            }
+            return (long) products.size();
+        });
+    }
+
+    @Test
+    void testExportNdjson_OneLinePerProduct() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Product p = new Product();
+            p.setId(id);
+            p.setName("商品" + id);
+            p.setPrice(new BigDecimal("9.90"));
+            p.setCreateDatetime(LocalDateTime.of(2025, 1, 1, 0, 0));
+            products.add(p);
+        }
+        catalog(products);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = productExportService.exportNdjson(() -> out);
+
+        assertEquals(3, rows);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("商品2", objectMapper.readValue(lines[1], Product.class).getName());
+    }
+
+    @Test
+    void testExportNdjson_Empty() throws Exception {
+        catalog(List.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, productExportService.exportNdjson(() -> out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void testExportNdjson_ClientErrorIsRethrownAndReleasesPermit() throws Exception {
+        Product p = new Product();
+        p.setId(1L);
+        catalog(List.of(p));
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> productExportService.exportNdjson(() -> broken));
+        assertEquals(1, productExportService.exportNdjson(ByteArrayOutputStream::new)); // 名额已归还
+    }
+
+    @Test
+    void testExportNdjson_TooManyConcurrentExports() throws Exception {
+        catalog(List.of());
+        boolean[] opened = {false};
+
+        productExportService.exportNdjson(() -> {
+            // 第一个导出进行中：第二个导出被拒绝，且不会打开输出流（响应头未设置，可以返回 429）
+            assertThrows(ServiceBusyException.class, () -> productExportService.exportNdjson(() -> {
+                opened[0] = true;
+                return new ByteArrayOutputStream();
+            }));
+            return new ByteArrayOutputStream();
+        });
+
+        assertFalse(opened[0]);
+    }
+}
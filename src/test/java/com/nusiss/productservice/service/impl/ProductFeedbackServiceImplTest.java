@@ -3,14 +3,34 @@ package com.nusiss.productservice.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.nusiss.productservice.config.CustomException;
 import com.nusiss.productservice.dao.ProductFeedbackMapper;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.FeedbackAnalytics;
+import com.nusiss.productservice.dto.RatingSummary;
+import com.nusiss.productservice.entity.Product;
 import com.nusiss.productservice.entity.ProductFeedback;
+import com.nusiss.productservice.entity.ProductFeedbackBucket;
+import com.nusiss.productservice.entity.ProductRatingSummary;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.index.FeedbackTimeSeries;
+import com.nusiss.productservice.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,9 +43,57 @@ class ProductFeedbackServiceImplTest {
     @Mock
     private ProductFeedbackMapper productFeedbackMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ResourceVersionRegistry versionRegistry = new ResourceVersionRegistry();
+
+    @Mock
+    private ProductRatingAggregator ratingAggregator;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FeedbackAnalyticsStore analyticsStore;
+
+    @Mock
+    private FeedbackWriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private FeedbackContentFilter contentFilter;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+        ReflectionTestUtils.setField(feedbackService, "summaryMaxIds", 500);
+        ReflectionTestUtils.setField(feedbackService, "analyticsWindows", new int[]{7, 30});
+    }
+
+    private static ProductFeedback feedback(Long id, Long productId, Integer rating) {
+        ProductFeedback feedback = new ProductFeedback();
+        feedback.setId(id);
+        feedback.setProductId(productId);
+        feedback.setRating(rating);
+        return feedback;
+    }
+
+    private static ProductRatingSummary summary(long feedbackCount, long ratingCount, long ratingSum) {
+        return summary(1L, feedbackCount, ratingCount, ratingSum);
+    }
+
+    private static ProductRatingSummary summary(Long productId, long feedbackCount, long ratingCount, long ratingSum) {
+        ProductRatingSummary summary = new ProductRatingSummary();
+        summary.setProductId(productId);
+        summary.setFeedbackCount(feedbackCount);
+        summary.setRatingCount(ratingCount);
+        summary.setRatingSum(ratingSum);
+        return summary;
     }
 
     @Test
@@ -34,7 +102,71 @@ class ProductFeedbackServiceImplTest {
         feedback.setRating(5);
         ProductFeedback result = feedbackService.createFeedback(feedback);
         verify(productFeedbackMapper).insert(feedback);
+        assertNull(result.getId()); // 未启用写缓冲时由数据库 AUTO_INCREMENT 分配（mock 不回填）
+        verify(ratingAggregator).onCreated(feedback);
         assertEquals(5, result.getRating());
+        assertNotNull(result.getCreateDatetime()); // 计入当天的统计桶
+    }
+
+    @Test
+    void testCreateFeedback_RejectedComment() {
+        ProductFeedback feedback = feedback(null, 1L, 5);
+        feedback.setComment("加微信领红包");
+        doThrow(new CustomException("Feedback comment contains prohibited content")).when(contentFilter).check("加微信领红包");
+
+        assertThrows(CustomException.class, () -> feedbackService.createFeedback(feedback));
+        verify(productFeedbackMapper, never()).insert(any(ProductFeedback.class));
+        verify(writeBehindBuffer, never()).submit(any());
+    }
+
+    @Test
+    void testUpdateFeedback_RejectedComment() {
+        ProductFeedback patch = feedback(1L, null, null);
+        patch.setComment("spam");
+        doThrow(new CustomException("Feedback comment contains prohibited content")).when(contentFilter).check("spam");
+
+        assertThrows(CustomException.class, () -> feedbackService.updateFeedback(patch));
+        verify(productFeedbackMapper, never()).updateById(any(ProductFeedback.class));
+    }
+
+    @Test
+    void testCreateFeedback_WriteBehind() {
+        when(writeBehindBuffer.isEnabled()).thenReturn(true);
+        ProductFeedback feedback = feedback(null, 1L, 5);
+        when(writeBehindBuffer.submit(feedback)).thenAnswer(inv -> {
+            feedback.setId(99L);
+            return feedback;
+        });
+
+        assertEquals(99L, feedbackService.createFeedback(feedback).getId());
+        assertNotNull(feedback.getCreateDatetime());
+        verify(productFeedbackMapper, never()).insert(any(ProductFeedback.class));
+        verifyNoInteractions(ratingAggregator, eventPublisher); // 写入数据库后才更新汇总、发布事件
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWriteBehindBatchSkipsReplayedRowsAlreadyInserted() {
+        when(writeBehindBuffer.isEnabled()).thenReturn(true);
+        feedbackService.init();
+        ArgumentCaptor<FeedbackWriteBehindBuffer.BatchWriter> writer = ArgumentCaptor.forClass(FeedbackWriteBehindBuffer.BatchWriter.class);
+        verify(writeBehindBuffer).open(writer.capture());
+
+        ProductFeedback saved = feedback(1L, 5L, 4);
+        ProductFeedback lost = feedback(2L, 6L, 5);
+        when(productFeedbackMapper.selectBatchIds(any())).thenReturn(List.of(saved)); // 崩溃前已经提交
+        when(ratingAggregator.onCreated(anyCollection())).thenReturn(Set.of(6L));
+
+        writer.getValue().write(List.of(saved, lost), true);
+
+        ArgumentCaptor<Collection<ProductFeedback>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(productFeedbackMapper).insert(inserted.capture(), eq(1));
+        assertEquals(List.of(lost), List.copyOf(inserted.getValue()));
+        verify(ratingAggregator).onCreated(List.of(lost));
+        verify(eventPublisher).publishEvent(argThat((Object e) -> e instanceof FeedbackChangedEvent f && f.getProductId() == 6L));
+
+        feedbackService.shutdown();
+        verify(writeBehindBuffer).close();
     }
 
     @Test
@@ -62,53 +194,147 @@ class ProductFeedbackServiceImplTest {
 
     @Test
     void testUpdateFeedback_Success() {
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(feedback(1L, 1L, 4));
         when(productFeedbackMapper.updateById(any(ProductFeedback.class))).thenReturn(1);
-        boolean result = feedbackService.updateFeedback(new ProductFeedback());
+        boolean result = feedbackService.updateFeedback(feedback(1L, null, null));
         assertTrue(result);
     }
 
     @Test
     void testUpdateFeedback_Fail() {
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(feedback(1L, 1L, 4));
         when(productFeedbackMapper.updateById(any(ProductFeedback.class))).thenReturn(0);
-        boolean result = feedbackService.updateFeedback(new ProductFeedback());
+        boolean result = feedbackService.updateFeedback(feedback(1L, null, 5));
         assertFalse(result);
+        verifyNoInteractions(ratingAggregator);
+    }
+
+    @Test
+    void testUpdateFeedback_NotFound() {
+        assertFalse(feedbackService.updateFeedback(feedback(1L, null, 5)));
+        verify(productFeedbackMapper, never()).updateById(any(ProductFeedback.class));
+    }
+
+    @Test
+    void testUpdateFeedback_AggregatesMergedValues() {
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(feedback(1L, 7L, 2));
+        when(productFeedbackMapper.updateById(any(ProductFeedback.class))).thenReturn(1);
+
+        feedbackService.updateFeedback(feedback(1L, null, 5)); // 没有带 productId，沿用原值
+
+        ArgumentCaptor<ProductFeedback> before = ArgumentCaptor.forClass(ProductFeedback.class);
+        ArgumentCaptor<ProductFeedback> after = ArgumentCaptor.forClass(ProductFeedback.class);
+        verify(ratingAggregator).onUpdated(before.capture(), after.capture());
+        assertEquals(2, before.getValue().getRating());
+        assertEquals(7L, after.getValue().getProductId());
+        assertEquals(5, after.getValue().getRating());
+    }
+
+    @Test
+    void testGetFeedbackAnalytics() {
+        LocalDate today = LocalDate.now();
+        ProductFeedbackBucket recent = new ProductFeedbackBucket();
+        recent.setBucketDate(today.minusDays(1));
+        recent.setFeedbackCount(2L);
+        recent.setRatingCount(2L);
+        recent.setRatingSum(9L);
+        recent.setStar4(1L);
+        recent.setStar5(1L);
+        ProductFeedbackBucket older = new ProductFeedbackBucket();
+        older.setBucketDate(today.minusDays(20));
+        older.setFeedbackCount(3L);
+        older.setRatingCount(0L);
+        when(analyticsStore.get(1L)).thenReturn(FeedbackTimeSeries.build(today, 365, 24, List.of(recent, older), List.of()));
+        when(ratingAggregator.getSummary(1L)).thenReturn(summary(40, 30, 120));
+
+        FeedbackAnalytics analytics = feedbackService.getFeedbackAnalytics(1L, 14, 2);
+
+        assertEquals(4.0, analytics.getAllTime().getAverageRating());
+        assertEquals(2, analytics.getWindows().size());
+        FeedbackAnalytics.Window week = analytics.getWindows().get(0);
+        assertEquals(today.minusDays(6), week.getFrom());
+        assertEquals(2, week.getCommentCount());
+        assertEquals(4.5, week.getAverageRating());
+        assertArrayEquals(new long[]{0, 0, 0, 1, 1}, week.getStarCounts());
+        assertEquals(5, analytics.getWindows().get(1).getCommentCount());
+        assertEquals(14, analytics.getDailyCounts().length);
+        assertEquals(today.minusDays(13), analytics.getDailyFrom());
+        assertEquals(2, analytics.getDailyCounts()[12]);
+        assertEquals(2, analytics.getMonths().size());
+        assertEquals(today.withDayOfMonth(1), analytics.getMonths().get(1).getFrom());
+        assertEquals(today, analytics.getMonths().get(1).getTo());
+        verifyNoInteractions(productFeedbackMapper); // 不读取反馈明细
     }
 
     @Test
     void testDeleteFeedback_Success() {
+        ProductFeedback existing = feedback(1L, 1L, 3);
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(existing);
         when(productFeedbackMapper.deleteById(1L)).thenReturn(1);
         assertTrue(feedbackService.deleteFeedback(1L));
+        verify(ratingAggregator).onDeleted(existing);
     }
 
     @Test
     void testDeleteFeedback_Fail() {
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(feedback(1L, 1L, 3));
         when(productFeedbackMapper.deleteById(1L)).thenReturn(0);
         assertFalse(feedbackService.deleteFeedback(1L));
+        verifyNoInteractions(ratingAggregator);
     }
 
     @Test
     void testGetAverageRatingByProductId_WithRatings() {
-        ProductFeedback f1 = new ProductFeedback();
-        f1.setRating(4);
-        ProductFeedback f2 = new ProductFeedback();
-        f2.setRating(5);
-        when(productFeedbackMapper.selectList(any())).thenReturn(List.of(f1, f2));
+        when(ratingAggregator.getSummary(1L)).thenReturn(summary(3, 2, 9)); // 一条反馈没有评分
 
         Double avg = feedbackService.getAverageRatingByProductId(1L);
         assertEquals(4.5, avg);
+        verifyNoInteractions(productFeedbackMapper); // 不再加载反馈列表
     }
 
     @Test
     void testGetAverageRatingByProductId_EmptyList() {
-        when(productFeedbackMapper.selectList(any())).thenReturn(List.of());
+        assertNull(feedbackService.getAverageRatingByProductId(1L));
+        when(ratingAggregator.getSummary(1L)).thenReturn(summary(2, 0, 0));
         assertNull(feedbackService.getAverageRatingByProductId(1L));
     }
 
     @Test
     void testGetCommentCountByProductId() {
-        when(productFeedbackMapper.selectCount(any())).thenReturn(3L);
+        when(ratingAggregator.getSummary(1L)).thenReturn(summary(3, 2, 9));
         int count = feedbackService.getCommentCountByProductId(1L);
         assertEquals(3, count);
+        assertEquals(0, feedbackService.getCommentCountByProductId(2L));
+        verifyNoInteractions(productFeedbackMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetRatingSummaries_OneQueryInRequestOrder() {
+        ProductRatingSummary rated = summary(3L, 4, 3, 12);
+        rated.setStar3(1L);
+        rated.setStar5(2L);
+        when(ratingAggregator.getSummaries(any())).thenReturn(List.of(rated));
+
+        List<RatingSummary> result = feedbackService.getRatingSummaries(Arrays.asList(3L, 9L, 3L, null));
+
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(ratingAggregator, times(1)).getSummaries(ids.capture());
+        assertEquals(List.of(3L, 9L), List.copyOf(ids.getValue())); // 去重，一次查询
+        assertEquals(List.of(3L, 9L), result.stream().map(RatingSummary::getProductId).toList());
+        assertEquals(4.0, result.get(0).getAverageRating());
+        assertEquals(4, result.get(0).getCommentCount());
+        assertArrayEquals(new long[]{0, 0, 1, 0, 2}, result.get(0).getStarCounts());
+        assertNull(result.get(1).getAverageRating()); // 没有反馈的商品
+        assertEquals(0, result.get(1).getCommentCount());
+        assertArrayEquals(new long[5], result.get(1).getStarCounts());
+    }
+
+    @Test
+    void testGetRatingSummaries_RejectsTooManyIds() {
+        ReflectionTestUtils.setField(feedbackService, "summaryMaxIds", 2);
+        assertThrows(CustomException.class, () -> feedbackService.getRatingSummaries(List.of(1L, 2L, 3L)));
+        verifyNoInteractions(ratingAggregator);
     }
 
     @Test
@@ -153,4 +379,124 @@ class ProductFeedbackServiceImplTest {
 
         assertEquals(1, result.getRecords().size()); // 应该也能返回结果，但无排序
     }
+
+    @Test
+    void testGetFeedbackByProductIdWithCursor_FirstPageHasNext() {
+        when(productFeedbackMapper.selectList(any())).thenReturn(List.of(
+                feedback(9L, 1L, 5), feedback(4L, 1L, 5), feedback(7L, 1L, 4))); // size + 1 条，说明还有下一页
+
+        CursorPage<ProductFeedback> result = feedbackService.getFeedbackByProductIdWithCursor(1L, "rating", "desc", "", 2);
+
+        assertEquals(2, result.getRecords().size());
+        assertTrue(result.isHasNext());
+        KeysetCursor next = KeysetCursor.decode(result.getNextCursor());
+        assertEquals("rating", next.getSortBy());
+        assertFalse(next.isAsc());
+        assertEquals("5", next.getLastValue());
+        assertEquals(4L, next.getLastId());
+    }
+
+    @Test
+    void testGetFeedbackByProductIdWithCursor_LastPage() {
+        when(productFeedbackMapper.selectList(any())).thenReturn(List.of(feedback(3L, 1L, null)));
+
+        String cursor = new KeysetCursor("create_datetime", true, "2025-04-01T10:15:30", 5L).encode();
+        CursorPage<ProductFeedback> result = feedbackService.getFeedbackByProductIdWithCursor(
+                1L, "create_datetime", "asc", cursor, 10);
+
+        assertEquals(1, result.getRecords().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testGetFeedbackByProductIdWithCursor_InvalidInput() {
+        String cursor = new KeysetCursor("rating", true, "3", 5L).encode();
+        assertThrows(CustomException.class, () -> feedbackService.getFeedbackByProductIdWithCursor(
+                1L, "create_datetime", "asc", cursor, 10)); // 游标与排序方式不一致
+        assertThrows(CustomException.class, () -> feedbackService.getFeedbackByProductIdWithCursor(
+                1L, "comment", "asc", "", 10));
+        assertThrows(CustomException.class, () -> feedbackService.getFeedbackByProductIdWithCursor(
+                1L, "rating", "asc", new KeysetCursor("rating", true, "five", 5L).encode(), 10));
+        verify(productFeedbackMapper, never()).selectList(any());
+    }
+
+    @Test
+    void testWritesPublishFeedbackChangedEvent() {
+        ProductFeedback created = new ProductFeedback();
+        created.setProductId(5L);
+        feedbackService.createFeedback(created);
+
+        ProductFeedback saved = feedback(1L, 6L, null);
+        ProductFeedback patch = new ProductFeedback();
+        patch.setId(1L);
+        patch.setRating(3);
+        when(productFeedbackMapper.updateById(any(ProductFeedback.class))).thenReturn(1);
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(saved);
+        feedbackService.updateFeedback(patch); // 请求体没有 productId，查出所属商品
+
+        when(productFeedbackMapper.deleteById(1L)).thenReturn(1);
+        feedbackService.deleteFeedback(1L);
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(3)).publishEvent(captor.capture());
+        assertEquals(List.of(5L, 6L, 6L), captor.getAllValues().stream()
+                .map(event -> ((FeedbackChangedEvent) event).getProductId()).toList());
+    }
+
+    @Test
+    void testUpdateMovingFeedbackPublishesBothProducts() {
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(feedback(1L, 6L, 4));
+        when(productFeedbackMapper.updateById(any(ProductFeedback.class))).thenReturn(1);
+
+        feedbackService.updateFeedback(feedback(1L, 8L, null));
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertEquals(List.of(6L, 8L), captor.getAllValues().stream()
+                .map(event -> ((FeedbackChangedEvent) event).getProductId()).toList());
+    }
+
+    @Test
+    void testRatingChangePublishesProductUpdated() {
+        Product product = new Product();
+        product.setId(5L);
+        product.setRating(4.5);
+        when(ratingAggregator.onCreated(any(ProductFeedback.class))).thenReturn(Set.of(5L));
+        when(productMapper.selectById(5L)).thenReturn(product);
+
+        feedbackService.createFeedback(feedback(null, 5L, 5));
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertInstanceOf(FeedbackChangedEvent.class, captor.getAllValues().get(0));
+        ProductChangedEvent event = (ProductChangedEvent) captor.getAllValues().get(1);
+        assertEquals(ProductChangedEvent.Type.UPDATED, event.getType());
+        assertSame(product, event.getProduct());
+    }
+
+    @Test
+    void testFailedWritesDoNotPublish() {
+        when(productFeedbackMapper.selectByIdForUpdate(1L)).thenReturn(feedback(1L, 1L, 3));
+        when(productFeedbackMapper.updateById(any(ProductFeedback.class))).thenReturn(0);
+        when(productFeedbackMapper.deleteById(1L)).thenReturn(0);
+
+        feedbackService.updateFeedback(new ProductFeedback());
+        feedbackService.updateFeedback(feedback(1L, null, 5));
+        feedbackService.deleteFeedback(1L);
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testGetFeedbackStamp_ChangesOnlyForAffectedProduct() {
+        String product1 = feedbackService.getFeedbackStamp(1L).getEtag();
+        String product2 = feedbackService.getFeedbackStamp(2L).getEtag();
+
+        versionRegistry.onFeedbackChanged(new FeedbackChangedEvent(1L));
+
+        assertNotEquals(product1, feedbackService.getFeedbackStamp(1L).getEtag());
+        assertEquals(product2, feedbackService.getFeedbackStamp(2L).getEtag());
+        verifyNoInteractions(productFeedbackMapper); // 版本戳不查询数据库
+    }
 }
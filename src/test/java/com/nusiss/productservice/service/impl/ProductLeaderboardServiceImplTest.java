@@ -0,0 +1,113 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.constant.LeaderboardRanking;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductLeaderboardServiceImplTest {
+
+    @InjectMocks
+    private ProductLeaderboardServiceImpl leaderboardService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(leaderboardService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(leaderboardService, "size", 3);
+        leaderboardService.registerMetrics();
+    }
+
+    private static Product product(long id, String category, double rating) {
+        Product p = new Product();
+        p.setId(id);
+        p.setCategory(category);
+        p.setRating(rating);
+        return p;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).collect(Collectors.toList());
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("product.leaderboard.requests").tag("result", result).counter().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rebuildWith(List<Product> products) {
+        when(productMapper.scanInBatches(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<Product>> consumer = invocation.getArgument(1);
+            consumer.accept(products);
+            return (long) products.size();
+        });
+        leaderboardService.rebuild();
+    }
+
+    @Test
+    void testNotReady_FallsBackToDatabase() {
+        when(productMapper.selectList(any())).thenReturn(List.of(product(1L, "Phones", 4.0)));
+
+        assertEquals(1, leaderboardService.getTopProducts("Phones", LeaderboardRanking.RATING, 5, null).size());
+        assertEquals(1, requests("database"));
+    }
+
+    @Test
+    void testServedFromMemoryWithoutQueries() {
+        rebuildWith(List.of(product(1L, "Phones", 4.0), product(2L, "Phones", 4.5), product(3L, "Tablets", 5.0)));
+
+        assertEquals(List.of(2L), ids(leaderboardService.getTopProducts("Phones", LeaderboardRanking.RATING, 5, List.of(1L))));
+        leaderboardService.onProductChanged(ProductChangedEvent.updated(product(1L, "Phones", 4.9)));
+        assertEquals(List.of(1L, 2L), ids(leaderboardService.getTopProducts("phones", LeaderboardRanking.RATING, 2, null)));
+
+        verify(productMapper, never()).selectList(any());
+        assertEquals(2, requests("hit"));
+    }
+
+    @Test
+    void testRefillAfterTopProductsRemoved() {
+        List<Product> all = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            all.add(product(id, "Phones", id));
+        }
+        rebuildWith(all); // 只保留 6,5,4
+        leaderboardService.onProductChanged(ProductChangedEvent.deleted(6L));
+        leaderboardService.onProductChanged(ProductChangedEvent.deleted(5L));
+        when(productMapper.selectList(any())).thenReturn(List.of(
+                product(4L, "Phones", 4), product(3L, "Phones", 3), product(2L, "Phones", 2), product(1L, "Phones", 1)));
+
+        assertEquals(List.of(4L, 3L), ids(leaderboardService.getTopProducts("Phones", LeaderboardRanking.RATING, 2, null)));
+        assertEquals(List.of(4L, 3L, 2L), ids(leaderboardService.getTopProducts("Phones", LeaderboardRanking.RATING, 3, null)));
+
+        verify(productMapper, times(1)).selectList(any()); // 补齐一次，之后从内存读取
+        assertEquals(1, requests("refill"));
+    }
+
+    @Test
+    void testLimitAboveCapacityQueriesDatabase() {
+        rebuildWith(List.of(product(1L, "Phones", 4.0)));
+        when(productMapper.selectList(any())).thenReturn(List.of());
+
+        leaderboardService.getTopProducts("Phones", LeaderboardRanking.RATING, 10, null);
+
+        verify(productMapper).selectList(any());
+    }
+}
@@ -3,6 +3,7 @@ package com.nusiss.productservice.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.nusiss.productservice.dao.ProductMediaMapper;
 import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.service.ProductCoverService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -21,6 +22,9 @@ class ProductMediaServiceImplTest {
     @Mock
     private ProductMediaMapper productMediaMapper;
 
+    @Mock
+    private ProductCoverService productCoverService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -35,6 +39,16 @@ class ProductMediaServiceImplTest {
         assertNotNull(result);
     }
 
+    @Test
+    void testCreateProductMedia_RefreshesCover() {
+        ProductMedia media = new ProductMedia();
+        media.setProductId(5L);
+        when(productMediaMapper.insert(media)).thenReturn(1);
+
+        productMediaService.createProductMedia(media);
+        verify(productCoverService).refreshCover(5L);
+    }
+
     @Test
     void testCreateProductMedia_Fail() {
         ProductMedia media = new ProductMedia();
@@ -75,6 +89,22 @@ class ProductMediaServiceImplTest {
         assertTrue(result);
     }
 
+    @Test
+    void testUpdateProductMedia_MovedToOtherProduct_RefreshesBoth() {
+        ProductMedia before = new ProductMedia();
+        before.setId(1L);
+        before.setProductId(5L);
+        ProductMedia media = new ProductMedia();
+        media.setId(1L);
+        media.setProductId(6L);
+        when(productMediaMapper.selectById(1L)).thenReturn(before);
+        when(productMediaMapper.updateById(media)).thenReturn(1);
+
+        assertTrue(productMediaService.updateProductMedia(media));
+        verify(productCoverService).refreshCover(5L);
+        verify(productCoverService).refreshCover(6L);
+    }
+
     @Test
     void testUpdateProductMedia_Fail() {
         when(productMediaMapper.selectList(any(QueryWrapper.class))).thenReturn(List.of(new ProductMedia()));
@@ -118,10 +148,25 @@ class ProductMediaServiceImplTest {
         assertTrue(result);
     }
 
+    @Test
+    void testDeleteProductMedia_RefreshesCover() {
+        ProductMedia media = new ProductMedia();
+        media.setId(3L);
+        media.setProductId(8L);
+        media.setUrl("http://localhost/uploadFile/notexist.jpg");
+
+        when(productMediaMapper.selectById(3L)).thenReturn(media);
+        when(productMediaMapper.deleteById(3L)).thenReturn(1);
+
+        assertTrue(productMediaService.deleteProductMedia(3L));
+        verify(productCoverService).refreshCover(8L);
+    }
+
     @Test
     void testDeleteProductMedia_RecordNotFound() {
         when(productMediaMapper.selectById(99L)).thenReturn(null);
         boolean result = productMediaService.deleteProductMedia(99L);
         assertFalse(result);
+        verifyNoInteractions(productCoverService);
     }
 }
@@ -0,0 +1,134 @@
+package com.nusiss.productservice.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductPageQueryExecutorTest {
+
+    @InjectMocks
+    private ProductPageQueryExecutor executor;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(executor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(executor, "countCacheTtlMillis", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private Page<Product> fullPage(int size) {
+        List<Product> records = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            records.add(new Product());
+        }
+        Page<Product> page = new Page<>();
+        page.setRecords(records);
+        return page;
+    }
+
+    private CountedPage<Product> run(CountMode mode, String key) {
+        return executor.execute(QueryWrapper::new, w -> w.orderByDesc("price"), key, 1, 10, mode);
+    }
+
+    @Test
+    void testExact() {
+        when(productMapper.selectPage(any(), any())).thenReturn(fullPage(10));
+        when(productMapper.selectCount(any())).thenReturn(35L);
+
+        CountedPage<Product> result = run(CountMode.EXACT, "k");
+
+        assertEquals(35L, result.getTotal());
+        assertTrue(result.isHasNext());
+        assertFalse(result.isTotalEstimated());
+        assertNotNull(meterRegistry.find("product.page.count").tag("mode", "EXACT").timer());
+    }
+
+    @Test
+    void testParallel() {
+        when(productMapper.selectPage(any(), any())).thenReturn(fullPage(10));
+        when(productMapper.selectCount(any())).thenReturn(10L);
+
+        CountedPage<Product> result = run(CountMode.PARALLEL, "k");
+
+        assertEquals(10L, result.getTotal());
+        assertFalse(result.isHasNext());
+        verify(productMapper, times(1)).selectCount(any());
+        assertEquals(1, meterRegistry.find("product.page.count").tag("mode", "PARALLEL").timer().count());
+    }
+
+    @Test
+    void testCached_SecondCallSkipsCount() {
+        when(productMapper.selectPage(any(), any())).thenReturn(fullPage(10));
+        when(productMapper.selectCount(any())).thenReturn(100L);
+
+        run(CountMode.CACHED, "category=Pad");
+        CountedPage<Product> second = run(CountMode.CACHED, "category=Pad");
+        run(CountMode.CACHED, "category=Laptops"); // 不同筛选条件不共用缓存
+
+        assertEquals(100L, second.getTotal());
+        verify(productMapper, times(2)).selectCount(any());
+    }
+
+    @Test
+    void testEstimated() {
+        when(productMapper.selectPage(any(), any())).thenReturn(fullPage(10));
+        when(productMapper.explainFilter(any())).thenReturn(List.of(Map.of("rows", 2000L, "filtered", 10.0)));
+
+        CountedPage<Product> result = run(CountMode.ESTIMATED, "k");
+
+        assertEquals(200L, result.getTotal());
+        assertTrue(result.isTotalEstimated());
+        verify(productMapper, never()).selectCount(any());
+    }
+
+    @Test
+    void testNone_UsesExtraRowForHasNext() {
+        List<Product> rows = new ArrayList<>(fullPage(11).getRecords());
+        when(productMapper.selectList(any())).thenReturn(rows);
+
+        CountedPage<Product> result = run(CountMode.NONE, "k");
+
+        assertNull(result.getTotal());
+        assertTrue(result.isHasNext());
+        assertEquals(10, result.getRecords().size());
+        verify(productMapper, never()).selectCount(any());
+        verify(productMapper, never()).selectPage(any(), any());
+    }
+
+    @Test
+    void testPartialPage_SkipsCount() {
+        when(productMapper.selectPage(any(), any())).thenReturn(fullPage(3));
+
+        CountedPage<Product> result = run(CountMode.EXACT, "k");
+
+        assertEquals(3L, result.getTotal());
+        assertFalse(result.isHasNext());
+        verify(productMapper, never()).selectCount(any());
+    }
+}
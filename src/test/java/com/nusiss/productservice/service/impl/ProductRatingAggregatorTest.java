@@ -0,0 +1,188 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductFeedbackBucketMapper;
+import com.nusiss.productservice.dao.ProductRatingSummaryMapper;
+import com.nusiss.productservice.entity.ProductFeedback;
+import com.nusiss.productservice.entity.ProductFeedbackBucket;
+import com.nusiss.productservice.entity.ProductRatingSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductRatingAggregatorTest {
+
+    @InjectMocks
+    private ProductRatingAggregator aggregator;
+
+    @Mock
+    private ProductRatingSummaryMapper summaryMapper;
+
+    @Mock
+    private ProductFeedbackBucketMapper bucketMapper;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static ProductFeedback feedback(Long productId, Integer rating) {
+        ProductFeedback feedback = new ProductFeedback();
+        feedback.setProductId(productId);
+        feedback.setRating(rating);
+        return feedback;
+    }
+
+    private static ProductFeedback feedback(Long productId, Integer rating, LocalDateTime createdAt) {
+        ProductFeedback feedback = feedback(productId, rating);
+        feedback.setCreateDatetime(createdAt);
+        return feedback;
+    }
+
+    private List<ProductFeedbackBucket> appliedDailyDeltas() {
+        ArgumentCaptor<ProductFeedbackBucket> captor = ArgumentCaptor.forClass(ProductFeedbackBucket.class);
+        verify(bucketMapper, atLeast(0)).applyDailyDelta(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private List<ProductRatingSummary> appliedDeltas() {
+        ArgumentCaptor<ProductRatingSummary> captor = ArgumentCaptor.forClass(ProductRatingSummary.class);
+        verify(summaryMapper, atLeast(0)).applyDelta(captor.capture());
+        return captor.getAllValues();
+    }
+
+    // feedbackCount, ratingCount, ratingSum, star1..star5
+    private static void assertDelta(ProductRatingSummary delta, long... expected) {
+        assertArrayEquals(expected, new long[]{delta.getFeedbackCount(), delta.getRatingCount(), delta.getRatingSum(),
+                delta.getStar1(), delta.getStar2(), delta.getStar3(), delta.getStar4(), delta.getStar5()});
+    }
+
+    @Test
+    void testCreateAddsCountSumAndStar() {
+        Set<Long> rated = aggregator.onCreated(feedback(1L, 4));
+
+        List<ProductRatingSummary> deltas = appliedDeltas();
+        assertEquals(1, deltas.size());
+        assertEquals(1L, deltas.get(0).getProductId());
+        assertDelta(deltas.get(0), 1, 1, 4, 0, 0, 0, 1, 0);
+        verify(summaryMapper).syncProductRating(1L);
+        assertEquals(Set.of(1L), rated);
+    }
+
+    @Test
+    void testCommentWithoutRatingOnlyCountsFeedback() {
+        Set<Long> rated = aggregator.onCreated(feedback(1L, null));
+
+        assertDelta(appliedDeltas().get(0), 1, 0, 0, 0, 0, 0, 0, 0);
+        verify(summaryMapper, never()).syncProductRating(any());
+        assertTrue(rated.isEmpty());
+    }
+
+    @Test
+    void testOutOfRangeRatingHasNoStarBucket() {
+        aggregator.onCreated(feedback(1L, 7));
+
+        assertDelta(appliedDeltas().get(0), 1, 1, 7, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    void testUpdateRatingAppliesSingleNetDelta() {
+        Set<Long> rated = aggregator.onUpdated(feedback(1L, 2), feedback(1L, 5));
+
+        List<ProductRatingSummary> deltas = appliedDeltas();
+        assertEquals(1, deltas.size());
+        assertDelta(deltas.get(0), 0, 0, 3, 0, -1, 0, 0, 1);
+        assertEquals(Set.of(1L), rated);
+    }
+
+    @Test
+    void testUpdateWithoutRatingChangeTouchesNothing() {
+        Set<Long> rated = aggregator.onUpdated(feedback(1L, 3), feedback(1L, 3));
+
+        verifyNoInteractions(summaryMapper);
+        assertTrue(rated.isEmpty());
+    }
+
+    @Test
+    void testUpdateMovingToAnotherProduct() {
+        Set<Long> rated = aggregator.onUpdated(feedback(1L, 3), feedback(2L, 3));
+
+        List<ProductRatingSummary> deltas = appliedDeltas();
+        assertEquals(2, deltas.size());
+        assertEquals(1L, deltas.get(0).getProductId());
+        assertDelta(deltas.get(0), -1, -1, -3, 0, 0, -1, 0, 0);
+        assertEquals(2L, deltas.get(1).getProductId());
+        assertDelta(deltas.get(1), 1, 1, 3, 0, 0, 1, 0, 0);
+        assertEquals(Set.of(1L, 2L), rated);
+    }
+
+    @Test
+    void testDeleteSubtracts() {
+        aggregator.onDeleted(feedback(1L, 1));
+
+        assertDelta(appliedDeltas().get(0), -1, -1, -1, -1, 0, 0, 0, 0);
+        verify(summaryMapper).syncProductRating(1L);
+    }
+
+    @Test
+    void testDailyBucketOfCreationDay() {
+        aggregator.onCreated(feedback(1L, 5, LocalDateTime.of(2024, 3, 15, 23, 59)));
+
+        List<ProductFeedbackBucket> buckets = appliedDailyDeltas();
+        assertEquals(1, buckets.size());
+        assertEquals(LocalDate.of(2024, 3, 15), buckets.get(0).getBucketDate());
+        assertEquals(1L, buckets.get(0).getFeedbackCount());
+        assertEquals(5L, buckets.get(0).getRatingSum());
+        assertEquals(1L, buckets.get(0).getStar5());
+    }
+
+    @Test
+    void testUpdateAdjustsTheOriginalDay() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 2, 10, 0);
+        aggregator.onUpdated(feedback(1L, 4, createdAt), feedback(1L, 2, createdAt));
+
+        List<ProductFeedbackBucket> buckets = appliedDailyDeltas();
+        assertEquals(1, buckets.size());
+        assertEquals(LocalDate.of(2024, 1, 2), buckets.get(0).getBucketDate());
+        assertEquals(0L, buckets.get(0).getFeedbackCount());
+        assertEquals(-2L, buckets.get(0).getRatingSum());
+        assertEquals(1L, buckets.get(0).getStar2());
+        assertEquals(-1L, buckets.get(0).getStar4());
+    }
+
+    @Test
+    void testFeedbackWithoutCreateTimeSkipsDailyBuckets() {
+        aggregator.onDeleted(feedback(1L, 3));
+
+        assertEquals(1, appliedDeltas().size());
+        verifyNoInteractions(bucketMapper);
+    }
+
+    @Test
+    void testFeedbackWithoutProductIsIgnored() {
+        assertTrue(aggregator.onCreated(feedback(null, 5)).isEmpty());
+        verifyNoInteractions(summaryMapper);
+    }
+
+    @Test
+    void testAverageRating() {
+        ProductRatingSummary summary = new ProductRatingSummary();
+        summary.setRatingCount(0L);
+        summary.setRatingSum(0L);
+        assertNull(summary.getAverageRating());
+        summary.setRatingCount(4L);
+        summary.setRatingSum(17L);
+        assertEquals(4.25, summary.getAverageRating());
+    }
+}
@@ -0,0 +1,76 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchServiceImplTest {
+
+    @InjectMocks
+    private ProductSearchServiceImpl productSearchService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static Product product(long id, String name, String description) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setDescription(description);
+        return p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rebuildWith(List<Product> products) {
+        when(productMapper.scanInBatches(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<Product>> consumer = invocation.getArgument(1);
+            consumer.accept(products);
+            return (long) products.size();
+        });
+        assertEquals(products.size(), productSearchService.rebuild());
+    }
+
+    @Test
+    void testSearch_NotReadyReturnsNull() {
+        assertFalse(productSearchService.isReady());
+        assertNull(productSearchService.search("手机", 10));
+    }
+
+    @Test
+    void testSearch_NameWeightedAboveDescription() {
+        rebuildWith(List.of(
+                product(1L, "手机壳", "适用于华为手机"),
+                product(2L, "华为手机", "旗舰机型")));
+
+        assertTrue(productSearchService.isReady());
+        assertEquals(List.of(2L, 1L), productSearchService.search("华为", 10));
+    }
+
+    @Test
+    void testOnProductChanged_Incremental() {
+        rebuildWith(List.of(product(1L, "蓝牙耳机", null)));
+
+        productSearchService.onProductChanged(ProductChangedEvent.created(product(2L, "降噪耳机", null)));
+        assertEquals(2, productSearchService.search("耳机", 10).size());
+
+        productSearchService.onProductChanged(ProductChangedEvent.updated(product(1L, "蓝牙音箱", null)));
+        assertEquals(List.of(2L), productSearchService.search("耳机", 10));
+
+        productSearchService.onProductChanged(ProductChangedEvent.deleted(2L));
+        assertTrue(productSearchService.search("耳机", 10).isEmpty());
+    }
+}
@@ -2,18 +2,40 @@ package com.nusiss.productservice.service.impl;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.nusiss.commonservice.feign.OrderFeignClient;
+import com.nusiss.productservice.client.OrderHistoryClient;
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.constant.CountMode;
+import com.nusiss.productservice.constant.LeaderboardRanking;
 import com.nusiss.productservice.dao.ProductMapper;
-import com.nusiss.productservice.dao.ProductMediaMapper;
+import com.nusiss.productservice.dto.CountedPage;
+import com.nusiss.productservice.dto.CursorPage;
+import com.nusiss.productservice.dto.ProductFacets;
+import com.nusiss.productservice.dto.VersionStamp;
 import com.nusiss.productservice.entity.Product;
-import com.nusiss.productservice.entity.ProductMedia;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import com.nusiss.productservice.index.ProductCatalogSnapshot;
+import com.nusiss.productservice.service.CoPurchaseRecommendationService;
+import com.nusiss.productservice.service.ProductDuplicateService;
+import com.nusiss.productservice.service.ProductLeaderboardService;
+import com.nusiss.productservice.service.ProductSearchService;
+import com.nusiss.productservice.service.ProductSimilarityService;
+import com.nusiss.productservice.util.KeysetCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,21 +49,50 @@ class ProductServiceImplTest {
     private ProductMapper productMapper;
 
     @Mock
-    private ProductMediaMapper productMediaMapper;
+    private OrderHistoryClient orderHistoryClient;
 
     @Mock
-    private OrderFeignClient orderFeignClient;
+    private ProductPageQueryExecutor pageQueryExecutor;
+
+    @Mock
+    private ProductSearchService productSearchService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductCatalogEngine catalogEngine;
+
+    @Mock
+    private ProductLeaderboardService leaderboardService;
+
+    @Mock
+    private CoPurchaseRecommendationService coPurchaseService;
+
+    @Mock
+    private ProductSimilarityService similarityService;
+
+    @Mock
+    private ProductDuplicateService duplicateService;
+
+    @Spy
+    private ProductCache productCache = new ProductCache();
+
+    @Spy
+    private ResourceVersionRegistry versionRegistry = new ResourceVersionRegistry();
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(productCache, "meterRegistry", new SimpleMeterRegistry());
+        productCache.init();
+        productService.init();
     }
 
     @Test
     void testGetAllProducts() {
         List<Product> products = List.of(new Product());
         when(productMapper.selectList(null)).thenReturn(products);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         List<Product> result = productService.getAllProducts();
         assertEquals(1, result.size());
@@ -52,22 +103,92 @@ class ProductServiceImplTest {
         Product p = new Product();
         p.setId(1L);
         when(productMapper.selectById(1L)).thenReturn(p);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         Product result = productService.getProductById(1L);
         assertEquals(1L, result.getId());
     }
 
+    @Test
+    void testGetProductStamp_SharesCacheWithGetProductById() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("A");
+        when(productMapper.selectById(1L)).thenReturn(product);
+
+        VersionStamp stamp = productService.getProductStamp(1L);
+        productService.getProductById(1L);
+
+        assertEquals(ProductCache.contentHash(product), stamp.getEtag());
+        verify(productMapper, times(1)).selectById(1L);
+        assertNull(productService.getProductStamp(2L)); // 不存在的商品没有版本戳
+    }
+
+    @Test
+    void testGetCatalogStamp_ChangesAfterProductEvent() {
+        VersionStamp before = productService.getCatalogStamp();
+        versionRegistry.onProductChanged(ProductChangedEvent.deleted(1L));
+
+        assertNotEquals(before.getEtag(), productService.getCatalogStamp().getEtag());
+    }
+
     @Test
     void testCreateProduct() {
         Product p = new Product();
         productService.createProduct(p);
         verify(productMapper, times(1)).insert(p);
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testCreateProduct_FlagsLikelyDuplicates() {
+        Product p = new Product();
+        p.setName("Apple iPhone 15 128GB 黑色");
+        when(duplicateService.checkNewProduct(p)).thenReturn(List.of(3L, 8L));
+
+        Product created = productService.createProduct(p);
+
+        verify(productMapper).insert(p);
+        assertEquals(List.of(3L, 8L), created.getPossibleDuplicateIds());
+        assertNull(productService.createProduct(new Product()).getPossibleDuplicateIds()); // 没有疑似重复时不带该字段
+    }
+
+    @Test
+    void testCreateProduct_RejectedDuplicateIsNotInserted() {
+        Product p = new Product();
+        when(duplicateService.checkNewProduct(p)).thenThrow(new CustomException("Product looks like a duplicate of product 3"));
+
+        assertThrows(CustomException.class, () -> productService.createProduct(p));
+        verify(productMapper, never()).insert(any(Product.class));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testUpdateProduct_PublishesReloadedProduct() {
+        Product changes = new Product();
+        changes.setName("新名称");
+        Product reloaded = new Product();
+        reloaded.setId(1L);
+        reloaded.setName("新名称");
+        reloaded.setDescription("保留的描述");
+        when(productMapper.updateById(changes)).thenReturn(1);
+        when(productMapper.selectById(1L)).thenReturn(reloaded);
+
+        productService.updateProduct(1L, changes);
+
+        InOrder inOrder = inOrder(productMapper, eventPublisher);
+        inOrder.verify(productMapper).updateById(changes); // 先写入，再读回
+        inOrder.verify(productMapper).selectById(1L);
+        ArgumentCaptor<ProductChangedEvent> captor = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        inOrder.verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(ProductChangedEvent.Type.UPDATED, captor.getValue().getType());
+        assertEquals("新名称", captor.getValue().getProduct().getName());
+        assertEquals("保留的描述", captor.getValue().getProduct().getDescription());
     }
 
     @Test
     void testUpdateProduct_Found() {
         Product p = new Product();
+        when(productMapper.updateById(p)).thenReturn(1);
         when(productMapper.selectById(1L)).thenReturn(new Product());
 
         Product result = productService.updateProduct(1L, p);
@@ -77,23 +198,29 @@ class ProductServiceImplTest {
 
     @Test
     void testUpdateProduct_NotFound() {
-        when(productMapper.selectById(999L)).thenReturn(null);
+        when(productMapper.updateById(any(Product.class))).thenReturn(0);
         Product result = productService.updateProduct(999L, new Product());
         assertNull(result);
+        verify(productMapper, never()).selectById(999L);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void testDeleteProduct_Success() {
-        when(productMapper.selectById(1L)).thenReturn(new Product());
         when(productMapper.deleteById(1L)).thenReturn(1);
 
         assertTrue(productService.deleteProduct(1L));
+        ArgumentCaptor<ProductChangedEvent> captor = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(ProductChangedEvent.Type.DELETED, captor.getValue().getType());
     }
 
     @Test
     void testDeleteProduct_NotFound() {
-        when(productMapper.selectById(1L)).thenReturn(null);
+        when(productMapper.deleteById(1L)).thenReturn(0);
         assertFalse(productService.deleteProduct(1L));
+        verify(productMapper, never()).selectById(1L);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -101,7 +228,6 @@ class ProductServiceImplTest {
         Page<Product> mockPage = new Page<>();
         mockPage.setRecords(List.of(new Product()));
         when(productMapper.selectPage(any(), any())).thenReturn(mockPage);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         Page<Product> result = productService.getProductPage(1, 10);
         assertEquals(1, result.getRecords().size());
@@ -111,17 +237,38 @@ class ProductServiceImplTest {
     void testSearchProducts() {
         List<Product> list = List.of(new Product());
         when(productMapper.selectList(any())).thenReturn(list);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         List<Product> result = productService.searchProducts("abc");
         assertEquals(1, result.size());
     }
 
+    @Test
+    void testSearchProducts_UsesIndexOrder() {
+        Product p1 = new Product();
+        p1.setId(1L);
+        Product p2 = new Product();
+        p2.setId(2L);
+        when(productSearchService.search(eq("手机"), anyInt())).thenReturn(List.of(2L, 1L));
+        when(productMapper.selectBatchIds(List.of(2L, 1L))).thenReturn(List.of(p1, p2));
+
+        List<Product> result = productService.searchProducts(" 手机 ");
+        assertEquals(2L, result.get(0).getId());
+        assertEquals(1L, result.get(1).getId());
+        verify(productMapper, never()).selectList(any());
+    }
+
+    @Test
+    void testSearchProducts_IndexNoMatch() {
+        when(productSearchService.search(anyString(), anyInt())).thenReturn(List.of());
+
+        assertTrue(productService.searchProducts("不存在").isEmpty());
+        verifyNoInteractions(productMapper);
+    }
+
     @Test
     void testFilterProducts_AllConditions() {
         List<Product> list = List.of(new Product());
         when(productMapper.selectList(any())).thenReturn(list);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         List<Product> result = productService.filterProducts("name", "cat", "AVAILABLE",
                 BigDecimal.valueOf(10), BigDecimal.valueOf(100), 4.0);
@@ -133,7 +280,6 @@ class ProductServiceImplTest {
         Page<Product> mockPage = new Page<>();
         mockPage.setRecords(List.of(new Product()));
         when(productMapper.selectPage(any(), any())).thenReturn(mockPage);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         IPage<Product> result = productService.filterProductsWithSorting(
                 "name", "cat", "AVAILABLE",
@@ -149,7 +295,6 @@ class ProductServiceImplTest {
         Page<Product> mockPage = new Page<>();
         mockPage.setRecords(List.of(new Product()));
         when(productMapper.selectPage(any(), any())).thenReturn(mockPage);
-        when(productMediaMapper.selectOne(any())).thenReturn(null);
 
         IPage<Product> result = productService.filterProductsWithSorting(
                 null, null, null,
@@ -161,21 +306,127 @@ class ProductServiceImplTest {
     }
 
     @Test
-    void testSetCoverImage_ValidProduct() {
+    void testFilterProducts_ServedFromCatalog() {
+        when(catalogEngine.filter(any(), any())).thenReturn(List.of(new Product()));
+
+        List<Product> result = productService.filterProducts(null, "Phones", null, null, null, null);
+        assertEquals(1, result.size());
+        verify(productMapper, never()).selectList(any());
+    }
+
+    @Test
+    void testFilterProductsWithSorting_ServedFromCatalog() {
+        Product p = new Product();
+        p.setId(7L);
+        when(catalogEngine.select(any(), eq("price"), eq("desc"), eq(10L), eq(10), any()))
+                .thenReturn(new ProductCatalogSnapshot.Slice(List.of(p), 11));
+
+        IPage<Product> result = productService.filterProductsWithSorting(null, null, null, null, null, null, "price", "desc", 2, 10);
+        assertEquals(11, result.getTotal());
+        assertEquals(7L, result.getRecords().get(0).getId());
+        verify(productMapper, never()).selectPage(any(), any());
+    }
+
+    @Test
+    void testGetProductFacets_FromSqlWhenCatalogNotReady() {
+        ReflectionTestUtils.setField(productService, "priceBuckets", new BigDecimal[]{new BigDecimal("100"), BigDecimal.ZERO});
+        when(productMapper.selectMaps(any()))
+                .thenReturn(List.of(Map.of("value", "Phones", "count", 3L), Map.of("value", "Books", "count", 5L)))
+                .thenReturn(List.of(Map.of("value", "ACTIVE", "count", 8L)))
+                .thenReturn(List.of(Map.of("total", 8L, "p0", new BigDecimal(6), "p1", new BigDecimal(2),
+                        "r3", new BigDecimal(1), "r4", new BigDecimal(4))));
+
+        ProductFacets facets = productService.getProductFacets(null, null, null, null, null, null);
+
+        assertEquals(8, facets.getTotal());
+        assertEquals("Books", facets.getCategories().get(0).getValue());
+        assertEquals(8, facets.getStatuses().get(0).getCount());
+        assertEquals(BigDecimal.ZERO, facets.getPriceBuckets().get(0).getFrom());
+        assertEquals(6, facets.getPriceBuckets().get(0).getCount());
+        assertEquals(2, facets.getPriceBuckets().get(1).getCount());
+        assertEquals(0, facets.getRatingBuckets().get(0).getCount());
+        assertEquals(4, facets.getRatingBuckets().get(4).getCount());
+        verify(productMapper, times(3)).selectMaps(any());
+    }
+
+    @Test
+    void testFilterProductsWithSorting_CountMode() {
+        CountedPage<Product> counted = new CountedPage<>();
+        counted.setRecords(List.of(new Product()));
+        when(pageQueryExecutor.execute(any(), any(), eq("name=|category=cat|status=|minPrice=10|maxPrice=|rating="),
+                eq(2L), eq(20L), eq(CountMode.CACHED))).thenReturn(counted);
+
+        CountedPage<Product> result = productService.filterProductsWithSorting(
+                null, "cat", " ", new BigDecimal("10.00"), null, null,
+                "price", "asc", 2, 20, CountMode.CACHED);
+
+        assertSame(counted, result);
+    }
+
+    @Test
+    void testGetProductPageByCursor_FirstPageHasNext() {
+        List<Product> rows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Product p = new Product();
+            p.setId(id);
+            rows.add(p);
+        }
+        when(productMapper.selectList(any())).thenReturn(rows); // size + 1 条，说明还有下一页
+
+        CursorPage<Product> result = productService.getProductPageByCursor("", 2);
+
+        assertEquals(2, result.getRecords().size());
+        assertTrue(result.isHasNext());
+        KeysetCursor next = KeysetCursor.decode(result.getNextCursor());
+        assertEquals("id", next.getSortBy());
+        assertEquals(2L, next.getLastId());
+    }
+
+    @Test
+    void testFilterProductsWithCursor_LastPage() {
+        Product p = new Product();
+        p.setId(9L);
+        p.setPrice(new BigDecimal("99.90"));
+        when(productMapper.selectList(any())).thenReturn(List.of(p));
+
+        String cursor = new KeysetCursor("price", false, "199.00", 5L).encode();
+        CursorPage<Product> result = productService.filterProductsWithCursor(
+                null, "cat", null, null, null, null, "price", "desc", cursor, 10);
+
+        assertEquals(1, result.getRecords().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testFilterProductsWithCursor_SortMismatch() {
+        String cursor = new KeysetCursor("price", true, "10", 5L).encode();
+        assertThrows(CustomException.class, () -> productService.filterProductsWithCursor(
+                null, null, null, null, null, null, "rating", "asc", cursor, 10));
+        verify(productMapper, never()).selectList(any());
+    }
+
+    @Test
+    void testFilterProductsWithCursor_InvalidInput() {
+        assertThrows(CustomException.class, () -> productService.filterProductsWithCursor(
+                null, null, null, null, null, null, "name", "asc", "", 10));
+        assertThrows(CustomException.class, () -> productService.getProductPageByCursor("not-a-cursor", 10));
+    }
+
+    @Test
+    void testCoverImage_ReadFromStoredColumn() {
         Product p = new Product();
         p.setId(1L);
-        ProductMedia media = new ProductMedia();
-        media.setUrl("http://example.com/img.jpg");
+        p.setCoverImageUrl("http://example.com/img.jpg"); // 封面图已持久化在 Products 表中
 
-        when(productMapper.selectById(1L)).thenReturn(p); // mock product
-        when(productMediaMapper.selectOne(any())).thenReturn(media); // mock media
+        when(productMapper.selectById(1L)).thenReturn(p);
 
         Product result = productService.getProductById(1L);
 
-        assertEquals("http://example.com/img.jpg", result.getCoverImageUrl()); // 测试实际结果
+        assertEquals("http://example.com/img.jpg", result.getCoverImageUrl());
+        verify(productMapper, times(1)).selectById(1L); // 读取商品只需一次查询
     }
 
-
     @Test
     void testGetProductsPage_default() {
         assertDoesNotThrow(() -> productService.getAllProducts());
@@ -195,6 +446,7 @@ class ProductServiceImplTest {
         p1.setCategory("Smartphones");
         p1.setPrice(new BigDecimal("2999"));
         p1.setRating(4.8);
+        p1.setCoverImageUrl("http://example.com/cover1.jpg");
 
         Product p2 = new Product();
         p2.setId(3L);
@@ -205,14 +457,9 @@ class ProductServiceImplTest {
 
         List<Product> related = List.of(p1, p2);
 
-        // 模拟封面图
-        ProductMedia media = new ProductMedia();
-        media.setUrl("http://example.com/cover1.jpg");
-
         // Mock 行为
         when(productMapper.selectById(1L)).thenReturn(product);
-        when(productMapper.selectList(any())).thenReturn(related);
-        when(productMediaMapper.selectOne(any())).thenReturn(media);
+        when(leaderboardService.getTopProducts("Smartphones", LeaderboardRanking.RATING, 5, List.of(1L))).thenReturn(related);
 
         // 调用方法
         List<Product> result = productService.getRelatedProducts(1L, 5);
@@ -252,21 +499,17 @@ class ProductServiceImplTest {
         rec.setName("New Phone");
         rec.setCategory("Smartphones");
         rec.setRating(4.9);
+        rec.setCoverImageUrl("http://example.com/newphone.jpg");
 
         List<Product> recommended = List.of(rec);
 
-        // 模拟封面图
-        ProductMedia media = new ProductMedia();
-        media.setUrl("http://example.com/newphone.jpg");
-
         // Mock 行为
-        when(orderFeignClient.getProductIdsByUserId(userId)).thenReturn(purchasedIds);
+        when(orderHistoryClient.getPurchasedProductIds(userId)).thenReturn(CompletableFuture.completedFuture(purchasedIds));
         when(productMapper.selectBatchIds(purchasedIds)).thenReturn(purchasedProducts);
-        when(productMapper.selectList(any())).thenReturn(recommended);
-        when(productMediaMapper.selectOne(any())).thenReturn(media);
+        when(leaderboardService.getTopProducts("Smartphones", LeaderboardRanking.RATING, 5, purchasedIds)).thenReturn(recommended);
 
         // 调用方法
-        List<Product> result = productService.getTopRecommendedProductsByUser(userId, 5);
+        List<Product> result = productService.getTopRecommendedProductsByUser(userId, 5).join();
 
         // 断言
         assertEquals(1, result.size());
@@ -274,5 +517,127 @@ class ProductServiceImplTest {
         assertEquals("http://example.com/newphone.jpg", result.get(0).getCoverImageUrl());
     }
 
+    @Test
+    void testGetTopRecommendedProductsByUser_OrderServiceUnavailable() {
+        Product top = new Product();
+        top.setId(9L);
+        when(orderHistoryClient.getPurchasedProductIds(1L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(leaderboardService.getTopProducts(null, LeaderboardRanking.RATING, 5, null)).thenReturn(List.of(top));
+
+        List<Product> result = productService.getTopRecommendedProductsByUser(1L, 5).join();
+
+        assertEquals(9L, result.get(0).getId()); // 降级为全部分类的评分排行榜
+        verify(productMapper, never()).selectBatchIds(any());
+    }
+
+    @Test
+    void testGetTopRecommendedProductsByUser_RunsOnRecommendPool() {
+        String[] thread = new String[1];
+        when(orderHistoryClient.getPurchasedProductIds(1L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(leaderboardService.getTopProducts(null, LeaderboardRanking.RATING, 5, null)).thenAnswer(inv -> {
+            thread[0] = Thread.currentThread().getName();
+            return List.of();
+        });
+
+        productService.getTopRecommendedProductsByUser(1L, 5).join();
+
+        assertTrue(thread[0].startsWith("recommend-"), thread[0]); // 不在完成订单查询的线程上读取数据库
+    }
+
+    @Test
+    void testGetTopRecommendedProductsByUser_PoolFullIsBusy() throws InterruptedException {
+        ReflectionTestUtils.setField(productService, "recommendMaxConcurrent", 1);
+        ReflectionTestUtils.setField(productService, "recommendMaxQueued", 1);
+        productService.init();
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderHistoryClient.getPurchasedProductIds(1L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(leaderboardService.getTopProducts(null, LeaderboardRanking.RATING, 5, null)).thenAnswer(inv -> {
+            release.await();
+            return List.of();
+        });
+
+        CompletableFuture<List<Product>> running = productService.getTopRecommendedProductsByUser(1L, 5);
+        CompletableFuture<List<Product>> queued = productService.getTopRecommendedProductsByUser(1L, 5);
+        CompletableFuture<List<Product>> rejected = productService.getTopRecommendedProductsByUser(1L, 5);
+
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(ServiceBusyException.class, e.getCause());
+        release.countDown();
+        assertEquals(List.of(), running.join());
+        assertEquals(List.of(), queued.join());
+        productService.shutdown();
+    }
+
+    private static Product product(long id, String category) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName("P" + id);
+        p.setCategory(category);
+        return p;
+    }
+
+    @Test
+    void testGetRelatedProducts_CoPurchaseFirstThenLeaderboard() {
+        when(productMapper.selectById(1L)).thenReturn(product(1L, "Smartphones"));
+        when(productMapper.selectById(4L)).thenReturn(product(4L, "Cases"));
+        when(coPurchaseService.getRelatedProductIds(1L, 3, List.of(1L))).thenReturn(List.of(4L, 6L)); // 6 已删除
+        when(leaderboardService.getTopProducts("Smartphones", LeaderboardRanking.RATING, 2, List.of(1L, 4L)))
+                .thenReturn(List.of(product(2L, "Smartphones")));
+
+        List<Product> result = productService.getRelatedProducts(1L, 3);
+
+        assertEquals(List.of(4L, 2L), result.stream().map(Product::getId).toList());
+    }
 
+    @Test
+    void testGetRelatedProducts_EnoughCoPurchasesSkipsLeaderboard() {
+        when(productMapper.selectById(1L)).thenReturn(product(1L, null));
+        when(productMapper.selectById(4L)).thenReturn(product(4L, "Cases"));
+        when(coPurchaseService.getRelatedProductIds(1L, 1, List.of(1L))).thenReturn(List.of(4L));
+
+        List<Product> result = productService.getRelatedProducts(1L, 1);
+
+        assertEquals(4L, result.get(0).getId());
+        verifyNoInteractions(leaderboardService);
+    }
+
+    @Test
+    void testGetTopRecommendedProductsByUser_CoPurchaseFirstThenLeaderboard() {
+        List<Long> purchasedIds = List.of(1L, 3L);
+        when(orderHistoryClient.getPurchasedProductIds(1L)).thenReturn(CompletableFuture.completedFuture(purchasedIds));
+        when(coPurchaseService.getRecommendedProductIds(purchasedIds, 2)).thenReturn(List.of(8L));
+        when(productMapper.selectById(8L)).thenReturn(product(8L, "Cases"));
+        when(productMapper.selectBatchIds(purchasedIds)).thenReturn(List.of(product(1L, "Smartphones"), product(3L, "Smartphones")));
+        when(leaderboardService.getTopProducts("Smartphones", LeaderboardRanking.RATING, 1, List.of(1L, 3L, 8L)))
+                .thenReturn(List.of(product(2L, "Smartphones")));
+
+        List<Product> result = productService.getTopRecommendedProductsByUser(1L, 2).join();
+
+        assertEquals(List.of(8L, 2L), result.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void testGetRelatedProducts_ContentSimilarityBeforeLeaderboard() {
+        when(productMapper.selectById(1L)).thenReturn(product(1L, null)); // 没有分类
+        when(productMapper.selectById(4L)).thenReturn(product(4L, "Cases"));
+        when(productMapper.selectById(5L)).thenReturn(product(5L, "Cases"));
+        when(coPurchaseService.getRelatedProductIds(1L, 3, List.of(1L))).thenReturn(List.of(4L));
+        when(similarityService.getSimilarProductIds(1L, 3)).thenReturn(List.of(4L, 5L));
+
+        List<Product> result = productService.getRelatedProducts(1L, 3);
+
+        assertEquals(List.of(4L, 5L), result.stream().map(Product::getId).toList()); // 去重
+        verifyNoInteractions(leaderboardService);
+    }
+
+    @Test
+    void testGetSimilarProducts() {
+        ReflectionTestUtils.setField(productService, "similarMaxResults", 2);
+        when(productMapper.selectById(1L)).thenReturn(product(1L, null));
+        when(productMapper.selectById(4L)).thenReturn(product(4L, null));
+        when(similarityService.getSimilarProductIds(1L, 2)).thenReturn(List.of(4L));
+
+        assertEquals(4L, productService.getSimilarProducts(1L, 10).get(0).getId()); // limit 被限制为 2
+        assertNull(productService.getSimilarProducts(99L, 10));
+    }
 }
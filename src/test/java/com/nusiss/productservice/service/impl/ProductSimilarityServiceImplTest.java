@@ -0,0 +1,126 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSimilarityServiceImplTest {
+
+    @InjectMocks
+    private ProductSimilarityServiceImpl similarityService;
+
+    @Mock
+    private ProductMapper productMapper;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(similarityService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(similarityService, "compactMinDeleted", 2);
+        similarityService.init();
+    }
+
+    private static Product product(long id, String name, String description) {
+        Product p = new Product();
+        p.setId(id);
+        p.setName(name);
+        p.setDescription(description);
+        return p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void databaseContains(List<Product> products) {
+        when(productMapper.scanInBatches(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<Product>> consumer = invocation.getArgument(1);
+            consumer.accept(products);
+            return (long) products.size();
+        });
+    }
+
+    private void rebuildWith(List<Product> products) {
+        databaseContains(products);
+        similarityService.rebuild();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    @Test
+    void testNotReady_ReturnsEmpty() {
+        assertEquals(List.of(), similarityService.getSimilarProductIds(1L, 5));
+    }
+
+    @Test
+    void testSimilarByText() {
+        rebuildWith(List.of(
+                product(1L, "Wireless noise cancelling headphones", "Bluetooth over-ear headphones"),
+                product(2L, "Bluetooth headphones", "Wireless over-ear headphones with noise cancelling"),
+                product(3L, "Oak dining table", "Solid wood table for six"),
+                product(4L, null, null)));
+
+        List<Long> similar = similarityService.getSimilarProductIds(1L, 2);
+
+        assertEquals(2L, similar.get(0));
+        assertFalse(similar.contains(1L));
+        assertEquals(List.of(), similarityService.getSimilarProductIds(4L, 2)); // 没有文本，不在索引中
+        assertEquals(3.0, gauge("product.similar.products"), 0.0);
+        assertEquals(1, meterRegistry.get("product.similar.search").timer().count());
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        rebuildWith(List.of(
+                product(1L, "Espresso machine", "Coffee maker with milk frother"),
+                product(2L, "Running shoes", "Lightweight trainers")));
+
+        similarityService.onProductChanged(ProductChangedEvent.created(product(3L, "Coffee grinder", "Burr grinder for espresso coffee")));
+        assertEquals(3L, similarityService.getSimilarProductIds(1L, 1).get(0));
+
+        similarityService.onProductChanged(ProductChangedEvent.deleted(3L));
+        assertEquals(2L, similarityService.getSimilarProductIds(1L, 1).get(0));
+    }
+
+    @Test
+    void testNonTextUpdateLeavesIndexUnchanged() {
+        Product shoes = product(2L, "Running shoes", "Lightweight trainers");
+        rebuildWith(List.of(product(1L, "Espresso machine", "Coffee maker"), shoes));
+
+        shoes.setPrice(new BigDecimal("59.90"));
+        similarityService.onProductChanged(ProductChangedEvent.updated(shoes));
+
+        assertEquals(0.0, gauge("product.similar.deleted"), 0.0);
+    }
+
+    @Test
+    void testCompactsAfterManyDeletes() throws Exception {
+        rebuildWith(List.of(
+                product(1L, "Espresso machine", "Coffee maker"),
+                product(2L, "Running shoes", "Lightweight trainers"),
+                product(3L, "Coffee grinder", "Burr grinder")));
+        databaseContains(List.of(product(1L, "Espresso machine", "Coffee maker")));
+
+        similarityService.onProductChanged(ProductChangedEvent.deleted(2L));
+        similarityService.onProductChanged(ProductChangedEvent.deleted(3L)); // 2 / 3 已删除，后台重建
+
+        for (int i = 0; i < 100 && gauge("product.similar.deleted") > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0.0, gauge("product.similar.deleted"), 0.0);
+        assertEquals(1.0, gauge("product.similar.products"), 0.0);
+    }
+}
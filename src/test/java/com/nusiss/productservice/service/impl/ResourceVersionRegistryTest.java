@@ -0,0 +1,54 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.dto.VersionStamp;
+import com.nusiss.productservice.event.FeedbackChangedEvent;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceVersionRegistryTest {
+
+    private final ResourceVersionRegistry registry = new ResourceVersionRegistry();
+
+    @Test
+    void testCatalogVersionFollowsLocalAndRemoteChanges() {
+        VersionStamp initial = registry.catalogStamp();
+        assertEquals(initial, registry.catalogStamp());
+
+        registry.onProductChanged(ProductChangedEvent.deleted(1L));
+        VersionStamp afterLocal = registry.catalogStamp();
+        registry.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.DELETED, 2L, null, true));
+
+        assertNotEquals(initial.getEtag(), afterLocal.getEtag());
+        assertNotEquals(afterLocal.getEtag(), registry.catalogStamp().getEtag());
+        assertTrue(registry.catalogStamp().getLastModified() >= initial.getLastModified());
+    }
+
+    @Test
+    void testProductModifiedAtDefaultsToStartup() {
+        long startup = registry.productModifiedAt(1L);
+        assertEquals(startup, registry.productModifiedAt(2L));
+
+        registry.onProductChanged(ProductChangedEvent.deleted(1L));
+        assertTrue(registry.productModifiedAt(1L) >= startup);
+        assertEquals(startup, registry.productModifiedAt(2L));
+    }
+
+    @Test
+    void testFeedbackChangeWithoutProductInvalidatesAll() {
+        String product1 = registry.feedbackStamp(1L).getEtag();
+        String product2 = registry.feedbackStamp(2L).getEtag();
+
+        registry.onFeedbackChanged(new FeedbackChangedEvent(null));
+
+        assertNotEquals(product1, registry.feedbackStamp(1L).getEtag());
+        assertNotEquals(product2, registry.feedbackStamp(2L).getEtag());
+    }
+
+    @Test
+    void testEtagsDifferBetweenInstances() {
+        // 版本号只在本实例内有效，其他实例（或重启后）的 ETag 不会与之相同
+        assertNotEquals(registry.catalogStamp().getEtag(), new ResourceVersionRegistry().catalogStamp().getEtag());
+    }
+}
@@ -0,0 +1,522 @@
+package com.nusiss.productservice.service.impl;
+
+import com.nusiss.productservice.config.CustomException;
+import com.nusiss.productservice.config.ServiceBusyException;
+import com.nusiss.productservice.dao.ProductMapper;
+import com.nusiss.productservice.dao.ProductStockLeaseMapper;
+import com.nusiss.productservice.dao.ProductStockReservationMapper;
+import com.nusiss.productservice.dto.StockReservation;
+import com.nusiss.productservice.entity.Product;
+import com.nusiss.productservice.entity.ProductStockLease;
+import com.nusiss.productservice.entity.ProductStockReservation;
+import com.nusiss.productservice.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockReservationServiceImplTest {
+
+    private ProductMapper productMapper;
+    private ProductStockReservationMapper reservationMapper;
+    private ProductStockLeaseMapper leaseMapper;
+    private TransactionTemplate transactionTemplate;
+
+    // 模拟数据库：商品库存、额度表与预留表；每条语句和每个事务都在 synchronized (db) 内执行（可串行化）
+    private final Object db = new Object();
+    private final Map<Long, Long> stockTable = new ConcurrentHashMap<>();
+    private final Map<String, ProductStockLease> leaseTable = new ConcurrentHashMap<>();
+    private final Map<String, ProductStockReservation> reservationTable = new ConcurrentHashMap<>();
+
+    private StockReservationServiceImpl reservationService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        reservationMapper = mock(ProductStockReservationMapper.class);
+        leaseMapper = mock(ProductStockLeaseMapper.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                return ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null);
+            }
+        });
+
+        when(productMapper.selectById(any())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            Long stock = stockTable.get(id);
+            if (stock == null) {
+                return null;
+            }
+            Product p = new Product();
+            p.setId(id);
+            p.setStock(stock.intValue());
+            return p;
+        });
+        when(productMapper.lockStock(anyLong())).thenAnswer(invocation -> stockTable.get((Long) invocation.getArgument(0)));
+        when(productMapper.sellStock(anyLong(), anyLong())).thenAnswer(invocation -> {
+            synchronized (db) {
+                long quantity = invocation.getArgument(1);
+                return stockTable.computeIfPresent(invocation.getArgument(0), (k, v) -> Math.max(v - quantity, 0)) == null ? 0 : 1;
+            }
+        });
+
+        when(leaseMapper.sumLeased(anyLong())).thenAnswer(invocation -> {
+            synchronized (db) {
+                return leasedUnits((Long) invocation.getArgument(0));
+            }
+        });
+        when(leaseMapper.add(anyLong(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                ProductStockLease lease = leaseTable.computeIfAbsent(leaseKey(invocation.getArgument(0), invocation.getArgument(1)), k -> {
+                    ProductStockLease l = new ProductStockLease();
+                    l.setProductId(invocation.getArgument(0));
+                    l.setOwner(invocation.getArgument(1));
+                    l.setQuantity(0L);
+                    return l;
+                });
+                lease.setQuantity(lease.getQuantity() + (Long) invocation.getArgument(2));
+                lease.setUpdateDatetime(invocation.getArgument(3));
+                return 1;
+            }
+        });
+        when(leaseMapper.reduce(anyLong(), any(), anyLong())).thenAnswer(invocation -> {
+            synchronized (db) {
+                return reduceLease(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            }
+        });
+        when(leaseMapper.returnBatch(any(), any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                String owner = invocation.getArgument(0);
+                Map<Long, Long> deltas = invocation.getArgument(1);
+                deltas.forEach((id, quantity) -> reduceLease(id, owner, quantity));
+                return deltas.size();
+            }
+        });
+        when(leaseMapper.touch(any(), any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                leaseTable.values().stream()
+                        .filter(l -> l.getOwner().equals(invocation.getArgument(0)))
+                        .forEach(l -> l.setUpdateDatetime(invocation.getArgument(1)));
+                return 1;
+            }
+        });
+        when(leaseMapper.selectByOwner(any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                return leaseTable.values().stream().filter(l -> l.getOwner().equals(invocation.getArgument(0))).toList();
+            }
+        });
+        when(leaseMapper.selectStale(any(), anyInt())).thenAnswer(invocation -> {
+            synchronized (db) {
+                LocalDateTime before = invocation.getArgument(0);
+                return leaseTable.values().stream()
+                        .filter(l -> l.getUpdateDatetime().isBefore(before) && l.getQuantity() > 0)
+                        .toList();
+            }
+        });
+        when(leaseMapper.resetToHeld(anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                Long productId = invocation.getArgument(0);
+                String owner = invocation.getArgument(1);
+                ProductStockLease lease = leaseTable.get(leaseKey(productId, owner));
+                if (lease == null) {
+                    return 0;
+                }
+                lease.setQuantity(reservationTable.values().stream()
+                        .filter(r -> r.getProductId().equals(productId) && r.getOwner().equals(owner)
+                                && ProductStockReservation.HELD.equals(r.getStatus()))
+                        .mapToLong(ProductStockReservation::getQuantity).sum());
+                return 1;
+            }
+        });
+
+        when(reservationMapper.insert(any(ProductStockReservation.class))).thenAnswer(invocation -> {
+            synchronized (db) {
+                ProductStockReservation r = invocation.getArgument(0);
+                reservationTable.put(r.getId(), copy(r));
+                return 1;
+            }
+        });
+        when(reservationMapper.selectById(any())).thenAnswer(invocation -> {
+            synchronized (db) {
+                ProductStockReservation r = reservationTable.get((String) invocation.getArgument(0));
+                return r == null ? null : copy(r);
+            }
+        });
+        when(reservationMapper.confirm(any(), any())).thenAnswer(invocation ->
+                transition(invocation.getArgument(0), invocation.getArgument(1), ProductStockReservation.CONFIRMED));
+        when(reservationMapper.release(any(), any())).thenAnswer(invocation ->
+                transition(invocation.getArgument(0), invocation.getArgument(1), ProductStockReservation.RELEASED));
+        when(reservationMapper.expire(any(), any())).thenAnswer(invocation ->
+                transition(invocation.getArgument(0), invocation.getArgument(1), ProductStockReservation.EXPIRED));
+        when(reservationMapper.selectExpired(any(), anyInt())).thenAnswer(invocation -> {
+            synchronized (db) {
+                LocalDateTime now = invocation.getArgument(0);
+                return reservationTable.values().stream()
+                        .filter(r -> ProductStockReservation.HELD.equals(r.getStatus()) && !r.getExpiresAt().isAfter(now))
+                        .map(StockReservationServiceImplTest::copy)
+                        .toList();
+            }
+        });
+        when(reservationMapper.sumHeld(anyLong())).thenAnswer(invocation -> {
+            synchronized (db) {
+                return reservationTable.values().stream()
+                        .filter(r -> r.getProductId().equals(invocation.getArgument(0))
+                                && ProductStockReservation.HELD.equals(r.getStatus()))
+                        .mapToLong(ProductStockReservation::getQuantity).sum();
+            }
+        });
+
+        reservationService = newReplica();
+        meterRegistry = (SimpleMeterRegistry) ReflectionTestUtils.getField(reservationService, "meterRegistry");
+    }
+
+    // 与 ProductStockReservationMapper 中的条件 UPDATE 一致
+    private int transition(String id, LocalDateTime now, String to) {
+        synchronized (db) {
+            ProductStockReservation r = reservationTable.get(id);
+            if (r == null || !ProductStockReservation.HELD.equals(r.getStatus())) {
+                return 0;
+            }
+            boolean expired = !r.getExpiresAt().isAfter(now);
+            if (ProductStockReservation.CONFIRMED.equals(to) && expired
+                    || ProductStockReservation.EXPIRED.equals(to) && !expired) {
+                return 0;
+            }
+            r.setStatus(to);
+            r.setUpdateDatetime(now);
+            return 1;
+        }
+    }
+
+    private int reduceLease(Long productId, String owner, long quantity) {
+        ProductStockLease lease = leaseTable.get(leaseKey(productId, owner));
+        if (lease == null) {
+            return 0;
+        }
+        lease.setQuantity(lease.getQuantity() - quantity);
+        return 1;
+    }
+
+    private static String leaseKey(Long productId, String owner) {
+        return productId + "/" + owner;
+    }
+
+    private long leasedUnits(Long productId) {
+        return leaseTable.values().stream()
+                .filter(l -> l.getProductId().equals(productId))
+                .mapToLong(ProductStockLease::getQuantity).sum();
+    }
+
+    private long leasedUnits(StockReservationServiceImpl replica) {
+        ProductStockLease lease = leaseTable.get(leaseKey(1L, (String) ReflectionTestUtils.getField(replica, "owner")));
+        return lease == null ? 0 : lease.getQuantity();
+    }
+
+    private static ProductStockReservation copy(ProductStockReservation r) {
+        ProductStockReservation c = new ProductStockReservation();
+        c.setId(r.getId());
+        c.setProductId(r.getProductId());
+        c.setOwner(r.getOwner());
+        c.setQuantity(r.getQuantity());
+        c.setStatus(r.getStatus());
+        c.setExpiresAt(r.getExpiresAt());
+        c.setCreateDatetime(r.getCreateDatetime());
+        c.setUpdateDatetime(r.getUpdateDatetime());
+        return c;
+    }
+
+    // 一个实例：共享同一个（模拟的）数据库
+    private StockReservationServiceImpl newReplica() {
+        StockReservationServiceImpl replica = new StockReservationServiceImpl();
+        ReflectionTestUtils.setField(replica, "productMapper", productMapper);
+        ReflectionTestUtils.setField(replica, "reservationMapper", reservationMapper);
+        ReflectionTestUtils.setField(replica, "leaseMapper", leaseMapper);
+        ReflectionTestUtils.setField(replica, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(replica, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(replica, "meterRegistry", new SimpleMeterRegistry());
+        return replica;
+    }
+
+    private long heldUnits() {
+        return reservationTable.values().stream()
+                .filter(r -> ProductStockReservation.HELD.equals(r.getStatus()))
+                .mapToLong(ProductStockReservation::getQuantity).sum();
+    }
+
+    private long confirmedUnits() {
+        return reservationTable.values().stream()
+                .filter(r -> ProductStockReservation.CONFIRMED.equals(r.getStatus()))
+                .mapToLong(ProductStockReservation::getQuantity).sum();
+    }
+
+    @Test
+    void testReserveConfirmRelease() {
+        stockTable.put(1L, 5L);
+
+        StockReservation a = reservationService.reserve(1L, 3);
+        StockReservation b = reservationService.reserve(1L, 2);
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNull(reservationService.reserve(1L, 1)); // 售罄
+        verify(leaseMapper, times(1)).add(eq(1L), any(), eq(5L), any()); // 一次租走全部 5 件，之后的预留不再续租
+        assertEquals(5L, stockTable.get(1L)); // 租用不改实物库存
+
+        assertTrue(reservationService.release(b.getId()));
+        assertFalse(reservationService.release(b.getId())); // 重复释放无效
+        assertEquals(2L, reservationService.getAvailableStock(1L));
+
+        assertTrue(reservationService.confirm(a.getId()));
+        assertFalse(reservationService.confirm(a.getId()));
+        assertEquals(2L, stockTable.get(1L)); // 确认时扣减
+        assertEquals(2L, leasedUnits(reservationService)); // 释放的 2 件仍在本实例的额度中
+        assertEquals(1, meterRegistry.find("product.reservation").tag("result", "sold_out").counter().count());
+    }
+
+    @Test
+    void testReserve_Validation() {
+        assertThrows(CustomException.class, () -> reservationService.reserve(9L, 1)); // 商品不存在
+        assertThrows(CustomException.class, () -> reservationService.reserve(1L, 0));
+        assertThrows(CustomException.class, () -> reservationService.reserve(1L, 11));
+        assertNull(reservationService.getAvailableStock(9L));
+    }
+
+    @Test
+    void testLeaseIsBoundedByDatabaseStock() {
+        stockTable.put(1L, 100L);
+
+        reservationService.reserve(1L, 1);
+
+        assertEquals(20L, leasedUnits(reservationService)); // 只租 lease-size 件
+        assertEquals(100L, stockTable.get(1L));
+        assertEquals(99L, reservationService.getAvailableStock(1L));
+        verify(leaseMapper, never()).add(eq(1L), any(), longThat(n -> n > 20), any());
+    }
+
+    @Test
+    void testAvailableStockIsTheSameOnEveryReplica() {
+        stockTable.put(1L, 100L);
+        StockReservationServiceImpl other = newReplica();
+
+        reservationService.reserve(1L, 3);
+        other.reserve(1L, 2);
+
+        assertEquals(40L, leasedUnits(1L)); // 两个实例各租 20 件
+        assertEquals(100L, stockTable.get(1L)); // 商品列表 / 导出读到的仍是实物库存
+        assertEquals(95L, reservationService.getAvailableStock(1L));
+        assertEquals(95L, other.getAvailableStock(1L));
+    }
+
+    @Test
+    void testExpiredReservationsReturnStock() {
+        stockTable.put(1L, 2L);
+        ReflectionTestUtils.setField(reservationService, "ttlSeconds", 0L);
+
+        StockReservation r = reservationService.reserve(1L, 2);
+        assertEquals(0L, reservationService.getAvailableStock(1L));
+
+        reservationService.expireReservations();
+        assertEquals(2L, reservationService.getAvailableStock(1L));
+        assertFalse(reservationService.confirm(r.getId()));
+        assertEquals(ProductStockReservation.EXPIRED, reservationTable.get(r.getId()).getStatus());
+        assertEquals(2L, stockTable.get(1L));
+    }
+
+    @Test
+    void testConfirmAndReleaseOnAnotherReplica() {
+        stockTable.put(1L, 10L);
+        StockReservationServiceImpl other = newReplica();
+
+        StockReservation a = reservationService.reserve(1L, 2);
+        StockReservation b = reservationService.reserve(1L, 3);
+        assertEquals(10L, leasedUnits(reservationService));
+
+        assertTrue(other.confirm(a.getId()));
+        assertFalse(reservationService.release(a.getId())); // 已被其他实例确认
+        assertEquals(8L, stockTable.get(1L));
+        assertEquals(8L, leasedUnits(reservationService)); // 确认的 2 件从创建预留的实例的额度中扣除
+
+        assertTrue(other.release(b.getId()));
+        assertEquals(5L, leasedUnits(reservationService)); // 释放的 3 件立即从对方额度中退回
+        assertEquals(0L, leasedUnits(other));
+        assertEquals(8L, other.getAvailableStock(1L));
+
+        // other 可以租到退回的 3 件
+        assertNotNull(other.reserve(1L, 3));
+        assertEquals(3L, leasedUnits(other));
+    }
+
+    @Test
+    void testIdleLeaseIsReturned() {
+        stockTable.put(1L, 50L);
+        reservationService.confirm(reservationService.reserve(1L, 4).getId());
+        assertEquals(46L, stockTable.get(1L));
+        assertEquals(16L, leasedUnits(reservationService));
+
+        reservationService.reconcile(); // 还没有空闲
+        assertEquals(16L, leasedUnits(reservationService));
+
+        ReflectionTestUtils.setField(reservationService, "leaseIdleSeconds", -1L);
+        reservationService.reconcile();
+        assertEquals(0L, leasedUnits(reservationService)); // 未预留的 16 件退回
+        verify(leaseMapper).returnBatch(any(), eq(Map.of(1L, 16L)));
+
+        assertNotNull(reservationService.reserve(1L, 1)); // 之后重新租用
+        assertEquals(20L, leasedUnits(reservationService));
+        assertEquals(46L, stockTable.get(1L));
+    }
+
+    @Test
+    void testReturnFailureIsRetried() {
+        stockTable.put(1L, 10L);
+        reservationService.reserve(1L, 2);
+        ReflectionTestUtils.setField(reservationService, "leaseIdleSeconds", -1L);
+        Map<Long, Long> attempted = new ConcurrentHashMap<>();
+        when(leaseMapper.returnBatch(any(), any()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenAnswer(invocation -> {
+                    Map<Long, Long> deltas = invocation.getArgument(1);
+                    attempted.putAll(deltas);
+                    deltas.forEach((id, quantity) -> reduceLease(id, invocation.getArgument(0), quantity));
+                    return deltas.size();
+                });
+
+        reservationService.reconcile();
+        assertEquals(10L, leasedUnits(reservationService));
+        reservationService.reconcile();
+        assertEquals(Map.of(1L, 8L), attempted);
+        assertEquals(2L, leasedUnits(reservationService)); // 只剩持有的 2 件
+    }
+
+    @Test
+    void testStaleReplicaLeaseIsReclaimed() {
+        stockTable.put(1L, 10L);
+        StockReservationServiceImpl other = newReplica();
+        ReflectionTestUtils.setField(other, "soldOutRecheckMs", 0L);
+
+        reservationService.reserve(1L, 2); // 租走全部 10 件后进程退出，不再有心跳
+        assertNull(other.reserve(1L, 1));
+
+        leaseTable.values().forEach(l -> l.setUpdateDatetime(LocalDateTime.now().minusMinutes(5)));
+        other.purgeFinished();
+
+        assertEquals(2L, leasedUnits(reservationService)); // 收回到持有的 2 件
+        assertNotNull(other.reserve(1L, 8));
+        assertNull(other.reserve(1L, 1));
+    }
+
+    @Test
+    void testLapsedHeartbeatRefusesAndResyncs() {
+        stockTable.put(1L, 100L);
+        StockReservation r = reservationService.reserve(1L, 1);
+        assertEquals(20L, leasedUnits(reservationService));
+
+        ReflectionTestUtils.setField(reservationService, "heartbeatAt", 0L); // 长时间连不上数据库
+        assertThrows(ServiceBusyException.class, () -> reservationService.reserve(1L, 1));
+
+        reservationService.reconcile(); // 丢弃本地额度，按持有的预留重新同步
+        assertEquals(1L, leasedUnits(reservationService));
+
+        assertTrue(reservationService.release(r.getId())); // 本地额度已丢弃，释放的 1 件等待批量退回
+        assertNotNull(reservationService.reserve(1L, 1));
+        assertEquals(21L, leasedUnits(reservationService));
+        reservationService.reconcile();
+        assertEquals(20L, leasedUnits(reservationService));
+    }
+
+    @Test
+    void testDeletedProductDropsLease() {
+        stockTable.put(1L, 10L);
+        reservationService.reserve(1L, 1);
+
+        reservationService.onProductChanged(ProductChangedEvent.deleted(1L));
+        stockTable.remove(1L);
+
+        assertThrows(CustomException.class, () -> reservationService.reserve(1L, 1));
+        assertNull(reservationService.getAvailableStock(1L));
+    }
+
+    /*
+     压力测试：两个实例共享同一个数据库，64 个线程在任意实例上抢 1000 件库存，并在任意实例上释放 / 确认；
+     额度之和始终不超过数据库库存，数据库库存 + 已确认 始终等于初始库存，停止两个实例后额度之和正好等于持有的预留
+     */
+    @Test
+    void testConcurrentReservationsAcrossReplicasNeverOversell() throws Exception {
+        int stock = 1000;
+        stockTable.put(1L, (long) stock);
+        StockReservationServiceImpl[] replicas = {reservationService, newReplica()};
+        int threads = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong confirmedUnits = new AtomicLong();
+        ConcurrentLinkedQueue<StockReservation> held = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 500; i++) {
+                    StockReservation r = replicas[random.nextInt(2)].reserve(1L, 1 + random.nextInt(3));
+                    synchronized (db) {
+                        assertTrue(leasedUnits(1L) <= stockTable.get(1L));
+                    }
+                    if (r == null) {
+                        continue;
+                    }
+                    int action = random.nextInt(3);
+                    StockReservationServiceImpl replica = replicas[random.nextInt(2)];
+                    if (action == 0) {
+                        assertTrue(replica.release(r.getId()));
+                    } else if (action == 1) {
+                        assertTrue(replica.confirm(r.getId()));
+                        confirmedUnits.addAndGet(r.getQuantity());
+                    } else {
+                        held.add(r);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(confirmedUnits.get(), confirmedUnits());
+        assertTrue(confirmedUnits.get() <= stock);
+        assertEquals(held.stream().mapToLong(StockReservation::getQuantity).sum(), heldUnits());
+
+        assertEquals(stock, stockTable.get(1L) + confirmedUnits());
+
+        for (StockReservationServiceImpl replica : replicas) {
+            replica.shutdown();
+        }
+        assertEquals(heldUnits(), leasedUnits(1L));
+    }
+}
@@ -0,0 +1,47 @@
+package com.nusiss.productservice.util;
+
+import com.nusiss.productservice.config.CustomException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        KeysetCursor cursor = new KeysetCursor("create_datetime", false, "2025-04-01T10:15:30", 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals("create_datetime", decoded.getSortBy());
+        assertFalse(decoded.isAsc());
+        assertEquals("2025-04-01T10:15:30", decoded.getLastValue());
+        assertEquals(42L, decoded.getLastId());
+    }
+
+    @Test
+    void testEncodeDecode_NullSortValue() {
+        KeysetCursor decoded = KeysetCursor.decode(new KeysetCursor("rating", true, null, 7L).encode());
+        assertNull(decoded.getLastValue());
+        assertEquals(7L, decoded.getLastId());
+    }
+
+    @Test
+    void testDecode_EmptyMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(" "));
+    }
+
+    @Test
+    void testDecode_Invalid() {
+        assertThrows(CustomException.class, () -> KeysetCursor.decode("%%%"));
+        assertThrows(CustomException.class, () -> KeysetCursor.decode("dGFtcGVyZWQ"));
+    }
+
+    @Test
+    void testCheckMatches() {
+        KeysetCursor cursor = new KeysetCursor("price", true, "10", 1L);
+        assertDoesNotThrow(() -> cursor.checkMatches("price", true));
+        assertThrows(CustomException.class, () -> cursor.checkMatches("price", false));
+    }
+}